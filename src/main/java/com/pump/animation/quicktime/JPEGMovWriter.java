@@ -16,6 +16,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
@@ -61,6 +62,28 @@ public class JPEGMovWriter extends MovWriter {
 		this.defaultQuality = defaultQuality;
 	}
 
+	/**
+	 * 
+	 * @param file
+	 *            the destination file to write to.
+	 * @param defaultQuality
+	 *            the default JPEG quality (from [0,1]) to use if a frame is
+	 *            added without otherwise specifying this value.
+	 * @param executor
+	 *            the executor to encode frames with, or null to encode frames
+	 *            on the thread that adds them.
+	 * @param maxFramesInFlight
+	 *            the maximum number of frames that may be encoded (or waiting
+	 *            to be written) at once. This must be at least 1.
+	 * @throws IOException
+	 */
+	public JPEGMovWriter(File file, float defaultQuality,
+			ExecutorService executor, int maxFramesInFlight)
+			throws IOException {
+		super(file, executor, maxFramesInFlight);
+		this.defaultQuality = defaultQuality;
+	}
+
 	@Override
 	protected VideoSampleDescriptionEntry getVideoSampleDescriptionEntry() {
 		return VideoSampleDescriptionEntry.createJPEGDescription(videoTrack.w,
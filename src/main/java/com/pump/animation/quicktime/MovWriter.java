@@ -12,16 +12,23 @@ package com.pump.animation.quicktime;
 
 import java.awt.Dimension;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
@@ -46,6 +53,16 @@ import com.pump.io.MeasuredOutputStream;
  * the video and audio data to a <code>FileOutputStream</code>. When
  * <code>close()</code> is called, the movie structure is added and a
  * <code>RandomAccessFile</code> is used to correctly set the size headers.
+ * <P>
+ * If an <code>ExecutorService</code> is passed to the constructor then frames
+ * are encoded on that executor: <code>addFrame(..)</code> submits each frame
+ * and returns, and encoded frames are appended to the movie in the order they
+ * were added. To limit memory use, at most <code>maxFramesInFlight</code>
+ * frames are pending at a time: when that limit is reached,
+ * <code>addFrame(..)</code> blocks until the oldest frame has been written. In
+ * this case the images (and settings) passed to <code>addFrame(..)</code> are
+ * retained after that method returns, so callers should not modify them
+ * afterwards.
  *
  * @see <a
  *      href="https://javagraphics.blogspot.com/2008/06/movies-writing-mov-files-without.html">Movies:
@@ -102,6 +119,38 @@ public abstract class MovWriter {
 		}
 	}
 
+	/**
+	 * Encode one frame into a byte array.
+	 */
+	private class EncodeFrameTask implements Callable<byte[]> {
+		final BufferedImage image;
+		final Map<String, Object> settings;
+
+		EncodeFrameTask(BufferedImage image, Map<String, Object> settings) {
+			this.image = image;
+			this.settings = settings;
+		}
+
+		public byte[] call() throws Exception {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			writeFrame(bytes, image, settings);
+			return bytes.toByteArray();
+		}
+	}
+
+	/**
+	 * A frame that has been submitted to the executor but not yet written.
+	 */
+	private static class PendingFrame {
+		final int duration;
+		final Future<byte[]> future;
+
+		PendingFrame(int duration, Future<byte[]> future) {
+			this.duration = duration;
+			this.future = future;
+		}
+	}
+
 	class VideoTrack {
 		List<VideoSample> samples = new ArrayList<VideoSample>();
 		protected int w = -1, h = -1;
@@ -429,6 +478,18 @@ public abstract class MovWriter {
 	/** The audio tracks to include. */
 	protected AudioTrack[] audioTracks = new AudioTrack[] {};
 
+	/**
+	 * The executor frames are encoded on, or null if frames are encoded on the
+	 * thread that adds them.
+	 */
+	final ExecutorService executor;
+
+	/** The maximum number of frames in <code>pendingFrames</code>. */
+	final int maxFramesInFlight;
+
+	/** Frames that are being encoded, in the order they were added. */
+	final LinkedList<PendingFrame> pendingFrames = new LinkedList<>();
+
 	/**
 	 * Constructs a new <code>MovWriter</code>.
 	 * <P>
@@ -443,6 +504,32 @@ public abstract class MovWriter {
 	 * @throws IOException
 	 */
 	public MovWriter(File file) throws IOException {
+		this(file, null, 1);
+	}
+
+	/**
+	 * Constructs a new <code>MovWriter</code> that encodes frames on an
+	 * <code>ExecutorService</code>.
+	 * 
+	 * @param file
+	 *            the file data is written to. It is strongly recommended that
+	 *            this file name end with ".mov" (or ".MOV"), although this is
+	 *            not required.
+	 * @param executor
+	 *            the executor to encode frames with, or null to encode frames
+	 *            on the thread that adds them.
+	 * @param maxFramesInFlight
+	 *            the maximum number of frames that may be encoded (or waiting
+	 *            to be written) at once. This must be at least 1.
+	 * @throws IOException
+	 */
+	public MovWriter(File file, ExecutorService executor,
+			int maxFramesInFlight) throws IOException {
+		if (maxFramesInFlight < 1)
+			throw new IllegalArgumentException("maxFramesInFlight ("
+					+ maxFramesInFlight + ") must be at least 1");
+		this.executor = executor;
+		this.maxFramesInFlight = maxFramesInFlight;
 		dest = file;
 		file.createNewFile();
 		out = new MeasuredOutputStream(new FileOutputStream(file));
@@ -517,7 +604,7 @@ public abstract class MovWriter {
 		if (closed)
 			throw new RuntimeException("this writer has already been closed");
 
-		if (videoTrack.isEmpty() == false)
+		if (videoTrack.isEmpty() == false || pendingFrames.size() > 0)
 			throw new RuntimeException(
 					"cannot add audio after video data has been started");
 		AudioTrack newTrack;
@@ -575,6 +662,22 @@ public abstract class MovWriter {
 		int relativeDuration = (int) (duration * DEFAULT_TIME_SCALE + .5);
 
 		videoTrack.validateSize(bi.getWidth(), bi.getHeight());
+		if (executor != null) {
+			if (relativeDuration <= 0)
+				throw new InvalidDurationException("duration ("
+						+ relativeDuration + ") must be greater than zero.");
+			while (pendingFrames.size() >= maxFramesInFlight) {
+				writeNextPendingFrame();
+			}
+			pendingFrames.add(new PendingFrame(relativeDuration, executor
+					.submit(new EncodeFrameTask(bi, settings))));
+			// write any frames that are already finished
+			while (pendingFrames.size() > 0
+					&& pendingFrames.getFirst().future.isDone()) {
+				writeNextPendingFrame();
+			}
+			return;
+		}
 		long startPosition = out.getBytesWritten();
 		writeFrame(out, bi, settings);
 		long byteSize = out.getBytesWritten() - startPosition;
@@ -583,6 +686,63 @@ public abstract class MovWriter {
 		videoTrack.addSample(sample);
 	}
 
+	/**
+	 * Wait for the oldest pending frame to finish encoding and write it.
+	 * <p>
+	 * If that frame failed (or this thread is interrupted), all remaining
+	 * pending frames are cancelled.
+	 */
+	private void writeNextPendingFrame() throws IOException {
+		PendingFrame frame = pendingFrames.removeFirst();
+		byte[] encodedFrame;
+		try {
+			encodedFrame = frame.future.get();
+		} catch (InterruptedException e) {
+			cancelPendingFrames();
+			frame.future.cancel(true);
+			Thread.currentThread().interrupt();
+			InterruptedIOException e2 = new InterruptedIOException();
+			e2.initCause(e);
+			throw e2;
+		} catch (ExecutionException e) {
+			cancelPendingFrames();
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IOException(cause);
+		}
+		long dataStart = out.getBytesWritten();
+		out.write(encodedFrame);
+		VideoSample sample = new VideoSample(frame.duration, dataStart,
+				encodedFrame.length);
+		videoTrack.addSample(sample);
+	}
+
+	private void cancelPendingFrames() {
+		for (PendingFrame f : pendingFrames) {
+			f.future.cancel(true);
+		}
+		pendingFrames.clear();
+	}
+
+	/**
+	 * Encode an image.
+	 * <p>
+	 * If this writer was constructed with an <code>ExecutorService</code> then
+	 * this may be called on several threads at once.
+	 * 
+	 * @param out
+	 *            the stream to write the encoded image to.
+	 * @param image
+	 *            the image to encode.
+	 * @param settings
+	 *            the optional settings passed to <code>addFrame(..)</code>.
+	 * @throws IOException
+	 */
 	protected abstract void writeFrame(OutputStream out, BufferedImage image,
 			Map<String, Object> settings) throws IOException;
 
@@ -611,6 +771,9 @@ public abstract class MovWriter {
 			throw new IllegalArgumentException(
 					"this writer has already been closed");
 
+		while (pendingFrames.size() > 0) {
+			writeNextPendingFrame();
+		}
 		int relativeTime = (int) (duration * DEFAULT_TIME_SCALE + .5);
 		videoTrack.addFrame(relativeTime, image);
 	}
@@ -622,6 +785,9 @@ public abstract class MovWriter {
 
 	/**
 	 * This finishes writing the movie file.
+	 * <p>
+	 * Frames that are still being encoded are written before the movie
+	 * structure is added.
 	 * 
 	 * @param writeRemainingAudio
 	 *            if true then unfinished AudioInputStreams continue to write to
@@ -640,6 +806,15 @@ public abstract class MovWriter {
 
 		long mdatSize;
 		try {
+			synchronized (this) {
+				try {
+					while (pendingFrames.size() > 0) {
+						writeNextPendingFrame();
+					}
+				} finally {
+					cancelPendingFrames();
+				}
+			}
 			videoTrack.close();
 			if (writeRemainingAudio) {
 				writeAudioLoop: while (true) {
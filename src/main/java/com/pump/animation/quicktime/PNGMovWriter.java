@@ -15,6 +15,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import javax.imageio.ImageIO;
 
@@ -27,6 +28,23 @@ public class PNGMovWriter extends MovWriter {
 		super(file);
 	}
 
+	/**
+	 * 
+	 * @param file
+	 *            the destination file to write to.
+	 * @param executor
+	 *            the executor to encode frames with, or null to encode frames
+	 *            on the thread that adds them.
+	 * @param maxFramesInFlight
+	 *            the maximum number of frames that may be encoded (or waiting
+	 *            to be written) at once. This must be at least 1.
+	 * @throws IOException
+	 */
+	public PNGMovWriter(File file, ExecutorService executor,
+			int maxFramesInFlight) throws IOException {
+		super(file, executor, maxFramesInFlight);
+	}
+
 	@Override
 	protected VideoSampleDescriptionEntry getVideoSampleDescriptionEntry() {
 		return VideoSampleDescriptionEntry.createPNGDescription(videoTrack.w,
@@ -102,4 +102,198 @@ public class PCMUtils {
 					+ sampleSize);
 		}
 	}
+
+	/**
+	 * Decode several consecutive samples. This is equivalent to calling
+	 * {@link #decodeSample(byte[], int, int, boolean, boolean)} for each
+	 * sample, but each format is decoded in its own loop.
+	 * 
+	 * @param data
+	 *            the encoded samples.
+	 * @param offset
+	 *            the offset in <code>data</code> of the first sample.
+	 * @param dest
+	 *            the array to store the decoded samples in.
+	 * @param destOffset
+	 *            the index in <code>dest</code> of the first decoded sample.
+	 * @param sampleCount
+	 *            the number of samples to decode.
+	 * @param sampleSize
+	 *            the number of bytes in each sample (1 or 2).
+	 * @param isSigned
+	 *            whether samples are signed.
+	 * @param isBigEndian
+	 *            whether 2-byte samples are big-endian.
+	 */
+	public static void decodeSamples(byte[] data, int offset, int[] dest,
+			int destOffset, int sampleCount, int sampleSize,
+			boolean isSigned, boolean isBigEndian) {
+		// each format has its own method so the compiler can optimize each
+		// loop independently
+		if (sampleSize == 1) {
+			if (isSigned) {
+				decode8Signed(data, offset, dest, destOffset, sampleCount);
+			} else {
+				decode8Unsigned(data, offset, dest, destOffset, sampleCount);
+			}
+		} else if (sampleSize == 2) {
+			if (isBigEndian) {
+				if (isSigned) {
+					decode16SignedBigEndian(data, offset, dest, destOffset,
+							sampleCount);
+				} else {
+					decode16UnsignedBigEndian(data, offset, dest, destOffset,
+							sampleCount);
+				}
+			} else {
+				if (isSigned) {
+					decode16SignedLittleEndian(data, offset, dest,
+							destOffset, sampleCount);
+				} else {
+					decode16UnsignedLittleEndian(data, offset, dest,
+							destOffset, sampleCount);
+				}
+			}
+		} else {
+			throw new IllegalArgumentException("unsupported sampleSize: "
+					+ sampleSize);
+		}
+	}
+
+	private static void decode8Signed(byte[] data, int offset, int[] dest,
+			int destOffset, int sampleCount) {
+		for (int i = 0; i < sampleCount; i++) {
+			dest[destOffset + i] = data[offset + i];
+		}
+	}
+
+	private static void decode8Unsigned(byte[] data, int offset, int[] dest,
+			int destOffset, int sampleCount) {
+		for (int i = 0; i < sampleCount; i++) {
+			dest[destOffset + i] = data[offset + i] & 0xff;
+		}
+	}
+
+	private static void decode16SignedBigEndian(byte[] data, int offset,
+			int[] dest, int destOffset, int sampleCount) {
+		for (int i = 0; i < sampleCount; i++) {
+			int j = offset + 2 * i;
+			dest[destOffset + i] = (data[j] << 8) | (data[j + 1] & 0xff);
+		}
+	}
+
+	private static void decode16UnsignedBigEndian(byte[] data, int offset,
+			int[] dest, int destOffset, int sampleCount) {
+		for (int i = 0; i < sampleCount; i++) {
+			int j = offset + 2 * i;
+			dest[destOffset + i] = ((data[j] & 0xff) << 8)
+					| (data[j + 1] & 0xff);
+		}
+	}
+
+	private static void decode16SignedLittleEndian(byte[] data, int offset,
+			int[] dest, int destOffset, int sampleCount) {
+		for (int i = 0; i < sampleCount; i++) {
+			int j = offset + 2 * i;
+			dest[destOffset + i] = (data[j + 1] << 8) | (data[j] & 0xff);
+		}
+	}
+
+	private static void decode16UnsignedLittleEndian(byte[] data, int offset,
+			int[] dest, int destOffset, int sampleCount) {
+		for (int i = 0; i < sampleCount; i++) {
+			int j = offset + 2 * i;
+			dest[destOffset + i] = ((data[j + 1] & 0xff) << 8)
+					| (data[j] & 0xff);
+		}
+	}
+
+	/**
+	 * Encode several consecutive samples. This is equivalent to calling
+	 * {@link #encodeSample(int, byte[], int, int, boolean, boolean)} for each
+	 * sample, but each format is encoded in its own loop.
+	 * 
+	 * @param values
+	 *            the samples to encode.
+	 * @param valuesOffset
+	 *            the index in <code>values</code> of the first sample.
+	 * @param data
+	 *            the array to store the encoded samples in.
+	 * @param offset
+	 *            the offset in <code>data</code> of the first encoded sample.
+	 * @param sampleCount
+	 *            the number of samples to encode.
+	 * @param sampleSize
+	 *            the number of bytes in each sample (1 or 2).
+	 * @param isSigned
+	 *            whether samples are signed.
+	 * @param isBigEndian
+	 *            whether 2-byte samples are big-endian.
+	 * @throws IllegalArgumentException
+	 *             if a value is out of range for this format.
+	 */
+	public static void encodeSamples(int[] values, int valuesOffset,
+			byte[] data, int offset, int sampleCount, int sampleSize,
+			boolean isSigned, boolean isBigEndian) {
+		int min, max;
+		if (sampleSize == 1) {
+			min = isSigned ? -128 : 0;
+			max = isSigned ? 127 : 255;
+		} else if (sampleSize == 2) {
+			min = isSigned ? -32768 : 0;
+			max = isSigned ? 32767 : 65535;
+		} else {
+			throw new IllegalArgumentException("unsupported sampleSize: "
+					+ sampleSize);
+		}
+		checkRange(values, valuesOffset, sampleCount, min, max);
+
+		// the sign doesn't matter once the range is checked: we only write
+		// the lowest bits of each value
+		if (sampleSize == 1) {
+			encode8(values, valuesOffset, data, offset, sampleCount);
+		} else if (isBigEndian) {
+			encode16BigEndian(values, valuesOffset, data, offset, sampleCount);
+		} else {
+			encode16LittleEndian(values, valuesOffset, data, offset,
+					sampleCount);
+		}
+	}
+
+	private static void checkRange(int[] values, int valuesOffset,
+			int sampleCount, int min, int max) {
+		for (int i = 0; i < sampleCount; i++) {
+			int value = values[valuesOffset + i];
+			if (value < min || value > max)
+				throw new IllegalArgumentException("value (" + value
+						+ ") must be between [" + min + ", " + max + "]");
+		}
+	}
+
+	private static void encode8(int[] values, int valuesOffset, byte[] data,
+			int offset, int sampleCount) {
+		for (int i = 0; i < sampleCount; i++) {
+			data[offset + i] = (byte) values[valuesOffset + i];
+		}
+	}
+
+	private static void encode16BigEndian(int[] values, int valuesOffset,
+			byte[] data, int offset, int sampleCount) {
+		for (int i = 0; i < sampleCount; i++) {
+			int value = values[valuesOffset + i];
+			int j = offset + 2 * i;
+			data[j] = (byte) (value >> 8);
+			data[j + 1] = (byte) value;
+		}
+	}
+
+	private static void encode16LittleEndian(int[] values, int valuesOffset,
+			byte[] data, int offset, int sampleCount) {
+		for (int i = 0; i < sampleCount; i++) {
+			int value = values[valuesOffset + i];
+			int j = offset + 2 * i;
+			data[j] = (byte) value;
+			data[j + 1] = (byte) (value >> 8);
+		}
+	}
 }
\ No newline at end of file
@@ -109,6 +109,10 @@ public class StretchedAudioInputStream extends AudioInputStream {
 		public void run() {
 			try {
 				byte[] data = new byte[2048 * frameSize];
+				// frames are copied here and written in blocks, because each
+				// write to a PipedOutputStream is relatively expensive
+				byte[] outputData = new byte[2048 * frameSize];
+				int outputLength = 0;
 
 				int read;
 				long inputFrameIndex = 0;
@@ -118,12 +122,19 @@ public class StretchedAudioInputStream extends AudioInputStream {
 						long mappedFrame = (long) function
 								.evaluate(inputFrameIndex);
 						while (outputFrameIndex <= mappedFrame) {
-							out.write(data, t, frameSize);
+							if (outputLength == outputData.length) {
+								out.write(outputData, 0, outputLength);
+								outputLength = 0;
+							}
+							System.arraycopy(data, t, outputData,
+									outputLength, frameSize);
+							outputLength += frameSize;
 							outputFrameIndex++;
 						}
 						inputFrameIndex++;
 					}
 				}
+				out.write(outputData, 0, outputLength);
 			} catch (IOException e) {
 				if (e.getMessage().toLowerCase().contains("read end dead")) {
 					// do nothing: someone closed the receiving input stream, so
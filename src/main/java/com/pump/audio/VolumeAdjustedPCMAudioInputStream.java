@@ -54,29 +54,45 @@ public abstract class VolumeAdjustedPCMAudioInputStream extends
 		}
 	}
 
+	/**
+	 * The decoded samples of the frames being filtered.
+	 */
+	private int[] samples = new int[0];
+
 	@Override
 	protected void filterFrames(byte[] data, int off, int frameCount) {
-		int frameOffset = off;
+		int samplesPerFrame = frameSize / sampleSize;
+		int sampleCount = frameCount * samplesPerFrame;
+		boolean decoded = false;
+		int i = 0;
 		for (int frame = 0; frame < frameCount; frame++) {
 			float time = (framePos - frameCount + frame)
 					/ format.getFrameRate();
 			float volume = getVolume(time);
 
 			if (volume < .999f || volume > 1.001f) {
-				for (int byteIndex = 0; byteIndex < frameSize; byteIndex += sampleSize) {
-					int value = PCMUtils.decodeSample(data, frameOffset
-							+ byteIndex, sampleSize, isSigned, isBigEndian);
-					value = (int) (value * volume);
+				if (!decoded) {
+					if (samples.length < sampleCount)
+						samples = new int[sampleCount];
+					PCMUtils.decodeSamples(data, off, samples, 0,
+							sampleCount, sampleSize, isSigned, isBigEndian);
+					decoded = true;
+				}
+				for (int end = i + samplesPerFrame; i < end; i++) {
+					int value = (int) (samples[i] * volume);
 					if (value > maxSampleValue)
 						value = maxSampleValue;
 					if (value < minSampleValue)
 						value = minSampleValue;
-					PCMUtils.encodeSample(value, data, frameOffset + byteIndex,
-							sampleSize, isSigned, isBigEndian);
+					samples[i] = value;
 				}
+			} else {
+				i += samplesPerFrame;
 			}
-			frameOffset += frameSize;
 		}
+		if (decoded)
+			PCMUtils.encodeSamples(samples, 0, data, off, sampleCount,
+					sampleSize, isSigned, isBigEndian);
 	}
 
 	/**
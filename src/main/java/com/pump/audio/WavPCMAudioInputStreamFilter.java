@@ -80,6 +80,11 @@ public class WavPCMAudioInputStreamFilter extends FrameFilterAudioInputStream {
 			isDestSigned;
 	final int valueDelta;
 
+	/**
+	 * The decoded samples of the frames being filtered.
+	 */
+	private int[] samples = new int[0];
+
 	public WavPCMAudioInputStreamFilter(AudioInputStream audioIn) {
 		super(audioIn);
 		sourceFormat = audioIn.getFormat();
@@ -137,24 +142,17 @@ public class WavPCMAudioInputStreamFilter extends FrameFilterAudioInputStream {
 			return;
 		} else {
 			int sampleCount = frameCount * samplesPerFrame;
+			if (samples.length < sampleCount)
+				samples = new int[sampleCount];
+			PCMUtils.decodeSamples(data, off, samples, 0, sampleCount,
+					sampleSize, isSourceSigned, isSourceBigEndian);
 			if (valueDelta != 0) {
 				for (int i = 0; i < sampleCount; i++) {
-					int value = PCMUtils.decodeSample(data, off, sampleSize,
-							isSourceSigned, isSourceBigEndian);
-					value += valueDelta;
-					PCMUtils.encodeSample(value, data, off, sampleSize,
-							isDestSigned, isDestBigEndian);
-					off += sampleSize;
-				}
-			} else {
-				for (int i = 0; i < sampleCount; i++) {
-					int value = PCMUtils.decodeSample(data, off, sampleSize,
-							isSourceSigned, isSourceBigEndian);
-					PCMUtils.encodeSample(value, data, off, sampleSize,
-							isDestSigned, isDestBigEndian);
-					off += sampleSize;
+					samples[i] += valueDelta;
 				}
 			}
+			PCMUtils.encodeSamples(samples, 0, data, off, sampleCount,
+					sampleSize, isDestSigned, isDestBigEndian);
 		}
 	}
 }
\ No newline at end of file
@@ -19,10 +19,13 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -39,6 +42,26 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 public class AbstractAttributeDataImpl implements Serializable {
 	private static final long serialVersionUID = 1L;
 
+	/**
+	 * A token that identifies an edit started by {@link #beginEdit()}.
+	 */
+	public static class Edit {
+
+	}
+
+	/**
+	 * The net change of one attribute during an edit.
+	 */
+	private static class PendingChange {
+		final Object oldValue;
+		Object newValue;
+
+		PendingChange(Object oldValue, Object newValue) {
+			this.oldValue = oldValue;
+			this.newValue = newValue;
+		}
+	}
+
 	private static class PropertyChangeListenerDescriptor {
 		PropertyChangeListener listener;
 		String propertyName;
@@ -58,6 +81,10 @@ public class AbstractAttributeDataImpl implements Serializable {
 	protected Map<String, Object> data = new HashMap<>();
 	private transient List<PropertyChangeListenerDescriptor> listeners;
 	private transient ReadWriteLock lock;
+	private transient Set<Edit> activeEdits;
+	private transient LinkedHashMap<String, PendingChange> pendingChanges;
+	private transient long suppressedEventCount;
+	private transient volatile Executor listenerExecutor;
 
 	/**
 	 * Create an empty AttributeDataImpl.
@@ -80,6 +107,8 @@ public class AbstractAttributeDataImpl implements Serializable {
 	private void initialize() {
 		listeners = new ArrayList<>();
 		lock = new ReentrantReadWriteLock();
+		activeEdits = new HashSet<>();
+		pendingChanges = new LinkedHashMap<>();
 	}
 
 	private void writeObject(java.io.ObjectOutputStream out) throws IOException {
@@ -164,23 +193,138 @@ public class AbstractAttributeDataImpl implements Serializable {
 		}
 	}
 
+	/**
+	 * Begin an edit that postpones all PropertyChangeEvents until
+	 * {@link #endEdit(Edit)} is called.
+	 * <p>
+	 * Changes made during an edit are collapsed so each attribute fires at
+	 * most one PropertyChangeEvent (from its original value to its final
+	 * value) when the last active edit ends. Attributes whose final value
+	 * equals their original value do not fire any event.
+	 * 
+	 * @return a unique identifier to pass to <code>endEdit()</code> when your
+	 *         changes are complete.
+	 */
+	protected Edit beginEdit() {
+		synchronized (activeEdits) {
+			Edit newEdit = new Edit();
+			activeEdits.add(newEdit);
+			return newEdit;
+		}
+	}
+
+	/**
+	 * End an edit started by {@link #beginEdit()}. When there are no other
+	 * active edits this fires all pending PropertyChangeEvents.
+	 */
+	protected void endEdit(Edit edit) {
+		PropertyChangeEvent[] events;
+		synchronized (activeEdits) {
+			if (!activeEdits.remove(edit))
+				throw new IllegalStateException("This edit already ended.");
+			if (!activeEdits.isEmpty())
+				return;
+			synchronized (pendingChanges) {
+				List<PropertyChangeEvent> list = new ArrayList<>(
+						pendingChanges.size());
+				for (Entry<String, PendingChange> entry : pendingChanges
+						.entrySet()) {
+					PendingChange change = entry.getValue();
+					if (!Objects.equals(change.oldValue, change.newValue)) {
+						list.add(new PropertyChangeEvent(this, entry.getKey(),
+								change.oldValue, change.newValue));
+					} else {
+						suppressedEventCount++;
+					}
+				}
+				pendingChanges.clear();
+				events = list.toArray(new PropertyChangeEvent[list.size()]);
+			}
+		}
+		if (events.length > 0)
+			firePropertyChangeEvents(events);
+	}
+
+	/**
+	 * Return the number of PropertyChangeEvents that were never fired because
+	 * they were collapsed into other events during an edit.
+	 * 
+	 * @see #beginEdit()
+	 */
+	protected long getSuppressedEventCount() {
+		synchronized (pendingChanges) {
+			return suppressedEventCount;
+		}
+	}
+
+	/**
+	 * Assign the Executor used to notify listeners.
+	 * <p>
+	 * If this is null (the default) then listeners are notified immediately
+	 * in the thread that changed an attribute (or the thread that ended the
+	 * last edit). Otherwise each group of PropertyChangeEvents is passed to
+	 * this Executor as one Runnable.
+	 */
+	protected void setListenerExecutor(Executor executor) {
+		listenerExecutor = executor;
+	}
+
+	protected Executor getListenerExecutor() {
+		return listenerExecutor;
+	}
+
 	protected void firePropertyChangeListeners(String propertyName,
 			Object oldValue, Object newValue) {
+		synchronized (activeEdits) {
+			if (!activeEdits.isEmpty()) {
+				synchronized (pendingChanges) {
+					PendingChange change = pendingChanges.get(propertyName);
+					if (change == null) {
+						pendingChanges.put(propertyName, new PendingChange(
+								oldValue, newValue));
+					} else {
+						change.newValue = newValue;
+						suppressedEventCount++;
+					}
+				}
+				return;
+			}
+		}
+		firePropertyChangeEvents(new PropertyChangeEvent(this, propertyName,
+				oldValue, newValue));
+	}
+
+	private void firePropertyChangeEvents(final PropertyChangeEvent... events) {
+		Executor executor = listenerExecutor;
+		if (executor == null) {
+			notifyListeners(events);
+		} else {
+			executor.execute(new Runnable() {
+				public void run() {
+					notifyListeners(events);
+				}
+			});
+		}
+	}
+
+	private void notifyListeners(PropertyChangeEvent... events) {
 		PropertyChangeListenerDescriptor[] listenerArray;
 		synchronized (listeners) {
 			listenerArray = listeners
 					.toArray(new PropertyChangeListenerDescriptor[listeners
 							.size()]);
 		}
-		for (PropertyChangeListenerDescriptor pcld : listenerArray) {
-			try {
-				if (pcld.accepts(propertyName)) {
-					pcld.listener.propertyChange(new PropertyChangeEvent(this,
-							propertyName, oldValue, newValue));
+		for (PropertyChangeEvent event : events) {
+			String propertyName = event.getPropertyName();
+			for (PropertyChangeListenerDescriptor pcld : listenerArray) {
+				try {
+					if (pcld.accepts(propertyName)) {
+						pcld.listener.propertyChange(event);
+					}
+				} catch (Exception e) {
+					handleUncaughtListenerException(e, propertyName,
+							event.getOldValue(), event.getNewValue());
 				}
-			} catch (Exception e) {
-				handleUncaughtListenerException(e, propertyName, oldValue,
-						newValue);
 			}
 		}
 	}
@@ -190,8 +334,21 @@ public class AbstractAttributeDataImpl implements Serializable {
 		e.printStackTrace();
 	}
 
+	/**
+	 * Copy several attributes into this object.
+	 * <p>
+	 * This takes place inside an edit, so listeners are notified once per
+	 * changed attribute after all the attributes have been assigned.
+	 * 
+	 * @param incomingData
+	 *            the attributes to assign.
+	 * @param completeReplace
+	 *            if true then all attributes not in <code>incomingData</code>
+	 *            are removed.
+	 */
 	protected void putAllAttributes(Map<String, Object> incomingData,
 			boolean completeReplace) {
+		Edit edit = beginEdit();
 		getAttributeLock().writeLock().lock();
 		try {
 			for (Entry<String, Object> entry : incomingData.entrySet()) {
@@ -209,6 +366,7 @@ public class AbstractAttributeDataImpl implements Serializable {
 			}
 		} finally {
 			getAttributeLock().writeLock().unlock();
+			endEdit(edit);
 		}
 	}
 
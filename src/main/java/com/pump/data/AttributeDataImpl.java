@@ -12,6 +12,7 @@ package com.pump.data;
 
 import java.beans.PropertyChangeListener;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.concurrent.locks.ReadWriteLock;
 
 /**
@@ -85,4 +86,29 @@ public class AttributeDataImpl extends AbstractAttributeDataImpl implements
 	public void removeAttributePropertyChangeListener(PropertyChangeListener pcl) {
 		super.removePropertyChangeListener(pcl);
 	}
+
+	@Override
+	public Edit beginEdit() {
+		return super.beginEdit();
+	}
+
+	@Override
+	public void endEdit(Edit edit) {
+		super.endEdit(edit);
+	}
+
+	@Override
+	public long getSuppressedEventCount() {
+		return super.getSuppressedEventCount();
+	}
+
+	@Override
+	public void setListenerExecutor(Executor executor) {
+		super.setListenerExecutor(executor);
+	}
+
+	@Override
+	public Executor getListenerExecutor() {
+		return super.getListenerExecutor();
+	}
 }
\ No newline at end of file
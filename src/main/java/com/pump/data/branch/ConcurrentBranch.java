@@ -0,0 +1,988 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.data.branch;
+
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
+
+import com.pump.data.BeanState;
+
+/**
+ * This is an implementation of {@link Branch} that stores all its revisions in
+ * memory and lets many threads read and write at once.
+ * <p>
+ * Every field of every bean is an immutable chain of versions (newest first).
+ * Writers prepend a new version to a chain, so readers never take a lock: they
+ * walk the chain until they reach the revision they're interested in.
+ * <p>
+ * Writers only block each other if they modify beans that share a lock stripe.
+ * Each write is assigned its own revision, and revisions are committed in
+ * order: {@link #getRevision()} always returns a revision whose writes (and
+ * all earlier writes) are complete, so a revision is a stable snapshot that
+ * later writes can't change.
+ * <p>
+ * {@link #acquireWriteLock()} still groups several writes into one revision,
+ * but that write lock is exclusive: it waits for all other writers to finish.
+ * {@link #acquireReadLock()} does not block anything; to read several values
+ * consistently pass the same <code>Revision</code> to each read.
+ * <p>
+ * When this branch is saved only the beans modified since the last save are
+ * validated and copied to the parent.
+ * <p>
+ * Old versions are discarded once nothing can read them: a version is kept
+ * if it is newer than the last save (or, in a branch without a parent, the
+ * last commit), or if a <code>Revision</code> returned by
+ * {@link #getRevision()} that is still reachable needs it. Reading a revision
+ * whose versions were discarded (such as a clone of a revision that has since
+ * been garbage collected) throws an {@link IllegalRevisionBranchException}.
+ */
+public class ConcurrentBranch<K> extends AbstractBranch<K> {
+
+	private static final Object NULL = new Object();
+	private static final String FIELD_DELETED = ConcurrentBranch.class
+			.getName() + "#isDeleted";
+	private static final String FIELD_CREATED = ConcurrentBranch.class
+			.getName() + "#isCreated";
+
+	/**
+	 * The object {@link #acquireReadLock()} returns. Reads don't lock
+	 * anything, so this is only a placeholder.
+	 */
+	private static final Object READ_LOCK = new Object();
+
+	private static final int STRIPE_COUNT = 64;
+
+	/**
+	 * One immutable value of a field.
+	 */
+	static class Version {
+		final long revision;
+		final Object value;
+
+		/**
+		 * The previous version, or {@link ConcurrentBranch#PRUNED} if older
+		 * versions were discarded. Readers may see either value, and both
+		 * are correct for every revision that can still be read.
+		 */
+		Version previous;
+
+		/**
+		 * The revision the versions below this one were last pruned to.
+		 */
+		final long prunedRevision;
+
+		Version(long revision, Object value, Version previous,
+				long prunedRevision) {
+			this.revision = revision;
+			this.value = value;
+			this.previous = previous;
+			this.prunedRevision = prunedRevision;
+		}
+	}
+
+	/**
+	 * The end of a chain whose older versions were discarded.
+	 */
+	static final Version PRUNED = new Version(Long.MIN_VALUE, null, null,
+			Long.MIN_VALUE);
+
+	/**
+	 * Thrown when a read needs a version that was discarded. A read of the
+	 * current revision only sees this if writers commit and prune while it
+	 * reads, so those reads try again with the new current revision.
+	 */
+	private static class PrunedVersionException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * A Revision returned by {@link ConcurrentBranch#getRevision()}.
+	 */
+	private static class RevisionReference extends WeakReference<Revision> {
+		final long number;
+
+		RevisionReference(Revision revision, ReferenceQueue<Revision> queue) {
+			super(revision, queue);
+			number = revision.getNumber().longValue();
+		}
+	}
+
+	/**
+	 * All the fields of a bean this branch modified.
+	 */
+	static class BeanRecord {
+		final Map<String, Version> fields = new ConcurrentHashMap<>();
+
+		/**
+		 * The revision of the first field (other than the created/deleted
+		 * markers) this branch assigned, or Long.MAX_VALUE.
+		 */
+		volatile long firstFieldRevision = Long.MAX_VALUE;
+	}
+
+	protected final Map<K, BeanRecord> dataByBeanId = new ConcurrentHashMap<>();
+
+	/**
+	 * Beans that have been modified since this branch was last saved.
+	 */
+	protected final Set<K> unsavedBeans = Collections
+			.newSetFromMap(new ConcurrentHashMap<K, Boolean>());
+
+	/**
+	 * Writers hold the read lock, and {@link #acquireWriteLock()} holds the
+	 * write lock.
+	 */
+	protected final ReentrantReadWriteLock writerLock = new ReentrantReadWriteLock();
+	private final ReentrantLock[] stripes = new ReentrantLock[STRIPE_COUNT];
+
+	private final AtomicLong lastAllocatedRevision = new AtomicLong();
+	private final Object commitMonitor = new Object();
+	private volatile long committedRevision = 0;
+
+	/** The revision writes use while {@link #writerLock} is write-locked. */
+	private long groupRevision;
+
+	private volatile long lastSavedRevision = 0;
+
+	/**
+	 * The number of reachable Revisions {@link #getRevision()} returned, by
+	 * revision number. This also guards {@link #revisionReferences}.
+	 */
+	private final TreeMap<Long, Integer> reachableRevisions = new TreeMap<>();
+	private final Set<RevisionReference> revisionReferences = new HashSet<>();
+	private final ReferenceQueue<Revision> releasedRevisions = new ReferenceQueue<>();
+
+	/**
+	 * Versions older than the newest version at this revision are never read.
+	 */
+	private volatile long pruneRevision = 0;
+
+	protected UncaughtExceptionHandler uncaughtExceptionHandler = new UncaughtExceptionHandler() {
+
+		@Override
+		public void uncaughtException(Thread t, Throwable e) {
+			e.printStackTrace();
+		}
+	};
+
+	public ConcurrentBranch(String name) {
+		this(null, null, name);
+	}
+
+	protected ConcurrentBranch(Branch<K> parent, Revision parentRevision,
+			String name) {
+		super(parent, parentRevision, name);
+		for (int a = 0; a < stripes.length; a++) {
+			stripes[a] = new ReentrantLock();
+		}
+	}
+
+	@Override
+	public Branch<K> createBranch(String name) {
+		return new ConcurrentBranch<K>(this, getRevision(), name);
+	}
+
+	/**
+	 * Return the current revision. The versions this revision needs are kept
+	 * as long as the returned object is reachable.
+	 */
+	@Override
+	public Revision getRevision() {
+		synchronized (reachableRevisions) {
+			Long number = Long.valueOf(getReadRevision());
+			Revision revision = new Revision(this, number);
+			revisionReferences.add(new RevisionReference(revision,
+					releasedRevisions));
+			Integer count = reachableRevisions.get(number);
+			reachableRevisions.put(number,
+					Integer.valueOf(count == null ? 1 : count.intValue() + 1));
+			return revision;
+		}
+	}
+
+	/**
+	 * Recalculate {@link #pruneRevision}.
+	 */
+	private void updatePruneRevision() {
+		synchronized (reachableRevisions) {
+			RevisionReference ref;
+			while ((ref = (RevisionReference) releasedRevisions
+					.poll()) != null) {
+				revisionReferences.remove(ref);
+				Long number = Long.valueOf(ref.number);
+				int count = reachableRevisions.get(number).intValue();
+				if (count == 1) {
+					reachableRevisions.remove(number);
+				} else {
+					reachableRevisions.put(number, Integer.valueOf(count - 1));
+				}
+			}
+			// a branch without a parent never saves, so it doesn't need to
+			// keep unsaved versions:
+			long revision = parent == null ? committedRevision
+					: lastSavedRevision;
+			if (!reachableRevisions.isEmpty())
+				revision = Math.min(revision, reachableRevisions.firstKey());
+			pruneRevision = revision;
+		}
+	}
+
+	/**
+	 * Discard the versions in a chain that are older than the newest version
+	 * that is not newer than a revision.
+	 */
+	private static void prune(Version head, long revision) {
+		while (head != null && head != PRUNED && head.revision > revision) {
+			head = head.previous;
+		}
+		if (head != null && head != PRUNED && head.previous != null)
+			head.previous = PRUNED;
+	}
+
+	/**
+	 * Throw an exception if a read of a specific revision needed discarded
+	 * versions. If no revision was specified the caller should read the
+	 * current revision instead.
+	 */
+	private void checkPrunedRead(Revision revision) {
+		if (revision != null)
+			throw new IllegalRevisionBranchException("The revision "
+					+ revision + " of branch \"" + getName()
+					+ "\" is no longer available.", this, revision);
+	}
+
+	/**
+	 * Return a placeholder lock. Reads never block, and this does not prevent
+	 * other threads from writing.
+	 */
+	@Override
+	public Object acquireReadLock() {
+		return READ_LOCK;
+	}
+
+	/**
+	 * Acquire an exclusive write lock. All writes this thread makes until the
+	 * lock is released belong to the same revision.
+	 */
+	@Override
+	public Object acquireWriteLock() {
+		WriteLock lock = writerLock.writeLock();
+		lock.lock();
+		if (lock.getHoldCount() == 1) {
+			groupRevision = lastAllocatedRevision.incrementAndGet();
+		}
+		return lock;
+	}
+
+	@Override
+	public void releaseLock(Object lock) {
+		if (lock == READ_LOCK)
+			return;
+		WriteLock w = (WriteLock) lock;
+		if (w.getHoldCount() == 1) {
+			commit(groupRevision);
+		}
+		w.unlock();
+	}
+
+	/**
+	 * Return the revision reads should use if no revision is specified.
+	 */
+	private long getReadRevision() {
+		if (writerLock.isWriteLockedByCurrentThread())
+			return groupRevision;
+		return committedRevision;
+	}
+
+	private long getRevisionNumber(Revision revision) {
+		if (revision == null)
+			return getReadRevision();
+		if (revision.getBranch() != this)
+			throw new IllegalRevisionBranchException(
+					"The revision provided relates to branch \""
+							+ revision.getBranch().getName() + "\" (not \""
+							+ getName() + "\"", this, revision);
+		return revision.getNumber().longValue();
+	}
+
+	private Revision toRevision(Version version) {
+		return version == null ? null : new Revision(this,
+				Long.valueOf(version.revision));
+	}
+
+	/**
+	 * Return the newest version in a chain that is not newer than a revision.
+	 */
+	private static Version getVersion(Version head, long revision) {
+		while (head != null && head.revision > revision) {
+			head = head.previous;
+		}
+		if (head == PRUNED)
+			throw new PrunedVersionException();
+		return head;
+	}
+
+	private ReentrantLock getStripe(K beanId) {
+		int h = beanId.hashCode();
+		h ^= (h >>> 16);
+		return stripes[h & (STRIPE_COUNT - 1)];
+	}
+
+	/**
+	 * Lock a bean for writing and return the revision to write to. This must
+	 * be followed by a call to {@link #endWrite(Object, long)}.
+	 */
+	private long beginWrite(K beanId) {
+		if (writerLock.isWriteLockedByCurrentThread())
+			return groupRevision;
+		writerLock.readLock().lock();
+		getStripe(beanId).lock();
+		return lastAllocatedRevision.incrementAndGet();
+	}
+
+	private void endWrite(K beanId, long revision) {
+		if (writerLock.isWriteLockedByCurrentThread())
+			return;
+		getStripe(beanId).unlock();
+		try {
+			commit(revision);
+		} finally {
+			writerLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Mark a revision as complete. This waits until all earlier revisions are
+	 * complete.
+	 */
+	private void commit(long revision) {
+		synchronized (commitMonitor) {
+			boolean interrupted = false;
+			while (committedRevision != revision - 1) {
+				try {
+					commitMonitor.wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			committedRevision = revision;
+			commitMonitor.notifyAll();
+			updatePruneRevision();
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Store a new version of a field, and prune its older versions if
+	 * {@link #pruneRevision} changed since they were last pruned. The caller
+	 * must hold the bean's write lock.
+	 */
+	private void putVersion(K beanId, String fieldName, long revision,
+			Object value) {
+		BeanRecord record = dataByBeanId.get(beanId);
+		if (record == null) {
+			record = new BeanRecord();
+			dataByBeanId.put(beanId, record);
+		}
+		Version head = record.fields.get(fieldName);
+		if (head != null && head.revision == revision)
+			head = head.previous;
+		long prunedRevision = pruneRevision;
+		if (head != null && head.prunedRevision < prunedRevision)
+			prune(head, prunedRevision);
+		record.fields.put(fieldName, new Version(revision, value, head,
+				prunedRevision));
+		if (!isMarker(fieldName) && record.firstFieldRevision > revision)
+			record.firstFieldRevision = revision;
+		unsavedBeans.add(beanId);
+	}
+
+	private static boolean isMarker(String fieldName) {
+		return FIELD_CREATED.equals(fieldName)
+				|| FIELD_DELETED.equals(fieldName);
+	}
+
+	@Override
+	public BeanState getState(K beanId, Revision revision) {
+		if (beanId == null)
+			throw new NullPointerException();
+		while (true) {
+			try {
+				return getState(beanId, getRevisionNumber(revision));
+			} catch (PrunedVersionException e) {
+				checkPrunedRead(revision);
+			}
+		}
+	}
+
+	private BeanState getState(K beanId, long revision) {
+		BeanRecord record = dataByBeanId.get(beanId);
+		Version deleted = record == null ? null : getVersion(
+				record.fields.get(FIELD_DELETED), revision);
+		Version created = record == null ? null : getVersion(
+				record.fields.get(FIELD_CREATED), revision);
+
+		if (deleted == null && created == null) {
+			// this branch neither created nor deleted this bean
+			if (record != null && record.firstFieldRevision <= revision)
+				return BeanState.EXISTS;
+			if (parent != null) {
+				BeanState returnValue = parent.getState(beanId, parentRevision);
+				if (returnValue == BeanState.CREATED)
+					returnValue = BeanState.EXISTS;
+				return returnValue;
+			}
+			return BeanState.UNDEFINED;
+		} else if (deleted == null) {
+			return BeanState.CREATED;
+		} else if (created == null) {
+			return BeanState.DELETED;
+		} else if (deleted.revision < created.revision) {
+			return BeanState.CREATED;
+		}
+		return BeanState.DELETED;
+	}
+
+	@Override
+	public Object getField(K beanId, String fieldName, Revision revision)
+			throws MissingBeanException {
+		if (beanId == null)
+			throw new NullPointerException();
+		if (fieldName == null)
+			throw new NullPointerException();
+		while (true) {
+			try {
+				return getField(beanId, fieldName, getRevisionNumber(revision));
+			} catch (PrunedVersionException e) {
+				checkPrunedRead(revision);
+			}
+		}
+	}
+
+	private Object getField(K beanId, String fieldName, long revision)
+			throws MissingBeanException {
+		BeanState state = getState(beanId, revision);
+		if (state == BeanState.DELETED)
+			throw new DeletedBeanException(this, beanId);
+		if (state == BeanState.UNDEFINED)
+			throw new MissingBeanException(this, beanId);
+
+		BeanRecord record = dataByBeanId.get(beanId);
+		Version version = record == null ? null : getVersion(
+				record.fields.get(fieldName), revision);
+		if (version == null) {
+			if (parent == null || state == BeanState.CREATED)
+				return null;
+			return parent.getField(beanId, fieldName, parentRevision);
+		}
+		return version.value == NULL ? null : version.value;
+	}
+
+	@Override
+	public Object setField(K beanId, String fieldName, Object newValue)
+			throws MissingBeanException {
+		if (beanId == null)
+			throw new NullPointerException();
+		if (fieldName == null)
+			throw new NullPointerException();
+
+		long revision = beginWrite(beanId);
+		try {
+			Object oldValue = getField(beanId, fieldName, revision);
+			putVersion(beanId, fieldName, revision, newValue == null ? NULL
+					: newValue);
+			return oldValue;
+		} finally {
+			endWrite(beanId, revision);
+		}
+	}
+
+	@Override
+	public void createBean(K beanId) throws DuplicateBeanIdException {
+		if (beanId == null)
+			throw new NullPointerException();
+
+		long revision = beginWrite(beanId);
+		try {
+			BeanState state = getState(beanId, revision);
+			if (state == BeanState.CREATED || state == BeanState.EXISTS)
+				throw new DuplicateBeanIdException(this, beanId);
+			putVersion(beanId, FIELD_CREATED, revision, Boolean.TRUE);
+		} finally {
+			endWrite(beanId, revision);
+		}
+	}
+
+	@Override
+	public void deleteBean(K beanId) throws MissingBeanException {
+		if (beanId == null)
+			throw new NullPointerException();
+
+		long revision = beginWrite(beanId);
+		try {
+			BeanState state = getState(beanId, revision);
+			if (state == BeanState.DELETED || state == BeanState.UNDEFINED)
+				throw new MissingBeanException(this, beanId);
+			putVersion(beanId, FIELD_DELETED, revision, Boolean.TRUE);
+		} finally {
+			endWrite(beanId, revision);
+		}
+	}
+
+	@Override
+	public Revision getLastRevision(K beanId) {
+		if (beanId == null)
+			throw new NullPointerException();
+
+		while (true) {
+			try {
+				return getLastRevision(beanId, getReadRevision());
+			} catch (PrunedVersionException e) {
+				// try again with the new current revision
+			}
+		}
+	}
+
+	private Revision getLastRevision(K beanId, long revision) {
+		BeanRecord record = dataByBeanId.get(beanId);
+		Version lastVersion = null;
+		if (record != null) {
+			for (Version head : record.fields.values()) {
+				Version version = getVersion(head, revision);
+				if (version != null
+						&& (lastVersion == null || version.revision > lastVersion.revision))
+					lastVersion = version;
+			}
+		}
+		return toRevision(lastVersion);
+	}
+
+	@Override
+	public Revision getLastRevision(K beanId, String fieldName) {
+		if (beanId == null)
+			throw new NullPointerException();
+		if (fieldName == null)
+			throw new NullPointerException();
+
+		while (true) {
+			try {
+				BeanRecord record = dataByBeanId.get(beanId);
+				Version version = record == null ? null : getVersion(
+						record.fields.get(fieldName), getReadRevision());
+				return toRevision(version);
+			} catch (PrunedVersionException e) {
+				// try again with the new current revision
+			}
+		}
+	}
+
+	@Override
+	public Collection<K> getModifiedBeans() {
+		while (true) {
+			try {
+				return getModifiedBeans(getReadRevision());
+			} catch (PrunedVersionException e) {
+				// try again with the new current revision
+			}
+		}
+	}
+
+	private Collection<K> getModifiedBeans(long revision) {
+		Collection<K> returnValue = new HashSet<>();
+		for (Entry<K, BeanRecord> entry : dataByBeanId.entrySet()) {
+			for (Version head : entry.getValue().fields.values()) {
+				if (getVersion(head, revision) != null) {
+					returnValue.add(entry.getKey());
+					break;
+				}
+			}
+		}
+		returnValue.removeAll(getIgnorableBeans(returnValue, revision));
+		return returnValue;
+	}
+
+	/**
+	 * Return the beans that were created and then deleted in this branch.
+	 */
+	private Collection<K> getIgnorableBeans(Collection<K> beanIds,
+			long revision) {
+		Collection<K> returnValue = new HashSet<>();
+		for (K beanId : beanIds) {
+			BeanRecord record = dataByBeanId.get(beanId);
+			if (record == null)
+				continue;
+			Version creation = getVersion(record.fields.get(FIELD_CREATED),
+					revision);
+			Version deletion = getVersion(record.fields.get(FIELD_DELETED),
+					revision);
+			if (creation != null && deletion != null
+					&& deletion.revision > creation.revision) {
+				returnValue.add(beanId);
+			}
+		}
+		return returnValue;
+	}
+
+	@Override
+	public void save() throws SaveException {
+		if (parent == null)
+			throw new RuntimeException(
+					"This branch has no parent to save data to.");
+		if (writerLock.isWriteLockedByCurrentThread())
+			throw new IllegalStateException(
+					"The write lock for this branch is still reserved. Release this lock before saving.");
+
+		BranchListener<K>[] myListeners = getListeners();
+
+		Object parentWriteLock = parent.acquireWriteLock();
+		Object parentReadLock = parent.acquireReadLock();
+		try {
+			// writes after this revision are left for the next save
+			long saveRevision = committedRevision;
+			Collection<K> modifiedBeans = new ArrayList<>(unsavedBeans);
+			Collection<K> savedBeans = new ArrayList<>(modifiedBeans);
+			try {
+				Collection<K> ignoredBeans = getIgnorableBeans(savedBeans,
+						saveRevision);
+				savedBeans.removeAll(ignoredBeans);
+
+				List<SaveException> allProblems = validateSave(savedBeans,
+						saveRevision);
+				for (BranchListener<K> listener : myListeners) {
+					try {
+						listener.beforeSave(parent, this);
+					} catch (MultipleSaveException mme) {
+						allProblems.addAll(mme.getSaveExceptions());
+					} catch (SaveException me) {
+						allProblems.add(me);
+					}
+					// any other exceptions: we can throw those to abort the
+					// save
+				}
+
+				if (allProblems.size() == 1)
+					throw allProblems.get(0);
+
+				if (allProblems.size() > 1)
+					throw new MultipleSaveException(this, allProblems);
+
+				for (K beanId : savedBeans) {
+					saveBean(beanId, saveRevision, allProblems);
+				}
+
+				if (allProblems.size() == 1)
+					throw allProblems.get(0);
+
+				if (allProblems.size() > 1)
+					throw new MultipleSaveException(this, allProblems);
+			} finally {
+				lastSavedRevision = saveRevision;
+				parentRevision = parent.getRevision();
+				markSaved(savedBeans, saveRevision);
+				pruneBeans(modifiedBeans);
+
+				parent.releaseLock(parentWriteLock);
+			}
+
+			// we've released the parent's write lock, but we've retained
+			// the parent's read lock while our listeners are being notified:
+
+			for (BranchListener<K> listener : myListeners) {
+				try {
+					listener.branchSaved(parent, this);
+				} catch (Exception e) {
+					uncaughtExceptionHandler.uncaughtException(
+							Thread.currentThread(), e);
+				}
+			}
+		} finally {
+			parent.releaseLock(parentReadLock);
+		}
+	}
+
+	/**
+	 * Remove beans from {@link #unsavedBeans} unless they were modified after
+	 * a given revision.
+	 */
+	private void markSaved(Collection<K> beanIds, long revision) {
+		for (K beanId : beanIds) {
+			unsavedBeans.remove(beanId);
+			// a writer that races with us adds its version before it marks
+			// the bean as unsaved, so we can't miss it here:
+			BeanRecord record = dataByBeanId.get(beanId);
+			for (Version head : record.fields.values()) {
+				if (head.revision > revision) {
+					unsavedBeans.add(beanId);
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Discard the versions of beans that no reader needs anymore.
+	 */
+	private void pruneBeans(Collection<K> beanIds) {
+		updatePruneRevision();
+		long revision = pruneRevision;
+		for (K beanId : beanIds) {
+			for (Version head : dataByBeanId.get(beanId).fields.values()) {
+				prune(head, revision);
+			}
+		}
+	}
+
+	/**
+	 * This handler will be notified if a BranchListener throws an exception
+	 * during {@link BranchListener#branchSaved(Branch, Branch)}.
+	 * <p>
+	 * The default handler just called <code>ex.printStackTrace()</code>.
+	 * 
+	 * @param handler
+	 *            the handler to notify.
+	 */
+	public void setUncaughtExceptionHandler(UncaughtExceptionHandler handler) {
+		if (handler == null)
+			throw new NullPointerException();
+
+		uncaughtExceptionHandler = handler;
+	}
+
+	/**
+	 * Return the fields of a bean that were modified after the last save, up
+	 * to a given revision. The created/deleted markers are not included.
+	 */
+	private Map<String, Version> getUnsavedFields(BeanRecord record,
+			long revision) {
+		Map<String, Version> returnValue = new HashMap<>();
+		for (Entry<String, Version> entry : record.fields.entrySet()) {
+			Version version = getVersion(entry.getValue(), revision);
+			if (version != null && version.revision > lastSavedRevision)
+				returnValue.put(entry.getKey(), version);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Identify conflicts between the parent and the beans this branch is about
+	 * to save.
+	 */
+	protected List<SaveException> validateSave(Collection<K> beanIds,
+			long revision) {
+		List<SaveException> allProblems = new ArrayList<>();
+		for (K beanId : beanIds) {
+			Map<String, Version> unsavedFields = getUnsavedFields(
+					dataByBeanId.get(beanId), revision);
+			if (unsavedFields.containsKey(FIELD_CREATED)
+					|| unsavedFields.containsKey(FIELD_DELETED)) {
+				BeanState myState = getState(beanId, revision);
+				BeanState parentState = parent.getState(beanId);
+				Revision parentBeanRevision = parent.getLastRevision(beanId);
+				if (parentBeanRevision != null
+						&& parentBeanRevision.compareTo(parentRevision) < 0) {
+					// no matter what, this is OK: because the parent hasn't
+					// further modified the bean
+				} else if (myState == parentState) {
+					// weird, both branches did the same thing... but OK.
+				} else if (myState == BeanState.CREATED
+						&& parentState == BeanState.UNDEFINED) {
+					// this is fine
+				} else if (myState == BeanState.DELETED
+						&& (parentState == BeanState.CREATED || parentState == BeanState.EXISTS)) {
+					// this is fine
+				} else {
+					allProblems.add(new SaveException(this, beanId,
+							parentRevision, "The bean \"" + beanId
+									+ "\" is classified as " + myState
+									+ " in this branch, but it is classified as "
+									+ parentState + " in the parent branch."));
+				}
+			}
+
+			for (Entry<String, Version> entry : unsavedFields.entrySet()) {
+				String fieldName = entry.getKey();
+				if (isMarker(fieldName))
+					continue;
+				Revision parentFieldRevision = parent.getLastRevision(beanId,
+						fieldName);
+				if (parentFieldRevision != null
+						&& parentFieldRevision.compareTo(parentRevision) > 0) {
+					Object myValue = entry.getValue().value;
+					if (myValue == NULL)
+						myValue = null;
+					try {
+						Object parentValue = parent.getField(beanId, fieldName);
+						if (Objects.equals(parentValue, myValue)) {
+							// both the parent and this branch set the value to
+							// the same thing, so this is OK.
+							continue;
+						}
+					} catch (MissingBeanException e) {
+						// the parent deleted this bean
+					}
+					allProblems.add(new SaveException(this, beanId,
+							parentFieldRevision, "The field \"" + fieldName
+									+ "\" for bean \"" + beanId
+									+ "\" was modified in the parent branch (revision "
+									+ parentFieldRevision + ")."));
+				}
+			}
+		}
+		return allProblems;
+	}
+
+	/**
+	 * Copy the changes to one bean to the parent.
+	 */
+	private void saveBean(K beanId, long revision,
+			List<SaveException> allProblems) {
+		BeanRecord record = dataByBeanId.get(beanId);
+		Map<String, Version> unsavedFields = getUnsavedFields(record, revision);
+
+		List<Version> creations = getUnsavedVersions(unsavedFields
+				.get(FIELD_CREATED));
+		List<Version> deletions = getUnsavedVersions(unsavedFields
+				.get(FIELD_DELETED));
+		try {
+			// replay creations and deletions in the order they happened. If
+			// the parent already made the same change (which validateSave
+			// allows), skip it.
+			int i = 0, j = 0;
+			while (i < creations.size() || j < deletions.size()) {
+				BeanState parentState = parent.getState(beanId);
+				boolean parentHasBean = parentState == BeanState.CREATED
+						|| parentState == BeanState.EXISTS;
+				if (j == deletions.size()
+						|| (i < creations.size() && creations.get(i).revision <= deletions
+								.get(j).revision)) {
+					if (!parentHasBean)
+						parent.createBean(beanId);
+					i++;
+				} else {
+					if (parentHasBean)
+						parent.deleteBean(beanId);
+					j++;
+				}
+			}
+
+			if (getState(beanId, revision) == BeanState.DELETED)
+				return;
+
+			for (Entry<String, Version> entry : unsavedFields.entrySet()) {
+				if (isMarker(entry.getKey()))
+					continue;
+				Object value = entry.getValue().value;
+				parent.setField(beanId, entry.getKey(), value == NULL ? null
+						: value);
+			}
+		} catch (BranchException e) {
+			allProblems.add(new SaveException(this, beanId, new Revision(this,
+					Long.valueOf(revision)),
+					"The bean \"" + beanId
+							+ "\" could not be saved to the parent branch: "
+							+ e.getMessage()));
+		}
+	}
+
+	/**
+	 * Return the versions in a chain that are newer than the last save, oldest
+	 * first.
+	 */
+	private List<Version> getUnsavedVersions(Version head) {
+		List<Version> returnValue = new ArrayList<>();
+		while (head != null && head.revision > lastSavedRevision) {
+			returnValue.add(0, head);
+			head = head.previous;
+		}
+		return returnValue;
+	}
+
+	@Override
+	public Map<String, Object> getBean(K beanId) {
+		if (beanId == null)
+			throw new NullPointerException();
+
+		while (true) {
+			try {
+				return getBean(beanId, getReadRevision());
+			} catch (PrunedVersionException e) {
+				// try again with the new current revision
+			}
+		}
+	}
+
+	private Map<String, Object> getBean(K beanId, long revision) {
+		Map<String, Object> returnValue;
+		if (parent == null) {
+			returnValue = null;
+		} else {
+			returnValue = parent.getBean(beanId);
+		}
+
+		BeanRecord record = dataByBeanId.get(beanId);
+		if (record == null)
+			return returnValue;
+
+		Version deletion = getVersion(record.fields.get(FIELD_DELETED),
+				revision);
+		Version creation = getVersion(record.fields.get(FIELD_CREATED),
+				revision);
+		if (deletion != null
+				&& (creation == null || creation.revision < deletion.revision)) {
+			return null;
+		}
+
+		if (creation != null) {
+			returnValue = new HashMap<>();
+		}
+
+		for (Entry<String, Version> entry : record.fields.entrySet()) {
+			String fieldName = entry.getKey();
+			if (isMarker(fieldName))
+				continue;
+			Version version = getVersion(entry.getValue(), revision);
+			if (version != null
+					&& (creation == null || creation.revision <= version.revision)) {
+				if (returnValue == null)
+					throw new IllegalStateException("Bean data was detected for \""
+							+ beanId + "\" (field \"" + fieldName
+							+ "\", but there is no record of that bean being created.");
+				returnValue.put(fieldName, version.value == NULL ? null
+						: version.value);
+			}
+		}
+
+		return returnValue;
+	}
+
+	@Override
+	public String toString() {
+		return getName();
+	}
+}
@@ -0,0 +1,898 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.data.branch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
+
+import com.pump.data.BeanState;
+
+/**
+ * This is an implementation of {@link Branch} that stores all its revisions in
+ * an append-only file.
+ * <p>
+ * Every change to a field is appended to the file as a record that points to
+ * the previous record of the same field, so the history of a field is a chain
+ * of records. The only thing kept in memory is an index from each bean and
+ * field to its most recent record: values are read from the memory-mapped
+ * file on demand, so the data does not need to fit in the heap.
+ * <p>
+ * All the records written while a write lock is held are followed by a commit
+ * record. If the application is interrupted before a commit record is
+ * written, those records are discarded the next time the file is opened.
+ * <p>
+ * The file is read lazily: the index is built the first time this branch is
+ * used. When this branch is closed the index is written to a second file (the
+ * same name plus ".index"), so the next time the file is opened only records
+ * appended after that index was written need to be replayed.
+ * <p>
+ * This branch never has a parent. Child branches are
+ * {@link ConcurrentBranch ConcurrentBranches} that live in memory until they
+ * are saved to this branch. Records are written as soon as changes are made,
+ * but they are only forced to the storage device when {@link #save()} or
+ * {@link #close()} is called. Keys and values must be
+ * <code>Serializable</code>.
+ * <p>
+ * Over time old revisions can be discarded with {@link #compact(Revision)}.
+ * 
+ * @param <K>
+ *            the type of bean ids. This must be <code>Serializable</code>.
+ */
+public class FileBranch<K> extends AbstractBranch<K> implements Closeable {
+
+	private static final String FIELD_DELETED = FileBranch.class.getName()
+			+ "#isDeleted";
+	private static final String FIELD_CREATED = FileBranch.class.getName()
+			+ "#isCreated";
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final byte RECORD_FIELD = 1;
+	private static final byte RECORD_COMMIT = 2;
+
+	/**
+	 * Every record starts with the length of the rest of the record (an int),
+	 * the record type (a byte), the revision (a long), and the position of
+	 * the previous record of the same field (a long, or -1).
+	 */
+	private static final int RECORD_REVISION = 5;
+	private static final int RECORD_PREVIOUS = 13;
+	private static final int RECORD_HEADER_SIZE = 21;
+
+	private static final int INDEX_MAGIC = 0x46424958;
+	private static final int INDEX_VERSION = 0;
+
+	protected final File file;
+	protected final File indexFile;
+	protected final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
+
+	/**
+	 * The position of the most recent record of every field of every bean.
+	 */
+	protected Map<K, Map<String, Long>> latestRecords;
+	protected RevisionLog log;
+	protected long currentRevision;
+
+	private volatile boolean loaded = false;
+	private boolean groupModified = false;
+	private final Object compactionLock = new Object();
+
+	/**
+	 * Create a FileBranch.
+	 * 
+	 * @param file
+	 *            the file to store revisions in. If this file does not exist
+	 *            it is created.
+	 * @param name
+	 *            the name of this branch.
+	 * @throws IOException
+	 *             if an IO problem occurs.
+	 */
+	public FileBranch(File file, String name) throws IOException {
+		super(name);
+		this.file = file;
+		indexFile = new File(file.getParentFile(), file.getName() + ".index");
+		log = new RevisionLog(file);
+	}
+
+	/**
+	 * Build the index if it hasn't been built yet.
+	 */
+	private void ensureLoaded() {
+		if (loaded)
+			return;
+		synchronized (compactionLock) {
+			if (loaded)
+				return;
+			try {
+				latestRecords = new HashMap<>();
+				long position = readIndex(latestRecords);
+				if (position == -1) {
+					latestRecords.clear();
+					position = 0;
+				}
+				replay(latestRecords, position);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			loaded = true;
+		}
+	}
+
+	/**
+	 * Read the index file.
+	 * 
+	 * @return the position in the log the index was written at, or -1 if the
+	 *         index file is missing or can't be used.
+	 */
+	private long readIndex(Map<K, Map<String, Long>> dest) {
+		if (!indexFile.exists())
+			return -1;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(indexFile)))) {
+			if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION)
+				return -1;
+			long logSize = in.readLong();
+			currentRevision = in.readLong();
+			if (logSize > log.size())
+				return -1;
+			int beanCount = in.readInt();
+			for (int a = 0; a < beanCount; a++) {
+				byte[] beanBytes = new byte[in.readInt()];
+				in.readFully(beanBytes);
+				@SuppressWarnings("unchecked")
+				K beanId = (K) deserialize(beanBytes);
+				int fieldCount = in.readInt();
+				Map<String, Long> fields = new HashMap<>();
+				for (int b = 0; b < fieldCount; b++) {
+					String fieldName = in.readUTF();
+					fields.put(fieldName, in.readLong());
+				}
+				dest.put(beanId, fields);
+			}
+			return logSize;
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Write the index file. The log should be forced before this is called.
+	 */
+	private void writeIndex() throws IOException {
+		File tempFile = new File(indexFile.getParentFile(),
+				indexFile.getName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+			out.writeInt(INDEX_MAGIC);
+			out.writeInt(INDEX_VERSION);
+			out.writeLong(log.size());
+			out.writeLong(currentRevision);
+			out.writeInt(latestRecords.size());
+			for (Entry<K, Map<String, Long>> beanEntry : latestRecords
+					.entrySet()) {
+				byte[] beanBytes = serialize(beanEntry.getKey());
+				out.writeInt(beanBytes.length);
+				out.write(beanBytes);
+				out.writeInt(beanEntry.getValue().size());
+				for (Entry<String, Long> fieldEntry : beanEntry.getValue()
+						.entrySet()) {
+					out.writeUTF(fieldEntry.getKey());
+					out.writeLong(fieldEntry.getValue());
+				}
+			}
+		}
+		Files.move(tempFile.toPath(), indexFile.toPath(),
+				StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Add the records that follow a position in the log to an index. If the
+	 * log ends with incomplete or uncommitted records: they are removed from
+	 * the log.
+	 * <p>
+	 * Replay stops at the last complete record. A complete record that can't
+	 * be read is not treated as the end of the log, because committed records
+	 * may follow it: this throws an IOException instead of discarding them.
+	 */
+	private void replay(Map<K, Map<String, Long>> index, long position)
+			throws IOException {
+		long size = log.size();
+		long committedSize = position;
+		List<Object[]> uncommittedRecords = new ArrayList<>();
+		while (position + RECORD_HEADER_SIZE <= size) {
+			int length = log.readInt(position);
+			if (length < RECORD_HEADER_SIZE - 4 || position + 4 + length > size)
+				break;
+			byte[] record = new byte[4 + length];
+			log.read(position, record, 0, record.length);
+			if (record[4] == RECORD_COMMIT) {
+				for (Object[] r : uncommittedRecords) {
+					@SuppressWarnings("unchecked")
+					K beanId = (K) r[0];
+					putLatestRecord(index, beanId, (String) r[1], (Long) r[2]);
+				}
+				uncommittedRecords.clear();
+				currentRevision = getLong(record, RECORD_REVISION) + 1;
+				committedSize = position + record.length;
+			} else if (record[4] == RECORD_FIELD) {
+				try {
+					uncommittedRecords.add(new Object[] { getBeanId(record),
+							getFieldName(record), position });
+				} catch (Exception e) {
+					if (position + record.length == size)
+						break;
+					throw new IOException("The record at " + position
+							+ " in " + file.getAbsolutePath()
+							+ " could not be read.", e);
+				}
+			} else {
+				if (position + record.length == size)
+					break;
+				throw new IOException("The record at " + position + " in "
+						+ file.getAbsolutePath() + " has an unknown type ("
+						+ record[4] + ").");
+			}
+			position += record.length;
+		}
+		if (committedSize < size)
+			log.truncate(committedSize);
+	}
+
+	private void putLatestRecord(Map<K, Map<String, Long>> index, K beanId,
+			String fieldName, long position) {
+		Map<String, Long> fields = index.get(beanId);
+		if (fields == null) {
+			fields = new HashMap<>();
+			index.put(beanId, fields);
+		}
+		fields.put(fieldName, position);
+	}
+
+	private static byte[] serialize(Object obj) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(obj);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static Object deserialize(byte[] data) throws IOException {
+		return deserialize(data, 0, data.length);
+	}
+
+	private static Object deserialize(byte[] data, int offset, int length)
+			throws IOException {
+		try (ObjectInputStream in = new ObjectInputStream(
+				new ByteArrayInputStream(data, offset, length))) {
+			return in.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		}
+	}
+
+	private static long getLong(byte[] record, int offset) {
+		return ByteBuffer.wrap(record).getLong(offset);
+	}
+
+	private static void putLong(byte[] record, int offset, long value) {
+		ByteBuffer.wrap(record).putLong(offset, value);
+	}
+
+	@SuppressWarnings("unchecked")
+	private K getBeanId(byte[] record) throws IOException {
+		ByteBuffer b = ByteBuffer.wrap(record);
+		int beanLength = b.getInt(RECORD_HEADER_SIZE);
+		return (K) deserialize(record, RECORD_HEADER_SIZE + 4, beanLength);
+	}
+
+	private static String getFieldName(byte[] record) {
+		ByteBuffer b = ByteBuffer.wrap(record);
+		int nameOffset = RECORD_HEADER_SIZE + 4 + b.getInt(RECORD_HEADER_SIZE);
+		int nameLength = b.getInt(nameOffset);
+		return new String(record, nameOffset + 4, nameLength, UTF8);
+	}
+
+	private static Object getValue(byte[] record) throws IOException {
+		ByteBuffer b = ByteBuffer.wrap(record);
+		int nameOffset = RECORD_HEADER_SIZE + 4 + b.getInt(RECORD_HEADER_SIZE);
+		int valueOffset = nameOffset + 4 + b.getInt(nameOffset);
+		int valueLength = b.getInt(valueOffset);
+		if (valueLength == -1)
+			return null;
+		return deserialize(record, valueOffset + 4, valueLength);
+	}
+
+	private byte[] readRecord(long position) throws IOException {
+		byte[] record = new byte[4 + log.readInt(position)];
+		log.read(position, record, 0, record.length);
+		return record;
+	}
+
+	private long getRecordRevision(long position) throws IOException {
+		return log.readLong(position + RECORD_REVISION);
+	}
+
+	/**
+	 * Return the position of the newest record in a chain that is not newer
+	 * than a revision, or -1.
+	 */
+	private long findRecord(Long latestPosition, long revision)
+			throws IOException {
+		long position = latestPosition == null ? -1 : latestPosition;
+		while (position != -1 && getRecordRevision(position) > revision) {
+			position = log.readLong(position + RECORD_PREVIOUS);
+		}
+		return position;
+	}
+
+	/**
+	 * Append a record that assigns a field and update the index. The caller
+	 * must hold the write lock.
+	 */
+	private void writeField(K beanId, String fieldName, Object value)
+			throws IOException {
+		Map<String, Long> fields = latestRecords.get(beanId);
+		Long previous = fields == null ? null : fields.get(fieldName);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0);
+		out.writeByte(RECORD_FIELD);
+		out.writeLong(currentRevision);
+		out.writeLong(previous == null ? -1 : previous);
+		byte[] beanBytes = serialize(beanId);
+		out.writeInt(beanBytes.length);
+		out.write(beanBytes);
+		byte[] nameBytes = fieldName.getBytes(UTF8);
+		out.writeInt(nameBytes.length);
+		out.write(nameBytes);
+		if (value == null) {
+			out.writeInt(-1);
+		} else {
+			byte[] valueBytes = serialize(value);
+			out.writeInt(valueBytes.length);
+			out.write(valueBytes);
+		}
+		byte[] record = bytes.toByteArray();
+		ByteBuffer.wrap(record).putInt(0, record.length - 4);
+
+		long position = log.append(record, 0, record.length);
+		putLatestRecord(latestRecords, beanId, fieldName, position);
+		groupModified = true;
+	}
+
+	private static byte[] createCommitRecord(long revision) {
+		byte[] record = new byte[RECORD_HEADER_SIZE];
+		ByteBuffer b = ByteBuffer.wrap(record);
+		b.putInt(RECORD_HEADER_SIZE - 4);
+		b.put(RECORD_COMMIT);
+		b.putLong(revision);
+		b.putLong(-1);
+		return record;
+	}
+
+	@Override
+	public Branch<K> createBranch(String name) {
+		Object lock = acquireWriteLock();
+		try {
+			return new ConcurrentBranch<K>(this, new Revision(this,
+					currentRevision), name);
+		} finally {
+			releaseLock(lock);
+		}
+	}
+
+	@Override
+	public Revision getRevision() {
+		Object lock = acquireWriteLock();
+		try {
+			return new Revision(this, currentRevision);
+		} finally {
+			releaseLock(lock);
+		}
+	}
+
+	@Override
+	public Lock acquireReadLock() {
+		ensureLoaded();
+		Lock returnValue = readWriteLock.readLock();
+		returnValue.lock();
+		return returnValue;
+	}
+
+	@Override
+	public Lock acquireWriteLock() {
+		ensureLoaded();
+		Lock returnValue = readWriteLock.writeLock();
+		returnValue.lock();
+		return returnValue;
+	}
+
+	@Override
+	public void releaseLock(Object lock) {
+		Lock l = (Lock) lock;
+		try {
+			if (l instanceof WriteLock && ((WriteLock) l).getHoldCount() == 1) {
+				if (groupModified) {
+					groupModified = false;
+					byte[] record = createCommitRecord(currentRevision);
+					log.append(record, 0, record.length);
+				}
+				currentRevision++;
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			l.unlock();
+		}
+	}
+
+	private long getRevisionNumber(Revision revision) {
+		if (revision == null)
+			return currentRevision;
+		if (revision.getBranch() != this)
+			throw new IllegalRevisionBranchException(
+					"The revision provided relates to branch \""
+							+ revision.getBranch().getName() + "\" (not \""
+							+ getName() + "\"", this, revision);
+		return revision.getNumber().longValue();
+	}
+
+	@Override
+	public BeanState getState(K beanId, Revision revision) {
+		if (beanId == null)
+			throw new NullPointerException();
+
+		Lock lock = acquireReadLock();
+		try {
+			long r = getRevisionNumber(revision);
+			Map<String, Long> fields = latestRecords.get(beanId);
+			if (fields == null)
+				return BeanState.UNDEFINED;
+			long deleted = findRecord(fields.get(FIELD_DELETED), r);
+			long created = findRecord(fields.get(FIELD_CREATED), r);
+			if (deleted == -1 && created == -1) {
+				return BeanState.UNDEFINED;
+			} else if (deleted == -1) {
+				return BeanState.CREATED;
+			} else if (created == -1) {
+				return BeanState.DELETED;
+			} else if (getRecordRevision(deleted) < getRecordRevision(created)) {
+				return BeanState.CREATED;
+			}
+			return BeanState.DELETED;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			releaseLock(lock);
+		}
+	}
+
+	@Override
+	public Object getField(K beanId, String fieldName, Revision revision)
+			throws MissingBeanException {
+		if (beanId == null)
+			throw new NullPointerException();
+		if (fieldName == null)
+			throw new NullPointerException();
+
+		Lock lock = acquireReadLock();
+		try {
+			BeanState state = getState(beanId, revision);
+			if (state == BeanState.DELETED)
+				throw new DeletedBeanException(this, beanId);
+			if (state == BeanState.UNDEFINED)
+				throw new MissingBeanException(this, beanId);
+
+			long position = findRecord(latestRecords.get(beanId)
+					.get(fieldName), getRevisionNumber(revision));
+			if (position == -1)
+				return null;
+			return getValue(readRecord(position));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			releaseLock(lock);
+		}
+	}
+
+	@Override
+	public Object setField(K beanId, String fieldName, Object newValue)
+			throws MissingBeanException {
+		if (beanId == null)
+			throw new NullPointerException();
+		if (fieldName == null)
+			throw new NullPointerException();
+
+		Lock lock = acquireWriteLock();
+		try {
+			Object oldValue = getField(beanId, fieldName, null);
+			writeField(beanId, fieldName, newValue);
+			return oldValue;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			releaseLock(lock);
+		}
+	}
+
+	@Override
+	public void createBean(K beanId) throws DuplicateBeanIdException {
+		if (beanId == null)
+			throw new NullPointerException();
+
+		Lock lock = acquireWriteLock();
+		try {
+			BeanState state = getState(beanId, null);
+			if (state == BeanState.CREATED || state == BeanState.EXISTS)
+				throw new DuplicateBeanIdException(this, beanId);
+			writeField(beanId, FIELD_CREATED, Boolean.TRUE);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			releaseLock(lock);
+		}
+	}
+
+	@Override
+	public void deleteBean(K beanId) throws MissingBeanException {
+		if (beanId == null)
+			throw new NullPointerException();
+
+		Lock lock = acquireWriteLock();
+		try {
+			BeanState state = getState(beanId, null);
+			if (state == BeanState.DELETED || state == BeanState.UNDEFINED)
+				throw new MissingBeanException(this, beanId);
+			writeField(beanId, FIELD_DELETED, Boolean.TRUE);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			releaseLock(lock);
+		}
+	}
+
+	@Override
+	public Revision getLastRevision(K beanId) {
+		if (beanId == null)
+			throw new NullPointerException();
+
+		Lock lock = acquireReadLock();
+		try {
+			Map<String, Long> fields = latestRecords.get(beanId);
+			long lastRevision = -1;
+			if (fields != null) {
+				for (Long position : fields.values()) {
+					lastRevision = Math.max(lastRevision,
+							getRecordRevision(position));
+				}
+			}
+			return lastRevision == -1 ? null : new Revision(this,
+					lastRevision);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			releaseLock(lock);
+		}
+	}
+
+	@Override
+	public Revision getLastRevision(K beanId, String fieldName) {
+		if (beanId == null)
+			throw new NullPointerException();
+		if (fieldName == null)
+			throw new NullPointerException();
+
+		Lock lock = acquireReadLock();
+		try {
+			Map<String, Long> fields = latestRecords.get(beanId);
+			Long position = fields == null ? null : fields.get(fieldName);
+			return position == null ? null : new Revision(this,
+					getRecordRevision(position));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			releaseLock(lock);
+		}
+	}
+
+	@Override
+	public Collection<K> getModifiedBeans() {
+		Lock lock = acquireReadLock();
+		try {
+			Collection<K> returnValue = new HashSet<>();
+			for (Entry<K, Map<String, Long>> entry : latestRecords.entrySet()) {
+				Long creation = entry.getValue().get(FIELD_CREATED);
+				Long deletion = entry.getValue().get(FIELD_DELETED);
+				if (creation == null
+						|| deletion == null
+						|| getRecordRevision(deletion) <= getRecordRevision(creation)) {
+					returnValue.add(entry.getKey());
+				}
+			}
+			return returnValue;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			releaseLock(lock);
+		}
+	}
+
+	/**
+	 * This branch has no parent, so this forces all the changes made so far
+	 * to the storage device.
+	 */
+	@Override
+	public void save() throws SaveException {
+		if (readWriteLock.getWriteHoldCount() > 0)
+			throw new IllegalStateException(
+					"The write lock for this branch is still reserved. Release this lock before saving.");
+
+		Lock lock = acquireReadLock();
+		try {
+			log.force();
+		} catch (IOException e) {
+			throw new SaveException(this, "The file \"" + file.getName()
+					+ "\" could not be saved.", e);
+		} finally {
+			releaseLock(lock);
+		}
+	}
+
+	@Override
+	public Map<String, Object> getBean(K beanId) {
+		if (beanId == null)
+			throw new NullPointerException();
+
+		Lock lock = acquireReadLock();
+		try {
+			Map<String, Long> fields = latestRecords.get(beanId);
+			if (fields == null)
+				return null;
+			Long deletion = fields.get(FIELD_DELETED);
+			Long creation = fields.get(FIELD_CREATED);
+			long lastDeletion = deletion == null ? -1
+					: getRecordRevision(deletion);
+			long lastCreation = creation == null ? -1
+					: getRecordRevision(creation);
+			if (lastCreation == -1 || lastCreation < lastDeletion)
+				return null;
+
+			Map<String, Object> returnValue = new HashMap<>();
+			for (Entry<String, Long> entry : fields.entrySet()) {
+				String fieldName = entry.getKey();
+				if (FIELD_DELETED.equals(fieldName)
+						|| FIELD_CREATED.equals(fieldName))
+					continue;
+				byte[] record = readRecord(entry.getValue());
+				if (lastCreation <= getLong(record, RECORD_REVISION)) {
+					returnValue.put(fieldName, getValue(record));
+				}
+			}
+			return returnValue;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} finally {
+			releaseLock(lock);
+		}
+	}
+
+	/**
+	 * Rewrite the file so it only contains the records needed to read this
+	 * branch as of a given revision (or any later revision). Reading an
+	 * earlier revision afterwards returns the values as of
+	 * <code>oldestRevision</code>.
+	 * <p>
+	 * Most of this work happens without locking this branch, so other threads
+	 * can read and write while this method runs. Only the last step (which
+	 * copies the records written while this method ran, and then replaces the
+	 * file) requires the write lock.
+	 * 
+	 * @param oldestRevision
+	 *            the oldest revision to preserve. If this is null then only
+	 *            the current value of each field is preserved.
+	 * @throws IOException
+	 *             if an IO problem occurs.
+	 */
+	public void compact(Revision oldestRevision) throws IOException {
+		if (readWriteLock.getWriteHoldCount() > 0)
+			throw new IllegalStateException(
+					"The write lock for this branch is still reserved. Release this lock before compacting.");
+
+		synchronized (compactionLock) {
+			ensureLoaded();
+			RevisionLog oldLog;
+			long snapshotSize;
+			long retainedRevision;
+			Map<K, Map<String, Long>> snapshot = new HashMap<>();
+			Lock lock = acquireWriteLock();
+			try {
+				retainedRevision = oldestRevision == null ? currentRevision
+						: getRevisionNumber(oldestRevision);
+				oldLog = log;
+				snapshotSize = log.size();
+				for (Entry<K, Map<String, Long>> entry : latestRecords
+						.entrySet()) {
+					snapshot.put(entry.getKey(),
+							new HashMap<>(entry.getValue()));
+				}
+			} finally {
+				releaseLock(lock);
+			}
+
+			File tempFile = new File(file.getParentFile(), file.getName()
+					+ ".compact");
+			Files.deleteIfExists(tempFile.toPath());
+			RevisionLog newLog = new RevisionLog(tempFile);
+			try {
+				Map<Long, Long> newPositions = new HashMap<>();
+				Map<K, Map<String, Long>> newIndex = new HashMap<>();
+				long lastRevision = -1;
+				for (Entry<K, Map<String, Long>> beanEntry : snapshot
+						.entrySet()) {
+					for (Entry<String, Long> fieldEntry : beanEntry.getValue()
+							.entrySet()) {
+						// collect the records to keep, newest first:
+						List<byte[]> records = new ArrayList<>();
+						long position = fieldEntry.getValue();
+						while (position != -1) {
+							byte[] record = readRecord(oldLog, position);
+							records.add(record);
+							if (getLong(record, RECORD_REVISION) <= retainedRevision)
+								break;
+							position = getLong(record, RECORD_PREVIOUS);
+						}
+
+						long previous = -1;
+						for (int a = records.size() - 1; a >= 0; a--) {
+							byte[] record = records.get(a);
+							putLong(record, RECORD_PREVIOUS, previous);
+							previous = newLog.append(record, 0, record.length);
+							lastRevision = Math.max(lastRevision,
+									getLong(record, RECORD_REVISION));
+						}
+						newPositions.put(fieldEntry.getValue(), previous);
+						putLatestRecord(newIndex, beanEntry.getKey(),
+								fieldEntry.getKey(), previous);
+					}
+				}
+				if (lastRevision != -1) {
+					byte[] commit = createCommitRecord(lastRevision);
+					newLog.append(commit, 0, commit.length);
+				}
+
+				lock = acquireWriteLock();
+				try {
+					// copy the records that were written while we were busy:
+					long position = snapshotSize;
+					while (position < oldLog.size()) {
+						byte[] record = readRecord(oldLog, position);
+						if (record[4] == RECORD_FIELD) {
+							long previous = getLong(record, RECORD_PREVIOUS);
+							Long newPrevious = newPositions.get(previous);
+							putLong(record, RECORD_PREVIOUS,
+									newPrevious == null ? -1 : newPrevious);
+						}
+						long newPosition = newLog.append(record, 0,
+								record.length);
+						if (record[4] == RECORD_FIELD) {
+							newPositions.put(position, newPosition);
+							putLatestRecord(newIndex, getBeanId(record),
+									getFieldName(record), newPosition);
+						}
+						position += record.length;
+					}
+
+					newLog.force();
+					newLog.close();
+					oldLog.close();
+					// the old index refers to positions in the old log, so it
+					// must not outlive it (even if we crash before the new
+					// index is written):
+					Files.deleteIfExists(indexFile.toPath());
+					Files.move(tempFile.toPath(), file.toPath(),
+							StandardCopyOption.REPLACE_EXISTING);
+					log = new RevisionLog(file);
+					latestRecords = newIndex;
+					writeIndex();
+				} finally {
+					releaseLock(lock);
+				}
+			} finally {
+				newLog.close();
+				Files.deleteIfExists(tempFile.toPath());
+			}
+		}
+	}
+
+	/**
+	 * Call {@link #compact(Revision)} on another thread.
+	 * 
+	 * @param executor
+	 *            the executor to run on.
+	 * @param oldestRevision
+	 *            the oldest revision to preserve, or null to only preserve
+	 *            the current value of each field.
+	 * @return a <code>Future</code> that finishes when the compaction is
+	 *         complete.
+	 */
+	public Future<Void> compactInBackground(ExecutorService executor,
+			final Revision oldestRevision) {
+		return executor.submit(new Callable<Void>() {
+			public Void call() throws Exception {
+				compact(oldestRevision);
+				return null;
+			}
+		});
+	}
+
+	private static byte[] readRecord(RevisionLog log, long position)
+			throws IOException {
+		byte[] record = new byte[4 + log.readInt(position)];
+		log.read(position, record, 0, record.length);
+		return record;
+	}
+
+	/**
+	 * Force all changes to the storage device, write the index file and close
+	 * the file. This branch can't be used after it is closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (compactionLock) {
+			Lock lock = readWriteLock.writeLock();
+			lock.lock();
+			try {
+				if (loaded) {
+					log.force();
+					writeIndex();
+				}
+				log.close();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getName();
+	}
+}
@@ -0,0 +1,185 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.data.branch;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * An append-only file whose contents are read through memory-mapped segments.
+ * <p>
+ * Data is appended with <code>FileChannel</code> writes, which are not forced
+ * to the storage device until {@link #force()} is called. Reads map the file
+ * in fixed-size segments on demand, so files much larger than the heap (or
+ * larger than 2 GB) can be read.
+ * <p>
+ * Calls to append or truncate must not overlap each other. Any number of
+ * threads may read at once, even while another thread appends. Reads only
+ * synchronize when they need to map a new segment.
+ */
+class RevisionLog implements Closeable {
+
+	/**
+	 * The number of bytes in each mapped segment. By default this is 64 MB.
+	 */
+	static int SEGMENT_SIZE = 1 << 26;
+
+	final File file;
+	private final RandomAccessFile randomAccessFile;
+	private final FileChannel channel;
+	private final int segmentSize = SEGMENT_SIZE;
+	private final Object segmentLock = new Object();
+	private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+	private volatile long size;
+
+	RevisionLog(File file) throws IOException {
+		this.file = file;
+		randomAccessFile = new RandomAccessFile(file, "rw");
+		channel = randomAccessFile.getChannel();
+		size = channel.size();
+	}
+
+	/**
+	 * Return the number of bytes in this log.
+	 */
+	long size() {
+		return size;
+	}
+
+	/**
+	 * Append data to the end of this log.
+	 * <p>
+	 * If this throws an IOException then the partially written data is
+	 * removed, so the next append starts where this one did and a reader never
+	 * finds an incomplete record in front of complete ones.
+	 * 
+	 * @return the position the data was written to.
+	 */
+	long append(byte[] data, int offset, int length) throws IOException {
+		long position = size;
+		ByteBuffer buffer = ByteBuffer.wrap(data, offset, length);
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer, position + buffer.position() - offset);
+			}
+		} catch (IOException e) {
+			try {
+				if (channel.size() > position)
+					channel.truncate(position);
+			} catch (IOException e2) {
+				e.addSuppressed(e2);
+			}
+			throw e;
+		}
+		size = position + length;
+		return position;
+	}
+
+	/**
+	 * Discard all data after a position.
+	 */
+	void truncate(long newSize) throws IOException {
+		synchronized (segmentLock) {
+			segments = new MappedByteBuffer[0];
+		}
+		channel.truncate(newSize);
+		size = newSize;
+	}
+
+	/**
+	 * Force all appended data to the storage device.
+	 */
+	void force() throws IOException {
+		channel.force(false);
+	}
+
+	void read(long position, byte[] dest, int offset, int length)
+			throws IOException {
+		if (position < 0 || position + length > size)
+			throw new EOFException("position = " + position + ", length = "
+					+ length + ", size = " + size);
+		while (length > 0) {
+			int segmentIndex = (int) (position / segmentSize);
+			int segmentPosition = (int) (position % segmentSize);
+			int chunk = Math.min(length, segmentSize - segmentPosition);
+			ByteBuffer segment = getSegment(segmentIndex, segmentPosition
+					+ chunk).duplicate();
+			segment.position(segmentPosition);
+			segment.get(dest, offset, chunk);
+			position += chunk;
+			offset += chunk;
+			length -= chunk;
+		}
+	}
+
+	int readInt(long position) throws IOException {
+		byte[] b = new byte[4];
+		read(position, b, 0, 4);
+		return ((b[0] & 0xff) << 24) | ((b[1] & 0xff) << 16)
+				| ((b[2] & 0xff) << 8) | (b[3] & 0xff);
+	}
+
+	long readLong(long position) throws IOException {
+		byte[] b = new byte[8];
+		read(position, b, 0, 8);
+		long v = 0;
+		for (int a = 0; a < 8; a++) {
+			v = (v << 8) | (b[a] & 0xff);
+		}
+		return v;
+	}
+
+	/**
+	 * Return a mapped segment that contains at least
+	 * <code>requiredLength</code> bytes.
+	 */
+	private MappedByteBuffer getSegment(int segmentIndex, int requiredLength)
+			throws IOException {
+		MappedByteBuffer[] array = segments;
+		MappedByteBuffer segment = segmentIndex < array.length ? array[segmentIndex]
+				: null;
+		if (segment != null && segment.capacity() >= requiredLength)
+			return segment;
+
+		synchronized (segmentLock) {
+			array = segments;
+			segment = segmentIndex < array.length ? array[segmentIndex] : null;
+			if (segment == null || segment.capacity() < requiredLength) {
+				// map as much of this segment as currently exists:
+				long start = ((long) segmentIndex) * segmentSize;
+				long length = Math.min(segmentSize, size - start);
+				segment = channel.map(FileChannel.MapMode.READ_ONLY, start,
+						length);
+				array = Arrays.copyOf(array,
+						Math.max(array.length, segmentIndex + 1));
+				array[segmentIndex] = segment;
+				segments = array;
+			}
+			return segment;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (segmentLock) {
+			segments = new MappedByteBuffer[0];
+		}
+		channel.close();
+		randomAccessFile.close();
+	}
+}
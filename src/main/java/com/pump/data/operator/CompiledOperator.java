@@ -0,0 +1,634 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.data.operator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+
+import com.pump.text.WildcardPattern;
+import com.pump.text.WildcardPattern.FixedCharacter;
+import com.pump.text.WildcardPattern.Placeholder;
+import com.pump.text.WildcardPattern.StarWildcard;
+
+/**
+ * This is an {@link Operator} that has been converted into a tree of
+ * specialized nodes that can be evaluated repeatedly (and from any number of
+ * threads) without re-interpreting the original Operator.
+ * <p>
+ * When an Operator is compiled:
+ * <ul>
+ * <li>Nested Ands, Ors and Nots are flattened, and constant operands are
+ * removed.</li>
+ * <li>EqualTo and In operands of an Or that consult the same attribute are
+ * merged into one hash set lookup, if their values are Strings, boxed
+ * primitives or enums.</li>
+ * <li>Like operators whose patterns are only a literal, a literal prefix, a
+ * literal suffix or a literal surrounded by stars are replaced with simple
+ * String comparisons.</li>
+ * <li>The operands of Ands and Ors are sorted by estimated cost and
+ * selectivity, so the operands most likely to decide the result are
+ * evaluated first. (Comparisons, which throw exceptions for null or
+ * incompatible values, are never moved ahead of other operands.)</li>
+ * <li>If the OperatorContext is an {@link AccessorContext}, attributes are
+ * retrieved through {@link Accessor Accessors} that were looked up once
+ * during compilation.</li>
+ * </ul>
+ * <p>
+ * The result of {@link #evaluate(Object)} is always the same as calling
+ * {@link Operator#evaluate(OperatorContext, Object)}, except when that method
+ * would throw an exception: because comparisons are evaluated last, this may
+ * return a value instead.
+ */
+public class CompiledOperator {
+
+	/**
+	 * This retrieves one attribute from data sources.
+	 */
+	public interface Accessor {
+		/**
+		 * Return an attribute of a data source.
+		 */
+		Object getValue(Object dataSource) throws Exception;
+	}
+
+	/**
+	 * An OperatorContext that can resolve an attribute name in advance.
+	 */
+	public interface AccessorContext extends OperatorContext {
+		/**
+		 * Return an Accessor that retrieves an attribute. The Accessor must be
+		 * thread-safe.
+		 */
+		Accessor getAccessor(String attributeName);
+	}
+
+	/**
+	 * A node in a compiled tree.
+	 */
+	static abstract class Node {
+		/**
+		 * The estimated probability that this node evaluates to true.
+		 */
+		final double selectivity;
+
+		/**
+		 * The estimated relative cost of evaluating this node.
+		 */
+		final double cost;
+
+		/**
+		 * Whether this node may throw an exception for certain data sources.
+		 */
+		final boolean canThrow;
+
+		Node(double selectivity, double cost, boolean canThrow) {
+			this.selectivity = selectivity;
+			this.cost = cost;
+			this.canThrow = canThrow;
+		}
+
+		abstract boolean evaluate(Object dataSource) throws Exception;
+	}
+
+	static class ConstantNode extends Node {
+		final boolean value;
+
+		ConstantNode(boolean value) {
+			super(value ? 1 : 0, 0, false);
+			this.value = value;
+		}
+
+		@Override
+		boolean evaluate(Object dataSource) {
+			return value;
+		}
+	}
+
+	static class NotNode extends Node {
+		final Node operand;
+
+		NotNode(Node operand) {
+			super(1 - operand.selectivity, operand.cost, operand.canThrow);
+			this.operand = operand;
+		}
+
+		@Override
+		boolean evaluate(Object dataSource) throws Exception {
+			return !operand.evaluate(dataSource);
+		}
+	}
+
+	static class AndNode extends Node {
+		final Node[] operands;
+
+		AndNode(Node[] operands) {
+			super(getAndSelectivity(operands), getCost(operands),
+					canThrow(operands));
+			this.operands = operands;
+		}
+
+		@Override
+		boolean evaluate(Object dataSource) throws Exception {
+			for (Node operand : operands) {
+				if (!operand.evaluate(dataSource))
+					return false;
+			}
+			return true;
+		}
+	}
+
+	static class OrNode extends Node {
+		final Node[] operands;
+
+		OrNode(Node[] operands) {
+			super(getOrSelectivity(operands), getCost(operands),
+					canThrow(operands));
+			this.operands = operands;
+		}
+
+		@Override
+		boolean evaluate(Object dataSource) throws Exception {
+			for (Node operand : operands) {
+				if (operand.evaluate(dataSource))
+					return true;
+			}
+			return false;
+		}
+	}
+
+	static class EqualToNode extends Node {
+		final Accessor accessor;
+		final Object value;
+
+		EqualToNode(Accessor accessor, Object value) {
+			super(.1, 1, false);
+			this.accessor = accessor;
+			this.value = value;
+		}
+
+		@Override
+		boolean evaluate(Object dataSource) throws Exception {
+			return Objects.equals(accessor.getValue(dataSource), value);
+		}
+	}
+
+	static class InNode extends Node {
+		final Accessor accessor;
+		final Collection<?> values;
+
+		InNode(Accessor accessor, Collection<?> values) {
+			super(Math.min(.9, .1 * values.size()), 1, false);
+			this.accessor = accessor;
+			this.values = values;
+		}
+
+		@Override
+		boolean evaluate(Object dataSource) throws Exception {
+			return values.contains(accessor.getValue(dataSource));
+		}
+	}
+
+	static class CompareNode extends Node {
+		final Accessor accessor;
+		@SuppressWarnings("rawtypes")
+		final Comparable value;
+		final boolean greaterThan;
+
+		CompareNode(Accessor accessor, Comparable<?> value,
+				boolean greaterThan) {
+			super(.5, 1, true);
+			this.accessor = accessor;
+			this.value = value;
+			this.greaterThan = greaterThan;
+		}
+
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		@Override
+		boolean evaluate(Object dataSource) throws Exception {
+			Comparable v = (Comparable) accessor.getValue(dataSource);
+			int k = v.compareTo(value);
+			return greaterThan ? k > 0 : k < 0;
+		}
+	}
+
+	static class LikeNode extends Node {
+		static final int EXACT = 0;
+		static final int PREFIX = 1;
+		static final int SUFFIX = 2;
+		static final int CONTAINS = 3;
+
+		final Accessor accessor;
+		final int type;
+		final String literal;
+		final boolean caseSensitive;
+
+		LikeNode(Accessor accessor, int type, String literal,
+				boolean caseSensitive) {
+			super(type == EXACT ? .1 : type == CONTAINS ? .3 : .2, 1, false);
+			this.accessor = accessor;
+			this.type = type;
+			this.literal = literal;
+			this.caseSensitive = caseSensitive;
+		}
+
+		@Override
+		boolean evaluate(Object dataSource) throws Exception {
+			Object value = accessor.getValue(dataSource);
+			if (value == null)
+				return false;
+			String str = String.valueOf(value);
+			int n = literal.length();
+			if (type == EXACT) {
+				return str.length() == n && regionMatches(str, 0);
+			} else if (type == PREFIX) {
+				return str.length() >= n && regionMatches(str, 0);
+			} else if (type == SUFFIX) {
+				return str.length() >= n
+						&& regionMatches(str, str.length() - n);
+			}
+			if (caseSensitive)
+				return str.contains(literal);
+			for (int a = 0; a <= str.length() - n; a++) {
+				if (regionMatches(str, a))
+					return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Return true if the literal appears in a String at a given offset.
+		 * When this is case-insensitive the literal is already lowercase.
+		 */
+		private boolean regionMatches(String str, int offset) {
+			if (caseSensitive)
+				return str.startsWith(literal, offset);
+			for (int a = 0; a < literal.length(); a++) {
+				if (Character.toLowerCase(str.charAt(offset + a)) != literal
+						.charAt(a))
+					return false;
+			}
+			return true;
+		}
+	}
+
+	static class PatternNode extends Node {
+		final Accessor accessor;
+		final WildcardPattern pattern;
+
+		PatternNode(Accessor accessor, WildcardPattern pattern) {
+			super(.3, 3, false);
+			this.accessor = accessor;
+			this.pattern = pattern;
+		}
+
+		@Override
+		boolean evaluate(Object dataSource) throws Exception {
+			Object value = accessor.getValue(dataSource);
+			if (value == null)
+				return false;
+			return pattern.matches(String.valueOf(value));
+		}
+	}
+
+	static double getAndSelectivity(Node[] nodes) {
+		double selectivity = 1;
+		for (Node node : nodes) {
+			selectivity *= node.selectivity;
+		}
+		return selectivity;
+	}
+
+	static double getOrSelectivity(Node[] nodes) {
+		double complement = 1;
+		for (Node node : nodes) {
+			complement *= 1 - node.selectivity;
+		}
+		return 1 - complement;
+	}
+
+	static double getCost(Node[] nodes) {
+		double cost = 0;
+		for (Node node : nodes) {
+			cost += node.cost;
+		}
+		return cost;
+	}
+
+	static boolean canThrow(Node[] nodes) {
+		for (Node node : nodes) {
+			if (node.canThrow)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * This sorts And operands so the operands that are cheapest and most
+	 * likely to be false come first.
+	 */
+	private static Comparator<Node> AND_COMPARATOR = new Comparator<Node>() {
+		@Override
+		public int compare(Node n1, Node n2) {
+			return Double.compare(n1.cost / Math.max(1e-6, 1 - n1.selectivity),
+					n2.cost / Math.max(1e-6, 1 - n2.selectivity));
+		}
+	};
+
+	/**
+	 * This sorts Or operands so the operands that are cheapest and most likely
+	 * to be true come first.
+	 */
+	private static Comparator<Node> OR_COMPARATOR = new Comparator<Node>() {
+		@Override
+		public int compare(Node n1, Node n2) {
+			return Double.compare(n1.cost / Math.max(1e-6, n1.selectivity),
+					n2.cost / Math.max(1e-6, n2.selectivity));
+		}
+	};
+
+	protected final Operator operator;
+	protected final Node root;
+	private final OperatorContext context;
+	private final Map<String, Accessor> accessors = new HashMap<>();
+
+	/**
+	 * Create a new CompiledOperator.
+	 * 
+	 * @param operator
+	 *            the operator to compile.
+	 * @param context
+	 *            the context used to retrieve attributes from data sources.
+	 *            If this is an {@link AccessorContext} then each attribute is
+	 *            resolved once here.
+	 */
+	public CompiledOperator(Operator operator, OperatorContext context) {
+		Objects.requireNonNull(operator);
+		Objects.requireNonNull(context);
+		this.operator = operator;
+		this.context = context;
+		root = compile(operator);
+	}
+
+	/**
+	 * Return the Operator this object was compiled from.
+	 */
+	public Operator getOperator() {
+		return operator;
+	}
+
+	/**
+	 * Evaluate whether the original Operator is true or false for a data
+	 * source.
+	 * 
+	 * @param dataSource
+	 *            the data source (such as a bean) to extract data from.
+	 * @return whether the original Operator evaluated as true or false.
+	 */
+	public boolean evaluate(Object dataSource) throws Exception {
+		return root.evaluate(dataSource);
+	}
+
+	@Override
+	public String toString() {
+		return "CompiledOperator[ " + operator + " ]";
+	}
+
+	private Accessor getAccessor(final String attributeName) {
+		Accessor accessor = accessors.get(attributeName);
+		if (accessor == null) {
+			if (context instanceof AccessorContext) {
+				accessor = ((AccessorContext) context)
+						.getAccessor(attributeName);
+			} else {
+				accessor = new Accessor() {
+					@Override
+					public Object getValue(Object dataSource) {
+						return context.getValue(dataSource, attributeName);
+					}
+				};
+			}
+			accessors.put(attributeName, accessor);
+		}
+		return accessor;
+	}
+
+	private Node compile(Operator op) {
+		if (op instanceof ConstantOperator) {
+			return new ConstantNode(op.equals(Operator.TRUE, true));
+		} else if (op instanceof Not) {
+			Node operand = compile(((Not) op).getOperand(0));
+			if (operand instanceof ConstantNode)
+				return new ConstantNode(!((ConstantNode) operand).value);
+			if (operand instanceof NotNode)
+				return ((NotNode) operand).operand;
+			return new NotNode(operand);
+		} else if (op instanceof And) {
+			List<Node> operands = new ArrayList<>();
+			for (int a = 0; a < op.getOperandCount(); a++) {
+				Node operand = compile((Operator) op.getOperand(a));
+				if (operand instanceof ConstantNode) {
+					if (!((ConstantNode) operand).value)
+						return operand;
+				} else if (operand instanceof AndNode) {
+					Collections.addAll(operands, ((AndNode) operand).operands);
+				} else {
+					operands.add(operand);
+				}
+			}
+			if (operands.isEmpty())
+				return new ConstantNode(true);
+			if (operands.size() == 1)
+				return operands.get(0);
+			return new AndNode(sort(operands, AND_COMPARATOR));
+		} else if (op instanceof Or) {
+			List<Node> operands = new ArrayList<>();
+			for (int a = 0; a < op.getOperandCount(); a++) {
+				Node operand = compile((Operator) op.getOperand(a));
+				if (operand instanceof ConstantNode) {
+					if (((ConstantNode) operand).value)
+						return operand;
+				} else if (operand instanceof OrNode) {
+					Collections.addAll(operands, ((OrNode) operand).operands);
+				} else {
+					operands.add(operand);
+				}
+			}
+			mergeEqualTos(operands);
+			if (operands.isEmpty())
+				return new ConstantNode(false);
+			if (operands.size() == 1)
+				return operands.get(0);
+			return new OrNode(sort(operands, OR_COMPARATOR));
+		} else if (op instanceof EqualTo) {
+			EqualTo equalTo = (EqualTo) op;
+			return new EqualToNode(getAccessor(equalTo.getAttribute()),
+					equalTo.getValue());
+		} else if (op instanceof In) {
+			In in = (In) op;
+			Collection<?> values = in.getValue();
+			return new InNode(getAccessor(in.getAttribute()),
+					isHashable(values) ? new HashSet<Object>(values) : values);
+		} else if (op instanceof GreaterThan) {
+			GreaterThan gt = (GreaterThan) op;
+			return new CompareNode(getAccessor(gt.getAttribute()),
+					gt.getValue(), true);
+		} else if (op instanceof LesserThan) {
+			LesserThan lt = (LesserThan) op;
+			return new CompareNode(getAccessor(lt.getAttribute()),
+					lt.getValue(), false);
+		} else if (op instanceof Like) {
+			Like like = (Like) op;
+			return compileLike(getAccessor(like.getAttribute()),
+					like.getValue());
+		}
+		throw new IllegalArgumentException("Unsupported operator: "
+				+ op.getClass().getName());
+	}
+
+	/**
+	 * Replace EqualToNodes and InNodes that consult the same attribute with
+	 * one InNode. Nodes with values that are not {@link #isHashable(Object)
+	 * hashable} are left alone.
+	 */
+	private void mergeEqualTos(List<Node> operands) {
+		Map<Accessor, Set<Object>> valuesByAccessor = new LinkedHashMap<>();
+		Map<Accessor, List<Node>> nodesByAccessor = new HashMap<>();
+		for (Node node : operands) {
+			Accessor accessor;
+			Collection<?> nodeValues;
+			if (node instanceof EqualToNode) {
+				accessor = ((EqualToNode) node).accessor;
+				nodeValues = Collections.singleton(((EqualToNode) node).value);
+			} else if (node instanceof InNode) {
+				accessor = ((InNode) node).accessor;
+				nodeValues = ((InNode) node).values;
+			} else {
+				continue;
+			}
+			if (!isHashable(nodeValues))
+				continue;
+			List<Node> nodes = nodesByAccessor.get(accessor);
+			Set<Object> values = valuesByAccessor.get(accessor);
+			if (values == null) {
+				nodes = new ArrayList<>();
+				nodesByAccessor.put(accessor, nodes);
+				values = new HashSet<>();
+				valuesByAccessor.put(accessor, values);
+			}
+			nodes.add(node);
+			values.addAll(nodeValues);
+		}
+
+		for (Entry<Accessor, Set<Object>> entry : valuesByAccessor.entrySet()) {
+			List<Node> nodes = nodesByAccessor.get(entry.getKey());
+			if (nodes.size() < 2)
+				continue;
+			for (int a = operands.size() - 1; a >= 0; a--) {
+				if (nodes.contains(operands.get(a)))
+					operands.remove(a);
+			}
+			operands.add(new InNode(entry.getKey(), entry.getValue()));
+		}
+	}
+
+	/**
+	 * Return true if every element of a collection is
+	 * {@link #isHashable(Object) hashable}.
+	 */
+	private static boolean isHashable(Collection<?> values) {
+		for (Object value : values) {
+			if (!isHashable(value))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Return true if a value is null, a String, a boxed primitive or an enum.
+	 * These are the values whose <code>equals()</code> and
+	 * <code>hashCode()</code> methods are known to agree, so a HashSet
+	 * compares them exactly the way the original Operator would. Any other
+	 * class may define <code>equals()</code> in a way a HashSet can't honor.
+	 */
+	private static boolean isHashable(Object value) {
+		return value == null || value instanceof String
+				|| value instanceof Integer || value instanceof Long
+				|| value instanceof Short || value instanceof Byte
+				|| value instanceof Double || value instanceof Float
+				|| value instanceof Character || value instanceof Boolean
+				|| value instanceof Enum;
+	}
+
+	/**
+	 * Sort operands by a comparator, except operands that may throw
+	 * exceptions are placed last in their original order. This way an
+	 * operand that might throw an exception is never evaluated in a case
+	 * where the original Operator would not have evaluated it.
+	 */
+	private static Node[] sort(List<Node> operands, Comparator<Node> comparator) {
+		List<Node> safeOperands = new ArrayList<>(operands.size());
+		List<Node> unsafeOperands = new ArrayList<>();
+		for (Node operand : operands) {
+			if (operand.canThrow) {
+				unsafeOperands.add(operand);
+			} else {
+				safeOperands.add(operand);
+			}
+		}
+		Collections.sort(safeOperands, comparator);
+		safeOperands.addAll(unsafeOperands);
+		return safeOperands.toArray(new Node[safeOperands.size()]);
+	}
+
+	private static Node compileLike(Accessor accessor, WildcardPattern pattern) {
+		Placeholder[] placeholders = pattern.getPlaceholders();
+		int start = 0;
+		int end = placeholders.length;
+		boolean leadingStar = end > 0 && placeholders[0] instanceof StarWildcard;
+		if (leadingStar)
+			start++;
+		boolean trailingStar = end > start
+				&& placeholders[end - 1] instanceof StarWildcard;
+		if (trailingStar)
+			end--;
+
+		boolean caseSensitive = pattern.getFormat().caseSensitive;
+		StringBuilder literal = new StringBuilder();
+		for (int a = start; a < end; a++) {
+			if (!(placeholders[a] instanceof FixedCharacter))
+				return new PatternNode(accessor, pattern);
+			char ch = ((FixedCharacter) placeholders[a]).ch;
+			literal.append(caseSensitive ? ch : Character.toLowerCase(ch));
+		}
+
+		int type;
+		if (leadingStar && trailingStar) {
+			type = LikeNode.CONTAINS;
+		} else if (leadingStar) {
+			type = LikeNode.SUFFIX;
+		} else if (trailingStar) {
+			type = LikeNode.PREFIX;
+		} else {
+			type = LikeNode.EXACT;
+		}
+		return new LikeNode(accessor, type, literal.toString(), caseSensitive);
+	}
+}
@@ -133,6 +133,18 @@ public abstract class Operator implements Serializable {
 	public abstract boolean evaluate(OperatorContext context, Object dataSource)
 			throws Exception;
 
+	/**
+	 * Compile this Operator into a {@link CompiledOperator}. This is
+	 * recommended when the same Operator is evaluated against many data
+	 * sources.
+	 * 
+	 * @param context
+	 *            the context used to extract fields from data sources.
+	 */
+	public CompiledOperator compile(OperatorContext context) {
+		return new CompiledOperator(this, context);
+	}
+
 	/**
 	 * @param negated
 	 *            if true then the String representation should represent a
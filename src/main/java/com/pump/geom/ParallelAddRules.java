@@ -0,0 +1,396 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom;
+
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import com.pump.geom.area.AreaXBody;
+import com.pump.geom.area.CrossingsX;
+import com.pump.util.SharedForkJoinPool;
+
+/**
+ * These <code>AreaXRules</code> add long runs of shapes (such as thousands of
+ * glyphs or map tiles) on several threads at once.
+ * <p>
+ * When at least {@link #MIN_PARALLEL_RUN} consecutive operations are
+ * additions, this:
+ * <ul>
+ * <li>Converts every operand to a validated <code>AreaXBody</code> in
+ * parallel.</li>
+ * <li>Drops operands that lie inside another operand. Candidates are found
+ * using a grid of operand bounds, so this does not compare every pair of
+ * shapes.</li>
+ * <li>Sorts the remaining operands so neighboring shapes are near each other
+ * (using the Z-order of the center of their bounds), and then adds them as a
+ * balanced tree on a <code>ForkJoinPool</code>. Two bodies whose bounds are
+ * disjoint are merged instead of added.</li>
+ * </ul>
+ * <p>
+ * Addition is commutative and associative, so this produces the same shape as
+ * sequentially adding each operand. (The order of the curves in the resulting
+ * body may be different.) All other operations, and short runs of additions,
+ * are executed sequentially.
+ */
+public class ParallelAddRules extends AreaXRules {
+
+	/**
+	 * Runs of additions with fewer than this many operands are executed
+	 * sequentially.
+	 */
+	static int MIN_PARALLEL_RUN = 16;
+
+	/**
+	 * Subtrees of at most this many bodies are added on a single thread.
+	 */
+	static int SEQUENTIAL_THRESHOLD = 8;
+
+	/**
+	 * This orders bodies by their Z-order (see
+	 * {@link ParallelAddRules#sortByLocation(List)}).
+	 */
+	private static class ZOrderComparator implements Comparator<Integer> {
+		final long[] keys;
+
+		ZOrderComparator(long[] keys) {
+			this.keys = keys;
+		}
+
+		@Override
+		public int compare(Integer o1, Integer o2) {
+			return Long.compare(keys[o1], keys[o2]);
+		}
+	}
+
+	/**
+	 * Convert operands to validated bodies.
+	 */
+	static class CreateBodiesTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final List<AreaXOperation> operations;
+		final AreaXBody[] bodies;
+		final int start, end;
+
+		CreateBodiesTask(List<AreaXOperation> operations, AreaXBody[] bodies,
+				int start, int end) {
+			this.operations = operations;
+			this.bodies = bodies;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= SEQUENTIAL_THRESHOLD) {
+				for (int a = start; a < end; a++) {
+					Shape operand = operations.get(a).getOperand();
+					AreaXBody body;
+					if (operand instanceof AreaX) {
+						body = ((AreaX) operand).getBody();
+					} else {
+						body = AreaXBody.create(operand.getPathIterator(null),
+								false);
+					}
+					bodies[a] = body.validate();
+				}
+			} else {
+				int mid = (start + end) / 2;
+				invokeAll(new CreateBodiesTask(operations, bodies, start, mid),
+						new CreateBodiesTask(operations, bodies, mid, end));
+			}
+		}
+	}
+
+	/**
+	 * Add a range of bodies as a balanced tree.
+	 */
+	static class AddTask extends RecursiveTask<AreaXBody> {
+		private static final long serialVersionUID = 1L;
+
+		final AreaXBody[] bodies;
+		final int start, end;
+
+		AddTask(AreaXBody[] bodies, int start, int end) {
+			this.bodies = bodies;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected AreaXBody compute() {
+			if (end - start <= SEQUENTIAL_THRESHOLD)
+				return add(bodies, start, end);
+			int mid = (start + end) / 2;
+			AddTask left = new AddTask(bodies, start, mid);
+			left.fork();
+			AreaXBody right = new AddTask(bodies, mid, end).compute();
+			return add(left.join(), right);
+		}
+	}
+
+	final ForkJoinPool pool;
+
+	/**
+	 * Create ParallelAddRules that use a shared <code>ForkJoinPool</code>.
+	 */
+	public ParallelAddRules() {
+		this(SharedForkJoinPool.get());
+	}
+
+	/**
+	 * Create ParallelAddRules.
+	 * 
+	 * @param pool
+	 *            the pool to add shapes in.
+	 */
+	public ParallelAddRules(ForkJoinPool pool) {
+		if (pool == null)
+			throw new NullPointerException();
+		this.pool = pool;
+	}
+
+	@Override
+	public AreaXBody execute(AreaXBody body, int startIndex, int endIndex,
+			AreaXOperation[] ops) {
+		int a = startIndex;
+		while (a <= endIndex) {
+			if (ops[a] == null) {
+				a++;
+				continue;
+			}
+
+			int runEnd = a;
+			List<AreaXOperation> run = new ArrayList<>();
+			if (ops[a].getOperator() == AreaXOperation.ADD) {
+				for (int b = a; b <= endIndex; b++) {
+					if (ops[b] != null) {
+						if (ops[b].getOperator() != AreaXOperation.ADD)
+							break;
+						run.add(ops[b]);
+						runEnd = b;
+					}
+				}
+			}
+
+			if (run.size() >= MIN_PARALLEL_RUN) {
+				body = add(body, addAll(run));
+			} else {
+				body = super.execute(body, a, runEnd, ops);
+			}
+			a = runEnd + 1;
+		}
+		return body;
+	}
+
+	/**
+	 * Return the sum of several operands.
+	 */
+	private AreaXBody addAll(List<AreaXOperation> operations) {
+		AreaXBody[] bodies = new AreaXBody[operations.size()];
+		pool.invoke(new CreateBodiesTask(operations, bodies, 0, bodies.length));
+
+		List<AreaXBody> list = removeInnerBodies(bodies);
+		if (list.isEmpty())
+			return bodies[0];
+		bodies = sortByLocation(list);
+		return pool.invoke(new AddTask(bodies, 0, bodies.length));
+	}
+
+	/**
+	 * Return all the non-empty bodies that are not contained inside another
+	 * body.
+	 * <p>
+	 * Bodies are considered from largest to smallest bounds. Each body that is
+	 * kept is stored in every cell of a grid that its bounds overlap, so a
+	 * smaller body only needs to be compared against the bodies in the cell
+	 * its top-left corner lies in.
+	 */
+	static List<AreaXBody> removeInnerBodies(AreaXBody[] bodies) {
+		final List<AreaXBody> list = new ArrayList<>(bodies.length);
+		Rectangle2D totalBounds = null;
+		for (AreaXBody body : bodies) {
+			if (!body.isEmpty()) {
+				list.add(body);
+				if (totalBounds == null) {
+					totalBounds = body.getBounds2D(null);
+				} else {
+					totalBounds.add(body.getBounds2D(null));
+				}
+			}
+		}
+		if (list.size() < 2)
+			return list;
+
+		final double[] areas = new double[list.size()];
+		Integer[] order = new Integer[list.size()];
+		Rectangle2D r = new Rectangle2D.Double();
+		for (int a = 0; a < order.length; a++) {
+			list.get(a).getBounds2D(r);
+			areas[a] = r.getWidth() * r.getHeight();
+			order[a] = a;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Double.compare(areas[o2], areas[o1]);
+			}
+		});
+
+		int gridSize = Math.max(1, (int) Math.sqrt(list.size()));
+		double cellWidth = totalBounds.getWidth() / gridSize;
+		double cellHeight = totalBounds.getHeight() / gridSize;
+		List<List<AreaXBody>> cells = new ArrayList<>(gridSize * gridSize);
+		for (int a = 0; a < gridSize * gridSize; a++) {
+			cells.add(new ArrayList<AreaXBody>());
+		}
+
+		List<AreaXBody> returnValue = new ArrayList<>(list.size());
+		for (Integer index : order) {
+			AreaXBody body = list.get(index);
+			body.getBounds2D(r);
+			int col0 = getCell(r.getMinX(), totalBounds.getMinX(), cellWidth,
+					gridSize);
+			int row0 = getCell(r.getMinY(), totalBounds.getMinY(),
+					cellHeight, gridSize);
+			if (!isContained(r, cells.get(row0 * gridSize + col0))) {
+				returnValue.add(body);
+				int col1 = getCell(r.getMaxX(), totalBounds.getMinX(),
+						cellWidth, gridSize);
+				int row1 = getCell(r.getMaxY(), totalBounds.getMinY(),
+						cellHeight, gridSize);
+				for (int row = row0; row <= row1; row++) {
+					for (int col = col0; col <= col1; col++) {
+						cells.get(row * gridSize + col).add(body);
+					}
+				}
+			}
+		}
+		return returnValue;
+	}
+
+	private static int getCell(double v, double min, double cellSize,
+			int gridSize) {
+		if (!(cellSize > 0))
+			return 0;
+		int k = (int) ((v - min) / cellSize);
+		return Math.max(0, Math.min(gridSize - 1, k));
+	}
+
+	/**
+	 * Return true if any of the bodies in a list contain a rectangle.
+	 */
+	private static boolean isContained(Rectangle2D r, List<AreaXBody> bodies) {
+		for (AreaXBody body : bodies) {
+			if (body.boundsContains(r.getX(), r.getY(), r.getWidth(),
+					r.getHeight())) {
+				CrossingsX c = CrossingsX.findCrossings(body, r.getMinX(),
+						r.getMinY(), r.getMaxX(), r.getMaxY());
+				if (c != null && c.covers(r.getMinY(), r.getMaxY()))
+					return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Sort bodies by the Z-order (Morton code) of the center of their bounds,
+	 * so bodies that are next to each other in the returned array are usually
+	 * close to each other.
+	 */
+	static AreaXBody[] sortByLocation(List<AreaXBody> bodies) {
+		Rectangle2D totalBounds = null;
+		double[] centers = new double[2 * bodies.size()];
+		Rectangle2D r = new Rectangle2D.Double();
+		for (int a = 0; a < bodies.size(); a++) {
+			bodies.get(a).getBounds2D(r);
+			centers[2 * a] = r.getCenterX();
+			centers[2 * a + 1] = r.getCenterY();
+			if (totalBounds == null) {
+				totalBounds = new Rectangle2D.Double(r.getX(), r.getY(),
+						r.getWidth(), r.getHeight());
+			} else {
+				totalBounds.add(r);
+			}
+		}
+
+		long[] keys = new long[bodies.size()];
+		Integer[] order = new Integer[bodies.size()];
+		for (int a = 0; a < keys.length; a++) {
+			int x = quantize(centers[2 * a], totalBounds.getMinX(),
+					totalBounds.getWidth());
+			int y = quantize(centers[2 * a + 1], totalBounds.getMinY(),
+					totalBounds.getHeight());
+			keys[a] = interleave(x) | (interleave(y) << 1);
+			order[a] = a;
+		}
+		Arrays.sort(order, new ZOrderComparator(keys));
+
+		AreaXBody[] returnValue = new AreaXBody[order.length];
+		for (int a = 0; a < order.length; a++) {
+			returnValue[a] = bodies.get(order[a]);
+		}
+		return returnValue;
+	}
+
+	private static int quantize(double v, double min, double size) {
+		if (!(size > 0))
+			return 0;
+		return (int) Math.min(0xffff, (v - min) / size * 0xffff);
+	}
+
+	/**
+	 * Spread the lower 16 bits of an int so there is a zero bit between each
+	 * bit.
+	 */
+	private static long interleave(int k) {
+		long x = k & 0xffffL;
+		x = (x | (x << 8)) & 0x00ff00ffL;
+		x = (x | (x << 4)) & 0x0f0f0f0fL;
+		x = (x | (x << 2)) & 0x33333333L;
+		x = (x | (x << 1)) & 0x55555555L;
+		return x;
+	}
+
+	/**
+	 * Add a range of bodies as a balanced tree on the current thread.
+	 */
+	static AreaXBody add(AreaXBody[] bodies, int start, int end) {
+		if (end - start == 1)
+			return bodies[start];
+		int mid = (start + end) / 2;
+		return add(add(bodies, start, mid), add(bodies, mid, end));
+	}
+
+	/**
+	 * Add two bodies. If their bounds are disjoint then they are merged
+	 * instead.
+	 */
+	static AreaXBody add(AreaXBody lhs, AreaXBody rhs) {
+		if (lhs.isEmpty())
+			return rhs;
+		if (rhs.isEmpty())
+			return lhs;
+		Rectangle2D r1 = lhs.getBounds2D(null);
+		Rectangle2D r2 = rhs.getBounds2D(null);
+		if (r1.getMaxX() < r2.getMinX() || r2.getMaxX() < r1.getMinX()
+				|| r1.getMaxY() < r2.getMinY() || r2.getMaxY() < r1.getMinY())
+			return lhs.merge(rhs);
+		return lhs.add(rhs);
+	}
+}
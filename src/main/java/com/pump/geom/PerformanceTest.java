@@ -15,6 +15,7 @@ import java.awt.geom.Ellipse2D;
 import java.io.PrintStream;
 import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
@@ -42,9 +43,9 @@ public class PerformanceTest extends BasicTestElement {
 
 	public PerformanceTest(PrintStream stream) {
 		printStream = stream;
-		type.addItem("Linear");
-		type.addItem("Quadratic");
-		type.addItem("Cubic");
+		for (String name : TYPE_NAMES) {
+			type.addItem(name);
+		}
 	}
 
 	@Override
@@ -81,17 +82,8 @@ public class PerformanceTest extends BasicTestElement {
 				progress.setValue((int) (percent * (progress.getMaximum() - progress
 						.getMinimum())) + progress.getMinimum());
 
-				double x = 1000 * random.nextDouble();
-				double y = 1000 * random.nextDouble();
-				Shape shape;
-				if (type.getSelectedIndex() == 0) {
-					shape = createDiamond((float) x, (float) y);
-				} else if (type.getSelectedIndex() == 1) {
-					shape = createQuad((float) x, (float) y);
-				} else { // use cubics
-					shape = new Ellipse2D.Double(x, y, 30, 30);
-				}
-				AreaX k = new AreaX(shape);
+				AreaX k = new AreaX(createShape(type.getSelectedIndex(),
+						random));
 				sum.add(k);
 			}
 			times[a] = System.currentTimeMillis() - times[a];
@@ -99,4 +91,95 @@ public class PerformanceTest extends BasicTestElement {
 		Arrays.sort(times);
 		printStream.println("Median Time: " + times[times.length / 2] + " ms");
 	}
-}
\ No newline at end of file
+
+	static final String[] TYPE_NAMES = new String[] { "Linear", "Quadratic",
+			"Cubic" };
+
+	/**
+	 * Create a randomly placed shape.
+	 * 
+	 * @param type
+	 *            0 for lines, 1 for quadratic curves, or 2 for cubic curves.
+	 */
+	static Shape createShape(int type, Random random) {
+		double x = 1000 * random.nextDouble();
+		double y = 1000 * random.nextDouble();
+		if (type == 0) {
+			return createDiamond((float) x, (float) y);
+		} else if (type == 1) {
+			return createQuad((float) x, (float) y);
+		}
+		return new Ellipse2D.Double(x, y, 30, 30);
+	}
+
+	/**
+	 * Return the median number of milliseconds it takes to add several
+	 * shapes using a given set of rules.
+	 */
+	static long measureAdditions(int type, int iterations, int additions,
+			AreaXRules rules) {
+		long[] times = new long[iterations];
+		for (int a = 0; a < iterations; a++) {
+			Random random = new Random(0);
+			AreaX sum = new AreaX();
+			sum.setRules(rules);
+			times[a] = System.currentTimeMillis();
+			for (int b = 0; b < additions; b++) {
+				sum.add(new AreaX(createShape(type, random)));
+			}
+			sum.getBody();
+			times[a] = System.currentTimeMillis() - times[a];
+		}
+		Arrays.sort(times);
+		return times[times.length / 2];
+	}
+
+	/**
+	 * This runs without a UI and prints how long it takes to add shapes using
+	 * the sequential <code>AreaXRules</code>, the <code>BoundsRules</code>, and
+	 * the <code>ParallelAddRules</code> with different numbers of threads. The
+	 * speedup is relative to the sequential <code>AreaXRules</code>.
+	 * 
+	 * @param args
+	 *            an optional number of additions (the default is 1000).
+	 */
+	public static void main(String[] args) {
+		int additions = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int iterations = 5;
+		int processors = Runtime.getRuntime().availableProcessors();
+		System.out.println("Type\tRules\tThreads\tMedian (ms)\tSpeedup");
+		for (int type = 0; type < TYPE_NAMES.length; type++) {
+			long baseline = measureAdditions(type, iterations, additions,
+					new AreaXRules());
+			print(type, "AreaXRules", 1, baseline, baseline);
+			print(type, "BoundsRules", 1,
+					measureAdditions(type, iterations, additions,
+							new BoundsRules()), baseline);
+			for (int threads = 1; threads <= processors; threads *= 2) {
+				printParallel(type, iterations, additions, threads, baseline);
+				if (threads < processors && threads * 2 > processors)
+					printParallel(type, iterations, additions, processors,
+							baseline);
+			}
+		}
+	}
+
+	private static void printParallel(int type, int iterations,
+			int additions, int threads, long baseline) {
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			print(type, "ParallelAddRules", threads,
+					measureAdditions(type, iterations, additions,
+							new ParallelAddRules(pool)), baseline);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static void print(int type, String rules, int threads, long time,
+			long baseline) {
+		double speedup = Math.round(10.0 * baseline / Math.max(1, time)) / 10.0;
+		System.out.println(TYPE_NAMES[type] + "\t" + rules + "\t" + threads
+				+ "\t" + time + "\t" + speedup);
+	}
+}
@@ -17,6 +17,7 @@ import java.awt.geom.PathIterator;
 import java.awt.geom.Rectangle2D;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.pump.geom.AreaX;
 import com.pump.geom.EmptyPathException;
@@ -64,6 +65,23 @@ public class AreaXBody extends CurveList {
 	private final AreaOpX validationOperator;
 	private AreaXBody validatedBody;
 
+	/**
+	 * Validated bodies with at least this many curves build an
+	 * {@link AreaXIndex} once they have been queried
+	 * {@link #INDEX_QUERY_THRESHOLD} times.
+	 */
+	static int MIN_INDEXED_CURVES = 32;
+
+	/**
+	 * The number of queries a body receives before it builds an
+	 * {@link AreaXIndex}. Most bodies are only queried a few times, so it is
+	 * not worth indexing them.
+	 */
+	static int INDEX_QUERY_THRESHOLD = 16;
+
+	volatile AreaXIndex index;
+	private final AtomicInteger queryCount = new AtomicInteger();
+
 	/** Used only for the merge method. */
 	private AreaXBody() {
 		super(0);
@@ -91,6 +109,10 @@ public class AreaXBody extends CurveList {
 		if (bounds.contains(x, y) == false)
 			return false;
 
+		AreaXIndex index = getIndex();
+		if (index != null)
+			return (index.crossingsFor(x, y) & 1) == 1;
+
 		int crossings = 0;
 		int size = size();
 		for (int a = 0; a < size; a++) {
@@ -377,6 +399,11 @@ public class AreaXBody extends CurveList {
 
 	private boolean intersectsLine(double x0, double y0, double x1, double y1,
 			AreaXIterator axi, AffineTransform axiTx) {
+		if (axiTx == null || axiTx.isIdentity()) {
+			AreaXIndex index = getIndex();
+			if (index != null)
+				return index.intersectsLine(x0, y0, x1, y1);
+		}
 		axi.reset(this, axiTx);
 		double lastX = 0;
 		double lastY = 0;
@@ -422,6 +449,11 @@ public class AreaXBody extends CurveList {
 
 	private boolean intersectsQuad(double x0, double y0, double cx, double cy,
 			double x1, double y1, AreaXIterator axi, AffineTransform axiTx) {
+		if (axiTx == null || axiTx.isIdentity()) {
+			AreaXIndex index = getIndex();
+			if (index != null)
+				return index.intersectsQuad(x0, y0, cx, cy, x1, y1);
+		}
 		axi.reset(this, axiTx);
 		double lastX = 0;
 		double lastY = 0;
@@ -468,6 +500,11 @@ public class AreaXBody extends CurveList {
 	private boolean intersectsCubic(double x0, double y0, double cx0,
 			double cy0, double cx1, double cy1, double x1, double y1,
 			AreaXIterator axi, AffineTransform axiTx) {
+		if (axiTx == null || axiTx.isIdentity()) {
+			AreaXIndex index = getIndex();
+			if (index != null)
+				return index.intersectsCubic(x0, y0, cx0, cy0, cx1, cy1, x1, y1);
+		}
 		axi.reset(this, axiTx);
 		double lastX = 0;
 		double lastY = 0;
@@ -515,8 +552,30 @@ public class AreaXBody extends CurveList {
 		return false;
 	}
 
+	/**
+	 * Return the spatial index of this body, or null if this body should not
+	 * be indexed (yet).
+	 * <p>
+	 * Bodies are not modified once they are constructed, so the index never
+	 * needs to be rebuilt. (When an <code>AreaX</code> changes it replaces its
+	 * body, and the new body builds its own index.)
+	 */
+	AreaXIndex getIndex() {
+		AreaXIndex i = index;
+		if (i != null)
+			return i;
+		if (validationOperator != null || elementCount < MIN_INDEXED_CURVES
+				|| queryCount.incrementAndGet() < INDEX_QUERY_THRESHOLD)
+			return null;
+		i = new AreaXIndex(this);
+		index = i;
+		return i;
+	}
+
 	@Override
 	protected void add(CurveX o) {
+		index = null;
+		queryCount.set(0);
 		if (size() == 0) {
 			bounds.setFrame(o.getX0(), o.getY0(), 0, 0);
 		}
@@ -0,0 +1,503 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom.area;
+
+import java.awt.geom.PathIterator;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import com.pump.geom.Intersections;
+
+/**
+ * This is a spatial index of a validated <code>AreaXBody</code>.
+ * <p>
+ * Point and rectangle containment are calculated by counting the curves that
+ * cross a horizontal ray, so curves are divided into horizontal bands. The
+ * curves in each band are sorted by their maximum x value, so a point query
+ * only visits the curves in one band that lie to the right of the point.
+ * <p>
+ * Intersection tests use a bounding volume hierarchy of the path segments of
+ * the body.
+ * <p>
+ * So each query costs O(log(n) + k), where k is the number of curves or
+ * segments near the region being queried. Each method returns exactly the
+ * same result as the equivalent code in <code>AreaXBody</code> that iterates
+ * over every curve.
+ */
+class AreaXIndex {
+
+	/**
+	 * The maximum number of elements in a leaf node.
+	 */
+	static final int LEAF_SIZE = 4;
+
+	/**
+	 * This is notified of each element a query finds.
+	 */
+	interface Visitor {
+		/**
+		 * Process an element.
+		 * 
+		 * @return true to stop the query.
+		 */
+		boolean visit(int element);
+	}
+
+	/**
+	 * A bounding volume hierarchy of rectangles.
+	 * <p>
+	 * Nodes are stored in depth-first order, so the first child of a node is
+	 * always the next node.
+	 */
+	static class Hierarchy {
+		/** The minX, minY, maxX, maxY of each element. */
+		final double[] elementBounds;
+		/** The elements, sorted so each node refers to a contiguous range. */
+		final int[] elements;
+
+		double[] nodeBounds;
+		int[] nodeStart, nodeEnd;
+		/** The index of the second child of a node, or -1 for leaves. */
+		int[] nodeSecondChild;
+		int nodeCount = 0;
+
+		Hierarchy(double[] elementBounds, int elementCount) {
+			this.elementBounds = elementBounds;
+			elements = new int[elementCount];
+			for (int a = 0; a < elementCount; a++) {
+				elements[a] = a;
+			}
+			int capacity = Math.max(1, 2 * elementCount / LEAF_SIZE + 1);
+			nodeBounds = new double[4 * capacity];
+			nodeStart = new int[capacity];
+			nodeEnd = new int[capacity];
+			nodeSecondChild = new int[capacity];
+			if (elementCount > 0)
+				build(0, elementCount);
+		}
+
+		private int build(int start, int end) {
+			if (nodeCount == nodeStart.length) {
+				int capacity = 2 * nodeCount;
+				nodeBounds = Arrays.copyOf(nodeBounds, 4 * capacity);
+				nodeStart = Arrays.copyOf(nodeStart, capacity);
+				nodeEnd = Arrays.copyOf(nodeEnd, capacity);
+				nodeSecondChild = Arrays.copyOf(nodeSecondChild, capacity);
+			}
+			int node = nodeCount++;
+			double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+			double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+			for (int a = start; a < end; a++) {
+				int i = 4 * elements[a];
+				minX = Math.min(minX, elementBounds[i]);
+				minY = Math.min(minY, elementBounds[i + 1]);
+				maxX = Math.max(maxX, elementBounds[i + 2]);
+				maxY = Math.max(maxY, elementBounds[i + 3]);
+			}
+			nodeBounds[4 * node] = minX;
+			nodeBounds[4 * node + 1] = minY;
+			nodeBounds[4 * node + 2] = maxX;
+			nodeBounds[4 * node + 3] = maxY;
+			nodeStart[node] = start;
+			nodeEnd[node] = end;
+			nodeSecondChild[node] = -1;
+
+			if (end - start > LEAF_SIZE) {
+				// split at the median center along the longer axis:
+				int axis = maxX - minX >= maxY - minY ? 0 : 1;
+				int mid = (start + end) >>> 1;
+				sort(start, end, axis);
+				build(start, mid);
+				nodeSecondChild[node] = build(mid, end);
+			}
+			return node;
+		}
+
+		/**
+		 * Sort a range of elements by their center along one axis.
+		 */
+		private void sort(int start, int end, final int axis) {
+			Integer[] range = new Integer[end - start];
+			for (int a = 0; a < range.length; a++) {
+				range[a] = elements[start + a];
+			}
+			Arrays.sort(range, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer o1, Integer o2) {
+					return Double.compare(getCenter(o1, axis),
+							getCenter(o2, axis));
+				}
+			});
+			for (int a = 0; a < range.length; a++) {
+				elements[start + a] = range[a];
+			}
+		}
+
+		private double getCenter(int element, int axis) {
+			int i = 4 * element;
+			return elementBounds[i + axis] + elementBounds[i + 2 + axis];
+		}
+
+		/**
+		 * Visit every element whose bounds overlap (or touch) a rectangle.
+		 * 
+		 * @return true if the visitor stopped the query.
+		 */
+		boolean query(double minX, double minY, double maxX, double maxY,
+				Visitor visitor) {
+			if (nodeCount == 0)
+				return false;
+			int[] stack = new int[64];
+			int stackSize = 0;
+			stack[stackSize++] = 0;
+			while (stackSize > 0) {
+				int node = stack[--stackSize];
+				int i = 4 * node;
+				if (nodeBounds[i] > maxX || nodeBounds[i + 1] > maxY
+						|| nodeBounds[i + 2] < minX
+						|| nodeBounds[i + 3] < minY)
+					continue;
+				int secondChild = nodeSecondChild[node];
+				if (secondChild == -1) {
+					for (int a = nodeStart[node]; a < nodeEnd[node]; a++) {
+						int element = elements[a];
+						int j = 4 * element;
+						if (elementBounds[j] <= maxX
+								&& elementBounds[j + 1] <= maxY
+								&& elementBounds[j + 2] >= minX
+								&& elementBounds[j + 3] >= minY
+								&& visitor.visit(element))
+							return true;
+					}
+				} else {
+					if (stackSize + 2 > stack.length)
+						stack = Arrays.copyOf(stack, 2 * stack.length);
+					stack[stackSize++] = secondChild;
+					stack[stackSize++] = node + 1;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * The maximum number of band entries per curve. If curves span so many
+	 * bands that this is exceeded, fewer bands are used.
+	 */
+	static final int MAX_BANDS_PER_CURVE = 8;
+
+	final CurveX[] curves;
+	final double[] curveMinX, curveMaxX;
+
+	/** The first band each curve belongs to. */
+	final int[] curveFirstBand;
+
+	final double bandMinY, bandHeight;
+	final int bandCount;
+
+	/**
+	 * The curves in band <code>k</code> are
+	 * <code>bandCurves[bandStart[k]]</code> through
+	 * <code>bandCurves[bandStart[k + 1] - 1]</code>, in order of decreasing
+	 * maximum x value.
+	 */
+	final int[] bandStart, bandCurves;
+
+	/**
+	 * The type of each segment: <code>PathIterator.SEG_LINETO</code>,
+	 * <code>SEG_QUADTO</code> or <code>SEG_CUBICTO</code>.
+	 */
+	final int[] segmentTypes;
+
+	/**
+	 * Eight values for each segment: the starting point followed by the
+	 * coordinates returned by the <code>PathIterator</code>.
+	 */
+	final double[] segmentCoords;
+	final Hierarchy segmentHierarchy;
+
+	AreaXIndex(AreaXBody body) {
+		int size = body.size();
+		curves = new CurveX[size];
+		curveMinX = new double[size];
+		curveMaxX = new double[size];
+		double top = Double.MAX_VALUE;
+		double bottom = -Double.MAX_VALUE;
+		for (int a = 0; a < size; a++) {
+			CurveX c = body.get(a);
+			curves[a] = c;
+			curveMinX[a] = c.getXMin();
+			curveMaxX[a] = c.getXMax();
+			top = Math.min(top, c.getYTop());
+			bottom = Math.max(bottom, c.getYBot());
+		}
+
+		Integer[] order = new Integer[size];
+		for (int a = 0; a < size; a++) {
+			order[a] = a;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Double.compare(curveMaxX[o2], curveMaxX[o1]);
+			}
+		});
+
+		int bands = Math.max(1, size);
+		int[] first = new int[size];
+		int[] last = new int[size];
+		while (true) {
+			double height = size == 0 ? 1 : (bottom - top) / bands;
+			long entries = 0;
+			for (int a = 0; a < size; a++) {
+				first[a] = getBand(curves[a].getYTop(), top, height, bands);
+				last[a] = getBand(curves[a].getYBot(), top, height, bands);
+				entries += last[a] - first[a] + 1;
+			}
+			if (bands == 1 || entries <= MAX_BANDS_PER_CURVE * (long) size) {
+				bandMinY = top;
+				bandHeight = height;
+				bandCount = bands;
+				bandStart = new int[bands + 1];
+				bandCurves = new int[(int) entries];
+				break;
+			}
+			bands = bands / 2;
+		}
+		curveFirstBand = first;
+
+		for (int a = 0; a < size; a++) {
+			for (int band = first[a]; band <= last[a]; band++) {
+				bandStart[band + 1]++;
+			}
+		}
+		for (int band = 0; band < bandCount; band++) {
+			bandStart[band + 1] += bandStart[band];
+		}
+		int[] bandSize = new int[bandCount];
+		for (int a = 0; a < size; a++) {
+			int curve = order[a];
+			for (int band = first[curve]; band <= last[curve]; band++) {
+				bandCurves[bandStart[band] + bandSize[band]++] = curve;
+			}
+		}
+
+		// this mirrors how AreaXBody.intersectsLine(..) walks the path:
+		int[] types = new int[2 * size + 1];
+		double[] coords = new double[8 * types.length];
+		double[] segmentBounds = new double[4 * types.length];
+		int count = 0;
+		double lastX = 0, lastY = 0, moveX = 0, moveY = 0;
+		double[] c = new double[6];
+		PathIterator iter = body.getPathIterator(null);
+		while (!iter.isDone()) {
+			int k = iter.currentSegment(c);
+			if (k == PathIterator.SEG_CLOSE) {
+				if (lastX != moveX || lastY != moveY) {
+					k = PathIterator.SEG_LINETO;
+					c[0] = moveX;
+					c[1] = moveY;
+				}
+			}
+			if (k == PathIterator.SEG_MOVETO) {
+				moveX = lastX = c[0];
+				moveY = lastY = c[1];
+			} else if (k == PathIterator.SEG_LINETO
+					|| k == PathIterator.SEG_QUADTO
+					|| k == PathIterator.SEG_CUBICTO) {
+				if (count == types.length) {
+					types = Arrays.copyOf(types, 2 * count);
+					coords = Arrays.copyOf(coords, 16 * count);
+					segmentBounds = Arrays.copyOf(segmentBounds, 8 * count);
+				}
+				int pointCount = k == PathIterator.SEG_LINETO ? 1
+						: (k == PathIterator.SEG_QUADTO ? 2 : 3);
+				types[count] = k;
+				coords[8 * count] = lastX;
+				coords[8 * count + 1] = lastY;
+				double minX = lastX, minY = lastY, maxX = lastX, maxY = lastY;
+				for (int a = 0; a < pointCount; a++) {
+					double x = c[2 * a];
+					double y = c[2 * a + 1];
+					coords[8 * count + 2 + 2 * a] = x;
+					coords[8 * count + 3 + 2 * a] = y;
+					minX = Math.min(minX, x);
+					minY = Math.min(minY, y);
+					maxX = Math.max(maxX, x);
+					maxY = Math.max(maxY, y);
+				}
+				segmentBounds[4 * count] = minX;
+				segmentBounds[4 * count + 1] = minY;
+				segmentBounds[4 * count + 2] = maxX;
+				segmentBounds[4 * count + 3] = maxY;
+				lastX = c[2 * pointCount - 2];
+				lastY = c[2 * pointCount - 1];
+				count++;
+			}
+			iter.next();
+		}
+		segmentTypes = types;
+		segmentCoords = coords;
+		segmentHierarchy = new Hierarchy(segmentBounds, count);
+	}
+
+	private static int getBand(double y, double minY, double bandHeight,
+			int bandCount) {
+		if (!(bandHeight > 0))
+			return 0;
+		int k = (int) ((y - minY) / bandHeight);
+		return Math.max(0, Math.min(bandCount - 1, k));
+	}
+
+	/**
+	 * Return the number of curves to the right of a point that cross its y
+	 * value. (See {@link CurveX#crossingsFor(double, double)}.)
+	 */
+	int crossingsFor(double x, double y) {
+		int band = getBand(y, bandMinY, bandHeight, bandCount);
+		int crossings = 0;
+		for (int a = bandStart[band]; a < bandStart[band + 1]; a++) {
+			int curve = bandCurves[a];
+			if (curveMaxX[curve] <= x)
+				break;
+			crossings += curves[curve].crossingsFor(x, y);
+		}
+		return crossings;
+	}
+
+	/**
+	 * Return the crossings of a rectangle, or null if a curve passes through
+	 * the rectangle. (See
+	 * {@link CrossingsX#findCrossings(AreaXBody, double, double, double, double)}
+	 * .)
+	 */
+	CrossingsX findCrossings(double xlo, double ylo, double xhi, double yhi) {
+		CrossingsX cross = new CrossingsX.EvenOdd(xlo, ylo, xhi, yhi);
+		int firstBand = getBand(ylo, bandMinY, bandHeight, bandCount);
+		int lastBand = getBand(yhi, bandMinY, bandHeight, bandCount);
+		for (int band = firstBand; band <= lastBand; band++) {
+			for (int a = bandStart[band]; a < bandStart[band + 1]; a++) {
+				int curve = bandCurves[a];
+				// only visit each curve once:
+				if (Math.max(curveFirstBand[curve], firstBand) != band)
+					continue;
+				if (curveMinX[curve] < xhi
+						&& curves[curve].accumulateCrossings(cross))
+					return null;
+			}
+		}
+		return cross;
+	}
+
+	/**
+	 * Return true if a line intersects any segment of this body.
+	 */
+	boolean intersectsLine(final double x0, final double y0, final double x1,
+			final double y1) {
+		return segmentHierarchy.query(Math.min(x0, x1), Math.min(y0, y1),
+				Math.max(x0, x1), Math.max(y0, y1), new Visitor() {
+					@Override
+					public boolean visit(int element) {
+						double[] c = segmentCoords;
+						int i = 8 * element;
+						switch (segmentTypes[element]) {
+						case PathIterator.SEG_LINETO:
+							return Intersections.lineLine(x0, y0, x1, y1,
+									c[i], c[i + 1], c[i + 2], c[i + 3]);
+						case PathIterator.SEG_QUADTO:
+							return Intersections.lineQuad(x0, y0, x1, y1,
+									c[i], c[i + 1], c[i + 2], c[i + 3],
+									c[i + 4], c[i + 5]);
+						default:
+							return Intersections.lineCubic(x0, y0, x1, y1,
+									c[i], c[i + 1], c[i + 2], c[i + 3],
+									c[i + 4], c[i + 5], c[i + 6], c[i + 7]);
+						}
+					}
+				});
+	}
+
+	/**
+	 * Return true if a quadratic curve intersects any segment of this body.
+	 */
+	boolean intersectsQuad(final double x0, final double y0, final double cx,
+			final double cy, final double x1, final double y1) {
+		return segmentHierarchy.query(min(x0, cx, x1), min(y0, cy, y1),
+				max(x0, cx, x1), max(y0, cy, y1), new Visitor() {
+					@Override
+					public boolean visit(int element) {
+						double[] c = segmentCoords;
+						int i = 8 * element;
+						switch (segmentTypes[element]) {
+						case PathIterator.SEG_LINETO:
+							return Intersections.lineQuad(c[i], c[i + 1],
+									c[i + 2], c[i + 3], x0, y0, cx, cy, x1, y1);
+						case PathIterator.SEG_QUADTO:
+							return Intersections.quadQuad(x0, y0, cx, cy, x1,
+									y1, c[i], c[i + 1], c[i + 2], c[i + 3],
+									c[i + 4], c[i + 5]);
+						default:
+							return Intersections.quadCubic(x0, y0, cx, cy, x1,
+									y1, c[i], c[i + 1], c[i + 2], c[i + 3],
+									c[i + 4], c[i + 5], c[i + 6], c[i + 7]);
+						}
+					}
+				});
+	}
+
+	/**
+	 * Return true if a cubic curve intersects any segment of this body.
+	 */
+	boolean intersectsCubic(final double x0, final double y0,
+			final double cx0, final double cy0, final double cx1,
+			final double cy1, final double x1, final double y1) {
+		return segmentHierarchy.query(min(x0, cx0, cx1, x1),
+				min(y0, cy0, cy1, y1), max(x0, cx0, cx1, x1),
+				max(y0, cy0, cy1, y1), new Visitor() {
+					@Override
+					public boolean visit(int element) {
+						double[] c = segmentCoords;
+						int i = 8 * element;
+						switch (segmentTypes[element]) {
+						case PathIterator.SEG_LINETO:
+							return Intersections.lineCubic(c[i], c[i + 1],
+									c[i + 2], c[i + 3], x0, y0, cx0, cy0, cx1,
+									cy1, x1, y1);
+						case PathIterator.SEG_QUADTO:
+							return Intersections.quadCubic(c[i], c[i + 1],
+									c[i + 2], c[i + 3], c[i + 4], c[i + 5], x0,
+									y0, cx0, cy0, cx1, cy1, x1, y1);
+						default:
+							return Intersections.cubicCubic(x0, y0, cx0, cy0,
+									cx1, cy1, x1, y1, c[i], c[i + 1],
+									c[i + 2], c[i + 3], c[i + 4], c[i + 5],
+									c[i + 6], c[i + 7]);
+						}
+					}
+				});
+	}
+
+	private static double min(double... values) {
+		double min = values[0];
+		for (int a = 1; a < values.length; a++) {
+			min = Math.min(min, values[a]);
+		}
+		return min;
+	}
+
+	private static double max(double... values) {
+		double max = values[0];
+		for (int a = 1; a < values.length; a++) {
+			max = Math.max(max, values[a]);
+		}
+		return max;
+	}
+}
@@ -63,6 +63,10 @@ public abstract class CrossingsX {
 
 	public static CrossingsX findCrossings(AreaXBody body, double xlo,
 			double ylo, double xhi, double yhi) {
+		AreaXIndex index = body.getIndex();
+		if (index != null)
+			return index.findCrossings(xlo, ylo, xhi, yhi);
+
 		CrossingsX cross = new EvenOdd(xlo, ylo, xhi, yhi);
 		for (int a = 0; a < body.size(); a++) {
 			CurveX c = body.get(a);
@@ -41,6 +41,11 @@ public class BmpDecoder {
 	/**
 	 * Returns an image from the BMP file provided, or null if the file does not
 	 * appear to be a valid BMP image.
+	 * <p>
+	 * Uncompressed 24-bit and 32-bit BMPs are mapped into memory and their
+	 * rows are copied directly into the destination image's
+	 * <code>DataBuffer</code>. For 32-bit BMPs a <code>TYPE_INT_ARGB</code>
+	 * destination is the fastest option.
 	 * 
 	 * @param bmpFile
 	 *            a BMP file.
@@ -59,6 +64,15 @@ public class BmpDecoder {
 		} else if (bmpFile.length() == 0) {
 			return null;
 		}
+		try (MappedBmpDecoder decoder = MappedBmpDecoder.open(bmpFile)) {
+			if (decoder != null) {
+				BufferedImage image = decoder.readImage(dst);
+				if (image != null)
+					return image;
+			}
+		} catch (BmpHeaderException e) {
+			return null;
+		}
 		try {
 			in = new FileInputStream(bmpFile);
 			return readImage(in, dst);
@@ -145,6 +159,9 @@ public class BmpDecoder {
 
 	/**
 	 * Create a thumbnail of a BMP file.
+	 * <p>
+	 * Uncompressed 24-bit and 32-bit BMPs are mapped into memory, so rows the
+	 * thumbnail doesn't need are never read.
 	 * 
 	 * @param bmpFile
 	 *            a BMP file.
@@ -162,6 +179,10 @@ public class BmpDecoder {
 	 */
 	public static BufferedImage createThumbnail(File bmpFile, Dimension maxSize)
 			throws IOException {
+		try (MappedBmpDecoder decoder = MappedBmpDecoder.open(bmpFile)) {
+			if (decoder != null)
+				return createThumbnail(decoder.createIterator(), maxSize);
+		}
 		InputStream in = null;
 		try {
 			in = new FileInputStream(bmpFile);
@@ -226,7 +247,11 @@ public class BmpDecoder {
 	 */
 	public static BufferedImage createThumbnail(InputStream bmp,
 			Dimension maxSize) throws IOException {
-		PixelIterator i = BmpDecoderIterator.get(bmp);
+		return createThumbnail(BmpDecoderIterator.get(bmp), maxSize);
+	}
+
+	private static BufferedImage createThumbnail(PixelIterator i,
+			Dimension maxSize) {
 		int srcW = i.getWidth();
 		int srcH = i.getHeight();
 
@@ -242,6 +267,9 @@ public class BmpDecoder {
 
 	/**
 	 * Create a thumbnail of a BMP file.
+	 * <p>
+	 * Uncompressed 24-bit and 32-bit BMPs are mapped into memory, so rows the
+	 * thumbnail doesn't need are never read.
 	 * 
 	 * @param bmpFile
 	 *            a BMP file.
@@ -253,6 +281,14 @@ public class BmpDecoder {
 	 */
 	public static void createThumbnail(File bmpFile, BufferedImage dest)
 			throws IOException {
+		try (MappedBmpDecoder decoder = MappedBmpDecoder.open(bmpFile)) {
+			if (decoder != null) {
+				PixelIterator i = ScalingIterator.get(decoder.createIterator(),
+						dest.getWidth(), dest.getHeight());
+				BufferedImageIterator.create(i, dest);
+				return;
+			}
+		}
 		InputStream in = null;
 		try {
 			in = new FileInputStream(bmpFile);
@@ -15,16 +15,21 @@ import java.awt.Image;
 import java.awt.Toolkit;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
 import java.awt.image.ImageConsumer;
 import java.awt.image.ImageProducer;
 import java.awt.image.IndexColorModel;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Map;
@@ -76,8 +81,11 @@ public class BmpEncoder {
 
 	/**
 	 * Write an image to a file. If the image argument is a
-	 * <code>BufferedImage</code>: then this method calls
-	 * <code>write(BufferedImage, OutputStream)</code>.
+	 * <code>BufferedImage</code>: then rows are copied into a buffer that is
+	 * written through a <code>FileChannel</code>. <code>TYPE_3BYTE_BGR</code>
+	 * and <code>TYPE_INT_ARGB</code> images are copied straight from their
+	 * <code>DataBuffer</code>. The file contains the same bytes
+	 * <code>write(BufferedImage, OutputStream)</code> writes.
 	 * <p>
 	 * There is a known bug in Oracle's GIF decoder that can result in images
 	 * with less than 256 giving incorrect image dimensions. (I have 2 sample
@@ -93,25 +101,105 @@ public class BmpEncoder {
 	 */
 	public static void write(Image image, File dest) throws IOException {
 		if (image instanceof BufferedImage) {
-			BufferedImage bi = (BufferedImage) image;
-			FileOutputStream out = null;
-			try {
-				out = new FileOutputStream(dest);
-				write(bi, out);
-			} finally {
-				if (out != null) {
-					try {
-						out.close();
-					} catch (IOException e) {
-						e.printStackTrace();
-					}
-				}
-			}
+			writeUsingChannel((BufferedImage) image, dest);
 			return;
 		}
 		writeImageUsingRandomAccess(image, dest, null);
 	}
 
+	/**
+	 * The number of bytes {@link #write(Image, File)} collects before it
+	 * writes them to a file. By default this is 1 MB.
+	 */
+	static int WRITE_BUFFER_SIZE = 1 << 20;
+
+	private static void writeUsingChannel(BufferedImage bi, File dest)
+			throws IOException {
+		int width = bi.getWidth();
+		int height = bi.getHeight();
+		int bitsPerPixel = isOpaque(bi) ? 24 : 32;
+		byte[] header = new byte[HEADER_SIZE];
+		int scanlineSize = writeHeader(header, 0, width, height, bitsPerPixel);
+		int rowsPerBuffer = Math.max(1,
+				Math.min(height, WRITE_BUFFER_SIZE / scanlineSize));
+		// the padding at the end of each row is never written, so it stays 0
+		ByteBuffer buffer = ByteBuffer.allocateDirect(rowsPerBuffer
+				* scanlineSize);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+		// This doesn't map the file, because truncating a file while a
+		// mapping of it is still reachable can crash other readers.
+		try (FileChannel channel = FileChannel.open(dest.toPath(),
+				StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			writeFully(channel, ByteBuffer.wrap(header));
+
+			int stride = MappedBmpDecoder.getScanlineStride(bi);
+			int type = bi.getType();
+			if (stride != -1 && bitsPerPixel == 24
+					&& type == BufferedImage.TYPE_3BYTE_BGR) {
+				// both store pixels as (B, G, R)
+				byte[] data = ((DataBufferByte) bi.getRaster()
+						.getDataBuffer()).getData();
+				for (int y = height - 1; y >= 0; y--) {
+					int rowStart = buffer.position();
+					buffer.put(data, y * stride, width * 3);
+					nextRow(channel, buffer, rowStart + scanlineSize);
+				}
+			} else if (stride != -1 && bitsPerPixel == 32
+					&& type == BufferedImage.TYPE_INT_ARGB) {
+				// a little-endian ARGB int is (B, G, R, A)
+				int[] data = ((DataBufferInt) bi.getRaster().getDataBuffer())
+						.getData();
+				for (int y = height - 1; y >= 0; y--) {
+					int rowStart = buffer.position();
+					buffer.asIntBuffer().put(data, y * stride, width);
+					nextRow(channel, buffer, rowStart + scanlineSize);
+				}
+			} else {
+				BufferedImageIterator imageIter = BufferedImageIterator.get(
+						bi, false);
+				BytePixelIterator i;
+				if (bitsPerPixel == 24) {
+					i = new ByteBGRConverter(imageIter);
+				} else {
+					i = new ByteBGRAConverter(imageIter);
+				}
+				byte[] row = new byte[i.getMinimumArrayLength()];
+				int rowLength = width * i.getPixelSize();
+				for (int y = 0; y < height; y++) {
+					i.next(row);
+					int rowStart = buffer.position();
+					buffer.put(row, 0, rowLength);
+					nextRow(channel, buffer, rowStart + scanlineSize);
+				}
+			}
+			buffer.flip();
+			writeFully(channel, buffer);
+		}
+	}
+
+	/**
+	 * Move a buffer to the start of the next row, and write its contents if
+	 * it is full.
+	 */
+	private static void nextRow(FileChannel channel, ByteBuffer buffer,
+			int nextRowStart) throws IOException {
+		buffer.position(nextRowStart);
+		if (!buffer.hasRemaining()) {
+			buffer.flip();
+			writeFully(channel, buffer);
+			buffer.clear();
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer)
+			throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
 	public static void write(BufferedImage image, OutputStream out)
 			throws IOException {
 		write(image, out, true);
@@ -0,0 +1,256 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.bmp;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import com.pump.image.pixel.BytePixelIterator;
+import com.pump.image.pixel.PixelConverter;
+
+/**
+ * This decodes uncompressed 24-bit and 32-bit BMP files by mapping their pixel
+ * data into memory.
+ * <p>
+ * Rows are copied in bulk from the mapped file straight into the
+ * <code>DataBuffer</code> of a <code>BufferedImage</code>, and
+ * {@link #createIterator()} returns an iterator that can skip rows without
+ * reading them.
+ */
+class MappedBmpDecoder implements Closeable {
+
+	/**
+	 * Open a BMP file for mapped decoding.
+	 * 
+	 * @return a new decoder, or null if this BMP has to be decoded with a
+	 *         {@link BmpDecoderIterator} instead. (For example: if it is
+	 *         compressed or uses a palette.)
+	 * @throws BmpHeaderException
+	 *             if this file does not appear to be a valid BMP image.
+	 * @throws IOException
+	 *             if an IO problem occurs.
+	 */
+	static MappedBmpDecoder open(File file) throws IOException {
+		FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ);
+		MappedBmpDecoder decoder = null;
+		try {
+			BmpHeader header = new BmpHeader(Channels.newInputStream(channel));
+			if (isSupported(header, channel.size()))
+				decoder = new MappedBmpDecoder(channel, header);
+			return decoder;
+		} finally {
+			if (decoder == null)
+				channel.close();
+		}
+	}
+
+	private static boolean isSupported(BmpHeader header, long fileSize) {
+		if (header.colorModel != null || header.planes != 1
+				|| header.compression != 0)
+			return false;
+		if (!(header.bitsPerPixel == 24 || header.bitsPerPixel == 32))
+			return false;
+		if (header.width <= 0 || header.height <= 0)
+			return false;
+		long scanline = BmpEncoder.getScanlineSize(header.width,
+				header.bitsPerPixel / 8);
+		return header.bitmapOffset + scanline * header.height <= fileSize;
+	}
+
+	/**
+	 * Return the scanline stride of an image if its pixels can be copied
+	 * directly to (or from) its only data bank, or -1 if they can't.
+	 */
+	static int getScanlineStride(BufferedImage image) {
+		WritableRaster raster = image.getRaster();
+		if (raster.getSampleModelTranslateX() != 0
+				|| raster.getSampleModelTranslateY() != 0)
+			return -1;
+		DataBuffer dataBuffer = raster.getDataBuffer();
+		if (dataBuffer.getNumBanks() != 1 || dataBuffer.getOffset() != 0)
+			return -1;
+		SampleModel sm = raster.getSampleModel();
+		if (sm instanceof ComponentSampleModel)
+			return ((ComponentSampleModel) sm).getScanlineStride();
+		if (sm instanceof SinglePixelPackedSampleModel)
+			return ((SinglePixelPackedSampleModel) sm).getScanlineStride();
+		return -1;
+	}
+
+	final FileChannel channel;
+	final int width, height, bitsPerPixel, scanline;
+	final boolean topDown;
+	final MappedRows rows;
+
+	private MappedBmpDecoder(FileChannel channel, BmpHeader header) {
+		this.channel = channel;
+		width = header.width;
+		height = header.height;
+		bitsPerPixel = header.bitsPerPixel;
+		topDown = header.topDown;
+		scanline = BmpEncoder.getScanlineSize(width, bitsPerPixel / 8);
+		rows = new MappedRows(channel, FileChannel.MapMode.READ_ONLY,
+				header.bitmapOffset, scanline, height);
+	}
+
+	/**
+	 * Return the type of image this decoder creates when no destination image
+	 * is provided. This matches the type {@link BmpDecoderIterator} uses.
+	 */
+	int getType() {
+		if (bitsPerPixel == 24)
+			return BufferedImage.TYPE_3BYTE_BGR;
+		return BufferedImage.TYPE_4BYTE_ABGR;
+	}
+
+	/**
+	 * Read the entire image.
+	 * 
+	 * @param dst
+	 *            an optional image to store the pixels in. 24-bit images
+	 *            require a <code>TYPE_3BYTE_BGR</code> image. 32-bit images
+	 *            require a <code>TYPE_4BYTE_ABGR</code> or a
+	 *            <code>TYPE_INT_ARGB</code> image. (The latter is the fastest
+	 *            option, because the BMP's pixels are already stored in that
+	 *            format.)
+	 * @return the image, or null if <code>dst</code> isn't an image this
+	 *         decoder can write to.
+	 */
+	BufferedImage readImage(BufferedImage dst) throws IOException {
+		if (dst == null)
+			dst = new BufferedImage(width, height, getType());
+		if (dst.getWidth() < width || dst.getHeight() < height)
+			return null;
+		int stride = getScanlineStride(dst);
+		if (stride == -1)
+			return null;
+
+		DataBuffer dataBuffer = dst.getRaster().getDataBuffer();
+		int type = dst.getType();
+		if (bitsPerPixel == 24 && type == BufferedImage.TYPE_3BYTE_BGR) {
+			// both store pixels as (B, G, R)
+			byte[] data = ((DataBufferByte) dataBuffer).getData();
+			for (int row = 0; row < height; row++) {
+				rows.getRow(row).get(data, getY(row) * stride, width * 3);
+			}
+		} else if (bitsPerPixel == 32 && type == BufferedImage.TYPE_INT_ARGB) {
+			// (B, G, R, A) is a little-endian ARGB int
+			int[] data = ((DataBufferInt) dataBuffer).getData();
+			for (int row = 0; row < height; row++) {
+				rows.getRow(row).asIntBuffer()
+						.get(data, getY(row) * stride, width);
+			}
+		} else if (bitsPerPixel == 32 && type == BufferedImage.TYPE_4BYTE_ABGR) {
+			byte[] data = ((DataBufferByte) dataBuffer).getData();
+			for (int row = 0; row < height; row++) {
+				int offset = getY(row) * stride;
+				rows.getRow(row).get(data, offset, width * 4);
+				// convert (B, G, R, A) to (A, B, G, R)
+				for (int i = offset + width * 4 - 4; i >= offset; i -= 4) {
+					byte alpha = data[i + 3];
+					data[i + 3] = data[i + 2];
+					data[i + 2] = data[i + 1];
+					data[i + 1] = data[i];
+					data[i] = alpha;
+				}
+			}
+		} else {
+			return null;
+		}
+		return dst;
+	}
+
+	/**
+	 * Convert the index of a row in the file to a y-coordinate in the image.
+	 */
+	private int getY(int row) {
+		return topDown ? row : height - 1 - row;
+	}
+
+	/**
+	 * Create an iterator that returns the same data as a
+	 * {@link BmpDecoderIterator}. Skipping rows is free, so this is well-suited
+	 * for scaling images down.
+	 * <p>
+	 * The iterator is only valid until this decoder is closed.
+	 */
+	BytePixelIterator createIterator() {
+		return new BytePixelIterator() {
+			int row = 0;
+
+			public void next(byte[] dest) {
+				try {
+					rows.getRow(row++).get(dest, 0, scanline);
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+
+			public void skip() {
+				row++;
+			}
+
+			public boolean isDone() {
+				return row == height;
+			}
+
+			public boolean isTopDown() {
+				return topDown;
+			}
+
+			public boolean isOpaque() {
+				return PixelConverter.isOpaque(getType());
+			}
+
+			public int getWidth() {
+				return width;
+			}
+
+			public int getHeight() {
+				return height;
+			}
+
+			public int getMinimumArrayLength() {
+				return scanline;
+			}
+
+			public int getPixelSize() {
+				return bitsPerPixel / 8;
+			}
+
+			public int getType() {
+				return MappedBmpDecoder.this.getType();
+			}
+		};
+	}
+
+	/**
+	 * Release the mapped rows and close the underlying channel. The mapped
+	 * memory is released when it is garbage collected.
+	 */
+	public void close() throws IOException {
+		rows.release();
+		channel.close();
+	}
+}
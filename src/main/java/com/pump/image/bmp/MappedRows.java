@@ -0,0 +1,106 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.bmp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This maps fixed-size rows of a file into memory.
+ * <p>
+ * A single <code>MappedByteBuffer</code> can't exceed 2 GB, so large files are
+ * mapped in windows of whole rows. Only one window is mapped at a time, and a
+ * new window is mapped when a row outside of the current window is requested.
+ * Rows are usually visited in order, so most files only require a handful of
+ * windows.
+ */
+class MappedRows {
+
+	/**
+	 * The maximum number of bytes mapped at once. By default this is 256 MB.
+	 */
+	static int MAX_WINDOW_SIZE = 1 << 28;
+
+	final FileChannel channel;
+	final FileChannel.MapMode mode;
+	final long offset;
+	final int rowSize, rowCount, rowsPerWindow;
+
+	private MappedByteBuffer window;
+	private int windowFirstRow = -1;
+
+	/**
+	 * 
+	 * @param channel
+	 *            the channel to map.
+	 * @param mode
+	 *            the mode to map the channel in.
+	 * @param offset
+	 *            the position in the channel where the first row begins.
+	 * @param rowSize
+	 *            the number of bytes in each row.
+	 * @param rowCount
+	 *            the number of rows.
+	 */
+	MappedRows(FileChannel channel, FileChannel.MapMode mode, long offset,
+			int rowSize, int rowCount) {
+		this.channel = channel;
+		this.mode = mode;
+		this.offset = offset;
+		this.rowSize = rowSize;
+		this.rowCount = rowCount;
+		rowsPerWindow = Math.max(1, MAX_WINDOW_SIZE / Math.max(1, rowSize));
+	}
+
+	/**
+	 * Return a buffer whose position is the start of a row and whose limit is
+	 * the end of that row. The buffer is little-endian.
+	 * <p>
+	 * The buffer returned may be reused in future calls to this method, so
+	 * callers should not retain it.
+	 * 
+	 * @param row
+	 *            the index of the row, where 0 is the row closest to
+	 *            <code>offset</code>.
+	 */
+	ByteBuffer getRow(int row) throws IOException {
+		if (row < 0 || row >= rowCount)
+			throw new IndexOutOfBoundsException("row = " + row
+					+ ", rowCount = " + rowCount);
+		if (window == null || row < windowFirstRow
+				|| row >= windowFirstRow + rowsPerWindow) {
+			windowFirstRow = row / rowsPerWindow * rowsPerWindow;
+			int rows = Math.min(rowsPerWindow, rowCount - windowFirstRow);
+			window = channel.map(mode, offset + ((long) windowFirstRow)
+					* rowSize, ((long) rows) * rowSize);
+			window.order(ByteOrder.LITTLE_ENDIAN);
+		}
+		int position = (row - windowFirstRow) * rowSize;
+		window.clear();
+		window.position(position);
+		window.limit(position + rowSize);
+		return window;
+	}
+
+	/**
+	 * Drop this object's reference to the current window. Java can't unmap a
+	 * buffer on demand, but once nothing refers to it the mapping is released
+	 * when it is garbage collected. Until then the file should not be
+	 * truncated.
+	 */
+	void release() {
+		window = null;
+		windowFirstRow = -1;
+	}
+}
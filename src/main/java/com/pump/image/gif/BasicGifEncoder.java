@@ -161,7 +161,7 @@ public class BasicGifEncoder extends GifEncoder {
 			}
 		} finally {
 			while (frameBuffer.size() > 2) {
-				frameBuffer.pop().write(out);
+				writeFrame(out, frameBuffer.pop());
 			}
 		}
 	}
@@ -229,7 +229,16 @@ public class BasicGifEncoder extends GifEncoder {
 	@Override
 	public synchronized void flush(OutputStream out) throws IOException {
 		while (frameBuffer.size() > 0) {
-			frameBuffer.pop().write(out);
+			writeFrame(out, frameBuffer.pop());
 		}
 	}
+
+	/**
+	 * Write a frame whose disposal method and bounds are final. Subclasses may
+	 * override this to defer or reorder the work, as long as frames reach the
+	 * <code>OutputStream</code> in the order this method receives them.
+	 */
+	void writeFrame(OutputStream out, Frame frame) throws IOException {
+		frame.write(out);
+	}
 }
\ No newline at end of file
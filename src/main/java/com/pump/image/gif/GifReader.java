@@ -636,7 +636,8 @@ public class GifReader implements AnimationReader, GifConstants {
 			if (x2 - x1 == 0 && y2 - y1 == 0)
 				return;
 			if (previous != null) {
-				image.getRaster().setDataElements(x1, y1, x2, y2, previous);
+				image.getRaster().setDataElements(x1, y1, x2 - x1, y2 - y1,
+						previous);
 				return;
 			}
 
@@ -0,0 +1,683 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.gif;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.pump.animation.AnimationReader;
+import com.pump.image.gif.block.GifBlock;
+import com.pump.image.gif.block.GifColorTable;
+import com.pump.image.gif.block.GifCommentExtension;
+import com.pump.image.gif.block.GifGlobalColorTable;
+import com.pump.image.gif.block.GifGraphicControlExtension;
+import com.pump.image.gif.block.GifGraphicControlExtension.DisposalMethod;
+import com.pump.image.gif.block.GifImageDataBlock;
+import com.pump.image.gif.block.GifImageDescriptor;
+import com.pump.image.gif.block.GifInterlace;
+import com.pump.image.gif.block.GifLocalColorTable;
+import com.pump.image.gif.block.GifLogicalScreenDescriptor;
+import com.pump.image.gif.block.GifLoopingApplicationExtension;
+import com.pump.image.gif.block.GifParser;
+import com.pump.image.gif.block.GifPlainTextExtension;
+import com.pump.io.MeasuredInputStream;
+import com.pump.util.SharedForkJoinPool;
+
+/**
+ * A GIF reader that supports random access to frames.
+ * <p>
+ * When this object is constructed it skims the file once to record where
+ * each frame's image data is, without decompressing any of it. So the frame
+ * count, the duration and each frame's delay are available immediately.
+ * <p>
+ * Because each frame is drawn on top of the frames before it, frame
+ * <code>n</code> of an animation depends on all the frames before it. To avoid
+ * replaying the whole animation on every seek, this keeps a cache of
+ * keyframes: every {@link #KEYFRAME_INTERVAL} frames, the composited image
+ * that frame is drawn on is stored. Seeking to a frame starts from the
+ * nearest cached keyframe before it. Keyframes are discarded
+ * least-recently-used first when they exceed a maximum number of bytes.
+ * <p>
+ * Decompressing a frame does not depend on any other frame, so frames are
+ * decompressed on an <code>ExecutorService</code> a few frames ahead of the
+ * frame being composited.
+ * <p>
+ * This reads the file with positional reads, so it keeps the file open until
+ * {@link #close()} is called.
+ */
+public class IndexedGifReader implements AnimationReader, GifConstants,
+		Closeable {
+
+	/**
+	 * The number of frames between keyframes.
+	 */
+	public static final int KEYFRAME_INTERVAL = 8;
+
+	/**
+	 * The default maximum number of bytes of keyframes to keep.
+	 */
+	public static final long DEFAULT_MAX_CACHE_BYTES = 32 * 1024 * 1024;
+
+	/**
+	 * A BufferedInputStream that always skips the number of bytes requested.
+	 * (The GifParser ignores the return value of <code>skip(..)</code>.)
+	 */
+	private static class SkippingInputStream extends BufferedInputStream {
+		SkippingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public synchronized long skip(long n) throws IOException {
+			long skipped = 0;
+			while (skipped < n) {
+				long k = super.skip(n - skipped);
+				if (k <= 0) {
+					if (read() == -1)
+						break;
+					k = 1;
+				}
+				skipped += k;
+			}
+			return skipped;
+		}
+	}
+
+	/**
+	 * The location and settings of one frame.
+	 */
+	static class FrameInfo {
+		final GifGraphicControlExtension gce;
+		final GifColorTable colorTable;
+		final GifImageDescriptor imageDescriptor;
+		final long dataStart;
+		final int dataLength;
+		final DisposalMethod disposalMethod;
+		final int x1, y1, x2, y2;
+
+		FrameInfo(GifLogicalScreenDescriptor lsd,
+				GifGraphicControlExtension gce, GifColorTable colorTable,
+				GifImageDescriptor imageDescriptor, long dataStart,
+				int dataLength) {
+			this.gce = gce;
+			this.colorTable = colorTable;
+			this.imageDescriptor = imageDescriptor;
+			this.dataStart = dataStart;
+			this.dataLength = dataLength;
+			disposalMethod = gce == null ? DisposalMethod.NONE : gce
+					.getDisposalMethod();
+
+			// clip the frame to the logical screen, like GifReader.GifFrame
+			int w = lsd.getWidth();
+			int h = lsd.getHeight();
+			x1 = clip(imageDescriptor.getX(), w);
+			y1 = clip(imageDescriptor.getY(), h);
+			x2 = clip(imageDescriptor.getX() + imageDescriptor.getWidth(), w);
+			y2 = clip(imageDescriptor.getY() + imageDescriptor.getHeight(), h);
+		}
+
+		private static int clip(int v, int max) {
+			return Math.max(0, Math.min(v, max));
+		}
+
+		boolean isEmpty() {
+			return x2 - x1 == 0 && y2 - y1 == 0;
+		}
+
+		/**
+		 * Return the delay of this frame, in seconds.
+		 */
+		double getDuration() {
+			if (gce != null)
+				return ((double) gce.getDelayTime()) / 100.0;
+			return 0;
+		}
+	}
+
+	/**
+	 * Decompress one frame into ARGB pixels covering its (clipped) bounds.
+	 * Transparent pixels are zero.
+	 */
+	class DecodeFrameTask implements Callable<int[]> {
+		final int frameIndex;
+
+		DecodeFrameTask(int frameIndex) {
+			this.frameIndex = frameIndex;
+		}
+
+		public int[] call() throws IOException {
+			return decode(frameIndex);
+		}
+	}
+
+	/**
+	 * The canvas a frame is drawn on.
+	 */
+	static class Canvas {
+		/**
+		 * The index of the frame that is (or will be) drawn on this canvas.
+		 */
+		int frameIndex;
+
+		/**
+		 * The ARGB pixels of this canvas.
+		 */
+		final int[] pixels;
+
+		/**
+		 * Whether the frame at <code>frameIndex</code> has been drawn.
+		 */
+		boolean drawn;
+
+		/**
+		 * If the frame at <code>frameIndex</code> is drawn and its disposal
+		 * method is <code>PREVIOUS</code>, these are the pixels it covered.
+		 */
+		int[] previous;
+
+		Canvas(int frameIndex, int[] pixels) {
+			this.frameIndex = frameIndex;
+			this.pixels = pixels;
+		}
+	}
+
+	protected final File file;
+	protected final ExecutorService executor;
+	protected final int maxFramesInFlight;
+	protected final long maxCacheBytes;
+
+	final GifLogicalScreenDescriptor lsd;
+	final int backgroundColorIndex;
+	final List<FrameInfo> frames = new ArrayList<>();
+	final List<String> comments = new ArrayList<>();
+	final int loopCount;
+	final int duration;
+
+	/**
+	 * Keyframes, each the canvas before a frame is drawn, in
+	 * least-recently-used order.
+	 */
+	final LinkedHashMap<Integer, int[]> keyframes = new LinkedHashMap<>(16,
+			.75f, true);
+
+	/**
+	 * The same keyframes as <code>keyframes</code>, sorted by frame index.
+	 */
+	final TreeMap<Integer, int[]> sortedKeyframes = new TreeMap<>();
+
+	/**
+	 * The canvas of the last frame that was composited.
+	 */
+	Canvas current;
+
+	int nextFrame = 0;
+	BufferedImage bi;
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+
+	/**
+	 * Create an IndexedGifReader that uses a shared <code>ForkJoinPool</code>,
+	 * {@link SharedForkJoinPool#getDefaultMaxTasksInFlight()} and
+	 * {@link #DEFAULT_MAX_CACHE_BYTES}.
+	 * 
+	 * @param file
+	 *            the GIF file to read.
+	 * @throws IOException
+	 *             if an IO problem occurs, or if the GIF is not supported.
+	 */
+	public IndexedGifReader(File file) throws IOException {
+		this(file, SharedForkJoinPool.get(), SharedForkJoinPool
+				.getDefaultMaxTasksInFlight(), DEFAULT_MAX_CACHE_BYTES);
+	}
+
+	/**
+	 * Create an IndexedGifReader.
+	 * 
+	 * @param file
+	 *            the GIF file to read.
+	 * @param executor
+	 *            the executor to decompress frames with.
+	 * @param maxFramesInFlight
+	 *            the maximum number of frames that may be decompressed ahead
+	 *            of the frame being composited. This must be at least 1.
+	 * @param maxCacheBytes
+	 *            the maximum number of bytes of keyframes to keep. Each
+	 *            keyframe uses 4 bytes per pixel.
+	 * @throws IOException
+	 *             if an IO problem occurs, or if the GIF is not supported.
+	 */
+	public IndexedGifReader(File file, ExecutorService executor,
+			int maxFramesInFlight, long maxCacheBytes) throws IOException {
+		if (executor == null)
+			throw new NullPointerException();
+		if (maxFramesInFlight < 1)
+			throw new IllegalArgumentException("maxFramesInFlight ("
+					+ maxFramesInFlight + ") must be at least 1");
+		this.file = file;
+		this.executor = executor;
+		this.maxFramesInFlight = maxFramesInFlight;
+		this.maxCacheBytes = maxCacheBytes;
+
+		GifLogicalScreenDescriptor lsd = null;
+		GifGlobalColorTable global = null;
+		int loopCount = -1;
+		int duration = 0;
+		try (MeasuredInputStream in = new MeasuredInputStream(
+				new SkippingInputStream(new FileInputStream(file)))) {
+			GifParser p = new GifParser(in);
+			GifGraphicControlExtension gce = null;
+			GifLocalColorTable localTable = null;
+			GifImageDescriptor imageDescriptor = null;
+			int type = p.getNextBlockType();
+			while (type != -1) {
+				if (type == GifBlock.IMAGE_DATA) {
+					long start = in.getReadBytes();
+					p.skipNextBlock();
+					long end = in.getReadBytes();
+					GifColorTable colorTable = localTable;
+					if (colorTable == null)
+						colorTable = global;
+					if (colorTable == null)
+						throw new IOException(
+								"There was no local or global color table available.");
+					if (imageDescriptor == null)
+						throw new IOException(
+								"Image data was not preceded by an image descriptor.");
+					frames.add(new FrameInfo(lsd, gce, colorTable,
+							imageDescriptor, start, (int) (end - start)));
+					if (gce != null)
+						duration += gce.getDelayTime();
+					gce = null;
+					localTable = null;
+					imageDescriptor = null;
+				} else {
+					GifBlock b = p.readNextBlock();
+					if (b instanceof GifLogicalScreenDescriptor) {
+						lsd = (GifLogicalScreenDescriptor) b;
+					} else if (b instanceof GifGlobalColorTable) {
+						global = (GifGlobalColorTable) b;
+					} else if (b instanceof GifLoopingApplicationExtension) {
+						loopCount = ((GifLoopingApplicationExtension) b)
+								.getLoopCount();
+					} else if (b instanceof GifLocalColorTable) {
+						localTable = (GifLocalColorTable) b;
+					} else if (b instanceof GifCommentExtension) {
+						comments.add(((GifCommentExtension) b).getText());
+					} else if (b instanceof GifGraphicControlExtension) {
+						gce = (GifGraphicControlExtension) b;
+					} else if (b instanceof GifImageDescriptor) {
+						imageDescriptor = (GifImageDescriptor) b;
+					} else if (b instanceof GifPlainTextExtension) {
+						throw new IOException(
+								"This GIF decoder does not support the GIF plain text extension.");
+					}
+				}
+				type = p.getNextBlockType();
+			}
+		}
+		if (lsd == null)
+			throw new IOException("This GIF has no logical screen descriptor.");
+		this.lsd = lsd;
+		this.backgroundColorIndex = global == null ? -1 : lsd
+				.getBackgroundColorIndex();
+		this.loopCount = loopCount;
+		this.duration = duration * 10;
+
+		raf = new RandomAccessFile(file, "r");
+		channel = raf.getChannel();
+	}
+
+	/**
+	 * Return the composited image of a frame.
+	 * 
+	 * @param frameIndex
+	 *            the index of the frame, from [0, getFrameCount()).
+	 * @return a new <code>BufferedImage</code> of the frame.
+	 * @throws IOException
+	 *             if an IO problem occurs.
+	 */
+	public synchronized BufferedImage getFrame(int frameIndex)
+			throws IOException {
+		BufferedImage image = new BufferedImage(getWidth(), getHeight(),
+				BufferedImage.TYPE_INT_ARGB);
+		composite(frameIndex);
+		image.getRaster().setDataElements(0, 0, getWidth(), getHeight(),
+				current.pixels);
+		return image;
+	}
+
+	/**
+	 * Return the delay of a frame, in seconds.
+	 * 
+	 * @param frameIndex
+	 *            the index of the frame, from [0, getFrameCount()).
+	 */
+	public double getFrameDuration(int frameIndex) {
+		return frames.get(frameIndex).getDuration();
+	}
+
+	@Override
+	public synchronized BufferedImage getNextFrame(boolean cloneImage)
+			throws IOException {
+		if (nextFrame == frames.size())
+			return null;
+		if (cloneImage)
+			return getFrame(nextFrame++);
+		composite(nextFrame++);
+		if (bi == null)
+			bi = new BufferedImage(getWidth(), getHeight(),
+					BufferedImage.TYPE_INT_ARGB);
+		bi.getRaster().setDataElements(0, 0, getWidth(), getHeight(),
+				current.pixels);
+		return bi;
+	}
+
+	/**
+	 * Move the position of {@link #getNextFrame(boolean)}.
+	 * 
+	 * @param frameIndex
+	 *            the index of the next frame <code>getNextFrame()</code>
+	 *            should return.
+	 */
+	public synchronized void setNextFrame(int frameIndex) {
+		if (frameIndex < 0 || frameIndex > frames.size())
+			throw new IllegalArgumentException("frameIndex (" + frameIndex
+					+ ") must be between [0, " + frames.size() + "]");
+		nextFrame = frameIndex;
+	}
+
+	@Override
+	public double getDuration() {
+		return ((double) duration) / 1000.0;
+	}
+
+	@Override
+	public int getFrameCount() {
+		return frames.size();
+	}
+
+	/**
+	 * This returns the number of times this animation should loop.
+	 */
+	@Override
+	public int getLoopCount() {
+		if (loopCount >= 0)
+			return loopCount;
+		return 1;
+	}
+
+	/**
+	 * @return the duration of the last frame provided by
+	 *         <code>getNextFrame()</code> in seconds.
+	 */
+	@Override
+	public synchronized double getFrameDuration() {
+		if (nextFrame == 0)
+			return 0;
+		return getFrameDuration(nextFrame - 1);
+	}
+
+	@Override
+	public int getWidth() {
+		return lsd.getWidth();
+	}
+
+	@Override
+	public int getHeight() {
+		return lsd.getHeight();
+	}
+
+	/**
+	 * @return all comments in the GIF file, each as a separate element in an
+	 *         array.
+	 */
+	public String[] getComments() {
+		return comments.toArray(new String[comments.size()]);
+	}
+
+	/**
+	 * Close the file this reader reads frames from.
+	 */
+	@Override
+	public void close() throws IOException {
+		raf.close();
+	}
+
+	/**
+	 * Make <code>current</code> the canvas with a frame drawn on it.
+	 */
+	private void composite(int frameIndex) throws IOException {
+		if (frameIndex < 0 || frameIndex >= frames.size())
+			throw new IllegalArgumentException("frameIndex (" + frameIndex
+					+ ") must be between [0, " + frames.size() + ")");
+
+		Map.Entry<Integer, int[]> keyframe = sortedKeyframes
+				.floorEntry(frameIndex);
+		int keyframeIndex = keyframe == null ? -1 : keyframe.getKey();
+		if (current == null || current.frameIndex > frameIndex
+				|| current.frameIndex < keyframeIndex) {
+			if (keyframe == null) {
+				current = new Canvas(0, new int[getWidth() * getHeight()]);
+			} else {
+				// touch this keyframe so it is most-recently-used
+				keyframes.get(keyframeIndex);
+				current = new Canvas(keyframeIndex, keyframe.getValue()
+						.clone());
+			}
+		}
+		if (current.frameIndex == frameIndex && current.drawn)
+			return;
+
+		LinkedList<Future<int[]>> pending = new LinkedList<>();
+		int submittedFrames = current.drawn ? current.frameIndex + 1
+				: current.frameIndex;
+		try {
+			while (true) {
+				while (submittedFrames <= frameIndex
+						&& pending.size() < maxFramesInFlight) {
+					pending.add(executor.submit(new DecodeFrameTask(
+							submittedFrames++)));
+				}
+				if (current.drawn) {
+					dispose(current);
+					current.frameIndex++;
+					current.drawn = false;
+					current.previous = null;
+				}
+				if (current.frameIndex % KEYFRAME_INTERVAL == 0
+						&& !keyframes.containsKey(current.frameIndex))
+					putKeyframe(current.frameIndex, current.pixels.clone());
+
+				int[] framePixels = get(pending.removeFirst());
+				draw(current, framePixels);
+				if (current.frameIndex == frameIndex)
+					return;
+			}
+		} finally {
+			for (Future<int[]> f : pending) {
+				f.cancel(true);
+			}
+		}
+	}
+
+	private int[] get(Future<int[]> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			InterruptedIOException e2 = new InterruptedIOException();
+			e2.initCause(e);
+			throw e2;
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IOException(cause);
+		}
+	}
+
+	private void putKeyframe(int frameIndex, int[] pixels) {
+		long keyframeBytes = 4L * pixels.length;
+		if (keyframeBytes > maxCacheBytes)
+			return;
+		keyframes.put(frameIndex, pixels);
+		sortedKeyframes.put(frameIndex, pixels);
+		Iterator<Integer> iter = keyframes.keySet().iterator();
+		while (keyframes.size() * keyframeBytes > maxCacheBytes) {
+			Integer oldestKey = iter.next();
+			iter.remove();
+			sortedKeyframes.remove(oldestKey);
+		}
+	}
+
+	/**
+	 * Read and decompress a frame's image data. This does not modify any
+	 * state, so it may be called on any thread.
+	 */
+	int[] decode(int frameIndex) throws IOException {
+		FrameInfo info = frames.get(frameIndex);
+		if (info.isEmpty())
+			return new int[0];
+
+		ByteBuffer buffer = ByteBuffer.allocate(info.dataLength);
+		long pos = info.dataStart;
+		while (buffer.hasRemaining()) {
+			int k = channel.read(buffer, pos);
+			if (k == -1)
+				throw new EOFException();
+			pos += k;
+		}
+		byte[] block = buffer.array();
+
+		// the first byte is the minimum code size, followed by sub-blocks
+		byte[] encodedData = new byte[block.length];
+		int length = 0;
+		int i = 1;
+		while (i < block.length && block[i] != 0) {
+			int subBlockLength = block[i] & 0xff;
+			System.arraycopy(block, i + 1, encodedData, length,
+					Math.min(subBlockLength, block.length - i - 1));
+			length += subBlockLength;
+			i += subBlockLength + 1;
+		}
+		GifImageDataBlock imageData = new GifImageDataBlock(block[0] & 0xff,
+				Arrays.copyOf(encodedData, length));
+
+		byte[] data = imageData.getUncompressedBytes();
+		GifImageDescriptor imageDescriptor = info.imageDescriptor;
+		if (imageDescriptor.isInterlaced()) {
+			GifInterlace.decode(data, imageDescriptor.getWidth(),
+					imageDescriptor.getHeight());
+		}
+
+		int transparentIndex = -1;
+		if (info.gce != null)
+			transparentIndex = info.gce.getTransparentColorIndex();
+		int[] rgb = new int[256];
+		for (int a = 0; a < rgb.length; a++) {
+			rgb[a] = a == transparentIndex ? 0 : info.colorTable.getRGB(a);
+		}
+
+		// this matches GifReader.GifFrame#render, including reading the data
+		// as if each row were as wide as the clipped bounds
+		int[] pixels = new int[(info.x2 - info.x1) * (info.y2 - info.y1)];
+		int n = Math.min(pixels.length, data.length);
+		for (int a = 0; a < n; a++) {
+			pixels[a] = rgb[data[a] & 0xff];
+		}
+		return pixels;
+	}
+
+	/**
+	 * Draw decompressed pixels on a canvas.
+	 */
+	private void draw(Canvas canvas, int[] framePixels) {
+		FrameInfo info = frames.get(canvas.frameIndex);
+		canvas.drawn = true;
+		if (info.isEmpty())
+			return;
+		int w = getWidth();
+		int frameWidth = info.x2 - info.x1;
+		if (info.disposalMethod == DisposalMethod.PREVIOUS) {
+			canvas.previous = new int[frameWidth * (info.y2 - info.y1)];
+			for (int y = info.y1; y < info.y2; y++) {
+				System.arraycopy(canvas.pixels, y * w + info.x1,
+						canvas.previous, (y - info.y1) * frameWidth,
+						frameWidth);
+			}
+		}
+		int k = 0;
+		for (int y = info.y1; y < info.y2; y++) {
+			int offset = y * w;
+			for (int x = info.x1; x < info.x2; x++) {
+				int argb = framePixels[k++];
+				if (argb != 0)
+					canvas.pixels[offset + x] = argb;
+			}
+		}
+	}
+
+	/**
+	 * Apply the disposal method of the frame drawn on a canvas.
+	 */
+	private void dispose(Canvas canvas) {
+		FrameInfo info = frames.get(canvas.frameIndex);
+		if (info.isEmpty())
+			return;
+		int w = getWidth();
+		int frameWidth = info.x2 - info.x1;
+		if (canvas.previous != null) {
+			for (int y = info.y1; y < info.y2; y++) {
+				System.arraycopy(canvas.previous, (y - info.y1) * frameWidth,
+						canvas.pixels, y * w + info.x1, frameWidth);
+			}
+		} else if (info.disposalMethod == DisposalMethod.RESTORE_BACKGROUND) {
+			// see GifReader.GifFrame#dispose
+			int argb;
+			if (info.gce.getTransparentColorIndex() != -1
+					|| backgroundColorIndex < 0) {
+				argb = 0;
+			} else {
+				argb = info.colorTable.getRGB(backgroundColorIndex);
+			}
+			for (int y = info.y1; y < info.y2; y++) {
+				Arrays.fill(canvas.pixels, y * w + info.x1, y * w + info.x2,
+						argb);
+			}
+		}
+	}
+}
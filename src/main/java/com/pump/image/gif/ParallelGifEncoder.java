@@ -0,0 +1,147 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.gif;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.pump.util.SharedForkJoinPool;
+
+/**
+ * A {@link BasicGifEncoder} that quantizes and LZW-compresses frames on
+ * several threads at once.
+ * <p>
+ * Frames are still compared against their predecessors (to choose a disposal
+ * method and crop them) on the calling thread. Once a frame's bounds are
+ * final, it is encoded into a byte array by an <code>ExecutorService</code>.
+ * Encoded frames are written to the <code>OutputStream</code> in their
+ * original order. To limit memory use, at most
+ * <code>maxFramesInFlight</code> frames are pending at a time: when that
+ * limit is reached, <code>writeImage(..)</code> blocks until the oldest frame
+ * has been written.
+ * <p>
+ * Like the <code>BasicGifEncoder</code>, this retains the images passed to
+ * <code>writeImage(..)</code> after that method returns, so callers should
+ * not modify those images afterwards.
+ */
+public class ParallelGifEncoder extends BasicGifEncoder {
+
+	/**
+	 * Encode one frame into a byte array.
+	 */
+	static class EncodeFrameTask implements Callable<byte[]> {
+		final Frame frame;
+
+		EncodeFrameTask(Frame frame) {
+			this.frame = frame;
+		}
+
+		public byte[] call() throws Exception {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			frame.write(bytes);
+			return bytes.toByteArray();
+		}
+	}
+
+	final ExecutorService executor;
+	final int maxFramesInFlight;
+	final LinkedList<Future<byte[]>> pendingFrames = new LinkedList<>();
+
+	/**
+	 * Create a ParallelGifEncoder that uses a shared <code>ForkJoinPool</code>
+	 * and {@link SharedForkJoinPool#getDefaultMaxTasksInFlight()}.
+	 */
+	public ParallelGifEncoder() {
+		this(SharedForkJoinPool.get(), SharedForkJoinPool
+				.getDefaultMaxTasksInFlight());
+	}
+
+	/**
+	 * Create a ParallelGifEncoder.
+	 * 
+	 * @param executor
+	 *            the executor to encode frames with.
+	 * @param maxFramesInFlight
+	 *            the maximum number of frames that may be encoded (or waiting
+	 *            to be written) at once. This must be at least 1.
+	 */
+	public ParallelGifEncoder(ExecutorService executor, int maxFramesInFlight) {
+		if (executor == null)
+			throw new NullPointerException();
+		if (maxFramesInFlight < 1)
+			throw new IllegalArgumentException("maxFramesInFlight ("
+					+ maxFramesInFlight + ") must be at least 1");
+		this.executor = executor;
+		this.maxFramesInFlight = maxFramesInFlight;
+	}
+
+	@Override
+	void writeFrame(OutputStream out, Frame frame) throws IOException {
+		while (pendingFrames.size() >= maxFramesInFlight) {
+			writeNextPendingFrame(out);
+		}
+		pendingFrames.add(executor.submit(new EncodeFrameTask(frame)));
+	}
+
+	@Override
+	public synchronized void flush(OutputStream out) throws IOException {
+		super.flush(out);
+		while (pendingFrames.size() > 0) {
+			writeNextPendingFrame(out);
+		}
+	}
+
+	/**
+	 * Wait for the oldest pending frame to finish encoding and write it.
+	 * <p>
+	 * If that frame failed (or this thread is interrupted), all remaining
+	 * pending frames are cancelled.
+	 */
+	private void writeNextPendingFrame(OutputStream out) throws IOException {
+		Future<byte[]> future = pendingFrames.removeFirst();
+		byte[] encodedFrame;
+		try {
+			encodedFrame = future.get();
+		} catch (InterruptedException e) {
+			cancelPendingFrames();
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			InterruptedIOException e2 = new InterruptedIOException();
+			e2.initCause(e);
+			throw e2;
+		} catch (ExecutionException e) {
+			cancelPendingFrames();
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new IOException(cause);
+		}
+		out.write(encodedFrame);
+	}
+
+	private void cancelPendingFrames() {
+		for (Future<byte[]> f : pendingFrames) {
+			f.cancel(true);
+		}
+		pendingFrames.clear();
+	}
+}
@@ -18,7 +18,7 @@ import java.io.IOException;
 import java.io.InputStream;
 
 import com.pump.image.gif.lzw.LZWInputStream;
-import com.pump.image.gif.lzw.LZWOutputStream;
+import com.pump.image.gif.lzw.LZWEncoder;
 import com.pump.image.pixel.IndexedBytePixelIterator;
 import com.pump.image.pixel.quantize.ColorLUT;
 import com.pump.image.pixel.quantize.ImageQuantization;
@@ -48,13 +48,14 @@ public class GifImageDataBlock extends GifBlock {
 		int colorDepth = getColorDepth(colorModel);
 		minimumLZWCodeSize = colorDepth;
 		try {
-			LZWOutputStream out = new LZWOutputStream(bytes, colorDepth, false);
+			LZWEncoder encoder = LZWEncoder.getThreadEncoder();
+			encoder.start(bytes, colorDepth, false);
 			byte[] row = new byte[w];
 			for (int y = 0; y < h; y++) {
 				imageData.next(row);
-				out.write(row);
+				encoder.write(row);
 			}
-			out.close();
+			encoder.finish();
 			encodedData = bytes.toByteArray();
 		} catch (IOException e) {
 			e.printStackTrace();
@@ -76,12 +77,13 @@ public class GifImageDataBlock extends GifBlock {
 		int colorDepth = getColorDepth(colorModel);
 		minimumLZWCodeSize = colorDepth;
 		try {
-			LZWOutputStream out = new LZWOutputStream(bytes, colorDepth, false);
+			LZWEncoder encoder = LZWEncoder.getThreadEncoder();
+			encoder.start(bytes, colorDepth, false);
 			for (int y = 0; y < h; y++) {
 				iter.next(block);
-				out.write(block);
+				encoder.write(block);
 			}
-			out.close();
+			encoder.finish();
 			encodedData = bytes.toByteArray();
 		} catch (IOException e) {
 			e.printStackTrace();
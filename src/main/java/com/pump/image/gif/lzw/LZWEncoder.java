@@ -0,0 +1,286 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.gif.lzw;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * This encodes bytes as GIF LZW-compressed data, and is tuned for throughput
+ * on large frames.
+ * <P>
+ * This produces exactly the same output as the {@link LZWOutputStream}, but:
+ * <ul>
+ * <li>The dictionary is an open-addressing hash table of primitive ints with a
+ * power-of-two size and linear probing.</li>
+ * <li>Each slot is stamped with a generation number, so clearing the
+ * dictionary (which GIFs do every 4096 codes) usually takes constant
+ * time.</li>
+ * <li>Codes are packed into an internal byte buffer that is written to the
+ * <code>OutputStream</code> in large chunks.</li>
+ * <li>Nothing is allocated per pixel, and one encoder can be reused for any
+ * number of frames. {@link #getThreadEncoder()} returns an encoder that is
+ * shared by everything running on the current thread.</li>
+ * </ul>
+ * <P>
+ * To encode a frame call {@link #start(OutputStream, int, boolean)}, then
+ * <code>write(..)</code> any number of times, and then {@link #finish()}. Like
+ * the <code>LZWOutputStream</code>: this does not break data into GIF
+ * subblocks.
+ * <P>
+ * This object is not thread-safe.
+ */
+public class LZWEncoder {
+
+	private static final int MAX_BITS = 12;
+
+	/** GIFs may not use this code (or any code above it). */
+	private static final int MAX_CODE = 1 << MAX_BITS;
+
+	/**
+	 * The size of the hash table. This must be a power of two, and it is large
+	 * enough that the table is never more than half full.
+	 */
+	private static final int TABLE_SIZE = 8192;
+
+	private static final int TABLE_MASK = TABLE_SIZE - 1;
+
+	private static final ThreadLocal<LZWEncoder> THREAD_ENCODER = new ThreadLocal<LZWEncoder>() {
+		@Override
+		protected LZWEncoder initialValue() {
+			return new LZWEncoder();
+		}
+	};
+
+	/**
+	 * Return an encoder reserved for the current thread. Callers must finish
+	 * encoding one frame before they (or anything else on the same thread)
+	 * start encoding another frame with this encoder.
+	 */
+	public static LZWEncoder getThreadEncoder() {
+		return THREAD_ENCODER.get();
+	}
+
+	/** The number of bits in a key. */
+	private static final int KEY_BITS = MAX_BITS + 8;
+
+	private static final int KEY_MASK = (1 << KEY_BITS) - 1;
+
+	/** The largest generation that fits in an entry. */
+	private static final int MAX_GENERATION = (1 << (32 - KEY_BITS)) - 1;
+
+	/**
+	 * For every slot: the generation it was written in (in the upper 12
+	 * bits), and the key (in the lower 20 bits). The key is the prefix code
+	 * shifted left 8 bits, plus the next byte. A slot is only occupied if its
+	 * generation equals <code>generation</code>.
+	 */
+	private final int[] entries = new int[TABLE_SIZE];
+
+	/** For every slot: the code the key maps to. */
+	private final int[] codes = new int[TABLE_SIZE];
+
+	private int generation = 0;
+
+	private final byte[] buffer = new byte[8192];
+	private int bufferSize;
+
+	private OutputStream out;
+	private int initialBits, clearCode, eofCode;
+	private int nextCode, codeBits, codeLimit;
+	private boolean resetCodeBits;
+	private int prefix;
+	private int bitAccumulator, bitCount;
+
+	/**
+	 * Begin encoding a new frame. This discards any unfinished frame this
+	 * encoder was working on.
+	 * 
+	 * @param out
+	 *            the stream to write compressed data to.
+	 * @param colorDepth
+	 *            the number of bits per pixel (1-8).
+	 * @param writeInitialCodeSize
+	 *            whether the "initial code size" byte should be written first.
+	 * @throws IOException
+	 *             if an IO problem occurs.
+	 */
+	public void start(OutputStream out, int colorDepth,
+			boolean writeInitialCodeSize) throws IOException {
+		if (out == null)
+			throw new NullPointerException();
+		if (colorDepth < 1 || colorDepth > 8)
+			throw new IllegalArgumentException("colorDepth (" + colorDepth
+					+ ") must be between 1 and 8");
+		int initCodeSize = Math.max(2, colorDepth);
+		if (writeInitialCodeSize)
+			out.write(initCodeSize);
+
+		this.out = out;
+		initialBits = initCodeSize + 1;
+		clearCode = 1 << initCodeSize;
+		eofCode = clearCode + 1;
+		nextCode = clearCode + 2;
+		codeBits = initialBits;
+		codeLimit = (1 << codeBits) - 1;
+		resetCodeBits = false;
+		prefix = -1;
+		bitAccumulator = 0;
+		bitCount = 0;
+		bufferSize = 0;
+		clearTable();
+
+		output(clearCode);
+	}
+
+	/**
+	 * Encode a series of bytes.
+	 */
+	public void write(byte[] data, int offset, int length) throws IOException {
+		if (out == null)
+			throw new IllegalStateException(
+					"start(..) must be called before write(..)");
+		int end = offset + length;
+		int ptr = offset;
+		int ent = prefix;
+		if (ent == -1 && ptr < end) {
+			ent = data[ptr++] & 0xff;
+		}
+
+		// copy fields to local variables for the tight loop
+		int[] entries = this.entries;
+		int[] codes = this.codes;
+		int stamp = generation << KEY_BITS;
+
+		pixelLoop: while (ptr < end) {
+			int c = data[ptr++] & 0xff;
+			int key = (ent << 8) | c;
+			int entry = stamp | key;
+			int i = hash(key);
+			while (true) {
+				int e = entries[i];
+				if (e == entry) {
+					ent = codes[i];
+					continue pixelLoop;
+				} else if ((e & ~KEY_MASK) != stamp) {
+					// this slot is empty
+					break;
+				}
+				i = (i + 1) & TABLE_MASK;
+			}
+
+			output(ent);
+			ent = c;
+			if (nextCode < MAX_CODE) {
+				entries[i] = entry;
+				codes[i] = nextCode++;
+			} else {
+				clearTable();
+				stamp = generation << KEY_BITS;
+				nextCode = clearCode + 2;
+				resetCodeBits = true;
+				output(clearCode);
+			}
+		}
+		prefix = ent;
+	}
+
+	/**
+	 * Encode a series of bytes.
+	 */
+	public void write(byte[] data) throws IOException {
+		write(data, 0, data.length);
+	}
+
+	/**
+	 * Write the final codes of this frame and flush all buffered data to the
+	 * <code>OutputStream</code>. After this is called, this encoder can be
+	 * reused by calling {@link #start(OutputStream, int, boolean)} again.
+	 * <P>
+	 * This does not flush or close the <code>OutputStream</code>.
+	 */
+	public void finish() throws IOException {
+		if (out == null)
+			throw new IllegalStateException(
+					"start(..) must be called before finish()");
+		try {
+			if (prefix != -1)
+				output(prefix);
+			output(eofCode);
+			while (bitCount > 0) {
+				writeByte(bitAccumulator & 0xff);
+				bitAccumulator >>= 8;
+				bitCount -= 8;
+			}
+			flushBuffer();
+		} finally {
+			out = null;
+		}
+	}
+
+	private static int hash(int key) {
+		return ((key * 0x9E3779B1) >>> 19) & TABLE_MASK;
+	}
+
+	/**
+	 * Remove all entries from the hash table.
+	 */
+	private void clearTable() {
+		generation++;
+		if (generation > MAX_GENERATION) {
+			// we ran out of generations: actually wipe the table
+			Arrays.fill(entries, 0);
+			generation = 1;
+		}
+	}
+
+	/**
+	 * Write a code using the current code width, and then widen (or reset) the
+	 * code width if necessary.
+	 */
+	private void output(int code) throws IOException {
+		bitAccumulator &= (1 << bitCount) - 1;
+		bitAccumulator |= (code << bitCount);
+		bitCount += codeBits;
+
+		while (bitCount >= 8) {
+			writeByte(bitAccumulator & 0xff);
+			bitAccumulator >>= 8;
+			bitCount -= 8;
+		}
+
+		if (nextCode > codeLimit || resetCodeBits) {
+			if (resetCodeBits) {
+				codeBits = initialBits;
+				codeLimit = (1 << codeBits) - 1;
+				resetCodeBits = false;
+			} else {
+				codeBits++;
+				codeLimit = codeBits == MAX_BITS ? MAX_CODE
+						: (1 << codeBits) - 1;
+			}
+		}
+	}
+
+	private void writeByte(int b) throws IOException {
+		if (bufferSize == buffer.length)
+			flushBuffer();
+		buffer[bufferSize++] = (byte) b;
+	}
+
+	private void flushBuffer() throws IOException {
+		if (bufferSize > 0) {
+			out.write(buffer, 0, bufferSize);
+			bufferSize = 0;
+		}
+	}
+}
@@ -20,6 +20,7 @@ import java.awt.image.DirectColorModel;
 import java.awt.image.ImageConsumer;
 import java.awt.image.ImageProducer;
 import java.io.File;
+import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.net.URL;
 import java.util.HashMap;
@@ -66,6 +67,10 @@ import com.pump.util.PushPullQueue;
  * threads at a time: if all 4 are hung for a minimum of 5 seconds, then <i>no
  * other images</i> can be processed through the AWT toolkit during that time.
  * 
+ * <p>
+ * For PNGs and JPEGs consider using the {@link ImageReaderIterator} instead,
+ * which decodes the image on the calling thread.
+ * 
  * <a href=
  * "https://javagraphics.blogspot.com/2011/05/images-scaling-jpegs-and-pngs.html"
  * >Images: Scaling JPEGs and PNGs</a>
@@ -903,11 +908,32 @@ public abstract class GenericImageSinglePassIterator implements PixelIterator {
 	 *            then the resulting thumbnail will be 120x90.
 	 */
 	public static BufferedImage createScaledImage(URL url, Dimension maxSize) {
-		Image image = Toolkit.getDefaultToolkit().createImage(url);
 		boolean isJPEG = url.toString().toLowerCase().endsWith(".jpg")
 				|| url.toString().toLowerCase().endsWith(".jpeg");
+		boolean isPNG = url.toString().toLowerCase().endsWith(".png");
 		int type = isJPEG ? BufferedImage.TYPE_INT_RGB
 				: BufferedImage.TYPE_INT_ARGB;
+		if (isJPEG || isPNG) {
+			try {
+				ImageReaderIterator iter = ImageReaderIterator.get(url, type);
+				if (iter != null) {
+					Dimension currentSize = new Dimension(iter.getWidth(),
+							iter.getHeight());
+					Dimension newSize = null;
+					if (currentSize.width > maxSize.width
+							|| currentSize.height > maxSize.height) {
+						newSize = Dimension2D.scaleProportionally(currentSize,
+								maxSize);
+					}
+					BufferedImage bi = Scaling.scale(iter, newSize);
+					if (bi != null)
+						return bi;
+				}
+			} catch (IOException e) {
+				// try again with the toolkit
+			}
+		}
+		Image image = Toolkit.getDefaultToolkit().createImage(url);
 		IntPixelIterator iter = (IntPixelIterator) get(image, type);
 		if (iter == null)
 			return null;
@@ -0,0 +1,565 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.pixel;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * This pixel iterator uses an <code>ImageReader</code> to decode a PNG or JPEG
+ * image in horizontal strips.
+ * <p>
+ * This serves the same purpose as the {@link GenericImageSinglePassIterator}:
+ * it lets you iterate over a large image without keeping the entire image in
+ * memory. But this does not rely on an <code>ImageProducer</code>, so there is
+ * no other thread to coordinate with and no timeouts to worry about. Each strip
+ * is decoded on the thread that calls <code>next(..)</code>, and at most
+ * {@link #MAX_STRIP_PIXELS} pixels are buffered at a time.
+ * <p>
+ * The <code>ImageReader</code> has to decode every row that precedes a strip
+ * each time it decodes that strip, so an image that is divided into many
+ * strips takes longer to read. Images that fit in a single strip are read in
+ * exactly one pass. Rows that are skipped (see {@link #skip()}) are never
+ * decoded if their entire strip is skipped.
+ * <p>
+ * The underlying stream is closed once every row has been read or skipped, or
+ * when {@link #close()} is called.
+ */
+public abstract class ImageReaderIterator implements PixelIterator {
+
+	/**
+	 * The maximum number of pixels an iterator decodes at once. By default
+	 * this is 2,097,152 (about 8 MB of ARGB data).
+	 */
+	public static int MAX_STRIP_PIXELS = 1 << 21;
+
+	private static class ImageReaderIntIterator extends ImageReaderIterator
+			implements IntPixelIterator {
+
+		ImageReaderIntIterator(ImageReader reader, ImageInputStream in,
+				Closeable source, int type) throws IOException {
+			super(reader, in, source, type);
+		}
+
+		public int getPixelSize() {
+			return 1;
+		}
+
+		public void next(int[] dest) {
+			BufferedImage strip = nextStripRow();
+			int y = rowCtr - stripY;
+			readARGB(strip, y, dest);
+			switch (type) {
+			case BufferedImage.TYPE_INT_ARGB:
+			case BufferedImage.TYPE_INT_RGB:
+				break;
+			case BufferedImage.TYPE_INT_ARGB_PRE:
+				for (int x = 0; x < width; x++) {
+					dest[x] = premultiply(dest[x]);
+				}
+				break;
+			case BufferedImage.TYPE_INT_BGR:
+				for (int x = 0; x < width; x++) {
+					int argb = dest[x];
+					dest[x] = (argb & 0xff00ff00) + ((argb & 0xff) << 16)
+							+ ((argb >> 16) & 0xff);
+				}
+				break;
+			default:
+				throw new RuntimeException("unexpected iterator type: " + type);
+			}
+			rowCompleted();
+		}
+	}
+
+	private static class ImageReaderByteIterator extends ImageReaderIterator
+			implements BytePixelIterator {
+		int[] scratch;
+
+		ImageReaderByteIterator(ImageReader reader, ImageInputStream in,
+				Closeable source, int type) throws IOException {
+			super(reader, in, source, type);
+		}
+
+		public int getPixelSize() {
+			switch (type) {
+			case BufferedImage.TYPE_4BYTE_ABGR:
+			case BufferedImage.TYPE_4BYTE_ABGR_PRE:
+				return 4;
+			case BufferedImage.TYPE_3BYTE_BGR:
+				return 3;
+			case BufferedImage.TYPE_BYTE_GRAY:
+				return 1;
+			}
+			throw new RuntimeException("unexpected iterator type: " + type);
+		}
+
+		public void next(byte[] dest) {
+			BufferedImage strip = nextStripRow();
+			int y = rowCtr - stripY;
+
+			if (strip.getType() == type
+					&& type != BufferedImage.TYPE_4BYTE_ABGR_PRE
+					&& copyBytes(strip, y, dest, getPixelSize())) {
+				rowCompleted();
+				return;
+			}
+
+			if (scratch == null)
+				scratch = new int[width];
+			readARGB(strip, y, scratch);
+			switch (type) {
+			case BufferedImage.TYPE_3BYTE_BGR:
+				for (int x = 0; x < width; x++) {
+					int argb = scratch[x];
+					dest[3 * x] = (byte) (argb & 0xff);
+					dest[3 * x + 1] = (byte) ((argb >> 8) & 0xff);
+					dest[3 * x + 2] = (byte) ((argb >> 16) & 0xff);
+				}
+				break;
+			case BufferedImage.TYPE_4BYTE_ABGR:
+			case BufferedImage.TYPE_4BYTE_ABGR_PRE:
+				boolean premultiplied = type == BufferedImage.TYPE_4BYTE_ABGR_PRE;
+				for (int x = 0; x < width; x++) {
+					int argb = premultiplied ? premultiply(scratch[x])
+							: scratch[x];
+					dest[4 * x] = (byte) ((argb >> 24) & 0xff);
+					dest[4 * x + 1] = (byte) (argb & 0xff);
+					dest[4 * x + 2] = (byte) ((argb >> 8) & 0xff);
+					dest[4 * x + 3] = (byte) ((argb >> 16) & 0xff);
+				}
+				break;
+			case BufferedImage.TYPE_BYTE_GRAY:
+				for (int x = 0; x < width; x++) {
+					int argb = scratch[x];
+					int r = (argb >> 16) & 0xff;
+					int g = (argb >> 8) & 0xff;
+					int b = argb & 0xff;
+					dest[x] = (byte) ((r + g + b) / 3);
+				}
+				break;
+			default:
+				throw new RuntimeException("unexpected iterator type: " + type);
+			}
+			rowCompleted();
+		}
+	}
+
+	/**
+	 * Return true if this class can iterate over the pixels of a given
+	 * format.
+	 * 
+	 * @param formatName
+	 *            the format name returned by
+	 *            <code>ImageReader.getFormatName()</code>.
+	 */
+	public static boolean isSupportedFormat(String formatName) {
+		formatName = formatName.toLowerCase();
+		return formatName.equals("png") || formatName.equals("jpeg")
+				|| formatName.equals("jpg");
+	}
+
+	/**
+	 * Return true if this class supports a given iterator type.
+	 * 
+	 * @param iteratorType
+	 *            a BufferedImage type.
+	 */
+	public static boolean isSupportedType(int iteratorType) {
+		return iteratorType == BufferedImage.TYPE_INT_ARGB
+				|| iteratorType == BufferedImage.TYPE_INT_ARGB_PRE
+				|| iteratorType == BufferedImage.TYPE_INT_RGB
+				|| iteratorType == BufferedImage.TYPE_INT_BGR
+				|| iteratorType == BufferedImage.TYPE_3BYTE_BGR
+				|| iteratorType == BufferedImage.TYPE_BYTE_GRAY
+				|| iteratorType == BufferedImage.TYPE_4BYTE_ABGR
+				|| iteratorType == BufferedImage.TYPE_4BYTE_ABGR_PRE;
+	}
+
+	/**
+	 * Returns an <code>ImageReaderIterator</code> that is either a
+	 * <code>IntPixelIterator</code> or a <code>BytePixelIterator</code>.
+	 * 
+	 * @param file
+	 *            a PNG or JPEG file.
+	 * @param iteratorType
+	 *            one of these 8 BufferedImage types: TYPE_INT_ARGB,
+	 *            TYPE_INT_ARGB_PRE, TYPE_INT_RGB, TYPE_INT_BGR, TYPE_3BYTE_BGR,
+	 *            TYPE_BYTE_GRAY, TYPE_4BYTE_ABGR, TYPE_4BYTE_ABGR_PRE.
+	 * @return an iterator for the file provided, or null if the file is not a
+	 *         PNG or JPEG image.
+	 */
+	public static ImageReaderIterator get(File file, int iteratorType)
+			throws IOException {
+		return get(ImageIO.createImageInputStream(file), iteratorType);
+	}
+
+	/**
+	 * Returns an <code>ImageReaderIterator</code> that is either a
+	 * <code>IntPixelIterator</code> or a <code>BytePixelIterator</code>.
+	 * 
+	 * @param url
+	 *            a PNG or JPEG image.
+	 * @param iteratorType
+	 *            one of these 8 BufferedImage types: TYPE_INT_ARGB,
+	 *            TYPE_INT_ARGB_PRE, TYPE_INT_RGB, TYPE_INT_BGR, TYPE_3BYTE_BGR,
+	 *            TYPE_BYTE_GRAY, TYPE_4BYTE_ABGR, TYPE_4BYTE_ABGR_PRE.
+	 * @return an iterator for the URL provided, or null if the URL is not a
+	 *         PNG or JPEG image.
+	 */
+	public static ImageReaderIterator get(URL url, int iteratorType)
+			throws IOException {
+		InputStream in = url.openStream();
+		try {
+			return get(ImageIO.createImageInputStream(in), in, iteratorType);
+		} catch (IOException | RuntimeException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns an <code>ImageReaderIterator</code> that is either a
+	 * <code>IntPixelIterator</code> or a <code>BytePixelIterator</code>.
+	 * 
+	 * @param in
+	 *            the stream to read a PNG or JPEG image from. This stream is
+	 *            closed when the iterator is finished, or immediately if this
+	 *            method returns null.
+	 * @param iteratorType
+	 *            one of these 8 BufferedImage types: TYPE_INT_ARGB,
+	 *            TYPE_INT_ARGB_PRE, TYPE_INT_RGB, TYPE_INT_BGR, TYPE_3BYTE_BGR,
+	 *            TYPE_BYTE_GRAY, TYPE_4BYTE_ABGR, TYPE_4BYTE_ABGR_PRE.
+	 * @return an iterator for the stream provided, or null if the stream is
+	 *         not a PNG or JPEG image.
+	 */
+	public static ImageReaderIterator get(ImageInputStream in, int iteratorType)
+			throws IOException {
+		return get(in, null, iteratorType);
+	}
+
+	/**
+	 * Returns an <code>ImageReaderIterator</code>, or null if the stream is
+	 * not a PNG or JPEG image.
+	 * 
+	 * @param in
+	 *            the stream to read from.
+	 * @param source
+	 *            an optional resource that <code>in</code> reads from. This is
+	 *            closed when <code>in</code> is closed.
+	 * @param iteratorType
+	 *            the type of iterator to create.
+	 */
+	private static ImageReaderIterator get(ImageInputStream in,
+			Closeable source, int iteratorType) throws IOException {
+		if (!isSupportedType(iteratorType))
+			throw new IllegalArgumentException("illegal iterator type: "
+					+ iteratorType);
+		if (in == null) {
+			if (source != null)
+				source.close();
+			return null;
+		}
+
+		ImageReader reader = null;
+		try {
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+			while (reader == null && readers.hasNext()) {
+				ImageReader r = readers.next();
+				if (isSupportedFormat(r.getFormatName()))
+					reader = r;
+			}
+			if (reader == null) {
+				in.close();
+				if (source != null)
+					source.close();
+				return null;
+			}
+			reader.setInput(in, true, true);
+			switch (iteratorType) {
+			case BufferedImage.TYPE_3BYTE_BGR:
+			case BufferedImage.TYPE_4BYTE_ABGR:
+			case BufferedImage.TYPE_4BYTE_ABGR_PRE:
+			case BufferedImage.TYPE_BYTE_GRAY:
+				return new ImageReaderByteIterator(reader, in, source,
+						iteratorType);
+			default:
+				return new ImageReaderIntIterator(reader, in, source,
+						iteratorType);
+			}
+		} catch (IOException | RuntimeException e) {
+			if (reader != null)
+				reader.dispose();
+			in.close();
+			if (source != null)
+				source.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Convert a non-premultiplied ARGB pixel to a premultiplied ARGB pixel.
+	 */
+	static int premultiply(int argb) {
+		int a = (argb >> 24) & 0xff;
+		if (a == 255)
+			return argb;
+		if (a == 0)
+			return 0;
+		int r = ((argb >> 16) & 0xff) * a / 255;
+		int g = ((argb >> 8) & 0xff) * a / 255;
+		int b = (argb & 0xff) * a / 255;
+		return (a << 24) + (r << 16) + (g << 8) + b;
+	}
+
+	final ImageReader reader;
+	final ImageInputStream in;
+	final Closeable source;
+	final ImageReadParam param;
+	final int width, height, type, maxStripHeight;
+
+	/**
+	 * The number of rows we have processed.
+	 */
+	int rowCtr = 0;
+
+	/**
+	 * The first row of the image the current strip represents, or -1 if no
+	 * strip has been read.
+	 */
+	int stripY = -1;
+
+	/**
+	 * The number of rows of the current strip that contain valid data.
+	 */
+	int stripHeight = 0;
+
+	/**
+	 * The most recently decoded strip. This image is reused for each strip.
+	 */
+	BufferedImage strip;
+
+	private boolean closed = false;
+
+	private ImageReaderIterator(ImageReader reader, ImageInputStream in,
+			Closeable source, int type) throws IOException {
+		this.reader = reader;
+		this.in = in;
+		this.source = source;
+		this.type = type;
+		width = reader.getWidth(0);
+		height = reader.getHeight(0);
+		maxStripHeight = Math.max(1,
+				Math.min(height, MAX_STRIP_PIXELS / Math.max(1, width)));
+		param = reader.getDefaultReadParam();
+		if (height == 0)
+			close();
+	}
+
+	/**
+	 * Return the number of strips this iterator decodes if every row is read.
+	 */
+	public int getStripCount() {
+		return (height + maxStripHeight - 1) / maxStripHeight;
+	}
+
+	/**
+	 * Make sure the strip containing the next row has been decoded, and return
+	 * that strip.
+	 */
+	BufferedImage nextStripRow() {
+		if (isDone())
+			throw new RuntimeException("end of data reached");
+		if (stripY == -1 || rowCtr >= stripY + stripHeight) {
+			stripY = rowCtr;
+			stripHeight = Math.min(maxStripHeight, height - rowCtr);
+			param.setSourceRegion(new Rectangle(0, stripY, width,
+					stripHeight));
+			param.setDestination(strip);
+			try {
+				strip = reader.read(0, param);
+			} catch (IOException e) {
+				close();
+				throw new RuntimeException(e);
+			}
+		}
+		return strip;
+	}
+
+	/**
+	 * Read one row of the strip as non-premultiplied ARGB data.
+	 */
+	void readARGB(BufferedImage strip, int y, int[] dest) {
+		int stripType = strip.getType();
+		if (stripType == BufferedImage.TYPE_INT_ARGB) {
+			strip.getRaster().getDataElements(0, y, width, 1, dest);
+		} else if (stripType == BufferedImage.TYPE_INT_RGB) {
+			strip.getRaster().getDataElements(0, y, width, 1, dest);
+			for (int x = 0; x < width; x++) {
+				dest[x] = 0xff000000 | dest[x];
+			}
+		} else if ((stripType == BufferedImage.TYPE_3BYTE_BGR
+				|| stripType == BufferedImage.TYPE_4BYTE_ABGR || stripType == BufferedImage.TYPE_BYTE_GRAY)
+				&& strip.getRaster().getDataBuffer() instanceof DataBufferByte
+				&& strip.getRaster().getSampleModel() instanceof PixelInterleavedSampleModel) {
+			PixelInterleavedSampleModel sm = (PixelInterleavedSampleModel) strip
+					.getRaster().getSampleModel();
+			byte[] data = ((DataBufferByte) strip.getRaster().getDataBuffer())
+					.getData();
+			int i = getRowOffset(strip.getRaster(), sm, y);
+			if (stripType == BufferedImage.TYPE_3BYTE_BGR) {
+				for (int x = 0; x < width; x++, i += 3) {
+					dest[x] = 0xff000000 + ((data[i + 2] & 0xff) << 16)
+							+ ((data[i + 1] & 0xff) << 8) + (data[i] & 0xff);
+				}
+			} else if (stripType == BufferedImage.TYPE_4BYTE_ABGR) {
+				for (int x = 0; x < width; x++, i += 4) {
+					dest[x] = ((data[i] & 0xff) << 24)
+							+ ((data[i + 3] & 0xff) << 16)
+							+ ((data[i + 2] & 0xff) << 8) + (data[i + 1] & 0xff);
+				}
+			} else {
+				for (int x = 0; x < width; x++, i++) {
+					int v = data[i] & 0xff;
+					dest[x] = 0xff000000 + (v << 16) + (v << 8) + v;
+				}
+			}
+		} else {
+			strip.getRGB(0, y, width, 1, dest, 0, width);
+		}
+	}
+
+	/**
+	 * Copy the bytes of one row of the strip directly into an array, if the
+	 * strip is stored as interleaved bytes.
+	 * 
+	 * @return true if the bytes were copied, false if the strip's raster has
+	 *         an unexpected layout.
+	 */
+	boolean copyBytes(BufferedImage strip, int y, byte[] dest,
+			int bytesPerPixel) {
+		if (!(strip.getRaster().getDataBuffer() instanceof DataBufferByte && strip
+				.getRaster().getSampleModel() instanceof PixelInterleavedSampleModel))
+			return false;
+		PixelInterleavedSampleModel sm = (PixelInterleavedSampleModel) strip
+				.getRaster().getSampleModel();
+		if (sm.getPixelStride() != bytesPerPixel)
+			return false;
+		byte[] data = ((DataBufferByte) strip.getRaster().getDataBuffer())
+				.getData();
+		int i = getRowOffset(strip.getRaster(), sm, y);
+		System.arraycopy(data, i, dest, 0, width * bytesPerPixel);
+		return true;
+	}
+
+	/**
+	 * Return the index of the first byte of a row. Unlike
+	 * <code>SampleModel.getOffset(..)</code> this does not include a band
+	 * offset, so it points to the first byte of the first pixel.
+	 */
+	private static int getRowOffset(WritableRaster raster,
+			PixelInterleavedSampleModel sm, int y) {
+		return (y - raster.getSampleModelTranslateY())
+				* sm.getScanlineStride()
+				- raster.getSampleModelTranslateX() * sm.getPixelStride();
+	}
+
+	/**
+	 * This should be called after every call to <code>next(..)</code>.
+	 */
+	void rowCompleted() {
+		rowCtr++;
+		if (isDone())
+			close();
+	}
+
+	/**
+	 * Release the <code>ImageReader</code> and close the underlying stream.
+	 * This is called automatically when every row has been read or skipped,
+	 * but if you abandon this iterator before then you should call this
+	 * method.
+	 */
+	public void close() {
+		if (closed)
+			return;
+		closed = true;
+		strip = null;
+		reader.dispose();
+		try {
+			in.close();
+			if (source != null)
+				source.close();
+		} catch (IOException e) {
+			// the data we need has already been read
+		}
+	}
+
+	/**
+	 * Returns the pixel type of this iterator. This will be one of these 8
+	 * BufferedImage types: TYPE_INT_ARGB, TYPE_INT_ARGB_PRE, TYPE_INT_RGB,
+	 * TYPE_INT_BGR, TYPE_3BYTE_BGR, TYPE_BYTE_GRAY, TYPE_4BYTE_ABGR,
+	 * TYPE_4BYTE_ABGR_PRE.
+	 */
+	public int getType() {
+		return type;
+	}
+
+	public boolean isOpaque() {
+		return PixelConverter.isOpaque(type);
+	}
+
+	public boolean isDone() {
+		return rowCtr >= height;
+	}
+
+	/**
+	 * This always returns true.
+	 */
+	public boolean isTopDown() {
+		return true;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getMinimumArrayLength() {
+		return getWidth() * getPixelSize();
+	}
+
+	/**
+	 * Skip the next row of data. If every row in a strip is skipped: that
+	 * strip is never decoded.
+	 */
+	public void skip() {
+		if (isDone())
+			throw new RuntimeException("end of data reached");
+		rowCompleted();
+	}
+}
@@ -18,9 +18,12 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import com.pump.image.ImageSize;
 import com.pump.image.bmp.BmpDecoderIterator;
+import com.pump.util.SharedForkJoinPool;
 
 /**
  * This contains a few static methods for scaling BufferedImages using the
@@ -127,6 +130,18 @@ public class Scaling {
 				return null;
 			}
 		}
+		if (pathLower.endsWith(".png") || pathLower.endsWith(".jpg")
+				|| pathLower.endsWith(".jpeg")) {
+			try {
+				BufferedImage image = scale(
+						ImageReaderIterator.get(source, preferredType),
+						destSize);
+				if (image != null)
+					return image;
+			} catch (IOException e) {
+				// try again with the toolkit
+			}
+		}
 		Image image = Toolkit.getDefaultToolkit().createImage(
 				source.getAbsolutePath());
 		try {
@@ -137,6 +152,47 @@ public class Scaling {
 		}
 	}
 
+	/**
+	 * PNGs and JPEGs that {@link ImageReaderIterator} would have to decode in
+	 * more strips than this are read through the AWT toolkit instead, because
+	 * the <code>ImageReader</code> re-decodes all the preceding rows for every
+	 * strip.
+	 */
+	static final int MAX_IMAGE_READER_STRIPS = 8;
+
+	/**
+	 * Scales the image an <code>ImageReaderIterator</code> describes.
+	 * <p>
+	 * This returns null if the iterator would have to decode the image in more
+	 * than {@link #MAX_IMAGE_READER_STRIPS} strips, or if the image can't be
+	 * decoded, so the caller can try again with the AWT toolkit.
+	 * 
+	 * @param iter
+	 *            an optional iterator. This is always closed before this
+	 *            method returns.
+	 * @param destSize
+	 *            the size of the new image, or null if the image should not be
+	 *            scaled.
+	 * @return a new image, or null if the iterator is null or could not be
+	 *         used to read this image.
+	 */
+	static BufferedImage scale(ImageReaderIterator iter, Dimension destSize) {
+		if (iter == null)
+			return null;
+		try {
+			if (iter.getStripCount() > MAX_IMAGE_READER_STRIPS)
+				return null;
+			PixelIterator scalingIter = destSize == null ? iter
+					: ScalingIterator.get(iter, destSize.width,
+							destSize.height);
+			return BufferedImageIterator.create(scalingIter, null);
+		} catch (RuntimeException e) {
+			return null;
+		} finally {
+			iter.close();
+		}
+	}
+
 	/**
 	 * Scales the source image file to a new size.
 	 * 
@@ -192,6 +248,18 @@ public class Scaling {
 				}
 			}
 		}
+		if (pathLower.endsWith(".png") || pathLower.endsWith(".jpg")
+				|| pathLower.endsWith(".jpeg")) {
+			try {
+				BufferedImage image = scale(
+						ImageReaderIterator.get(source, preferredType),
+						destSize);
+				if (image != null)
+					return image;
+			} catch (IOException e) {
+				// try again with the toolkit
+			}
+		}
 		Image image = Toolkit.getDefaultToolkit().createImage(source);
 		try {
 			return scale(image, null, destSize);
@@ -226,6 +294,45 @@ public class Scaling {
 	 */
 	public static BufferedImage scale(BufferedImage source, BufferedImage dest,
 			Dimension destSize) {
+		ForkJoinPool pool = null;
+		if (source != dest
+				&& source != null
+				&& Runtime.getRuntime().availableProcessors() > 1
+				&& ((long) source.getWidth()) * ((long) source.getHeight()) >= PARALLEL_PIXEL_THRESHOLD) {
+			pool = SharedForkJoinPool.get();
+		}
+		return scale(source, dest, destSize, pool);
+	}
+
+	/**
+	 * Scales the source image into the dest, optionally splitting the work
+	 * across several threads.
+	 * <p>
+	 * When a pool is provided the destination image is divided into bands of
+	 * rows, and each band is scaled independently. The result is identical to
+	 * scaling the image on a single thread.
+	 * 
+	 * @param source
+	 *            the source image. This may not be null.
+	 * @param dest
+	 *            the destination image. If non-null: this image must be at
+	 *            least <code>destSize</code> pixels in size or an exception
+	 *            will be thrown. If this is null: an image will be created that
+	 *            is <code>destSize</code> pixels.
+	 *            <p>
+	 *            This argument can be the same as the <code>source</code>
+	 *            argument only if <code>pool</code> is null.
+	 * @param destSize
+	 *            the dimensions to write to. It is guaranteed that these pixels
+	 *            will be replaced in the dest image.
+	 * @param pool
+	 *            an optional pool to scale bands of the image in. If this is
+	 *            null then the image is scaled on the current thread.
+	 * @return the <code>dest</code> argument, or a new image if no
+	 *         <code>dest</code> argument was provided.
+	 */
+	public static BufferedImage scale(BufferedImage source, BufferedImage dest,
+			Dimension destSize, ForkJoinPool pool) {
 		if (destSize == null && dest != null) {
 			destSize = new Dimension(dest.getWidth(), dest.getHeight());
 		}
@@ -242,28 +349,129 @@ public class Scaling {
 				dest = new BufferedImage(destSize.width, destSize.height,
 						BufferedImage.TYPE_INT_RGB);
 			}
+		} else if (pool != null && source == dest) {
+			throw new IllegalArgumentException(
+					"the source and dest must be different images when a pool is used");
 		}
 
+		if (pool == null || destSize.height < 2) {
+			IntPixelIterator i = createScaledIterator(source, destSize);
+			if (i.isTopDown()) {
+				writeRows(i, dest, destSize.width, 0, destSize.height);
+			} else {
+				int[] row = new int[i.getMinimumArrayLength()];
+				for (int y = destSize.height - 1; y >= 0; y--) {
+					i.next(row);
+					dest.getRaster().setDataElements(0, y, destSize.width, 1,
+							row);
+				}
+			}
+		} else {
+			int bandHeight = Math.max(MINIMUM_BAND_HEIGHT, destSize.height
+					/ (4 * pool.getParallelism()));
+			pool.invoke(new ScaleBandTask(source, dest, destSize, 0,
+					destSize.height, bandHeight));
+		}
+		return dest;
+	}
+
+	/**
+	 * Source images with at least this many pixels are scaled in parallel by
+	 * {@link #scale(BufferedImage, BufferedImage, Dimension)} when more than
+	 * one processor is available.
+	 */
+	static final int PARALLEL_PIXEL_THRESHOLD = 1 << 20;
+
+	/**
+	 * The minimum number of destination rows each parallel task is
+	 * responsible for.
+	 */
+	static final int MINIMUM_BAND_HEIGHT = 8;
+
+	/**
+	 * Create a top-down iterator that scales the source image, converting
+	 * byte-based data to ARGB ints if necessary.
+	 */
+	private static IntPixelIterator createScaledIterator(BufferedImage source,
+			Dimension destSize) {
 		PixelIterator pi = ScalingIterator.get(
 				BufferedImageIterator.get(source), destSize.width,
 				destSize.height);
 		if (pi instanceof BytePixelIterator) {
 			pi = new IntARGBConverter(pi);
 		}
-		IntPixelIterator i = (IntPixelIterator) pi;
+		return (IntPixelIterator) pi;
+	}
+
+	/**
+	 * Write rows from a top-down iterator into an image.
+	 * 
+	 * @param i
+	 *            the iterator to read rows from. The next row this returns is
+	 *            written at <code>y0</code>.
+	 * @param dest
+	 *            the image to write to.
+	 * @param width
+	 *            the number of pixels in each row to write.
+	 * @param y0
+	 *            the first row to write.
+	 * @param y1
+	 *            the row after the last row to write.
+	 */
+	private static void writeRows(IntPixelIterator i, BufferedImage dest,
+			int width, int y0, int y1) {
 		int[] row = new int[i.getMinimumArrayLength()];
-		if (i.isTopDown()) {
-			for (int y = 0; y < destSize.height; y++) {
-				i.next(row);
-				dest.getRaster().setDataElements(0, y, destSize.width, 1, row);
-			}
-		} else {
-			for (int y = destSize.height - 1; y >= 0; y--) {
-				i.next(row);
-				dest.getRaster().setDataElements(0, y, destSize.width, 1, row);
+		for (int y = y0; y < y1; y++) {
+			i.next(row);
+			dest.getRaster().setDataElements(0, y, width, 1, row);
+		}
+	}
+
+	/**
+	 * This scales a band of rows of the destination image, or splits itself
+	 * into smaller tasks if the band is too tall.
+	 */
+	static class ScaleBandTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final BufferedImage source, dest;
+		final Dimension destSize;
+		final int y0, y1, bandHeight;
+
+		ScaleBandTask(BufferedImage source, BufferedImage dest,
+				Dimension destSize, int y0, int y1, int bandHeight) {
+			this.source = source;
+			this.dest = dest;
+			this.destSize = destSize;
+			this.y0 = y0;
+			this.y1 = y1;
+			this.bandHeight = bandHeight;
+		}
+
+		@Override
+		protected void compute() {
+			if (y1 - y0 <= bandHeight) {
+				PixelIterator pi = ScalingIterator.get(
+						BufferedImageIterator.get(source), destSize.width,
+						destSize.height);
+				if (pi instanceof ScalingIterator) {
+					((ScalingIterator) pi).seekDestinationRow(y0);
+				} else {
+					for (int y = 0; y < y0; y++) {
+						pi.skip();
+					}
+				}
+				if (pi instanceof BytePixelIterator) {
+					pi = new IntARGBConverter(pi);
+				}
+				writeRows((IntPixelIterator) pi, dest, destSize.width, y0, y1);
+			} else {
+				int mid = (y0 + y1) / 2;
+				invokeAll(new ScaleBandTask(source, dest, destSize, y0, mid,
+						bandHeight), new ScaleBandTask(source, dest, destSize,
+						mid, y1, bandHeight));
 			}
 		}
-		return dest;
 	}
 
 	/**
@@ -647,7 +647,8 @@ public abstract class ScalingIterator implements PixelIterator {
 						lastRed = reds[x - 1] / sums[x - 1];
 						lastGreen = greens[x - 1] / sums[x - 1];
 						lastBlue = blues[x - 1] / sums[x - 1];
-						lastAlpha = alphas[x - 1] / sums[x - 1];
+						if (alphas != null)
+							lastAlpha = alphas[x - 1] / sums[x - 1];
 					}
 					int startX = x;
 					int span = 1;
@@ -656,7 +657,7 @@ public abstract class ScalingIterator implements PixelIterator {
 						span++;
 					}
 					if (x < sums.length) {
-						newAlpha = alphas[x] / sums[x];
+						newAlpha = alphas == null ? 0 : alphas[x] / sums[x];
 						newRed = reds[x] / sums[x];
 						newGreen = greens[x] / sums[x];
 						newBlue = blues[x] / sums[x];
@@ -679,7 +680,8 @@ public abstract class ScalingIterator implements PixelIterator {
 
 					for (int k = startX; k < x; k++) {
 						int f = k - startX + 1;
-						alphas[k] = ((lastAlpha * (span - f) + newAlpha * f) / span);
+						if (alphas != null)
+							alphas[k] = ((lastAlpha * (span - f) + newAlpha * f) / span);
 						reds[k] = ((lastRed * (span - f) + newRed * f) / span);
 						greens[k] = ((lastGreen * (span - f) + newGreen * f) / span);
 						blues[k] = ((lastBlue * (span - f) + newBlue * f) / span);
@@ -1089,7 +1091,8 @@ public abstract class ScalingIterator implements PixelIterator {
 						lastRed = reds[x - 1] / sums[x - 1];
 						lastGreen = greens[x - 1] / sums[x - 1];
 						lastBlue = blues[x - 1] / sums[x - 1];
-						lastAlpha = alphas[x - 1] / sums[x - 1];
+						if (alphas != null)
+							lastAlpha = alphas[x - 1] / sums[x - 1];
 					}
 					int startX = x;
 					int span = 1;
@@ -1098,7 +1101,7 @@ public abstract class ScalingIterator implements PixelIterator {
 						span++;
 					}
 					if (x < sums.length) {
-						newAlpha = alphas[x] / sums[x];
+						newAlpha = alphas == null ? 0 : alphas[x] / sums[x];
 						newRed = reds[x] / sums[x];
 						newGreen = greens[x] / sums[x];
 						newBlue = blues[x] / sums[x];
@@ -1121,8 +1124,9 @@ public abstract class ScalingIterator implements PixelIterator {
 
 					for (int k = startX; k < x; k++) {
 						int f = k - startX + 1;
-						alphas[k] = (short) ((lastAlpha * (span - f) + newAlpha
-								* f) / span);
+						if (alphas != null)
+							alphas[k] = (short) ((lastAlpha * (span - f) + newAlpha
+									* f) / span);
 						reds[k] = (short) ((lastRed * (span - f) + newRed * f) / span);
 						greens[k] = (short) ((lastGreen * (span - f) + newGreen
 								* f) / span);
@@ -1387,6 +1391,29 @@ public abstract class ScalingIterator implements PixelIterator {
 		srcY = srcH;
 	}
 
+	/**
+	 * Position this iterator so the next call to <code>next(..)</code> returns
+	 * the destination row provided. The source rows that precede that row are
+	 * skipped without being read.
+	 * <p>
+	 * This is only supported before any rows have been read. Every row this
+	 * iterator returns afterwards is identical to the row it would have
+	 * returned if we had iterated over every preceding row, so several
+	 * iterators can each produce one band of the same scaled image.
+	 * 
+	 * @param y
+	 *            the destination row (in iteration order) to seek to.
+	 */
+	void seekDestinationRow(int y) {
+		if (dstY != 0 || srcY != 0)
+			throw new IllegalStateException(
+					"seekDestinationRow() must be called before any rows are read");
+		if (y < 0 || y > dstH)
+			throw new IllegalArgumentException("y (" + y
+					+ ") must be between 0 and " + dstH);
+		dstY = y;
+	}
+
 	public boolean isTopDown() {
 		return topDown;
 	}
@@ -0,0 +1,216 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.pixel.quantize;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import com.pump.image.pixel.quantize.ColorLUT.ColorNode;
+
+/**
+ * A k-d tree of RGB colors that identifies the exact nearest color (measured
+ * by squared Euclidean distance) in a palette.
+ * <p>
+ * The tree is stored in flat arrays: the node for the range [lo, hi) is at
+ * the middle of that range, its left subtree occupies [lo, mid) and its right
+ * subtree occupies (mid, hi). This object is immutable once constructed, so
+ * lookups are thread-safe without any locking, and a lookup never allocates
+ * memory.
+ */
+public class ColorKDTree {
+
+	private static final int AXIS_RED = 0;
+	private static final int AXIS_GREEN = 1;
+	private static final int AXIS_BLUE = 2;
+
+	/**
+	 * Palettes this small are searched linearly, which is faster than walking
+	 * the tree.
+	 */
+	private static final int LINEAR_SEARCH_LIMIT = 32;
+
+	private static final Comparator<ColorNode>[] COMPARATORS = createComparators();
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Comparator<ColorNode>[] createComparators() {
+		Comparator<ColorNode>[] comparators = new Comparator[3];
+		comparators[AXIS_RED] = new Comparator<ColorNode>() {
+			public int compare(ColorNode n1, ColorNode n2) {
+				return Integer.compare(n1.red, n2.red);
+			}
+		};
+		comparators[AXIS_GREEN] = new Comparator<ColorNode>() {
+			public int compare(ColorNode n1, ColorNode n2) {
+				return Integer.compare(n1.green, n2.green);
+			}
+		};
+		comparators[AXIS_BLUE] = new Comparator<ColorNode>() {
+			public int compare(ColorNode n1, ColorNode n2) {
+				return Integer.compare(n1.blue, n2.blue);
+			}
+		};
+		return comparators;
+	}
+
+	private final ColorNode[] nodes;
+	private final int[] reds, greens, blues;
+	private final byte[] axes;
+
+	/**
+	 * Create a new ColorKDTree.
+	 * 
+	 * @param colors
+	 *            the palette to search. This array is not modified.
+	 */
+	public ColorKDTree(ColorNode[] colors) {
+		nodes = colors.clone();
+		reds = new int[nodes.length];
+		greens = new int[nodes.length];
+		blues = new int[nodes.length];
+		axes = new byte[nodes.length];
+		build(0, nodes.length);
+		for (int a = 0; a < nodes.length; a++) {
+			reds[a] = nodes[a].red;
+			greens[a] = nodes[a].green;
+			blues[a] = nodes[a].blue;
+		}
+	}
+
+	/**
+	 * Arrange the range [lo, hi) so its median (along the axis with the
+	 * widest spread) is in the middle.
+	 */
+	private void build(int lo, int hi) {
+		if (hi - lo <= 0)
+			return;
+		int minR = 255, maxR = 0, minG = 255, maxG = 0, minB = 255, maxB = 0;
+		for (int a = lo; a < hi; a++) {
+			minR = Math.min(minR, nodes[a].red);
+			maxR = Math.max(maxR, nodes[a].red);
+			minG = Math.min(minG, nodes[a].green);
+			maxG = Math.max(maxG, nodes[a].green);
+			minB = Math.min(minB, nodes[a].blue);
+			maxB = Math.max(maxB, nodes[a].blue);
+		}
+		int axis = AXIS_RED;
+		int spread = maxR - minR;
+		if (maxG - minG > spread) {
+			axis = AXIS_GREEN;
+			spread = maxG - minG;
+		}
+		if (maxB - minB > spread) {
+			axis = AXIS_BLUE;
+		}
+
+		Arrays.sort(nodes, lo, hi, COMPARATORS[axis]);
+		int mid = (lo + hi) >>> 1;
+		axes[mid] = (byte) axis;
+		build(lo, mid);
+		build(mid + 1, hi);
+	}
+
+	/** Return the number of colors in this tree. */
+	public int size() {
+		return nodes.length;
+	}
+
+	/**
+	 * Return the node at a position returned by
+	 * {@link #getNearest(int, int, int)}.
+	 */
+	public ColorNode getNode(int position) {
+		return nodes[position];
+	}
+
+	/**
+	 * Return the position of the color nearest to the argument, or -1 if this
+	 * tree is empty. Pass this position to {@link #getNode(int)} to retrieve
+	 * the color.
+	 * 
+	 * @param red
+	 *            the red component of a color (0-255).
+	 * @param green
+	 *            the green component of a color (0-255).
+	 * @param blue
+	 *            the blue component of a color (0-255).
+	 */
+	public int getNearest(int red, int green, int blue) {
+		if (nodes.length == 0)
+			return -1;
+		if (nodes.length <= LINEAR_SEARCH_LIMIT)
+			return searchLinear(red, green, blue);
+		long best = search(0, nodes.length, red, green, blue, Long.MAX_VALUE);
+		return (int) best;
+	}
+
+	private int searchLinear(int red, int green, int blue) {
+		int bestPosition = 0;
+		int bestError = Integer.MAX_VALUE;
+		for (int a = 0; a < nodes.length; a++) {
+			int dr = red - reds[a];
+			int dg = green - greens[a];
+			int db = blue - blues[a];
+			int errorSquared = dr * dr + dg * dg + db * db;
+			if (errorSquared < bestError) {
+				bestError = errorSquared;
+				bestPosition = a;
+			}
+		}
+		return bestPosition;
+	}
+
+	/**
+	 * Search the range [lo, hi) for a better match than <code>best</code>.
+	 * 
+	 * @param best
+	 *            the best match found so far, where the upper 32 bits are the
+	 *            squared error and the lower 32 bits are the position.
+	 * @return the best match, encoded the same way as <code>best</code>.
+	 */
+	private long search(int lo, int hi, int red, int green, int blue,
+			long best) {
+		if (hi - lo <= 0)
+			return best;
+		int mid = (lo + hi) >>> 1;
+		int dr = red - reds[mid];
+		int dg = green - greens[mid];
+		int db = blue - blues[mid];
+		long errorSquared = dr * dr + dg * dg + db * db;
+		if (errorSquared < (best >>> 32)) {
+			best = (errorSquared << 32) | mid;
+			if (errorSquared == 0)
+				return best;
+		}
+
+		int delta;
+		switch (axes[mid]) {
+		case AXIS_RED:
+			delta = dr;
+			break;
+		case AXIS_GREEN:
+			delta = dg;
+			break;
+		default:
+			delta = db;
+		}
+
+		if (delta < 0) {
+			best = search(lo, mid, red, green, blue, best);
+			if (((long) delta) * delta < (best >>> 32))
+				best = search(mid + 1, hi, red, green, blue, best);
+		} else {
+			best = search(mid + 1, hi, red, green, blue, best);
+			if (((long) delta) * delta < (best >>> 32))
+				best = search(lo, mid, red, green, blue, best);
+		}
+		return best;
+	}
+}
@@ -11,7 +11,8 @@
 package com.pump.image.pixel.quantize;
 
 import java.awt.image.IndexColorModel;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -23,6 +24,10 @@ import java.util.TreeSet;
  * subcubes. So instead of searching through all possible colors every time we
  * require a match: we hone in on the exact subcube and iterate outward a cycle
  * or two.
+ * <p>
+ * Nearest-color lookups (such as {@link #getIndexMatch(int, int, int)} and
+ * {@link #getNearestNode(int, int, int)}) use a {@link ColorKDTree}. They are
+ * exact, thread-safe without locking, and do not allocate memory.
  */
 public class ColorLUT {
 	public static class ColorNode implements Comparable<ColorNode> {
@@ -90,19 +95,6 @@ public class ColorLUT {
 			return minR << 16 + minG << 8 + minB;
 		}
 
-		public Match getMatch(Match bestMatch, int red, int green, int blue) {
-			for (ColorNode n : nodes) {
-				int dr = red - n.red;
-				int dg = green - n.green;
-				int db = blue - n.blue;
-				int errorSquared = dr * dr + dg * dg + db * db;
-				if (bestMatch == null || errorSquared < bestMatch.errorSquared) {
-					bestMatch = new Match(n, errorSquared);
-				}
-			}
-			return bestMatch;
-		}
-
 		public void getMatches(Set<Match> dest, int red, int green, int blue,
 				int maxErrorSquared, boolean includeExact) {
 			for (ColorNode n : nodes) {
@@ -118,13 +110,14 @@ public class ColorLUT {
 			}
 		}
 
-		public void add(int red, int green, int blue, int index) {
+		public ColorNode add(int red, int green, int blue, int index) {
 			ColorNode n = new ColorNode(red, green, blue, index);
 			ColorNode[] newArray = new ColorNode[nodes.length + 1];
 			System.arraycopy(nodes, 0, newArray, 0, nodes.length);
 			newArray[newArray.length - 1] = n;
 
 			nodes = newArray;
+			return n;
 		}
 	}
 
@@ -132,29 +125,34 @@ public class ColorLUT {
 	int span = 256 / divisions;
 	Cluster[][][] subcubes = new Cluster[divisions][divisions][divisions];
 	IndexColorModel indexColorModel;
+	final ColorKDTree tree;
 
 	/** Create a ColorLUT where every color has an index of -1. */
 	public ColorLUT(Integer[] rgb) {
+		List<ColorNode> nodes = new ArrayList<>(rgb.length);
 		for (int a = 0; a < rgb.length; a++) {
 			int r = (rgb[a] >> 16) & 0xff;
 			int g = (rgb[a] >> 8) & 0xff;
 			int b = (rgb[a]) & 0xff;
-			addRGB(r, g, b, -1);
+			nodes.add(addRGB(r, g, b, -1));
 		}
+		tree = new ColorKDTree(nodes.toArray(new ColorNode[nodes.size()]));
 	}
 
 	/** Create a ColorLUT from a <code>IndexColorModel</code>. */
 	public ColorLUT(IndexColorModel icm) {
 		this.indexColorModel = icm;
 
+		List<ColorNode> nodes = new ArrayList<>(icm.getMapSize());
 		for (int a = 0; a < icm.getMapSize(); a++) {
 			if (a != icm.getTransparentPixel()) {
 				int red = icm.getRed(a);
 				int green = icm.getGreen(a);
 				int blue = icm.getBlue(a);
-				addRGB(red, green, blue, a);
+				nodes.add(addRGB(red, green, blue, a));
 			}
 		}
+		tree = new ColorKDTree(nodes.toArray(new ColorNode[nodes.size()]));
 	}
 
 	/**
@@ -166,7 +164,7 @@ public class ColorLUT {
 		return indexColorModel;
 	}
 
-	private void addRGB(int red, int green, int blue, int index) {
+	private ColorNode addRGB(int red, int green, int blue, int index) {
 		int i1 = red / span;
 		int i2 = green / span;
 		int i3 = blue / span;
@@ -174,7 +172,7 @@ public class ColorLUT {
 			subcubes[i1][i2][i3] = new Cluster(i1 * span, i2 * span, i3 * span,
 					span - 1);
 		}
-		subcubes[i1][i2][i3].add(red, green, blue, index);
+		return subcubes[i1][i2][i3].add(red, green, blue, index);
 	}
 
 	/** A response to a query for approximate matches. */
@@ -199,12 +197,29 @@ public class ColorLUT {
 		}
 	}
 
+	/**
+	 * Return the index of the closest match to a color. This is the index in
+	 * the <code>IndexColorModel</code> this object was constructed with, or -1
+	 * if this was not constructed with an <code>IndexColorModel</code>.
+	 * <p>
+	 * This method is thread-safe and does not allocate memory.
+	 */
 	public int getIndexMatch(int red, int green, int blue) {
-		Match match = getMatch(red, green, blue);
-		return match.node.index;
+		return getNearestNode(red, green, blue).index;
 	}
 
-	private static Set<Match> scratchMatches = new TreeSet<Match>();
+	/**
+	 * Return the closest match to a color.
+	 * <p>
+	 * This method is thread-safe and does not allocate memory.
+	 */
+	public ColorNode getNearestNode(int red, int green, int blue) {
+		int position = tree.getNearest(red, green, blue);
+		if (position == -1)
+			throw new RuntimeException(
+					"unexpected condition: this ColorLUT is empty");
+		return tree.getNode(position);
+	}
 
 	public Match[] getSomeMatches(int red, int green, int blue,
 			int maxErrorSquared, boolean includeExact) {
@@ -212,76 +227,25 @@ public class ColorLUT {
 		int i2 = green / span;
 		int i3 = blue / span;
 
-		synchronized (scratchMatches) {
-			scratchMatches.clear();
-			if (subcubes[i1][i2][i3] != null) {
-				subcubes[i1][i2][i3].getMatches(scratchMatches, red, green,
-						blue, maxErrorSquared, includeExact);
-			}
-
-			return scratchMatches.toArray(new Match[scratchMatches.size()]);
-		}
-	}
-
-	private static Set<Cluster> outerRing = new HashSet<Cluster>();
-
-	public Match getMatch(int red, int green, int blue) {
-		int i1 = red / span;
-		int i2 = green / span;
-		int i3 = blue / span;
-		Match bestMatch = null;
-
+		Set<Match> matches = new TreeSet<Match>();
 		if (subcubes[i1][i2][i3] != null) {
-			bestMatch = subcubes[i1][i2][i3].getMatch(null, red, green, blue);
-		}
-
-		/*
-		 * As you can see: this starts with a cell and iterates outwards with a
-		 * cube. This might fail to identify the best match in fringe cases
-		 * (consider a square embedded inside a circle), but it should be
-		 * generally accurate.
-		 */
-
-		for (int d = 1; d <= divisions; d++) {
-			if (bestMatch != null && bestMatch.errorSquared == 0)
-				return bestMatch;
-			boolean lastSweep = bestMatch != null;
-			synchronized (outerRing) {
-				collectPlane(outerRing, i1, i2, i3 + d, -d, d, -d, d, 0, 0);
-				collectPlane(outerRing, i1, i2, i3 - d, -d, d, -d, d, 0, 0);
-				collectPlane(outerRing, i1, i2 + d, i3, -d, d, 0, 0, -d, d);
-				collectPlane(outerRing, i1, i2 - d, i3, -d, d, 0, 0, -d, d);
-				collectPlane(outerRing, i1 + d, i2, i3, 0, 0, -d, d, -d, d);
-				collectPlane(outerRing, i1 - d, i2, i3, 0, 0, -d, d, -d, d);
-
-				for (Cluster c : outerRing) {
-					bestMatch = c.getMatch(bestMatch, red, green, blue);
-				}
-				outerRing.clear();
-			}
-			if (lastSweep)
-				return bestMatch;
+			subcubes[i1][i2][i3].getMatches(matches, red, green, blue,
+					maxErrorSquared, includeExact);
 		}
-		if (bestMatch != null)
-			return bestMatch;
-
-		throw new RuntimeException("unexpected condition: regressed "
-				+ divisions + " times with no matches");
+		return matches.toArray(new Match[matches.size()]);
 	}
 
-	private void collectPlane(Set<Cluster> dest, int i1, int i2, int i3,
-			int i1a, int i1b, int i2a, int i2b, int i3a, int i3b) {
-		for (int i = i1 + i1a; i <= i1 + i1b; i++) {
-			for (int j = i2 + i2a; j <= i2 + i2b; j++) {
-				for (int k = i3 + i3a; k <= i3 + i3b; k++) {
-					if (i >= 0 && i < divisions && j >= 0 && j < divisions
-							&& k >= 0 && k < divisions) {
-						Cluster c = subcubes[i][j][k];
-						if (c != null)
-							dest.add(c);
-					}
-				}
-			}
-		}
+	/**
+	 * Return the closest match to a color.
+	 * <p>
+	 * This allocates a new <code>Match</code>. If you only need the matching
+	 * color, {@link #getNearestNode(int, int, int)} is faster.
+	 */
+	public Match getMatch(int red, int green, int blue) {
+		ColorNode node = getNearestNode(red, green, blue);
+		int dr = red - node.red;
+		int dg = green - node.green;
+		int db = blue - node.blue;
+		return new Match(node, dr * dr + dg * dg + db * db);
 	}
-}
\ No newline at end of file
+}
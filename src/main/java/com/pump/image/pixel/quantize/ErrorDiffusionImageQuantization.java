@@ -16,7 +16,7 @@ import java.util.Arrays;
 import com.pump.image.pixel.BufferedImageIterator;
 import com.pump.image.pixel.IndexedBytePixelIterator;
 import com.pump.image.pixel.IntARGBConverter;
-import com.pump.image.pixel.quantize.ColorLUT.Match;
+import com.pump.image.pixel.quantize.ColorLUT.ColorNode;
 
 /**
  * This applies <a href="http://en.wikipedia.org/wiki/Error_diffusion">error
@@ -59,7 +59,7 @@ public class ErrorDiffusionImageQuantization extends ImageQuantization {
 					int g = (incomingRow[x] >> 8) & 0xff;
 					int b = (incomingRow[x] >> 0) & 0xff;
 
-					Match match;
+					ColorNode match;
 
 					r = Math.min(Math.max(r + diffusionR[0][x] / kernelSum, 0),
 							255);
@@ -68,11 +68,11 @@ public class ErrorDiffusionImageQuantization extends ImageQuantization {
 					b = Math.min(Math.max(b + diffusionB[0][x] / kernelSum, 0),
 							255);
 
-					match = lut.getMatch(r, g, b);
+					match = lut.getNearestNode(r, g, b);
 
-					int dr = r - match.node.red;
-					int dg = g - match.node.green;
-					int db = b - match.node.blue;
+					int dr = r - match.red;
+					int dg = g - match.green;
+					int db = b - match.blue;
 					for (int ky = 0; ky < kernel.length; ky++) {
 						for (int kx = 0; kx < kernel[ky].length; kx++) {
 							if (x + kx - z >= 0 && x + kx - z < iter.getWidth()) {
@@ -86,7 +86,7 @@ public class ErrorDiffusionImageQuantization extends ImageQuantization {
 						}
 					}
 
-					dest[x] = (byte) (match.node.index);
+					dest[x] = (byte) (match.index);
 				}
 
 				iterateDiffusionData(diffusionR);
@@ -103,7 +103,7 @@ public class ErrorDiffusionImageQuantization extends ImageQuantization {
 						int g = (incomingRow[x] >> 8) & 0xff;
 						int b = (incomingRow[x] >> 0) & 0xff;
 
-						Match match;
+						ColorNode match;
 
 						r = Math.min(
 								Math.max(r + diffusionR[0][x] / kernelSum, 0),
@@ -115,11 +115,11 @@ public class ErrorDiffusionImageQuantization extends ImageQuantization {
 								Math.max(b + diffusionB[0][x] / kernelSum, 0),
 								255);
 
-						match = lut.getMatch(r, g, b);
+						match = lut.getNearestNode(r, g, b);
 
-						int dr = r - match.node.red;
-						int dg = g - match.node.green;
-						int db = b - match.node.blue;
+						int dr = r - match.red;
+						int dg = g - match.green;
+						int db = b - match.blue;
 						for (int ky = 0; ky < kernel.length; ky++) {
 							for (int kx = 0; kx < kernel[ky].length; kx++) {
 								if (x + kx - z >= 0
@@ -133,7 +133,7 @@ public class ErrorDiffusionImageQuantization extends ImageQuantization {
 								}
 							}
 						}
-						dest[x] = (byte) (match.node.index);
+						dest[x] = (byte) (match.index);
 					}
 				}
 
@@ -0,0 +1,512 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.transition;
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import com.pump.animation.AnimationReader;
+import com.pump.animation.quicktime.MovWriter;
+import com.pump.image.pixel.Scaling;
+import com.pump.util.ConcurrentCache;
+import com.pump.util.SharedForkJoinPool;
+
+/**
+ * This renders the frames of a {@link Transition} between two images at a
+ * fixed size, and caches them.
+ * <p>
+ * Frames can be rendered in advance on an <code>ExecutorService</code> (see
+ * {@link #prerender(int)}), read in order as an {@link AnimationReader} (see
+ * {@link #createAnimationReader(int, float)}), or added to a {@link MovWriter}
+ * (see {@link #write(MovWriter, int, float)}). The reader and writer render a
+ * few frames ahead of the frame being consumed.
+ * <p>
+ * Rendered frames are kept until they exceed a maximum number of bytes, and
+ * then the least-recently-used frames are discarded. If the transition is a
+ * {@link Transition2D}, its instructions are cached separately, so a discarded
+ * frame can be rasterized again without recomputing them.
+ * <p>
+ * Frames returned by this object are shared, so callers should not modify
+ * them. The transition may be painted on several threads at once, so it
+ * should not modify its own state while painting. (The transitions in this
+ * package compute each frame from its progress alone.)
+ */
+public class TransitionRenderer {
+
+	/**
+	 * The default maximum number of bytes of rendered frames to keep.
+	 */
+	public static final long DEFAULT_MAX_CACHE_BYTES = 64 * 1024 * 1024;
+
+	/**
+	 * The maximum number of instruction arrays to keep.
+	 */
+	private static final int MAX_CACHED_INSTRUCTIONS = 1000;
+
+	/**
+	 * Return the progress of a frame, where the first frame is 0 and the last
+	 * frame is 1.
+	 * 
+	 * @param frameIndex
+	 *            the index of the frame, from [0, frameCount).
+	 * @param frameCount
+	 *            the number of frames. If this is 1 then the only frame is
+	 *            the final frame.
+	 */
+	public static float getProgress(int frameIndex, int frameCount) {
+		if (frameIndex < 0 || frameIndex >= frameCount)
+			throw new IllegalArgumentException("frameIndex (" + frameIndex
+					+ ") must be between [0, " + frameCount + ")");
+		if (frameCount == 1)
+			return 1;
+		return ((float) frameIndex) / (frameCount - 1);
+	}
+
+	/**
+	 * Render one frame and store it in the cache.
+	 */
+	class RenderFrameTask implements Callable<BufferedImage> {
+		final float progress;
+
+		RenderFrameTask(float progress) {
+			this.progress = progress;
+		}
+
+		public BufferedImage call() {
+			try {
+				return renderAndCache(progress);
+			} finally {
+				pendingFrames.remove(progress);
+			}
+		}
+	}
+
+	class TransitionAnimationReader implements AnimationReader {
+		final int frameCount;
+		final float frameDuration;
+		final LinkedList<Future<BufferedImage>> pending = new LinkedList<>();
+		int nextFrame = 0;
+		int submittedFrames = 0;
+
+		TransitionAnimationReader(int frameCount, float frameDuration) {
+			if (frameCount < 1)
+				throw new IllegalArgumentException("frameCount (" + frameCount
+						+ ") must be at least 1");
+			if (frameDuration < 0)
+				throw new IllegalArgumentException("frameDuration ("
+						+ frameDuration + ") must not be negative");
+			this.frameCount = frameCount;
+			this.frameDuration = frameDuration;
+		}
+
+		@Override
+		public synchronized BufferedImage getNextFrame(boolean cloneImage)
+				throws IOException {
+			if (nextFrame == frameCount)
+				return null;
+			while (submittedFrames < frameCount
+					&& pending.size() < maxFramesInFlight) {
+				pending.add(submit(getProgress(submittedFrames++, frameCount)));
+			}
+			Future<BufferedImage> future = pending.removeFirst();
+			nextFrame++;
+			BufferedImage frame;
+			try {
+				frame = future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				InterruptedIOException e2 = new InterruptedIOException();
+				e2.initCause(e);
+				throw e2;
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				if (cause instanceof Error)
+					throw (Error) cause;
+				throw new IOException(cause);
+			}
+			if (cloneImage) {
+				BufferedImage copy = createImage();
+				Graphics2D g = copy.createGraphics();
+				g.drawImage(frame, 0, 0, null);
+				g.dispose();
+				return copy;
+			}
+			return frame;
+		}
+
+		@Override
+		public double getDuration() {
+			return frameCount * frameDuration;
+		}
+
+		@Override
+		public int getFrameCount() {
+			return frameCount;
+		}
+
+		@Override
+		public int getLoopCount() {
+			return 1;
+		}
+
+		@Override
+		public double getFrameDuration() {
+			return frameDuration;
+		}
+
+		@Override
+		public int getWidth() {
+			return size.width;
+		}
+
+		@Override
+		public int getHeight() {
+			return size.height;
+		}
+	}
+
+	protected final Transition transition;
+	protected final BufferedImage frameA, frameB;
+	protected final Dimension size;
+	protected final ExecutorService executor;
+	protected final int maxFramesInFlight;
+	protected final long maxCacheBytes;
+
+	/**
+	 * Rendered frames in least-recently-used order. Access to this map is
+	 * synchronized against itself.
+	 */
+	private final LinkedHashMap<Float, BufferedImage> frames = new LinkedHashMap<>(
+			16, .75f, true);
+	private long cachedBytes = 0;
+
+	/**
+	 * Frames that have been submitted to the executor but not yet rendered.
+	 */
+	private final ConcurrentMap<Float, FutureTask<BufferedImage>> pendingFrames = new ConcurrentHashMap<>();
+
+	private final ConcurrentCache<Float, Transition2DInstruction[]> instructions = new ConcurrentCache<>(
+			MAX_CACHED_INSTRUCTIONS);
+
+	/**
+	 * Create a TransitionRenderer that uses a shared
+	 * <code>ForkJoinPool</code>,
+	 * {@link SharedForkJoinPool#getDefaultMaxTasksInFlight()} and
+	 * {@link #DEFAULT_MAX_CACHE_BYTES}.
+	 * 
+	 * @param transition
+	 *            the transition to render.
+	 * @param frameA
+	 *            the first frame.
+	 * @param frameB
+	 *            the second frame. This must be the same size as
+	 *            <code>frameA</code>.
+	 */
+	public TransitionRenderer(Transition transition, BufferedImage frameA,
+			BufferedImage frameB) {
+		this(transition, frameA, frameB, null, SharedForkJoinPool.get(),
+				SharedForkJoinPool.getDefaultMaxTasksInFlight(),
+				DEFAULT_MAX_CACHE_BYTES);
+	}
+
+	/**
+	 * Create a TransitionRenderer.
+	 * 
+	 * @param transition
+	 *            the transition to render.
+	 * @param frameA
+	 *            the first frame.
+	 * @param frameB
+	 *            the second frame. This must be the same size as
+	 *            <code>frameA</code>.
+	 * @param size
+	 *            the size of the rendered frames, or null to use the size of
+	 *            <code>frameA</code>. If this is a different size then both
+	 *            frames are scaled to this size.
+	 * @param executor
+	 *            the executor to render frames with.
+	 * @param maxFramesInFlight
+	 *            the number of frames a reader or writer may render ahead of
+	 *            the frame being consumed. This must be at least 1.
+	 * @param maxCacheBytes
+	 *            the maximum number of bytes of rendered frames to keep. Each
+	 *            frame uses 4 bytes per pixel.
+	 */
+	public TransitionRenderer(Transition transition, BufferedImage frameA,
+			BufferedImage frameB, Dimension size, ExecutorService executor,
+			int maxFramesInFlight, long maxCacheBytes) {
+		if (transition == null || frameA == null || frameB == null
+				|| executor == null)
+			throw new NullPointerException();
+		if (!(frameA.getWidth() == frameB.getWidth() && frameA.getHeight() == frameB
+				.getHeight()))
+			throw new IllegalArgumentException(
+					"the two images must be the same dimensions ("
+							+ frameA.getWidth() + "x" + frameA.getHeight()
+							+ " != " + frameB.getWidth() + "x"
+							+ frameB.getHeight());
+		if (maxFramesInFlight < 1)
+			throw new IllegalArgumentException("maxFramesInFlight ("
+					+ maxFramesInFlight + ") must be at least 1");
+		if (size == null) {
+			size = new Dimension(frameA.getWidth(), frameA.getHeight());
+		} else if (size.width != frameA.getWidth()
+				|| size.height != frameA.getHeight()) {
+			frameA = Scaling.scale(frameA, size);
+			frameB = Scaling.scale(frameB, size);
+		}
+		this.transition = transition;
+		this.frameA = frameA;
+		this.frameB = frameB;
+		this.size = new Dimension(size);
+		this.executor = executor;
+		this.maxFramesInFlight = maxFramesInFlight;
+		this.maxCacheBytes = maxCacheBytes;
+	}
+
+	/**
+	 * Return the size of the rendered frames.
+	 */
+	public Dimension getSize() {
+		return new Dimension(size);
+	}
+
+	/**
+	 * Return the number of bytes of rendered frames this renderer is keeping.
+	 */
+	public long getCachedByteCount() {
+		synchronized (frames) {
+			return cachedBytes;
+		}
+	}
+
+	/**
+	 * Return the instructions a {@link Transition2D} uses to render a frame,
+	 * or null if the transition is not a <code>Transition2D</code>.
+	 * 
+	 * @param progress
+	 *            a value from [0,1] indicating how progressed the transition
+	 *            is.
+	 */
+	public Transition2DInstruction[] getInstructions(float progress) {
+		if (!(transition instanceof Transition2D))
+			return null;
+		Transition2DInstruction[] i = instructions.get(progress);
+		if (i == null) {
+			i = ((Transition2D) transition).getInstructions(progress,
+					new Dimension(size));
+			instructions.put(progress, i);
+		}
+		return i;
+	}
+
+	/**
+	 * Return a rendered frame of the transition. If this frame is not cached
+	 * then it is rendered on this thread (or, if it has already been
+	 * submitted to the executor, this waits for it).
+	 * <p>
+	 * If this thread is interrupted while it waits, its interrupt flag is
+	 * restored and a RuntimeException is thrown.
+	 * 
+	 * @param progress
+	 *            a value from [0,1] indicating how progressed the transition
+	 *            is.
+	 */
+	public BufferedImage getFrame(float progress) {
+		if (progress < 0 || progress > 1)
+			throw new IllegalArgumentException("progress (" + progress
+					+ ") should be between [0,1]");
+		synchronized (frames) {
+			BufferedImage frame = frames.get(progress);
+			if (frame != null)
+				return frame;
+		}
+
+		FutureTask<BufferedImage> pending = pendingFrames.get(progress);
+		if (pending != null) {
+			// the executor may not have started this task yet, so try to run
+			// it here. (If it is already running this does nothing.)
+			pending.run();
+			try {
+				return pending.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				if (cause instanceof Error)
+					throw (Error) cause;
+				throw new RuntimeException(cause);
+			}
+		}
+		return renderAndCache(progress);
+	}
+
+	/**
+	 * Render a frame and store it in the frame cache, discarding the
+	 * least-recently-used frames if necessary.
+	 */
+	private BufferedImage renderAndCache(float progress) {
+		BufferedImage frame = render(progress);
+		synchronized (frames) {
+			BufferedImage existingFrame = frames.get(progress);
+			if (existingFrame != null)
+				return existingFrame;
+			long frameBytes = getByteCount(frame);
+			if (frameBytes <= maxCacheBytes) {
+				frames.put(progress, frame);
+				cachedBytes += frameBytes;
+				Iterator<BufferedImage> iter = frames.values().iterator();
+				while (cachedBytes > maxCacheBytes) {
+					BufferedImage oldestFrame = iter.next();
+					iter.remove();
+					cachedBytes -= getByteCount(oldestFrame);
+				}
+			}
+		}
+		return frame;
+	}
+
+	/**
+	 * Render the frames of this transition on the executor. This returns
+	 * immediately.
+	 * <p>
+	 * If all the frames do not fit in the cache, then the earliest frames may
+	 * be discarded before they are used.
+	 * 
+	 * @param frameCount
+	 *            the number of frames to render. Their progress is determined
+	 *            by {@link #getProgress(int, int)}.
+	 */
+	public void prerender(int frameCount) {
+		for (int a = 0; a < frameCount; a++) {
+			submit(getProgress(a, frameCount));
+		}
+	}
+
+	/**
+	 * Create an AnimationReader that reads the frames of this transition in
+	 * order.
+	 * 
+	 * @param frameCount
+	 *            the number of frames to read. Their progress is determined
+	 *            by {@link #getProgress(int, int)}.
+	 * @param frameDuration
+	 *            the duration (in seconds) of each frame.
+	 */
+	public AnimationReader createAnimationReader(int frameCount,
+			float frameDuration) {
+		return new TransitionAnimationReader(frameCount, frameDuration);
+	}
+
+	/**
+	 * Add the frames of this transition to a MovWriter.
+	 * 
+	 * @param writer
+	 *            the writer to add frames to.
+	 * @param frameCount
+	 *            the number of frames to add. Their progress is determined by
+	 *            {@link #getProgress(int, int)}.
+	 * @param frameDuration
+	 *            the duration (in seconds) of each frame.
+	 * @throws IOException
+	 */
+	public void write(MovWriter writer, int frameCount, float frameDuration)
+			throws IOException {
+		AnimationReader reader = createAnimationReader(frameCount,
+				frameDuration);
+		BufferedImage frame = reader.getNextFrame(false);
+		while (frame != null) {
+			writer.addFrame(frameDuration, frame, null);
+			frame = reader.getNextFrame(false);
+		}
+	}
+
+	/**
+	 * Return a future for a rendered frame, submitting it to the executor if
+	 * necessary.
+	 */
+	private Future<BufferedImage> submit(float progress) {
+		synchronized (frames) {
+			BufferedImage frame = frames.get(progress);
+			if (frame != null)
+				return new CompletedFuture(frame);
+		}
+		FutureTask<BufferedImage> future = pendingFrames.get(progress);
+		if (future == null) {
+			FutureTask<BufferedImage> task = new FutureTask<>(
+					new RenderFrameTask(progress));
+			future = pendingFrames.putIfAbsent(progress, task);
+			if (future == null) {
+				future = task;
+				executor.execute(task);
+			}
+		}
+		return future;
+	}
+
+	/**
+	 * Render a frame without consulting the frame cache.
+	 */
+	protected BufferedImage render(float progress) {
+		BufferedImage frame = createImage();
+		Graphics2D g = frame.createGraphics();
+		Transition2DInstruction[] i = getInstructions(progress);
+		if (i != null) {
+			for (int a = 0; a < i.length; a++) {
+				i[a].paint(g, frameA, frameB);
+			}
+		} else {
+			transition.paint(g, frameA, frameB, progress);
+		}
+		g.dispose();
+		return frame;
+	}
+
+	private BufferedImage createImage() {
+		return new BufferedImage(size.width, size.height,
+				BufferedImage.TYPE_INT_RGB);
+	}
+
+	private static long getByteCount(BufferedImage bi) {
+		return 4L * bi.getWidth() * bi.getHeight();
+	}
+
+	/**
+	 * A Future for a frame that is already rendered.
+	 */
+	private static class CompletedFuture extends FutureTask<BufferedImage> {
+		CompletedFuture(BufferedImage frame) {
+			super(new Runnable() {
+				public void run() {
+				}
+			}, frame);
+			run();
+		}
+	}
+}
@@ -10,24 +10,71 @@
  */
 package com.pump.io;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import com.pump.util.Receiver;
 
 /**
  * This is simple parser for CSV files.
- * 
- * TODO: write unit tests
+ * <p>
+ * There are two ways to receive parsed rows:
+ * <ul>
+ * <li>A {@link Receiver} is given a new <code>List</code> of Strings for every
+ * row. This is the most convenient approach.</li>
+ * <li>A {@link RowHandler} is given the same {@link Row} object for every row.
+ * The Row only records where each cell is in the parser's buffer; Strings are
+ * only created when {@link Row#getString(int)} is called. This is the fastest
+ * approach for large files.</li>
+ * </ul>
+ * <p>
+ * Input is read in chunks of {@link #BUFFER_SIZE} chars. If you only need some
+ * of the columns, call {@link #setColumns(int...)} so the other cells are
+ * skipped. Large files can be parsed on several threads with
+ * {@link #parseRows(File, Charset, ExecutorService, RowHandler)}.
+ * <p>
+ * Blank lines are skipped.
  */
 public class CsvParser {
 
+	/**
+	 * The number of chars read from a Reader at a time.
+	 */
+	static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * The approximate number of bytes each thread parses in
+	 * {@link #parseRows(File, Charset, ExecutorService, RowHandler)}.
+	 */
+	static final int PARALLEL_CHUNK_SIZE = 1 << 23;
+
+	/**
+	 * The maximum number of bytes in one chunk in
+	 * {@link #parseRows(File, Charset, ExecutorService, RowHandler)}. This is
+	 * the largest region of a file that can be mapped at once.
+	 */
+	static final int MAX_CHUNK_SIZE = Integer.MAX_VALUE;
+
 	public static class ParseException extends IOException {
 		private static final long serialVersionUID = 1L;
 
@@ -56,8 +103,338 @@ public class CsvParser {
 		}
 	}
 
+	/**
+	 * This is notified as each row is parsed.
+	 */
+	public static interface RowHandler {
+		/**
+		 * Process a row.
+		 * 
+		 * @param row
+		 *            the row that was just parsed. This object (and the
+		 *            buffer it refers to) is reused for the next row, so
+		 *            handlers must not retain it.
+		 */
+		public void handleRow(Row row) throws IOException;
+	}
+
+	/**
+	 * A reusable view of one row of a CSV file.
+	 * <p>
+	 * This refers to the parser's buffer, so it is only valid while
+	 * {@link RowHandler#handleRow(Row)} is executing.
+	 */
+	public static class Row {
+		char[] buffer;
+		int rowNumber, cellCount;
+		boolean[] selectedColumns;
+		int[] starts = new int[16];
+		int[] ends = new int[16];
+		boolean[] escaped = new boolean[16];
+		char textQualifier;
+
+		Row(boolean[] selectedColumns, char textQualifier) {
+			this.selectedColumns = selectedColumns;
+			this.textQualifier = textQualifier;
+		}
+
+		void reset(char[] buffer) {
+			this.buffer = buffer;
+			cellCount = 0;
+		}
+
+		void addCell(int start, int end, boolean isEscaped) {
+			if (cellCount == starts.length) {
+				starts = Arrays.copyOf(starts, starts.length * 2);
+				ends = Arrays.copyOf(ends, ends.length * 2);
+				escaped = Arrays.copyOf(escaped, escaped.length * 2);
+			}
+			if (isSelected(cellCount)) {
+				starts[cellCount] = start;
+				ends[cellCount] = end;
+				escaped[cellCount] = isEscaped;
+			} else {
+				starts[cellCount] = -1;
+			}
+			cellCount++;
+		}
+
+		/**
+		 * Return the number of this row, starting at 1. Blank lines are not
+		 * counted.
+		 */
+		public int getRowNumber() {
+			return rowNumber;
+		}
+
+		/**
+		 * Return the number of cells in this row, including cells that are
+		 * skipped because their columns are not selected.
+		 */
+		public int getCellCount() {
+			return cellCount;
+		}
+
+		/**
+		 * Return true if a column is selected. If this returns false then
+		 * {@link #getString(int)} returns null for that column.
+		 * 
+		 * @see CsvParser#setColumns(int...)
+		 */
+		public boolean isSelected(int column) {
+			return selectedColumns == null
+					|| (column < selectedColumns.length && selectedColumns[column]);
+		}
+
+		/**
+		 * Return the number of chars in a cell, or -1 if the column is not
+		 * selected.
+		 */
+		public int getLength(int column) {
+			if (!prepareCell(column))
+				return -1;
+			return ends[column] - starts[column];
+		}
+
+		/**
+		 * Return a char in a cell.
+		 */
+		public char charAt(int column, int index) {
+			if (!prepareCell(column))
+				throw new IllegalArgumentException("column " + column
+						+ " is not selected");
+			if (index < 0 || index >= ends[column] - starts[column])
+				throw new IndexOutOfBoundsException("index = " + index);
+			return buffer[starts[column] + index];
+		}
+
+		/**
+		 * Return true if a cell contains exactly the same chars as the
+		 * argument. This does not create a String.
+		 */
+		public boolean contentEquals(int column, CharSequence text) {
+			if (!prepareCell(column))
+				return false;
+			int start = starts[column];
+			int length = ends[column] - start;
+			if (text.length() != length)
+				return false;
+			for (int a = 0; a < length; a++) {
+				if (buffer[start + a] != text.charAt(a))
+					return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Return a cell as a String, or null if the column is not selected.
+		 */
+		public String getString(int column) {
+			if (!prepareCell(column))
+				return null;
+			return new String(buffer, starts[column], ends[column]
+					- starts[column]);
+		}
+
+		/**
+		 * Return false if a column is not selected. Otherwise this replaces
+		 * any escaped text qualifiers in the cell (which requires modifying
+		 * the buffer) and returns true.
+		 */
+		private boolean prepareCell(int column) {
+			if (column < 0 || column >= cellCount)
+				throw new IndexOutOfBoundsException("column = " + column
+						+ ", cell count = " + cellCount);
+			if (starts[column] == -1)
+				return false;
+			if (escaped[column]) {
+				int dst = starts[column];
+				for (int src = starts[column]; src < ends[column]; src++) {
+					buffer[dst++] = buffer[src];
+					if (buffer[src] == textQualifier)
+						src++;
+				}
+				ends[column] = dst;
+				escaped[column] = false;
+			}
+			return true;
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder("Row[ rowNumber="
+					+ rowNumber + ", cells=");
+			for (int a = 0; a < cellCount; a++) {
+				if (a > 0)
+					sb.append(", ");
+				sb.append(getString(a));
+			}
+			sb.append(" ]");
+			return sb.toString();
+		}
+	}
+
+	/**
+	 * This splits a char array into rows.
+	 */
+	class Tokenizer {
+		final Row row = new Row(selectedColumns, textQualifier);
+		char[] buffer;
+		int rowStart, limit, rowNumber;
+		boolean eof;
+
+		Tokenizer(char[] buffer, int limit, boolean eof, int rowNumber) {
+			this.buffer = buffer;
+			this.limit = limit;
+			this.eof = eof;
+			this.rowNumber = rowNumber;
+		}
+
+		/**
+		 * Read more data into the buffer. The current row is moved to the
+		 * beginning of the buffer, and if it already fills the entire buffer
+		 * then the buffer is enlarged.
+		 */
+		void fill(Reader reader) throws IOException {
+			if (rowStart > 0) {
+				System.arraycopy(buffer, rowStart, buffer, 0, limit - rowStart);
+				limit -= rowStart;
+				rowStart = 0;
+			} else if (limit == buffer.length) {
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			}
+			int k = reader.read(buffer, limit, buffer.length - limit);
+			if (k == -1) {
+				eof = true;
+			} else {
+				limit += k;
+			}
+		}
+
+		/**
+		 * Pass every row in the buffer to a RowHandler.
+		 * 
+		 * @param reader
+		 *            the optional Reader used to refill the buffer.
+		 */
+		void parse(Reader reader, RowHandler handler) throws IOException {
+			while (true) {
+				// skip blank lines:
+				while (rowStart < limit
+						&& (buffer[rowStart] == '\n' || buffer[rowStart] == '\r')) {
+					rowStart++;
+				}
+				if (rowStart == limit) {
+					if (eof)
+						return;
+					fill(reader);
+					continue;
+				}
+
+				int rowEnd = scanRow();
+				if (rowEnd == -1) {
+					fill(reader);
+				} else {
+					row.rowNumber = ++rowNumber;
+					handler.handleRow(row);
+					rowStart = rowEnd;
+				}
+			}
+		}
+
+		/**
+		 * Identify the cells of the row that begins at {@link #rowStart}.
+		 * 
+		 * @return the index after the last char of the row, or -1 if more
+		 *         data needs to be read first.
+		 */
+		int scanRow() throws ParseException {
+			row.reset(buffer);
+			int p = rowStart;
+			while (true) {
+				if (p == limit) {
+					// the last cell is empty
+					if (!eof)
+						return -1;
+					row.addCell(p, p, false);
+					return p;
+				}
+				if (buffer[p] == textQualifier) {
+					int cellStart = p + 1;
+					boolean isEscaped = false;
+					p = cellStart;
+					while (true) {
+						if (p == limit) {
+							if (!eof)
+								return -1;
+							break;
+						} else if (buffer[p] == textQualifier) {
+							if (p + 1 == limit && !eof)
+								return -1;
+							if (p + 1 < limit && buffer[p + 1] == textQualifier) {
+								isEscaped = true;
+								p += 2;
+							} else {
+								break;
+							}
+						} else {
+							p++;
+						}
+					}
+					row.addCell(cellStart, p, isEscaped);
+					if (p < limit)
+						p++;
+
+					while (p < limit && (buffer[p] == ' ' || buffer[p] == '\t')) {
+						p++;
+					}
+					if (p == limit) {
+						if (!eof)
+							return -1;
+						return p;
+					}
+					char ch = buffer[p];
+					if (ch == delimiter) {
+						p++;
+					} else if (ch == '\n' || ch == '\r') {
+						return p;
+					} else {
+						int pos = p - rowStart + 1;
+						throw new ParseException(
+								"Unexpected character after a wrapped cell value. Line "
+										+ (rowNumber + 1) + ", pos=" + pos,
+								pos, rowNumber + 1);
+					}
+				} else {
+					int cellStart = p;
+					char ch;
+					while (p < limit && (ch = buffer[p]) != delimiter
+							&& ch != '\n' && ch != '\r') {
+						p++;
+					}
+					if (p == limit && !eof)
+						return -1;
+					row.addCell(cellStart, p, false);
+					if (p == limit || buffer[p] != delimiter)
+						return p;
+					p++;
+				}
+			}
+		}
+	}
+
 	protected char delimiter = ',';
 	protected char textQualifier = '\"';
+	protected boolean[] selectedColumns = null;
+
+	/**
+	 * The {@link #BUFFER_SIZE}, {@link #PARALLEL_CHUNK_SIZE} and
+	 * {@link #MAX_CHUNK_SIZE} this parser uses. Tests lower these to exercise
+	 * rows that span several buffers or chunks.
+	 */
+	int bufferSize = BUFFER_SIZE;
+	int parallelChunkSize = PARALLEL_CHUNK_SIZE;
+	int maxChunkSize = MAX_CHUNK_SIZE;
 
 	/**
 	 * Create a CsvParser that uses a comma as the delimited and a double
@@ -81,6 +458,32 @@ public class CsvParser {
 		this.textQualifier = textQualifier;
 	}
 
+	/**
+	 * Select the columns this parser returns. The cells in other columns are
+	 * skipped: {@link Row#getString(int)} returns null for them, and the Lists
+	 * passed to a {@link Receiver} only contain the selected columns.
+	 * 
+	 * @param columns
+	 *            the indices of the columns to return (starting at zero), or
+	 *            null to return all columns.
+	 */
+	public void setColumns(int... columns) {
+		if (columns == null) {
+			selectedColumns = null;
+			return;
+		}
+		int max = -1;
+		for (int column : columns) {
+			if (column < 0)
+				throw new IllegalArgumentException("column = " + column);
+			max = Math.max(max, column);
+		}
+		selectedColumns = new boolean[max + 1];
+		for (int column : columns) {
+			selectedColumns[column] = true;
+		}
+	}
+
 	/**
 	 * Parse an InputStream.
 	 * 
@@ -104,100 +507,259 @@ public class CsvParser {
 	 * @param receiver
 	 *            the Receiver that will be notified as new lines as parsed.
 	 */
-	public void parse(Reader reader, Receiver<List<String>> receiver)
+	public void parse(Reader reader, final Receiver<List<String>> receiver)
 			throws IOException {
-		class MeasuredReader {
-			Reader reader;
-			int pos, lineNumber;
-
-			MeasuredReader(Reader r, int lineNumber) {
-				reader = r;
-				this.lineNumber = lineNumber;
+		parseRows(reader, new RowHandler() {
+			@SuppressWarnings({ "unchecked", "rawtypes" })
+			@Override
+			public void handleRow(Row row) {
+				List<String> list = new ArrayList<>(row.getCellCount());
+				for (int a = 0; a < row.getCellCount(); a++) {
+					if (row.isSelected(a))
+						list.add(row.getString(a));
+				}
+				receiver.add(new List[] { list });
 			}
+		});
+	}
+
+	/**
+	 * Parse an InputStream.
+	 * 
+	 * @param in
+	 *            the stream to parse.
+	 * @param charset
+	 *            the character set to apply to the InputStream.
+	 * @param handler
+	 *            the RowHandler that will be notified as rows are parsed.
+	 */
+	public void parseRows(InputStream in, Charset charset, RowHandler handler)
+			throws IOException {
+		parseRows(new InputStreamReader(in, charset), handler);
+	}
 
-			public int read() throws IOException {
-				int returnValue = reader.read();
-				pos++;
-				return returnValue;
+	/**
+	 * Parse a Reader.
+	 * 
+	 * @param reader
+	 *            the reader to parse.
+	 * @param handler
+	 *            the RowHandler that will be notified as rows are parsed.
+	 */
+	public void parseRows(Reader reader, RowHandler handler)
+			throws IOException {
+		Tokenizer tokenizer = new Tokenizer(new char[bufferSize], 0, false, 0);
+		tokenizer.parse(reader, handler);
+	}
+
+	/**
+	 * Parse a file on several threads.
+	 * <p>
+	 * The file is divided into chunks of roughly {@link #PARALLEL_CHUNK_SIZE}
+	 * bytes. First the file is scanned once (without decoding it) to find row
+	 * boundaries that are not inside a text-qualified cell, and then each
+	 * chunk is memory-mapped, decoded and parsed by the ExecutorService. A
+	 * chunk can't be larger than 2 GB, so a single row that is larger than
+	 * that causes an IOException.
+	 * <p>
+	 * The RowHandler is called from several threads at once, and rows are not
+	 * passed to it in order. {@link Row#getRowNumber()} still identifies the
+	 * position of each row in the file.
+	 * <p>
+	 * Chunks can only be identified without decoding the file when the
+	 * charset is ASCII-compatible (UTF-8, US-ASCII or ISO-8859-1) and the
+	 * delimiter and text qualifier are ASCII characters. Otherwise this parses
+	 * the file on the current thread.
+	 * 
+	 * @param file
+	 *            the file to parse.
+	 * @param charset
+	 *            the character set of the file.
+	 * @param executor
+	 *            the ExecutorService used to parse chunks of the file.
+	 * @param handler
+	 *            the RowHandler that will be notified as rows are parsed.
+	 *            This must be thread-safe.
+	 */
+	public void parseRows(File file, final Charset charset,
+			ExecutorService executor, final RowHandler handler)
+			throws IOException {
+		if (!isAsciiCompatible(charset) || delimiter >= 0x80
+				|| textQualifier >= 0x80) {
+			try (InputStream in = new FileInputStream(file)) {
+				parseRows(in, charset, handler);
 			}
+			return;
 		}
 
-		List<String> currentRow = new LinkedList<>();
-		MeasuredReader lineReader = new MeasuredReader(reader, 1);
-		int t = lineReader.read();
-		while (t != -1) {
-			if (t == textQualifier) {
-				// read a text-qualifier-enclosed cell:
-				StringBuilder sb = new StringBuilder();
-				t = lineReader.read();
-				readCell: while (t != -1) {
-					if (t == textQualifier) {
-						t = lineReader.read();
-						if (t == textQualifier) {
-							sb.append(textQualifier);
-						} else {
-							break readCell;
+		try (FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ)) {
+			final List<long[]> chunks = getChunks(channel);
+			List<Future<?>> futures = new ArrayList<>(chunks.size());
+			try {
+				for (final long[] chunk : chunks) {
+					futures.add(executor.submit(new Callable<Void>() {
+						@Override
+						public Void call() throws Exception {
+							// map each chunk when it is parsed, so idle tasks
+							// don't hold mappings
+							ByteBuffer bytes = channel.map(MapMode.READ_ONLY,
+									chunk[0], chunk[1] - chunk[0]);
+							CharBuffer chars = charset
+									.newDecoder()
+									.onMalformedInput(CodingErrorAction.REPLACE)
+									.onUnmappableCharacter(
+											CodingErrorAction.REPLACE)
+									.decode(bytes);
+							Tokenizer tokenizer = new Tokenizer(chars.array(),
+									chars.limit(), true, (int) chunk[2]);
+							tokenizer.rowStart = chars.position();
+							tokenizer.parse(null, handler);
+							return null;
 						}
-					} else {
-						sb.append((char) t);
+					}));
+				}
+				for (Future<?> future : futures) {
+					try {
+						future.get();
+					} catch (InterruptedException e) {
+						throw new InterruptedIOException();
+					} catch (ExecutionException e) {
+						Throwable cause = e.getCause();
+						if (cause instanceof IOException)
+							throw (IOException) cause;
+						if (cause instanceof RuntimeException)
+							throw (RuntimeException) cause;
+						throw new RuntimeException(cause);
 					}
-					t = lineReader.read();
 				}
-				currentRow.add(sb.toString());
-
-				while (t != -1 && (t == ' ' || t == '\t')) {
-					t = lineReader.read();
+			} finally {
+				// if a chunk failed, don't start the chunks that are left
+				for (Future<?> future : futures) {
+					future.cancel(false);
 				}
+			}
+		}
+	}
 
-				if (t == '\n' || t == '\r') {
-					// finished this row:
-					while (t == '\n' || t == '\r') {
-						t = lineReader.read();
-					}
-					receiver.add(new List[] { currentRow });
-					currentRow = new ArrayList<>(currentRow.size());
-					lineReader = new MeasuredReader(reader,
-							lineReader.lineNumber + 1);
-				} else if (!(t == -1 || t == delimiter)) {
-					throw new ParseException(
-							"Unexpected character after a wrapped cell value. Line "
-									+ lineReader.lineNumber + ", pos="
-									+ lineReader.pos, lineReader.pos,
-							lineReader.lineNumber);
-				}
-			} else {
-				if (t == delimiter) {
-					// empty!
-					currentRow.add(new String());
-					t = lineReader.read();
-				} else {
-					StringBuilder sb = new StringBuilder();
-					while (t != -1 && t != delimiter && t != '\n' && t != '\r') {
-						sb.append((char) t);
-						t = lineReader.read();
-					}
+	private static boolean isAsciiCompatible(Charset charset) {
+		return charset.equals(StandardCharsets.UTF_8)
+				|| charset.equals(StandardCharsets.US_ASCII)
+				|| charset.equals(StandardCharsets.ISO_8859_1);
+	}
 
-					currentRow.add(sb.toString());
-					if (t == '\n' || t == '\r') {
-						// finished this row:
-						while (t == '\n' || t == '\r') {
-							t = lineReader.read();
+	/**
+	 * Divide a file into chunks of at least {@link #PARALLEL_CHUNK_SIZE} bytes
+	 * (and at most {@link #MAX_CHUNK_SIZE} bytes) that begin and end at row
+	 * boundaries.
+	 * 
+	 * @return a list of arrays containing the start position, the end
+	 *         position, and the number of rows that precede the chunk.
+	 */
+	private List<long[]> getChunks(FileChannel channel) throws IOException {
+		final int CELL_START = 0, UNQUOTED = 1, QUOTED = 2, QUOTE_IN_QUOTED = 3;
+		final byte ORDINARY = 0, NEW_LINE = 1, DELIMITER = 2, QUALIFIER = 3;
+		byte[] types = new byte[256];
+		types['\n'] = NEW_LINE;
+		types['\r'] = NEW_LINE;
+		types[delimiter] = DELIMITER;
+		types[textQualifier] = QUALIFIER;
+
+		List<long[]> chunks = new ArrayList<>();
+		long size = channel.size();
+		long chunkStart = 0;
+		long chunkRowCount = 0;
+		long lastRowEnd = 0;
+		long lastRowCount = 0;
+		long rowCount = 0;
+		int state = CELL_START;
+		boolean rowHasContent = false;
+		byte[] block = new byte[1 << 16];
+		for (long mapStart = 0; mapStart < size; mapStart += parallelChunkSize) {
+			int mapSize = (int) Math.min(parallelChunkSize, size - mapStart);
+			ByteBuffer bytes = channel.map(MapMode.READ_ONLY, mapStart,
+					mapSize);
+			for (int blockStart = 0; blockStart < mapSize; blockStart += block.length) {
+				int blockSize = Math.min(block.length, mapSize - blockStart);
+				bytes.get(block, 0, blockSize);
+				for (int a = 0; a < blockSize; a++) {
+					// skip runs of ordinary bytes quickly:
+					if (state == QUOTED) {
+						while (a < blockSize && block[a] != textQualifier) {
+							a++;
+						}
+						if (a == blockSize)
+							break;
+					} else if (state == UNQUOTED) {
+						while (a < blockSize && types[block[a] & 0xff] == ORDINARY) {
+							a++;
 						}
-						receiver.add(new List[] { currentRow });
-						currentRow = new ArrayList<>(currentRow.size());
-						lineReader = new MeasuredReader(reader,
-								lineReader.lineNumber + 1);
-					} else if (t == delimiter) {
-						t = lineReader.read();
-						continue;
+						if (a == blockSize)
+							break;
 					}
-					if (t == -1) {
-						if (currentRow.size() > 0)
-							receiver.add(new List[] { currentRow });
-						return;
+
+					byte type = types[block[a] & 0xff];
+					if (state == QUOTED) {
+						state = QUOTE_IN_QUOTED;
+					} else if (type == NEW_LINE) {
+						if (rowHasContent) {
+							rowCount++;
+							rowHasContent = false;
+						}
+						state = CELL_START;
+						long rowEnd = mapStart + blockStart + a + 1;
+						if (rowEnd - chunkStart > maxChunkSize) {
+							// end the chunk before this row
+							if (lastRowEnd > chunkStart) {
+								chunks.add(new long[] { chunkStart, lastRowEnd,
+										chunkRowCount });
+								chunkStart = lastRowEnd;
+								chunkRowCount = lastRowCount;
+							}
+							checkChunkSize(chunkStart, rowEnd);
+						}
+						if (rowEnd - chunkStart >= parallelChunkSize) {
+							chunks.add(new long[] { chunkStart, rowEnd,
+									chunkRowCount });
+							chunkStart = rowEnd;
+							chunkRowCount = rowCount;
+						}
+						lastRowEnd = rowEnd;
+						lastRowCount = rowCount;
+					} else if (state == QUOTE_IN_QUOTED && type == QUALIFIER) {
+						state = QUOTED;
+					} else if (type == DELIMITER) {
+						rowHasContent = true;
+						state = CELL_START;
+					} else {
+						rowHasContent = true;
+						state = state == CELL_START && type == QUALIFIER ? QUOTED
+								: UNQUOTED;
 					}
 				}
 			}
 		}
+		if (size - chunkStart > maxChunkSize) {
+			if (lastRowEnd > chunkStart) {
+				chunks.add(new long[] { chunkStart, lastRowEnd, chunkRowCount });
+				chunkStart = lastRowEnd;
+				chunkRowCount = lastRowCount;
+			}
+			checkChunkSize(chunkStart, size);
+		}
+		if (chunkStart < size)
+			chunks.add(new long[] { chunkStart, size, chunkRowCount });
+		return chunks;
+	}
+
+	/**
+	 * Throw an exception if a row is too large to be a chunk.
+	 */
+	private void checkChunkSize(long rowStart, long rowEnd)
+			throws IOException {
+		if (rowEnd - rowStart > maxChunkSize)
+			throw new IOException("The row at byte " + rowStart + " is "
+					+ (rowEnd - rowStart) + " bytes, which is more than "
+					+ maxChunkSize + ".");
 	}
-}
\ No newline at end of file
+}
@@ -61,4 +61,17 @@ public class FileTree implements Iterable<File> {
 		return new FileTreeIterator(dir, filter);
 	}
 
+	/**
+	 * Return an iterator that lists directories in parallel.
+	 * 
+	 * @param ordered
+	 *            if true then files are returned in the same order as
+	 *            {@link #iterator()} returns them. If false then files are
+	 *            returned in whatever order they are found, which is faster.
+	 */
+	public ParallelFileTreeIterator parallelIterator(boolean ordered) {
+		return new ParallelFileTreeIterator(dir, filter, null, ordered,
+				ParallelFileTreeIterator.getDefaultCapacity());
+	}
+
 }
\ No newline at end of file
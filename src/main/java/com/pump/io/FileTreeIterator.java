@@ -20,6 +20,10 @@ import com.pump.util.TreeIterator;
 
 /**
  * This iterates through a file tree structure.
+ * <p>
+ * See {@link ParallelFileTreeIterator} for an iterator that lists directories
+ * in parallel. (The static <code>find</code> methods in this class use that
+ * iterator.)
  */
 public class FileTreeIterator extends TreeIterator<File> {
 
@@ -36,11 +40,13 @@ public class FileTreeIterator extends TreeIterator<File> {
 		if (dir == null)
 			throw new NullPointerException();
 
-		FileTreeIterator iter = new FileTreeIterator(dir);
-		while (iter.hasNext()) {
-			File f = iter.next();
-			if (f.getName().equals(fileName))
-				return f;
+		try (ParallelFileTreeIterator iter = new ParallelFileTreeIterator(dir,
+				null)) {
+			while (iter.hasNext()) {
+				File f = iter.next();
+				if (f.getName().equals(fileName))
+					return f;
+			}
 		}
 		return null;
 	}
@@ -66,7 +72,8 @@ public class FileTreeIterator extends TreeIterator<File> {
 		List<File> results = new ArrayList<File>();
 		for (File d : dir) {
 			if (d != null) {
-				FileTreeIterator iter = new FileTreeIterator(d);
+				ParallelFileTreeIterator iter = new ParallelFileTreeIterator(
+						d, null);
 				while (iter.hasNext()) {
 					File f = iter.next();
 					if (f.getName().equals(fileName)) {
@@ -100,7 +107,8 @@ public class FileTreeIterator extends TreeIterator<File> {
 		List<File> results = new ArrayList<File>();
 		for (File d : dir) {
 			if (d != null) {
-				FileTreeIterator iter = new FileTreeIterator(d, fileExtensions);
+				ParallelFileTreeIterator iter = new ParallelFileTreeIterator(
+						d, new SuffixFilenameFilter(fileExtensions));
 				while (iter.hasNext()) {
 					File f = iter.next();
 					String name = f.getName();
@@ -140,7 +148,8 @@ public class FileTreeIterator extends TreeIterator<File> {
 		List<File> results = new ArrayList<File>();
 		for (File d : dir) {
 			if (d != null) {
-				FileTreeIterator iter = new FileTreeIterator(d, fileFilter);
+				ParallelFileTreeIterator iter = new ParallelFileTreeIterator(
+						d, fileFilter);
 				while (iter.hasNext()) {
 					File f = iter.next();
 					String name = f.getName();
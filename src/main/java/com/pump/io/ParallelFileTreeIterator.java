@@ -0,0 +1,138 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.io;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import com.pump.util.ParallelTreeIterator;
+
+/**
+ * This iterates through a file tree structure like a {@link FileTreeIterator},
+ * except directories are listed in parallel.
+ * <p>
+ * Each directory is read with a <code>DirectoryStream</code>, and the
+ * <code>BasicFileAttributes</code> of each child are read once while the
+ * directory is listed. Symbolic links are identified from those attributes
+ * (instead of comparing canonical paths like
+ * {@link FileTreeIterator#isAlias(File)}), and they are skipped just like the
+ * <code>FileTreeIterator</code> skips aliases.
+ * <p>
+ * The optional <code>FileFilter</code> only controls which files are returned;
+ * every directory is still searched. The filter may be called from several
+ * threads at once.
+ */
+public class ParallelFileTreeIterator extends ParallelTreeIterator<File> {
+
+	/**
+	 * A File whose attributes were read when its parent was listed.
+	 */
+	private static class ListedFile extends File {
+		private static final long serialVersionUID = 1L;
+
+		final boolean isDirectory;
+
+		ListedFile(Path path, BasicFileAttributes attributes) {
+			super(path.toString());
+			isDirectory = attributes.isDirectory();
+		}
+	}
+
+	public final FileFilter fileFilter;
+
+	/**
+	 * Create an ordered ParallelFileTreeIterator that uses a shared pool.
+	 * 
+	 * @param parent
+	 *            the root file to begin searching in. This is returned by the
+	 *            iterator if it passes the filter.
+	 * @param filter
+	 *            the optional filter determining what files to return.
+	 */
+	public ParallelFileTreeIterator(File parent, FileFilter filter) {
+		this(parent, filter, null, true, getDefaultCapacity());
+	}
+
+	/**
+	 * Create a ParallelFileTreeIterator.
+	 * 
+	 * @param parent
+	 *            the root file to begin searching in. This is returned by the
+	 *            iterator if it passes the filter.
+	 * @param filter
+	 *            the optional filter determining what files to return.
+	 * @param pool
+	 *            the pool to list directories on. If this is null then a shared
+	 *            pool is used.
+	 * @param ordered
+	 *            if true then files are returned in the same order a
+	 *            <code>FileTreeIterator</code> returns them. If false then files
+	 *            are returned in whatever order they are found.
+	 * @param capacity
+	 *            the maximum number of directories that can be listed ahead of
+	 *            the iterator.
+	 */
+	public ParallelFileTreeIterator(File parent, FileFilter filter,
+			ForkJoinPool pool, boolean ordered, int capacity) {
+		super(parent, true, pool, ordered, capacity);
+		this.fileFilter = filter;
+	}
+
+	@Override
+	protected File[] listChildren(File parent) {
+		List<File> children = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(parent
+				.toPath())) {
+			for (Path path : stream) {
+				if (isCancelled())
+					break;
+				BasicFileAttributes attributes;
+				try {
+					attributes = Files.readAttributes(path,
+							BasicFileAttributes.class,
+							LinkOption.NOFOLLOW_LINKS);
+				} catch (IOException e) {
+					// this file was probably deleted after it was listed
+					continue;
+				}
+				if (!attributes.isSymbolicLink())
+					children.add(new ListedFile(path, attributes));
+			}
+		} catch (IOException e) {
+			// this matches File.listFiles(), which returns null on failure
+			return null;
+		}
+		return children.toArray(new File[children.size()]);
+	}
+
+	@Override
+	protected boolean isBranch(File file) {
+		if (file instanceof ListedFile)
+			return ((ListedFile) file).isDirectory;
+		return file.isDirectory();
+	}
+
+	@Override
+	protected boolean isReturnValue(File file) {
+		if (fileFilter == null)
+			return true;
+		return fileFilter.accept(file);
+	}
+}
@@ -0,0 +1,502 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.io;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import com.pump.util.FixedCapacityMap;
+
+/**
+ * This is an index of the entries in a zip archive built from the archive's
+ * central directory.
+ * <p>
+ * A <code>ZipInputStream</code> has to read (and inflate or skip) every entry
+ * in an archive to list its contents, and to open the last entry it has to
+ * read everything before it. This class instead reads the central directory at
+ * the end of the archive once, and records where each entry's data begins. So
+ * listing entries does not touch any entry data, and each entry can be opened
+ * independently by seeking straight to its offset. Because each stream opens
+ * its own file handle, several entries can be extracted in parallel (see
+ * {@link #parseEntries(Collection, ExecutorService, EntryParser)}).
+ * <p>
+ * Use {@link #get(File)} to share one index per archive. That method caches
+ * recently used indices and rebuilds an index if the archive's size or
+ * modification date changes.
+ * <p>
+ * This supports ZIP64 archives and the STORED and DEFLATED compression methods.
+ */
+public class ZipIndex {
+
+	/**
+	 * This converts the data from one zip entry into another object.
+	 */
+	public interface EntryParser<T> {
+		/**
+		 * Convert the data from an InputStream into an element.
+		 * 
+		 * @param inputStream
+		 *            the uncompressed data of the entry. The caller closes this
+		 *            stream when this method returns.
+		 * @param zipEntry
+		 *            the entry this stream represents.
+		 */
+		T parse(InputStream inputStream, ZipEntry zipEntry) throws Exception;
+	}
+
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int END_SIGNATURE = 0x06054b50;
+	private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+	private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+	private static final int ZIP64_EXTRA_ID = 0x0001;
+
+	private static final int LOCAL_HEADER_LENGTH = 30;
+	private static final int CENTRAL_HEADER_LENGTH = 46;
+	private static final int END_LENGTH = 22;
+	private static final int ZIP64_END_LENGTH = 56;
+	private static final int ZIP64_LOCATOR_LENGTH = 20;
+	private static final int MAX_COMMENT_LENGTH = 0xffff;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final FixedCapacityMap<File, ZipIndex> cache = new FixedCapacityMap<>(
+			10);
+
+	/**
+	 * Return the index of a zip archive.
+	 * <p>
+	 * This reuses a recently built index for the same file if that file's size
+	 * and modification date have not changed.
+	 */
+	public static ZipIndex get(File file) throws IOException {
+		File key = file.getAbsoluteFile();
+		synchronized (cache) {
+			ZipIndex index = cache.get(key);
+			if (index != null && index.isCurrent())
+				return index;
+		}
+
+		ZipIndex index = new ZipIndex(key);
+		synchronized (cache) {
+			cache.put(key, index);
+		}
+		return index;
+	}
+
+	/**
+	 * The data needed to locate and decode one entry.
+	 */
+	private static class Record {
+		final ZipEntry entry;
+		final long localHeaderOffset;
+
+		Record(ZipEntry entry, long localHeaderOffset) {
+			this.entry = entry;
+			this.localHeaderOffset = localHeaderOffset;
+		}
+	}
+
+	/**
+	 * This stream inflates raw DEFLATE data and ends its Inflater when it is
+	 * closed.
+	 */
+	private static class EntryInflaterInputStream extends InflaterInputStream {
+		boolean eof = false;
+		boolean closed = false;
+
+		EntryInflaterInputStream(InputStream in, int bufferSize) {
+			super(in, new Inflater(true), bufferSize);
+		}
+
+		@Override
+		protected void fill() throws IOException {
+			if (eof)
+				throw new EOFException("Unexpected end of zip entry");
+			len = in.read(buf, 0, buf.length);
+			if (len == -1) {
+				// a "nowrap" Inflater may need one extra dummy byte
+				buf[0] = 0;
+				len = 1;
+				eof = true;
+			}
+			inf.setInput(buf, 0, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!closed) {
+				closed = true;
+				inf.end();
+				super.close();
+			}
+		}
+	}
+
+	private final File file;
+	private final long fileLength;
+	private final long fileModified;
+	private final List<ZipEntry> entries;
+	private final Map<String, Record> recordsByName;
+
+	/**
+	 * Create a new ZipIndex by reading the central directory of a file.
+	 * <p>
+	 * This does not cache the index; for that use {@link #get(File)}.
+	 */
+	public ZipIndex(File file) throws IOException {
+		this.file = file;
+		fileLength = file.length();
+		fileModified = file.lastModified();
+
+		List<Record> records;
+		try (FileInputStream in = new FileInputStream(file)) {
+			records = readCentralDirectory(in.getChannel());
+		}
+
+		List<ZipEntry> entryList = new ArrayList<>(records.size());
+		recordsByName = new HashMap<>(records.size() * 2);
+		for (Record record : records) {
+			entryList.add(record.entry);
+			recordsByName.put(record.entry.getName(), record);
+		}
+		entries = Collections.unmodifiableList(entryList);
+	}
+
+	/**
+	 * Return the file this index describes.
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Return true if the file's size and modification date still match the
+	 * values it had when this index was built.
+	 */
+	public boolean isCurrent() {
+		return file.length() == fileLength
+				&& file.lastModified() == fileModified;
+	}
+
+	/**
+	 * Return all the entries in this archive, in the order they appear in the
+	 * central directory.
+	 */
+	public List<ZipEntry> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Return the entry with the given name, or null if no such entry exists.
+	 */
+	public ZipEntry getEntry(String name) {
+		Record record = recordsByName.get(name);
+		return record == null ? null : record.entry;
+	}
+
+	/**
+	 * Create an InputStream of the uncompressed data of an entry.
+	 * 
+	 * @param name
+	 *            the name of the entry to read.
+	 * @throws FileNotFoundException
+	 *             if no entry with this name exists.
+	 */
+	public InputStream createInputStream(String name) throws IOException {
+		Record record = recordsByName.get(name);
+		if (record == null)
+			throw new FileNotFoundException("the entry \"" + name
+					+ "\" was not found in " + file.getAbsolutePath());
+
+		FileInputStream fileIn = new FileInputStream(file);
+		try {
+			FileChannel channel = fileIn.getChannel();
+			ByteBuffer header = read(channel, record.localHeaderOffset,
+					LOCAL_HEADER_LENGTH);
+			if (header.getInt(0) != LOCAL_HEADER_SIGNATURE)
+				throw new ZipException("invalid local header for \"" + name
+						+ "\"");
+			long dataStart = record.localHeaderOffset + LOCAL_HEADER_LENGTH
+					+ (header.getShort(26) & 0xffff)
+					+ (header.getShort(28) & 0xffff);
+			channel.position(dataStart);
+
+			ZipEntry entry = record.entry;
+			InputStream in = new GuardedInputStream(fileIn,
+					entry.getCompressedSize(), true);
+			int bufferSize = (int) Math.max(64,
+					Math.min(8192, entry.getCompressedSize()));
+			if (entry.getMethod() == ZipEntry.STORED)
+				return new BufferedInputStream(in, bufferSize);
+			if (entry.getMethod() == ZipEntry.DEFLATED)
+				return new EntryInflaterInputStream(in, bufferSize);
+			throw new ZipException("unsupported compression method ("
+					+ entry.getMethod() + ") for \"" + name + "\"");
+		} catch (IOException | RuntimeException e) {
+			fileIn.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Parse several entries in parallel.
+	 * 
+	 * @param entries
+	 *            the entries to parse.
+	 * @param executor
+	 *            the executor that runs the parser. If this is null then all
+	 *            entries are parsed on the calling thread.
+	 * @param parser
+	 *            the parser to apply to each entry. This may be invoked from
+	 *            several threads at once.
+	 * @return the parsed values, in the same order as <code>entries</code>.
+	 */
+	public <T> List<T> parseEntries(Collection<ZipEntry> entries,
+			ExecutorService executor, final EntryParser<T> parser)
+			throws IOException {
+		List<T> returnValue = new ArrayList<>(entries.size());
+		if (executor == null) {
+			for (ZipEntry entry : entries) {
+				try {
+					returnValue.add(parseEntry(entry, parser));
+				} catch (Exception e) {
+					throw toIOException(e);
+				}
+			}
+			return returnValue;
+		}
+
+		List<Future<T>> futures = new ArrayList<>(entries.size());
+		try {
+			for (final ZipEntry entry : entries) {
+				futures.add(executor.submit(new Callable<T>() {
+					@Override
+					public T call() throws Exception {
+						return parseEntry(entry, parser);
+					}
+				}));
+			}
+			for (Future<T> future : futures) {
+				returnValue.add(future.get());
+			}
+			return returnValue;
+		} catch (InterruptedException e) {
+			InterruptedIOException e2 = new InterruptedIOException();
+			e2.initCause(e);
+			throw e2;
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw toIOException((Exception) cause);
+		} finally {
+			for (Future<T> future : futures) {
+				future.cancel(false);
+			}
+		}
+	}
+
+	private static IOException toIOException(Exception e) {
+		if (e instanceof RuntimeException)
+			throw (RuntimeException) e;
+		if (e instanceof IOException)
+			return (IOException) e;
+		return new IOException(e);
+	}
+
+	private <T> T parseEntry(ZipEntry entry, EntryParser<T> parser)
+			throws Exception {
+		try (InputStream in = createInputStream(entry.getName())) {
+			return parser.parse(in, entry);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ZipIndex[ file=\"" + file.getAbsolutePath() + "\", entries="
+				+ entries.size() + "]";
+	}
+
+	private static List<Record> readCentralDirectory(FileChannel channel)
+			throws IOException {
+		long size = channel.size();
+		int tailLength = (int) Math.min(size, END_LENGTH + MAX_COMMENT_LENGTH);
+		long tailStart = size - tailLength;
+		ByteBuffer tail = read(channel, tailStart, tailLength);
+
+		int endPos = -1;
+		for (int a = tailLength - END_LENGTH; a >= 0; a--) {
+			if (tail.getInt(a) == END_SIGNATURE) {
+				int commentLength = tail.getShort(a + 20) & 0xffff;
+				if (a + END_LENGTH + commentLength <= tailLength) {
+					endPos = a;
+					break;
+				}
+			}
+		}
+		if (endPos == -1)
+			throw new ZipException("the central directory was not found");
+
+		long entryCount = tail.getShort(endPos + 10) & 0xffff;
+		long directorySize = tail.getInt(endPos + 12) & 0xffffffffL;
+		long directoryOffset = tail.getInt(endPos + 16) & 0xffffffffL;
+
+		long locatorPos = tailStart + endPos - ZIP64_LOCATOR_LENGTH;
+		if (locatorPos >= 0) {
+			ByteBuffer locator = read(channel, locatorPos,
+					ZIP64_LOCATOR_LENGTH);
+			if (locator.getInt(0) == ZIP64_LOCATOR_SIGNATURE) {
+				long zip64EndPos = locator.getLong(8);
+				ByteBuffer zip64End = read(channel, zip64EndPos,
+						ZIP64_END_LENGTH);
+				if (zip64End.getInt(0) != ZIP64_END_SIGNATURE)
+					throw new ZipException(
+							"invalid ZIP64 end of central directory record");
+				entryCount = zip64End.getLong(32);
+				directorySize = zip64End.getLong(40);
+				directoryOffset = zip64End.getLong(48);
+			}
+		}
+
+		if (directorySize > Integer.MAX_VALUE
+				|| directoryOffset + directorySize > size)
+			throw new ZipException("invalid central directory (offset = "
+					+ directoryOffset + ", size = " + directorySize + ")");
+
+		ByteBuffer directory = read(channel, directoryOffset,
+				(int) directorySize);
+		List<Record> records = new ArrayList<>(
+				(int) Math.min(entryCount, directorySize / CENTRAL_HEADER_LENGTH));
+		Calendar calendar = Calendar.getInstance();
+		int pos = 0;
+		while (pos + CENTRAL_HEADER_LENGTH <= directorySize
+				&& directory.getInt(pos) == CENTRAL_HEADER_SIGNATURE) {
+			int method = directory.getShort(pos + 10) & 0xffff;
+			int dosTime = directory.getShort(pos + 12) & 0xffff;
+			int dosDate = directory.getShort(pos + 14) & 0xffff;
+			long crc = directory.getInt(pos + 16) & 0xffffffffL;
+			long compressedSize = directory.getInt(pos + 20) & 0xffffffffL;
+			long uncompressedSize = directory.getInt(pos + 24) & 0xffffffffL;
+			int nameLength = directory.getShort(pos + 28) & 0xffff;
+			int extraLength = directory.getShort(pos + 30) & 0xffff;
+			int commentLength = directory.getShort(pos + 32) & 0xffff;
+			long localHeaderOffset = directory.getInt(pos + 42) & 0xffffffffL;
+
+			int namePos = pos + CENTRAL_HEADER_LENGTH;
+			int extraPos = namePos + nameLength;
+			int commentPos = extraPos + extraLength;
+			int nextPos = commentPos + commentLength;
+			if (nextPos > directorySize)
+				throw new ZipException("truncated central directory");
+
+			String name = new String(directory.array(), namePos, nameLength,
+					UTF8);
+			byte[] extra = null;
+			if (extraLength > 0) {
+				extra = new byte[extraLength];
+				System.arraycopy(directory.array(), extraPos, extra, 0,
+						extraLength);
+
+				// ZIP64 values are only present if the 32-bit field is maxed
+				int extraIndex = extraPos;
+				while (extraIndex + 4 <= commentPos) {
+					int id = directory.getShort(extraIndex) & 0xffff;
+					int length = directory.getShort(extraIndex + 2) & 0xffff;
+					int dataPos = extraIndex + 4;
+					int dataEnd = Math.min(dataPos + length, commentPos);
+					if (id == ZIP64_EXTRA_ID) {
+						if (uncompressedSize == 0xffffffffL
+								&& dataPos + 8 <= dataEnd) {
+							uncompressedSize = directory.getLong(dataPos);
+							dataPos += 8;
+						}
+						if (compressedSize == 0xffffffffL
+								&& dataPos + 8 <= dataEnd) {
+							compressedSize = directory.getLong(dataPos);
+							dataPos += 8;
+						}
+						if (localHeaderOffset == 0xffffffffL
+								&& dataPos + 8 <= dataEnd) {
+							localHeaderOffset = directory.getLong(dataPos);
+						}
+					}
+					extraIndex += 4 + length;
+				}
+			}
+
+			ZipEntry entry = new ZipEntry(name);
+			entry.setMethod(method);
+			entry.setTime(dosToJavaTime(calendar, dosDate, dosTime));
+			if (extra != null)
+				entry.setExtra(extra);
+			entry.setCrc(crc);
+			entry.setSize(uncompressedSize);
+			entry.setCompressedSize(compressedSize);
+			if (commentLength > 0)
+				entry.setComment(new String(directory.array(), commentPos,
+						commentLength, UTF8));
+
+			records.add(new Record(entry, localHeaderOffset));
+			pos = nextPos;
+		}
+		return records;
+	}
+
+	private static long dosToJavaTime(Calendar calendar, int dosDate,
+			int dosTime) {
+		calendar.clear();
+		calendar.set(((dosDate >> 9) & 0x7f) + 1980, ((dosDate >> 5) & 0x0f) - 1,
+				dosDate & 0x1f, (dosTime >> 11) & 0x1f, (dosTime >> 5) & 0x3f,
+				(dosTime << 1) & 0x3e);
+		return calendar.getTimeInMillis();
+	}
+
+	/**
+	 * Read a little-endian block of bytes from a channel.
+	 */
+	private static ByteBuffer read(FileChannel channel, long position,
+			int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			int k = channel.read(buffer, position + buffer.position());
+			if (k == -1)
+				throw new EOFException("unexpected end of zip archive");
+		}
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return buffer;
+	}
+}
@@ -13,7 +13,14 @@ package com.pump.io;
 import java.io.File;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipInputStream;
 
 import javax.activation.DataSource;
@@ -23,12 +30,31 @@ import javax.activation.URLDataSource;
 import com.pump.util.CloseableMeasurableIterator;
 
 /**
- * This iterates over data in a ZipInputStream.
+ * This iterates over data in a zip archive.
+ * <p>
+ * If the data comes from a File then this uses a {@link ZipIndex} to read the
+ * archive's central directory and open each entry directly. Otherwise this
+ * reads the archive sequentially through a ZipInputStream.
  *
  * @param <T>
  */
 public abstract class ZipIterator<T> implements CloseableMeasurableIterator<T> {
 
+	class ParseEntryTask implements Callable<T> {
+		ZipEntry entry;
+
+		ParseEntryTask(ZipEntry entry) {
+			this.entry = entry;
+		}
+
+		@Override
+		public T call() throws Exception {
+			try (InputStream in = zipIndex.createInputStream(entry.getName())) {
+				return parseZipEntry(in, entry);
+			}
+		}
+	}
+
 	DataSource dataSource;
 	float progress = -1;
 	T nextElement;
@@ -38,27 +64,87 @@ public abstract class ZipIterator<T> implements CloseableMeasurableIterator<T> {
 	ZipInputStream zipIn;
 	Float fileSize;
 
+	ZipIndex zipIndex;
+	int nextEntryIndex = 0;
+	int returnedEntryCount = 0;
+	ExecutorService executor;
+	int maxEntriesInFlight;
+	LinkedList<Future<T>> pendingEntries = new LinkedList<>();
+
 	public ZipIterator(File file) throws Exception {
 		this(new FileDataSource(file));
 	}
 
+	/**
+	 * Create a ZipIterator that parses several entries in parallel.
+	 * 
+	 * @param file
+	 *            the zip archive to read.
+	 * @param executor
+	 *            the executor used to call
+	 *            {@link #parseZipEntry(InputStream, ZipEntry)}. If this is
+	 *            null then all entries are parsed on the calling thread. If
+	 *            this is non-null then <code>parseZipEntry</code> may be
+	 *            invoked from several threads at once.
+	 * @param maxEntriesInFlight
+	 *            the maximum number of entries that may be parsed ahead of the
+	 *            element that <code>next()</code> returns.
+	 */
+	public ZipIterator(File file, ExecutorService executor,
+			int maxEntriesInFlight) throws Exception {
+		this(new FileDataSource(file), executor, maxEntriesInFlight);
+	}
+
 	public ZipIterator(URL url) throws Exception {
 		this(new URLDataSource(url));
 	}
 
 	public ZipIterator(DataSource dataSource) throws Exception {
+		this(dataSource, null, 1);
+	}
+
+	private ZipIterator(DataSource dataSource, ExecutorService executor,
+			int maxEntriesInFlight) throws Exception {
 		if (dataSource == null)
 			throw new NullPointerException();
+		if (maxEntriesInFlight < 1)
+			throw new IllegalArgumentException("maxEntriesInFlight ("
+					+ maxEntriesInFlight + ") must be at least 1");
 		this.dataSource = dataSource;
+		this.executor = executor;
+		this.maxEntriesInFlight = maxEntriesInFlight;
 		initialize();
 
-		measuredIn = new MeasuredInputStream(getDataSource().getInputStream());
-		zipIn = new ZipInputStream(measuredIn);
-		fileSize = getFileSize();
+		zipIndex = createZipIndex();
+		if (zipIndex == null) {
+			measuredIn = new MeasuredInputStream(getDataSource()
+					.getInputStream());
+			zipIn = new ZipInputStream(measuredIn);
+			fileSize = getFileSize();
+		}
 
 		queueNext();
 	}
 
+	/**
+	 * Return the ZipIndex used to read entries, or null if this iterator
+	 * should read the archive sequentially.
+	 * <p>
+	 * The default implementation returns an index if this iterator interacts
+	 * with a FileDataSource whose central directory is readable.
+	 */
+	protected ZipIndex createZipIndex() throws Exception {
+		DataSource ds = getDataSource();
+		if (ds instanceof FileDataSource) {
+			try {
+				return ZipIndex.get(((FileDataSource) ds).getFile());
+			} catch (ZipException e) {
+				// fall back to reading the archive sequentially
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Return the file size of the data being read, or null if that is
 	 * indeterminate.
@@ -106,6 +192,10 @@ public abstract class ZipIterator<T> implements CloseableMeasurableIterator<T> {
 	}
 
 	private void queueNext() throws Exception {
+		if (zipIndex != null) {
+			queueNextIndexedEntry();
+			return;
+		}
 		if (fileSize != null) {
 			progress = measuredIn.getReadBytes() / fileSize.floatValue();
 		}
@@ -119,6 +209,42 @@ public abstract class ZipIterator<T> implements CloseableMeasurableIterator<T> {
 		}
 	}
 
+	private void queueNextIndexedEntry() throws Exception {
+		List<ZipEntry> entries = zipIndex.getEntries();
+		if (!entries.isEmpty())
+			progress = ((float) returnedEntryCount) / entries.size();
+
+		if (executor == null) {
+			if (nextEntryIndex < entries.size()) {
+				nextElement = new ParseEntryTask(
+						entries.get(nextEntryIndex++)).call();
+				returnedEntryCount++;
+			} else {
+				nextElement = null;
+			}
+			return;
+		}
+
+		while (pendingEntries.size() < maxEntriesInFlight
+				&& nextEntryIndex < entries.size()) {
+			pendingEntries.add(executor.submit(new ParseEntryTask(entries
+					.get(nextEntryIndex++))));
+		}
+		if (pendingEntries.isEmpty()) {
+			nextElement = null;
+			return;
+		}
+		try {
+			nextElement = pendingEntries.removeFirst().get();
+			returnedEntryCount++;
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception)
+				throw (Exception) cause;
+			throw (Error) cause;
+		}
+	}
+
 	@Override
 	public boolean hasNext() {
 		return nextElement != null && !closed;
@@ -145,6 +271,10 @@ public abstract class ZipIterator<T> implements CloseableMeasurableIterator<T> {
 	@Override
 	public void close() {
 		closed = true;
+		for (Future<T> future : pendingEntries) {
+			future.cancel(false);
+		}
+		pendingEntries.clear();
 	}
 
 	@Override
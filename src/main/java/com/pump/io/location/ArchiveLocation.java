@@ -16,9 +16,12 @@ import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
@@ -308,6 +311,13 @@ public abstract class ArchiveLocation<T> extends IOLocation {
 		 */
 		Set<ArchiveLocation<T>> madeUpDirectories = new HashSet<ArchiveLocation<T>>();
 
+		/**
+		 * The children of each node, keyed by name. This lets us place each
+		 * entry without scanning every sibling, which matters for archives
+		 * with thousands of entries in one directory.
+		 */
+		Map<ArchiveLocation<T>, Map<String, ArchiveLocation<T>>> childrenByName = new IdentityHashMap<>();
+
 		LoadingThread(long id) {
 			super("ArchiveLocation-LoadingThread-" + id);
 			this.id = id;
@@ -422,8 +432,7 @@ public abstract class ArchiveLocation<T> extends IOLocation {
 				newDirectory.creatorThreadID = id;
 				madeUpDirectories.add(newDirectory);
 
-				parent.children.add(newDirectory);
-				newDirectory.parent = parent;
+				addChild(parent, newDirectory);
 
 				parent = newDirectory;
 			}
@@ -455,23 +464,46 @@ public abstract class ArchiveLocation<T> extends IOLocation {
 					throw new RuntimeException("duplicate entry: " + newElement);
 				}
 			} else {
-				parent.children.add(newElement);
-				newElement.parent = parent;
+				addChild(parent, newElement);
 			}
 		}
 
+		private void addChild(ArchiveLocation<T> parent,
+				ArchiveLocation<T> child) {
+			Map<String, ArchiveLocation<T>> map = getChildMap(parent);
+			String name = getTrimmedName(child);
+			if (!map.containsKey(name))
+				map.put(name, child);
+			parent.children.add(child);
+			child.parent = parent;
+		}
+
 		private ArchiveLocation<T> getChild(ArchiveLocation<T> parent,
 				String name) {
-			for (int a = 0; a < parent.children.size(); a++) {
-				String currentName = parent.children.get(a).getName();
-				if (currentName.endsWith("" + getSeparatorChar()))
-					currentName = currentName.substring(0,
-							currentName.length() - 1);
-				if (currentName.equals(name)) {
-					return parent.children.get(a);
+			return getChildMap(parent).get(name);
+		}
+
+		private Map<String, ArchiveLocation<T>> getChildMap(
+				ArchiveLocation<T> parent) {
+			Map<String, ArchiveLocation<T>> map = childrenByName.get(parent);
+			if (map == null) {
+				// the parent may have children from a cancelled LoadingThread
+				map = new HashMap<>();
+				for (ArchiveLocation<T> child : parent.children) {
+					String name = getTrimmedName(child);
+					if (!map.containsKey(name))
+						map.put(name, child);
 				}
+				childrenByName.put(parent, map);
 			}
-			return null;
+			return map;
+		}
+
+		private String getTrimmedName(ArchiveLocation<T> loc) {
+			String name = loc.getName();
+			if (name.endsWith("" + getSeparatorChar()))
+				name = name.substring(0, name.length() - 1);
+			return name;
 		}
 	}
 
@@ -0,0 +1,146 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.io.location;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import com.pump.swing.BasicCancellable;
+import com.pump.util.BasicReceiver;
+import com.pump.util.ParallelTreeIterator;
+
+/**
+ * A <code>ParallelTreeIterator</code> similar to the
+ * {@link IOLocationTreeIterator} class, except locations are listed in
+ * parallel.
+ * <p>
+ * Like the <code>IOLocationTreeIterator</code>: locations that the filter
+ * rejects are neither returned nor searched. The filter may be called from
+ * several threads at once.
+ */
+public class ParallelIOLocationTreeIterator extends
+		ParallelTreeIterator<IOLocation> {
+
+	/**
+	 * The optional filter applied to this iterator. IOLocations that do not
+	 * pass this filter will not be returned.
+	 */
+	public final IOLocationFilter filter;
+
+	private final List<BasicCancellable> allCancellables = new ArrayList<>();
+
+	/**
+	 * Create an ordered ParallelIOLocationTreeIterator that uses a shared
+	 * pool.
+	 * 
+	 * @param parent
+	 *            the root node to begin iterating over.
+	 * @param includeRoot
+	 *            whether this iterator should include the root node.
+	 * @param filter
+	 *            an optional (but strongly recommended) filter. At the very
+	 *            least: consider applying a filter that strips out aliases.
+	 *            Otherwise this could lead to a recursive unending file tree.
+	 */
+	public ParallelIOLocationTreeIterator(IOLocation parent,
+			boolean includeRoot, IOLocationFilter filter) {
+		this(parent, includeRoot, filter, null, true, getDefaultCapacity());
+	}
+
+	/**
+	 * Create a ParallelIOLocationTreeIterator.
+	 * 
+	 * @param parent
+	 *            the root node to begin iterating over.
+	 * @param includeRoot
+	 *            whether this iterator should include the root node.
+	 * @param filter
+	 *            an optional (but strongly recommended) filter. At the very
+	 *            least: consider applying a filter that strips out aliases.
+	 *            Otherwise this could lead to a recursive unending file tree.
+	 * @param pool
+	 *            the pool to list locations on. If this is null then a shared
+	 *            pool is used.
+	 * @param ordered
+	 *            if true then locations are returned in the same order an
+	 *            <code>IOLocationTreeIterator</code> returns them. If false
+	 *            then locations are returned in whatever order they are found.
+	 * @param capacity
+	 *            the maximum number of locations that can be listed ahead of
+	 *            the iterator.
+	 */
+	public ParallelIOLocationTreeIterator(IOLocation parent,
+			boolean includeRoot, IOLocationFilter filter, ForkJoinPool pool,
+			boolean ordered, int capacity) {
+		super(parent, includeRoot, pool, ordered, capacity);
+		this.filter = filter;
+	}
+
+	/**
+	 * Cancels all directory listings taking place, and stops this iterator.
+	 */
+	public void cancel() {
+		close();
+	}
+
+	@Override
+	public void close() {
+		super.close();
+		synchronized (allCancellables) {
+			for (BasicCancellable c : allCancellables) {
+				c.cancel();
+			}
+			allCancellables.clear();
+		}
+	}
+
+	@Override
+	protected IOLocation[] listChildren(IOLocation parent) {
+		BasicReceiver<IOLocation> receiver = new BasicReceiver<IOLocation>() {
+			@Override
+			public void add(IOLocation... elements) {
+				if (filter == null) {
+					super.add(elements);
+				} else {
+					for (IOLocation e : elements) {
+						IOLocation filtered = filter.filter(e);
+						if (filtered != null) {
+							super.add(filtered);
+						}
+					}
+				}
+			}
+		};
+		BasicCancellable cancellable = new BasicCancellable();
+		synchronized (allCancellables) {
+			if (isCancelled())
+				return null;
+			allCancellables.add(cancellable);
+		}
+		try {
+			parent.listChildren(receiver, cancellable);
+		} finally {
+			synchronized (allCancellables) {
+				allCancellables.remove(cancellable);
+			}
+		}
+		return receiver.toArray(new IOLocation[receiver.getSize()]);
+	}
+
+	/**
+	 * Return true for directories and navigable locations (like archives).
+	 */
+	@Override
+	protected boolean isBranch(IOLocation location) {
+		return location.isDirectory() || location.isNavigable();
+	}
+}
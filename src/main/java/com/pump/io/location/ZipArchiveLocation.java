@@ -14,10 +14,12 @@ import java.io.File;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.util.zip.ZipException;
 import java.util.zip.ZipInputStream;
 
+import com.pump.io.ZipIndex;
 import com.pump.util.Receiver;
 
 public class ZipArchiveLocation extends ArchiveLocation<ZipEntry> {
@@ -45,9 +47,32 @@ public class ZipArchiveLocation extends ArchiveLocation<ZipEntry> {
 		return '/';
 	}
 
+	/**
+	 * Return the ZipIndex for this archive, or null if the archive is not a
+	 * file or its central directory can't be read.
+	 */
+	private ZipIndex getZipIndex() throws IOException {
+		if (root.archive instanceof FileLocation) {
+			File file = ((FileLocation) root.archive).getFile();
+			try {
+				return ZipIndex.get(file);
+			} catch (ZipException e) {
+				// fall back to reading the archive sequentially
+			}
+		}
+		return null;
+	}
+
 	@Override
 	protected void listArchiveEntries(Receiver<ZipEntry> receiver)
 			throws IOException {
+		ZipIndex zipIndex = getZipIndex();
+		if (zipIndex != null) {
+			List<ZipEntry> entries = zipIndex.getEntries();
+			receiver.add(entries.toArray(new ZipEntry[entries.size()]));
+			return;
+		}
+
 		InputStream in = null;
 		try {
 			in = archive.createInputStream();
@@ -116,38 +141,15 @@ public class ZipArchiveLocation extends ArchiveLocation<ZipEntry> {
 	/**
 	 * Create an InputStream for a ZipEntry.
 	 * <P>
-	 * TODO: This is optimized for java.io.Files, but if we parse the table of
-	 * contents manually then we might be able to similarly optimize it for
-	 * non-files.
+	 * If the archive is a file then this opens the entry directly using the
+	 * archive's {@link ZipIndex}. Otherwise this has to read through the
+	 * archive until it reaches the entry.
 	 */
 	@Override
 	public InputStream createInputStream(ZipEntry entry) throws IOException {
-		if (this.root.archive instanceof FileLocation) {
-			File file = ((FileLocation) root.archive).getFile();
-			final ZipFile zipFile = new ZipFile(file);
-			InputStream in = zipFile.getInputStream(entry);
-
-			// A little extra insurance that we'll close the resource we opened:
-			FilterInputStream wrapper = new FilterInputStream(in) {
-
-				@Override
-				public void close() throws IOException {
-					super.close();
-					closeZipFile();
-				}
-
-				@Override
-				protected void finalize() throws Throwable {
-					super.finalize();
-					closeZipFile();
-				}
-
-				private void closeZipFile() throws IOException {
-					zipFile.close();
-				}
-			};
-			return wrapper;
-		}
+		ZipIndex zipIndex = getZipIndex();
+		if (zipIndex != null)
+			return zipIndex.createInputStream(entry.getName());
 
 		final InputStream in = archive.createInputStream();
 		final ZipInputStream zipIn = new ZipInputStream(in);
@@ -0,0 +1,301 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.io.parser;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import com.pump.io.parser.Parser.UnparsedToken;
+import com.pump.util.Receiver;
+
+/**
+ * This maintains the tokens of a document as it is edited.
+ * <p>
+ * When text is inserted or removed this re-parses the document starting at
+ * the last token before the edit that the {@link Parser} identifies as a
+ * restart point (see {@link Parser#isRestartPoint(Token)}). As soon as the
+ * new tokens resynchronize with the old tokens (a restart point with the same
+ * text and type begins at the same position after the edit), parsing stops
+ * and the remaining old tokens are shifted to their new positions.
+ * <p>
+ * So typing a character in a large document usually only re-parses a few
+ * tokens instead of the entire document.
+ * <p>
+ * Like {@link com.pump.text.TokenTextComponentHighlighter}: if the Parser
+ * throws a {@link ParserException} then the rest of the document is
+ * represented by an {@link UnparsedToken}.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class IncrementalParser {
+
+	/**
+	 * This is thrown to stop parsing once the new tokens resynchronize with
+	 * the old tokens.
+	 */
+	private static class ResyncException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		ResyncException() {
+			super(null, null, false, false);
+		}
+	}
+
+	/**
+	 * This reads a String starting at a given position without copying it.
+	 */
+	private static class StringReader extends Reader {
+		final String text;
+		int pos;
+
+		StringReader(String text, int pos) {
+			this.text = text;
+			this.pos = pos;
+		}
+
+		@Override
+		public int read(char[] dest, int off, int len) {
+			if (pos == text.length())
+				return -1;
+			len = Math.min(len, text.length() - pos);
+			text.getChars(pos, pos + len, dest, off);
+			pos += len;
+			return len;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	protected final Parser parser;
+	protected String text = "";
+	protected final List<Token> tokens = new ArrayList<>();
+
+	/**
+	 * Create an IncrementalParser.
+	 * 
+	 * @param parser
+	 *            the parser used to create tokens.
+	 * @param text
+	 *            the initial document.
+	 */
+	public IncrementalParser(Parser parser, String text) {
+		Objects.requireNonNull(parser);
+		this.parser = parser;
+		edit(0, 0, text);
+	}
+
+	/**
+	 * Return the current text of the document.
+	 */
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * Return all the tokens of the document.
+	 * <p>
+	 * Tokens are never modified: when an edit moves tokens, they are replaced
+	 * with copies at their new positions. So the tokens returned here continue
+	 * to describe the text as it was when this method was called.
+	 */
+	public Token[] getTokens() {
+		return tokens.toArray(new Token[tokens.size()]);
+	}
+
+	/**
+	 * Replace the text of this document. This identifies the range of text
+	 * that changed and passes it to {@link #edit(int, int, String)}.
+	 */
+	public void setText(String newText) {
+		int max = Math.min(text.length(), newText.length());
+		int prefix = 0;
+		while (prefix < max && text.charAt(prefix) == newText.charAt(prefix)) {
+			prefix++;
+		}
+		int suffix = 0;
+		max -= prefix;
+		while (suffix < max
+				&& text.charAt(text.length() - 1 - suffix) == newText
+						.charAt(newText.length() - 1 - suffix)) {
+			suffix++;
+		}
+		if (prefix == text.length() && prefix == newText.length())
+			return;
+		edit(prefix, text.length() - prefix - suffix, newText.substring(
+				prefix, newText.length() - suffix));
+	}
+
+	/**
+	 * Edit the document.
+	 * 
+	 * @param offset
+	 *            the position of the edit.
+	 * @param removedLength
+	 *            the number of chars removed at <code>offset</code>.
+	 * @param insertedText
+	 *            the text inserted at <code>offset</code>.
+	 */
+	public void edit(int offset, int removedLength, String insertedText) {
+		if (offset < 0 || removedLength < 0
+				|| offset + removedLength > text.length())
+			throw new IndexOutOfBoundsException("offset = " + offset
+					+ ", removed length = " + removedLength
+					+ ", text length = " + text.length());
+		final String newText = text.substring(0, offset) + insertedText
+				+ text.substring(offset + removedLength);
+		final int delta = insertedText.length() - removedLength;
+		final int newEditEnd = offset + insertedText.length();
+
+		// re-parse the token that touches the edit, because the edit may
+		// extend it:
+		int restartIndex = Math.min(getTokenIndex(offset - 1),
+				tokens.size() - 1);
+		while (restartIndex > 0
+				&& !isRestartPoint(tokens.get(restartIndex))) {
+			restartIndex--;
+		}
+		final int restartPos;
+		final int restartLine, restartColumn;
+		if (restartIndex <= 0) {
+			restartIndex = 0;
+			restartPos = restartLine = restartColumn = 0;
+		} else {
+			Token t = tokens.get(restartIndex);
+			restartPos = t.getDocumentStartIndex();
+			restartLine = t.getLineNumber();
+			restartColumn = t.getStartIndex();
+		}
+
+		final int oldIndex = getTokenIndex(offset + removedLength);
+		final List<Token> newTokens = new ArrayList<>();
+		final int[] resyncIndex = new int[] { tokens.size() };
+		final Token[] resyncToken = new Token[1];
+		Receiver<Token> receiver = new Receiver<Token>() {
+			int j = oldIndex;
+
+			@Override
+			public void add(Token... elements) {
+				for (Token token : elements) {
+					// tokens are moved after parsing, because the parser may
+					// still modify them (for example to match brackets)
+					int pos = token.getDocumentStartIndex() + restartPos;
+					if (pos >= newEditEnd && isRestartPoint(token)) {
+						while (j < tokens.size()
+								&& tokens.get(j).getDocumentStartIndex()
+										+ delta < pos) {
+							j++;
+						}
+						if (j < tokens.size()) {
+							Token old = tokens.get(j);
+							if (old.getDocumentStartIndex() + delta == pos
+									&& old.getClass() == token.getClass()
+									&& old.getText().equals(token.getText())
+									&& isRestartPoint(old)) {
+								resyncIndex[0] = j;
+								resyncToken[0] = token.relocate(restartPos,
+										restartLine, 0, restartColumn);
+								throw new ResyncException();
+							}
+						}
+					}
+					newTokens.add(token);
+				}
+			}
+		};
+
+		ParserException parserException = null;
+		try {
+			parser.parse(new StringReader(newText, restartPos), receiver);
+		} catch (ResyncException e) {
+			// this is expected
+		} catch (ParserException e) {
+			parserException = e;
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+
+		for (int a = 0; a < newTokens.size(); a++) {
+			newTokens.set(a, newTokens.get(a).relocate(restartPos,
+					restartLine, 0, restartColumn));
+		}
+		if (parserException != null) {
+			int pos = newTokens.isEmpty() ? restartPos : newTokens.get(
+					newTokens.size() - 1).getDocumentEndIndex();
+			newTokens.add(new UnparsedToken(pos, newText, parserException));
+		}
+
+		int resync = resyncIndex[0];
+		if (resync < tokens.size()) {
+			// move the remaining old tokens to where the resynchronizing new
+			// token was parsed:
+			Token old = tokens.get(resync);
+			int oldLine = old.getLineNumber();
+			int lineOffset = resyncToken[0].getLineNumber() - oldLine;
+			int columnOffset = resyncToken[0].getStartIndex()
+					- old.getStartIndex();
+			for (int a = resync; a < tokens.size(); a++) {
+				Token token = tokens.get(a);
+				if (token instanceof UnparsedToken) {
+					// UnparsedTokens measure their line from the whole document:
+					token = new UnparsedToken(token.getDocumentStartIndex()
+							+ delta, newText, token.getException());
+				} else {
+					token = token.relocate(delta, lineOffset, oldLine,
+							columnOffset);
+				}
+				tokens.set(a, token);
+			}
+		}
+		tokens.subList(restartIndex, resync).clear();
+		tokens.addAll(restartIndex, newTokens);
+		text = newText;
+		parser.tokensReplaced(tokens);
+	}
+
+	/**
+	 * Return true if parsing can start at the beginning of a token. This
+	 * rejects tokens that span several lines, because their line number and
+	 * start index may describe their last line.
+	 */
+	private boolean isRestartPoint(Token token) {
+		if (!parser.isRestartPoint(token))
+			return false;
+		String s = token.getText();
+		return s.indexOf('\n') == -1 && s.indexOf('\r') == -1;
+	}
+
+	/**
+	 * Return the index of the token that contains a position, or the first
+	 * token after that position.
+	 */
+	private int getTokenIndex(int pos) {
+		int min = 0;
+		int max = tokens.size() - 1;
+		while (min <= max) {
+			int mid = (min + max) >>> 1;
+			Token t = tokens.get(mid);
+			if (t.getDocumentEndIndex() <= pos) {
+				min = mid + 1;
+			} else if (t.getDocumentStartIndex() > pos) {
+				max = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return min;
+	}
+}
@@ -13,6 +13,7 @@ package com.pump.io.parser;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
 import java.nio.charset.Charset;
 import java.text.CharacterIterator;
 import java.util.ArrayList;
@@ -38,6 +39,13 @@ public abstract class Parser {
 		public CommentToken(String tokenText, int tokenStart) {
 			this(tokenText, tokenStart, 0, tokenStart);
 		}
+
+		@Override
+		protected CommentToken createCopy(int tokenStart, int lineNumber,
+				int documentStart) {
+			return new CommentToken(getText(), tokenStart, lineNumber,
+					documentStart);
+		}
 	}
 
 	public static class UnparsedToken extends Token {
@@ -108,6 +116,13 @@ public abstract class Parser {
 			this(tokenText, tokenStart, 0, tokenStart);
 		}
 
+		@Override
+		protected WhitespaceToken createCopy(int tokenStart, int lineNumber,
+				int documentStart) {
+			return new WhitespaceToken(getText(), tokenStart, lineNumber,
+					documentStart);
+		}
+
 		/**
 		 * Split this token into a series of tokens that end in the character(s)
 		 * provided. For example, if this token represents: "\\t\\t\\n\\t" and
@@ -173,6 +188,13 @@ public abstract class Parser {
 			this(ch, position, 0, position);
 		}
 
+		@Override
+		protected SymbolCharToken createCopy(int tokenStart, int lineNumber,
+				int documentStart) {
+			return new SymbolCharToken(ch, tokenStart, lineNumber,
+					documentStart);
+		}
+
 		public char getChar() {
 			return ch;
 		}
@@ -202,6 +224,17 @@ public abstract class Parser {
 			this.open = open;
 		}
 
+		/**
+		 * Return a copy of this bracket at a different position. The copy
+		 * does not have a matching bracket.
+		 */
+		@Override
+		protected BracketCharToken createCopy(int tokenStart, int lineNumber,
+				int documentStart) {
+			return new BracketCharToken(bracketType, open, tokenStart,
+					lineNumber, documentStart);
+		}
+
 		/**
 		 * Return the type of bracket this token represents.
 		 * 
@@ -294,6 +327,13 @@ public abstract class Parser {
 			this.decodedString = decodedString;
 		}
 
+		@Override
+		protected StringToken createCopy(int tokenStart, int lineNumber,
+				int documentStart) {
+			return new StringToken(getText(), decodedString, tokenStart,
+					lineNumber, documentStart);
+		}
+
 		public String getDecodedString() {
 			return decodedString;
 		}
@@ -443,4 +483,82 @@ public abstract class Parser {
 	 */
 	public abstract void parse(InputStream in, Receiver<Token> receiver)
 			throws Exception;
+
+	/**
+	 * Parse data from a Reader.
+	 * <p>
+	 * The default implementation reads all the text and encodes it as UTF-8
+	 * for {@link #parse(InputStream, Receiver)}. Subclasses that can parse
+	 * characters directly should override this method.
+	 * 
+	 * @param reader
+	 *            the reader to create {@link com.pump.io.parser.Token} objects
+	 *            from.
+	 * @param receiver
+	 *            the receiver in which tokens are placed as they are parsed.
+	 */
+	public void parse(Reader reader, Receiver<Token> receiver)
+			throws Exception {
+		StringBuilder sb = new StringBuilder();
+		char[] buffer = new char[4096];
+		int k = reader.read(buffer);
+		while (k != -1) {
+			sb.append(buffer, 0, k);
+			k = reader.read(buffer);
+		}
+		parse(new ByteArrayInputStream(sb.toString().getBytes(
+				Charset.forName("UTF-8"))), receiver);
+	}
+
+	/**
+	 * Return true if this parser can begin parsing at the start of a token
+	 * without knowing anything about the text that precedes it. The
+	 * {@link IncrementalParser} only starts and stops parsing at these tokens.
+	 * <p>
+	 * The default implementation returns false, so the IncrementalParser
+	 * always parses the entire document. Parsers that return true should make
+	 * sure all their tokens override {@link Token#createCopy(int, int, int)}.
+	 */
+	protected boolean isRestartPoint(Token token) {
+		return false;
+	}
+
+	/**
+	 * This is called after the {@link IncrementalParser} replaces some tokens.
+	 * Parsers that relate tokens to each other should update those
+	 * relationships here. The default implementation does nothing.
+	 * 
+	 * @param tokens
+	 *            all the tokens in the document.
+	 */
+	protected void tokensReplaced(List<Token> tokens) {
+	}
+
+	/**
+	 * Match every {@link BracketCharToken} to its opposing bracket. As soon as
+	 * a closing bracket does not match the most recent opening bracket this
+	 * stops matching brackets.
+	 */
+	protected static void matchBrackets(List<Token> tokens) {
+		for (Token token : tokens) {
+			if (token instanceof BracketCharToken)
+				((BracketCharToken) token).matching = null;
+		}
+		List<BracketCharToken> openBrackets = new ArrayList<>();
+		for (Token token : tokens) {
+			if (token instanceof BracketCharToken) {
+				BracketCharToken bct = (BracketCharToken) token;
+				if (bct.isOpen()) {
+					openBrackets.add(bct);
+				} else {
+					BracketCharToken last = openBrackets.isEmpty() ? null
+							: openBrackets.remove(openBrackets.size() - 1);
+					if (last == null
+							|| last.getBracketType() != bct.getBracketType())
+						return;
+					last.setMatch(bct);
+				}
+			}
+		}
+	}
 }
\ No newline at end of file
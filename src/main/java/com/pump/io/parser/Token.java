@@ -70,6 +70,55 @@ public class Token implements Comparable<Token> {
 		this.lineNumber = lineNumber;
 	}
 
+	/**
+	 * Create a copy of this token at a different position. This is used by
+	 * the {@link IncrementalParser} when text is inserted or removed before
+	 * this token.
+	 * <p>
+	 * Subclasses should override this to return an instance of their own
+	 * class.
+	 * 
+	 * @param tokenStart
+	 *            the starting position of the copy relative to its line.
+	 * @param lineNumber
+	 *            the line number of the copy.
+	 * @param documentStart
+	 *            the starting position of the copy relative to the document.
+	 */
+	protected Token createCopy(int tokenStart, int lineNumber,
+			int documentStart) {
+		return new Token(text, tokenStart, lineNumber, documentStart);
+	}
+
+	/**
+	 * Return a copy of this token that has been moved.
+	 * 
+	 * @param docOffset
+	 *            the amount to add to the document start index.
+	 * @param lineOffset
+	 *            the amount to add to the line number.
+	 * @param firstLine
+	 *            the (original) line number the edit ended on.
+	 * @param columnOffset
+	 *            the amount to add to the start index if this token is on
+	 *            <code>firstLine</code>.
+	 */
+	Token relocate(int docOffset, int lineOffset, int firstLine,
+			int columnOffset) {
+		if (docOffset == 0 && lineOffset == 0
+				&& (columnOffset == 0 || lineNumber != firstLine))
+			return this;
+		Token copy = createCopy(lineNumber == firstLine ? start
+				+ columnOffset : start, lineNumber + lineOffset, docStart
+				+ docOffset);
+		if (copy.exception == null && exception != null) {
+			copy.exception = new ParserException(copy, exception.getMessage());
+			if (exception.getCause() != null)
+				copy.exception.initCause(exception.getCause());
+		}
+		return copy;
+	}
+
 	/**
 	 * Return the index in the document where this token starts. This is
 	 * different from {@link #getStartIndex()}, which is relative to the line
@@ -20,6 +20,7 @@ import java.text.CharacterIterator;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
 
 import com.pump.io.LookAheadReader;
@@ -135,6 +136,13 @@ public class JavaParser extends Parser {
 			isModifier = JAVA_MODIFIERS.contains(tokenText);
 			isDeclarationType = JAVA_DECLARATION_TYPES.contains(tokenText);
 		}
+
+		@Override
+		protected WordToken createCopy(int tokenStart, int lineNumber,
+				int documentStart) {
+			return new WordToken(getText(), tokenStart, lineNumber,
+					documentStart);
+		}
 	}
 
 	/** This token represents a char literal. */
@@ -174,6 +182,13 @@ public class JavaParser extends Parser {
 			this.decodedChar = decodedChar;
 		}
 
+		@Override
+		protected CharToken createCopy(int tokenStart, int lineNumber,
+				int documentStart) {
+			return new CharToken(getText(), decodedChar, tokenStart,
+					lineNumber, documentStart);
+		}
+
 		public char getDecodedChar() {
 			return decodedChar;
 		}
@@ -208,6 +223,13 @@ public class JavaParser extends Parser {
 			this(substring, startIndex, 0, startIndex);
 		}
 
+		@Override
+		protected DoubleToken createCopy(int tokenStart, int lineNumber,
+				int documentStart) {
+			return new DoubleToken(getText(), tokenStart, lineNumber,
+					documentStart);
+		}
+
 		public double doubleValue() {
 			return doubleValue;
 		}
@@ -236,6 +258,13 @@ public class JavaParser extends Parser {
 			this(substring, startIndex, 0, startIndex);
 		}
 
+		@Override
+		protected FloatToken createCopy(int tokenStart, int lineNumber,
+				int documentStart) {
+			return new FloatToken(getText(), tokenStart, lineNumber,
+					documentStart);
+		}
+
 		public float floatValue() {
 			return floatValue;
 		}
@@ -267,6 +296,13 @@ public class JavaParser extends Parser {
 			this(substring, startIndex, 0, startIndex);
 		}
 
+		@Override
+		protected LongToken createCopy(int tokenStart, int lineNumber,
+				int documentStart) {
+			return new LongToken(getText(), tokenStart, lineNumber,
+					documentStart);
+		}
+
 		public long longValue() {
 			return longValue;
 		}
@@ -295,6 +331,13 @@ public class JavaParser extends Parser {
 			this(substring, startIndex, 0, startIndex);
 		}
 
+		@Override
+		protected IntegerToken createCopy(int tokenStart, int lineNumber,
+				int documentStart) {
+			return new IntegerToken(getText(), tokenStart, lineNumber,
+					documentStart);
+		}
+
 		public int intValue() {
 			return intValue;
 		}
@@ -326,6 +369,7 @@ public class JavaParser extends Parser {
 		}
 	}
 
+	@Override
 	public void parse(Reader reader, Receiver<Token> receiver)
 			throws IOException {
 		LinkedList<BracketCharToken> brackets = new LinkedList<BracketCharToken>();
@@ -709,6 +753,21 @@ public class JavaParser extends Parser {
 		}
 	}
 
+	/**
+	 * This parser never carries state from one token to the next (except
+	 * bracket matching, which {@link #tokensReplaced(List)} repairs), so it can
+	 * restart at any token.
+	 */
+	@Override
+	protected boolean isRestartPoint(Token token) {
+		return !(token instanceof UnparsedToken);
+	}
+
+	@Override
+	protected void tokensReplaced(List<Token> tokens) {
+		matchBrackets(tokens);
+	}
+
 	/**
 	 * Store the first {@code maximum} chars (accessed by peeking) into the
 	 * destination buffer. This starts with {@code reader.peek(0)}, which means
@@ -17,6 +17,8 @@ import java.io.Reader;
 import java.io.StringReader;
 import java.text.CharacterIterator;
 import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
 
 import com.pump.io.LookAheadReader;
 import com.pump.io.parser.MatchingToken;
@@ -45,6 +47,13 @@ public class XMLParser extends Parser {
 		public boolean isClosingTag() {
 			return getText().equals("</");
 		}
+
+		@Override
+		protected StartTagToken createCopy(int tokenStart, int lineNumber,
+				int documentStart) {
+			return new StartTagToken(tokenStart, lineNumber, documentStart,
+					isClosingTag());
+		}
 	}
 
 	public static class StartDTDTagToken extends
@@ -53,6 +62,12 @@ public class XMLParser extends Parser {
 				int documentStart) {
 			super("<!", tokenStart, lineNumber, documentStart);
 		}
+
+		@Override
+		protected StartDTDTagToken createCopy(int tokenStart, int lineNumber,
+				int documentStart) {
+			return new StartDTDTagToken(tokenStart, lineNumber, documentStart);
+		}
 	}
 
 	public static class EndDTDTagToken extends
@@ -60,6 +75,12 @@ public class XMLParser extends Parser {
 		public EndDTDTagToken(int tokenStart, int lineNumber, int documentStart) {
 			super(">", tokenStart, lineNumber, documentStart);
 		}
+
+		@Override
+		protected EndDTDTagToken createCopy(int tokenStart, int lineNumber,
+				int documentStart) {
+			return new EndDTDTagToken(tokenStart, lineNumber, documentStart);
+		}
 	}
 
 	public static class AssignmentToken extends SymbolCharToken {
@@ -67,6 +88,13 @@ public class XMLParser extends Parser {
 				int documentStart) {
 			super(tokenChar, tokenStart, lineNumber, documentStart);
 		}
+
+		@Override
+		protected AssignmentToken createCopy(int tokenStart, int lineNumber,
+				int documentStart) {
+			return new AssignmentToken(getChar(), tokenStart, lineNumber,
+					documentStart);
+		}
 	}
 
 	public static abstract class TagDeclarationToken<Z extends Token> extends
@@ -95,6 +123,12 @@ public class XMLParser extends Parser {
 				int documentStart) {
 			super("<?", tokenStart, lineNumber, documentStart);
 		}
+
+		@Override
+		protected StartPrologToken createCopy(int tokenStart, int lineNumber,
+				int documentStart) {
+			return new StartPrologToken(tokenStart, lineNumber, documentStart);
+		}
 	}
 
 	public static class EndPrologToken extends
@@ -102,6 +136,12 @@ public class XMLParser extends Parser {
 		public EndPrologToken(int tokenStart, int lineNumber, int documentStart) {
 			super("?>", tokenStart, lineNumber, documentStart);
 		}
+
+		@Override
+		protected EndPrologToken createCopy(int tokenStart, int lineNumber,
+				int documentStart) {
+			return new EndPrologToken(tokenStart, lineNumber, documentStart);
+		}
 	}
 
 	public static class CommentStartToken extends Token {
@@ -109,6 +149,12 @@ public class XMLParser extends Parser {
 				int documentStart) {
 			super("<!--", tokenStart, lineNumber, documentStart);
 		}
+
+		@Override
+		protected CommentStartToken createCopy(int tokenStart, int lineNumber,
+				int documentStart) {
+			return new CommentStartToken(tokenStart, lineNumber, documentStart);
+		}
 	}
 
 	public static class StartCommentToken extends
@@ -117,6 +163,12 @@ public class XMLParser extends Parser {
 				int documentStart) {
 			super("<!--", tokenStart, lineNumber, documentStart);
 		}
+
+		@Override
+		protected StartCommentToken createCopy(int tokenStart, int lineNumber,
+				int documentStart) {
+			return new StartCommentToken(tokenStart, lineNumber, documentStart);
+		}
 	}
 
 	public static class EndCommentToken extends
@@ -124,6 +176,12 @@ public class XMLParser extends Parser {
 		public EndCommentToken(int tokenStart, int lineNumber, int documentStart) {
 			super("-->", tokenStart, lineNumber, documentStart);
 		}
+
+		@Override
+		protected EndCommentToken createCopy(int tokenStart, int lineNumber,
+				int documentStart) {
+			return new EndCommentToken(tokenStart, lineNumber, documentStart);
+		}
 	}
 
 	public static class CommentToken extends Token {
@@ -131,6 +189,13 @@ public class XMLParser extends Parser {
 				int documentStart) {
 			super(comment, tokenStart, lineNumber, documentStart);
 		}
+
+		@Override
+		protected CommentToken createCopy(int tokenStart, int lineNumber,
+				int documentStart) {
+			return new CommentToken(getText(), tokenStart, lineNumber,
+					documentStart);
+		}
 	}
 
 	public static class EndTagToken extends TagDeclarationToken<StartTagToken> {
@@ -145,6 +210,13 @@ public class XMLParser extends Parser {
 		public boolean isInline() {
 			return inline;
 		}
+
+		@Override
+		protected EndTagToken createCopy(int tokenStart, int lineNumber,
+				int documentStart) {
+			return new EndTagToken(getText(), tokenStart, lineNumber,
+					documentStart, inline);
+		}
 	}
 
 	public static class WordToken extends Token {
@@ -154,6 +226,12 @@ public class XMLParser extends Parser {
 			super(tokenText, tokenStart, lineNumber, documentStart);
 		}
 
+		@Override
+		protected WordToken createCopy(int tokenStart, int lineNumber,
+				int documentStart) {
+			return new WordToken(getText(), tokenStart, lineNumber,
+					documentStart);
+		}
 	}
 
 	public static class ContentToken extends Token {
@@ -163,6 +241,12 @@ public class XMLParser extends Parser {
 			super(tokenText, tokenStart, lineNumber, documentStart);
 		}
 
+		@Override
+		protected ContentToken createCopy(int tokenStart, int lineNumber,
+				int documentStart) {
+			return new ContentToken(getText(), tokenStart, lineNumber,
+					documentStart);
+		}
 	}
 
 	static class CacheLastTokenReceiver implements Receiver<Token> {
@@ -302,6 +386,7 @@ public class XMLParser extends Parser {
 		}
 	}
 
+	@Override
 	public void parse(Reader reader, Receiver<Token> receiver)
 			throws IOException {
 		try (LookAheadReader l = new LookAheadReader(reader)) {
@@ -414,6 +499,43 @@ public class XMLParser extends Parser {
 		}
 	}
 
+	/**
+	 * An opening tag ("&lt;" or "&lt;/") is always parsed the same way, so
+	 * parsing can restart there. (Other tokens may be inside a tag or a DTD.)
+	 */
+	@Override
+	protected boolean isRestartPoint(Token token) {
+		return token instanceof StartTagToken;
+	}
+
+	/**
+	 * Match every tag declaration to the token that closes it. The
+	 * {@link com.pump.io.parser.IncrementalParser} replaces tokens after an
+	 * edit with copies that are not matched to anything.
+	 */
+	@Override
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	protected void tokensReplaced(List<Token> tokens) {
+		LinkedList<TagDeclarationToken> openTags = new LinkedList<>();
+		for (Token token : tokens) {
+			if (token instanceof StartTagToken
+					|| token instanceof StartDTDTagToken
+					|| token instanceof StartPrologToken
+					|| token instanceof StartCommentToken) {
+				openTags.add((TagDeclarationToken) token);
+			} else if ((token instanceof EndTagToken
+					|| token instanceof EndDTDTagToken
+					|| token instanceof EndPrologToken
+					|| token instanceof EndCommentToken)
+					&& !openTags.isEmpty()) {
+				TagDeclarationToken startingToken = openTags.removeLast();
+				TagDeclarationToken endToken = (TagDeclarationToken) token;
+				endToken.setMatch(startingToken);
+				startingToken.setMatch(endToken);
+			}
+		}
+	}
+
 	private int getTrailingWhitespace(StringBuilder sb) {
 		int run = 0;
 		for (int a = sb.length() - 1; a >= 0; a--) {
@@ -54,7 +54,8 @@ import com.pump.util.JVM;
 import com.pump.util.list.ObservableList;
 
 public abstract class TileLocationBrowserUI extends LocationBrowserUI {
-	protected ObservableList<IOLocation> threadsafeListModel = new ObservableList<IOLocation>();
+	protected ObservableList<IOLocation> threadsafeListModel = new ObservableList<IOLocation>(
+			ObservableList.ConcurrencyMode.SNAPSHOT);
 	protected ListModel listUIModel = threadsafeListModel.createUIMirror(null);
 	protected IOLocationTileList list = new IOLocationTileList(listUIModel);
 	protected JScrollPane scrollPane;
@@ -131,6 +132,7 @@ public abstract class TileLocationBrowserUI extends LocationBrowserUI {
 		listUIModel.addListDataListener(new ListDataListener() {
 			public void contentsChanged(ListDataEvent e) {
 				updateRowCount();
+				prefetchThumbnails(e.getIndex0(), e.getIndex1());
 			}
 
 			public void intervalAdded(ListDataEvent e) {
@@ -138,7 +140,7 @@ public abstract class TileLocationBrowserUI extends LocationBrowserUI {
 			}
 
 			public void intervalRemoved(ListDataEvent e) {
-				contentsChanged(e);
+				updateRowCount();
 			}
 		});
 
@@ -316,6 +318,26 @@ public abstract class TileLocationBrowserUI extends LocationBrowserUI {
 		list.updateVisibleRowCount(width);
 	}
 
+	/**
+	 * Warm the thumbnail cache for locations that were just added to the list
+	 * but may not be visible yet.
+	 */
+	private void prefetchThumbnails(int index0, int index1) {
+		ListModel<?> model = list.getModel();
+		int min = Math.max(0, Math.min(index0, index1));
+		int max = Math.min(model.getSize() - 1, Math.max(index0, index1));
+		if (index0 < 0 || index1 < 0) {
+			min = 0;
+			max = model.getSize() - 1;
+		}
+		List<IOLocation> locs = new ArrayList<>();
+		for (int index = min; index <= max; index++) {
+			locs.add((IOLocation) model.getElementAt(index));
+		}
+		if (!locs.isEmpty())
+			browser.getGraphicCache().prefetchThumbnails(locs);
+	}
+
 	@Override
 	protected void repaint(IOLocation loc, boolean thumbnail) {
 		int size = list.getModel().getSize();
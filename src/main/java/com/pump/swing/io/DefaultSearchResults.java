@@ -25,7 +25,7 @@ import javax.swing.tree.TreePath;
 
 import com.pump.io.location.CachedLocation;
 import com.pump.io.location.IOLocation;
-import com.pump.io.location.IOLocationTreeIterator;
+import com.pump.io.location.ParallelIOLocationTreeIterator;
 import com.pump.io.location.SearchParameters;
 import com.pump.io.location.SearchResults;
 import com.pump.swing.BasicCancellable;
@@ -152,8 +152,8 @@ public class DefaultSearchResults extends CachedLocation implements
 		if (cancellable == null)
 			cancellable = new BasicCancellable();
 
-		IOLocationTreeIterator i = new IOLocationTreeIterator(directory, false,
-				null);
+		ParallelIOLocationTreeIterator i = new ParallelIOLocationTreeIterator(
+				directory, false, null);
 
 		/*
 		 * FIXME: this approach requires traversing the entire directory
@@ -165,8 +165,10 @@ public class DefaultSearchResults extends CachedLocation implements
 		SortedMap<Number, LinkedList<IOLocation>> results = new TreeMap<Number, LinkedList<IOLocation>>(
 				reverseNumberComparator);
 		while (i.hasNext()) {
-			if (cancellable.isCancelled())
+			if (cancellable.isCancelled()) {
+				i.cancel();
 				return;
+			}
 			IOLocation loc = i.next();
 
 			float relevance = parameters.getRelevance(loc);
@@ -18,6 +18,7 @@ import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -31,7 +32,11 @@ import com.pump.swing.Cancellable;
 
 /**
  * This caches icons and thumbnails of <code>IOLocations</code>. Calling
- * <code>clear()</code> empties all cached graphics.
+ * <code>clear()</code> empties all cached icons and cancels pending requests.
+ * <p>
+ * Thumbnails are stored in a {@link ThumbnailCache}, which may be shared by
+ * several GraphicCaches and may persist thumbnails across sessions, so
+ * <code>clear()</code> leaves the thumbnails in that cache alone.
  */
 public class GraphicCache {
 	public static final String ICON_PROPERTY = "icon";
@@ -42,10 +47,8 @@ public class GraphicCache {
 
 	List<ActionListener> exceptionHandlers = new ArrayList<ActionListener>();
 	final Map<IOLocation, Icon> icons = new HashMap<>();
-	final Map<IOLocation, BufferedImage> thumbnails = new HashMap<>();
 
 	final List<IOLocation> requestIconList = new ArrayList<IOLocation>();
-	final List<IOLocation> requestThumbnailList = new ArrayList<IOLocation>();
 	final List<PropertyChangeListener> propertyListeners = new ArrayList<PropertyChangeListener>();
 	Dimension thumbnailSize = new Dimension(64, 64);
 
@@ -60,7 +63,6 @@ public class GraphicCache {
 	final Thread[] iconThreads = new Thread[3];
 	Cancellable cancellable = new BasicCancellable();
 
-	static HashSet<String> noThumbnails = new HashSet<String>();
 	static HashSet<String> noIcons = new HashSet<String>();
 
 	final Runnable iconRunnable = new Runnable() {
@@ -119,45 +121,61 @@ public class GraphicCache {
 		}
 	};
 
-	final Thread[] thumbnailThreads = new Thread[3];
+	final ThumbnailCache thumbnailCache;
 
-	final Runnable thumbnailRunnable = new Runnable() {
-		public void run() {
-			while (true) {
-				IOLocation loc = null;
-				synchronized (requestThumbnailList) {
-					if (requestThumbnailList.size() == 0)
-						return;
+	/**
+	 * This fires a PropertyChangeEvent when a thumbnail is loaded, unless the
+	 * cancellable it was requested with has since been cancelled.
+	 */
+	class ThumbnailRequestListener implements
+			ThumbnailCache.ThumbnailListener {
+		final Cancellable requestCancellable;
 
-					loc = requestThumbnailList.remove(requestThumbnailList
-							.size() - 1);
-				}
-				Cancellable myCancellable = cancellable;
-				BufferedImage image = null;
-				try {
-					image = loc.getThumbnail(thumbnailSize, myCancellable);
-				} catch (Throwable t) {
-					handleUncaughtException(t);
-				}
-				if (image != null) {
-					thumbnails.put(loc, image);
-					firePropertyChangeListener(THUMBNAIL_PROPERTY, loc, null,
-							image);
-				} else if (myCancellable.isCancelled() == false) {
-					noThumbnails.add(loc.toString());
-				}
-			}
+		ThumbnailRequestListener(Cancellable requestCancellable) {
+			this.requestCancellable = requestCancellable;
 		}
-	};
+
+		@Override
+		public void thumbnailLoaded(IOLocation loc, Dimension size,
+				BufferedImage image) {
+			if (image != null && requestCancellable.isCancelled() == false)
+				firePropertyChangeListener(THUMBNAIL_PROPERTY, loc, null,
+						image);
+		}
+
+		@Override
+		public void thumbnailFailed(IOLocation loc, Dimension size,
+				Throwable throwable) {
+			if (requestCancellable.isCancelled() == false)
+				handleUncaughtException(throwable);
+		}
+	}
+
+	volatile ThumbnailRequestListener thumbnailListener =
+			new ThumbnailRequestListener(cancellable);
 
 	public GraphicCache() {
 		this(null);
 	}
 
 	public GraphicCache(Dimension thumbnailSize) {
+		this(thumbnailSize, ThumbnailCache.getDefault());
+	}
+
+	/**
+	 * Create a GraphicCache.
+	 * 
+	 * @param thumbnailSize
+	 *            the optional maximum thumbnail size.
+	 * @param thumbnailCache
+	 *            the cache thumbnails are loaded through. This may be shared
+	 *            by several GraphicCaches.
+	 */
+	public GraphicCache(Dimension thumbnailSize, ThumbnailCache thumbnailCache) {
 		if (thumbnailSize != null) {
 			this.thumbnailSize = new Dimension(thumbnailSize);
 		}
+		this.thumbnailCache = thumbnailCache;
 	}
 
 	protected void firePropertyChangeListener(String propertyName, Object src,
@@ -226,34 +244,40 @@ public class GraphicCache {
 	 * cached: then background threads will begin retrieving a thumbnail. If
 	 * they succeed, they will fire <code>PropertyChangeListeners</code> with
 	 * the <code>IOLocation</code> as the source.
+	 * <p>
+	 * Thumbnails requested here are treated as visible, so they are retrieved
+	 * before any thumbnails requested by
+	 * {@link #prefetchThumbnails(Collection)}.
 	 */
 	public BufferedImage requestThumbnail(IOLocation loc) {
-		synchronized (requestThumbnailList) {
-			BufferedImage thumbnail = thumbnails.get(loc);
-			if (thumbnail != null)
-				return thumbnail;
+		Dimension size = thumbnailSize;
+		ThumbnailRequestListener listener = thumbnailListener;
+		BufferedImage thumbnail = thumbnailCache.get(loc, size);
+		if (thumbnail != null)
+			return thumbnail;
 
-			if (noThumbnails.contains(loc.toString()))
-				return null;
+		if (thumbnailCache.isUnavailable(loc, size))
+			return null;
 
-			int i = requestThumbnailList.indexOf(loc);
-			if (i != -1)
-				requestThumbnailList.remove(i);
-			requestThumbnailList.add(loc);
+		thumbnailCache.request(loc, size, ThumbnailCache.PRIORITY_VISIBLE,
+				listener, listener.requestCancellable);
+		return null;
+	}
 
-			// guarantee the thread(s) are active:
-			int requestedThreads = Math.min(requestThumbnailList.size(),
-					thumbnailThreads.length);
-			for (int a = 0; a < requestedThreads; a++) {
-				if (thumbnailThreads[a] == null
-						|| thumbnailThreads[a].isAlive() == false) {
-					thumbnailThreads[a] = new Thread(thumbnailRunnable,
-							"Thumbnail Fetcher " + a);
-					thumbnailThreads[a].start();
-				}
-			}
-			return null;
-		}
+	/**
+	 * Begin retrieving thumbnails that are not visible yet (but may be soon)
+	 * at a low priority. This does not fire any
+	 * <code>PropertyChangeEvents</code>; later calls to
+	 * {@link #requestThumbnail(IOLocation)} will simply return sooner.
+	 */
+	public void prefetchThumbnails(Collection<IOLocation> locs) {
+		Dimension size = thumbnailSize;
+		thumbnailCache.prefetch(locs, size,
+				thumbnailListener.requestCancellable);
+	}
+
+	public ThumbnailCache getThumbnailCache() {
+		return thumbnailCache;
 	}
 
 	/**
@@ -291,15 +315,16 @@ public class GraphicCache {
 	}
 
 	public void clear() {
-		synchronized (requestThumbnailList) {
-			synchronized (requestIconList) {
-				thumbnails.clear();
-				icons.clear();
-				requestThumbnailList.clear();
-				requestIconList.clear();
-				cancellable.cancel();
-				cancellable = new BasicCancellable();
-			}
+		synchronized (requestIconList) {
+			icons.clear();
+			requestIconList.clear();
+			cancellable.cancel();
+			cancellable = new BasicCancellable();
+		}
+		synchronized (this) {
+			thumbnailListener.requestCancellable.cancel();
+			thumbnailListener = new ThumbnailRequestListener(
+					new BasicCancellable());
 		}
 	}
 }
\ No newline at end of file
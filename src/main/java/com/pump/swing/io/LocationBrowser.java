@@ -63,7 +63,8 @@ public class LocationBrowser extends JComponent {
 	};
 
 	final GraphicCache graphicCache;
-	final ObservableList<IOLocation> directoryContents = new ObservableList<IOLocation>();
+	final ObservableList<IOLocation> directoryContents = new ObservableList<IOLocation>(
+			ObservableList.ConcurrencyMode.SNAPSHOT);
 	ListModel unmutableListModel = directoryContents.createUIView();
 	final List<ChangeListener> changeListeners = new ArrayList<ChangeListener>();
 	final LocationHistory directoryStack;
@@ -0,0 +1,767 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.swing.io;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+import com.pump.desktop.cache.CacheManager;
+import com.pump.io.AdjacentFileOutputStream;
+import com.pump.io.location.IOLocation;
+import com.pump.swing.BasicCancellable;
+import com.pump.swing.Cancellable;
+
+/**
+ * This is a two-tier cache of <code>IOLocation</code> thumbnails.
+ * <p>
+ * The first tier is an in-memory LRU cache whose size is measured in bytes.
+ * The second (optional) tier is a directory of PNG files that persists across
+ * sessions. Both tiers are keyed by the location's path, modification date,
+ * length and the requested thumbnail size, so a thumbnail is regenerated when
+ * its location changes. The directory is trimmed to its maximum size in the
+ * background whenever it grows past it.
+ * <p>
+ * Thumbnails are loaded and generated on a pool of background threads. Each
+ * request has a priority: requests for visible rows
+ * ({@link #PRIORITY_VISIBLE}) are processed before requests that only warm
+ * the cache ({@link #PRIORITY_PREFETCH}). Among requests of the same priority
+ * the most recent request is processed first.
+ * <p>
+ * Locations that do not have a thumbnail are remembered too, so they are not
+ * asked again. (This is only stored on disk if
+ * {@link #isPermanentlyUnavailable(IOLocation)} agrees the location will never
+ * have a thumbnail.)
+ */
+public class ThumbnailCache {
+
+	/**
+	 * This is notified when a requested thumbnail is available, or when it
+	 * could not be loaded.
+	 */
+	public interface ThumbnailListener {
+		/**
+		 * This is called on a background thread when a requested thumbnail is
+		 * available.
+		 * 
+		 * @param location
+		 *            the location the thumbnail was requested for.
+		 * @param size
+		 *            the requested size.
+		 * @param thumbnail
+		 *            the thumbnail, or null if this location does not have a
+		 *            thumbnail.
+		 */
+		void thumbnailLoaded(IOLocation location, Dimension size,
+				BufferedImage thumbnail);
+
+		/**
+		 * This is called on a background thread when an error occurred while
+		 * loading or creating a requested thumbnail. Nothing is cached in this
+		 * case, so a later request will try again.
+		 * 
+		 * @param location
+		 *            the location the thumbnail was requested for.
+		 * @param size
+		 *            the requested size.
+		 * @param throwable
+		 *            the error that occurred.
+		 */
+		void thumbnailFailed(IOLocation location, Dimension size,
+				Throwable throwable);
+	}
+
+	/** The priority of a thumbnail that is currently visible to the user. */
+	public static final int PRIORITY_VISIBLE = 10;
+
+	/** The priority of a thumbnail that is only requested to warm the cache. */
+	public static final int PRIORITY_PREFETCH = 0;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * The file extensions <code>IOLocation</code> reads thumbnails from. If
+	 * these files don't produce a thumbnail it may be a transient failure, so
+	 * that is not stored on disk.
+	 */
+	private static final Set<String> IMAGE_EXTENSIONS = new HashSet<>(
+			Arrays.asList("jpg", "jpeg", "png", "gif", "bmp"));
+
+	private static ThumbnailCache defaultCache;
+
+	/**
+	 * Return a shared ThumbnailCache. If the {@link CacheManager} has been
+	 * initialized then this stores thumbnails in a subdirectory of its
+	 * (unversioned) directory; otherwise this only caches thumbnails in
+	 * memory.
+	 */
+	public static synchronized ThumbnailCache getDefault() {
+		if (defaultCache == null) {
+			File dir = null;
+			if (CacheManager.isInitialized())
+				dir = new File(CacheManager.get().getDirectory(false),
+						"thumbnails");
+			defaultCache = new ThumbnailCache(dir, 32 * 1024 * 1024,
+					256 * 1024 * 1024, 3);
+		}
+		return defaultCache;
+	}
+
+	/**
+	 * The attributes that identify one thumbnail on disk.
+	 */
+	static class Key {
+		final String path;
+		final long modificationDate;
+		final long length;
+		final int width, height;
+
+		Key(String path, long modificationDate, long length, Dimension size) {
+			this.path = path;
+			this.modificationDate = modificationDate;
+			this.length = length;
+			this.width = size.width;
+			this.height = size.height;
+		}
+
+		@Override
+		public int hashCode() {
+			return path.hashCode() + 31 * (int) modificationDate
+					+ (int) length + width * 1000 + height;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key))
+				return false;
+			Key other = (Key) obj;
+			return path.equals(other.path)
+					&& modificationDate == other.modificationDate
+					&& length == other.length && width == other.width
+					&& height == other.height;
+		}
+
+		@Override
+		public String toString() {
+			return path + "|" + modificationDate + "|" + length + "|" + width
+					+ "x" + height;
+		}
+	}
+
+	/**
+	 * The in-memory record of a thumbnail, or of a location that doesn't have
+	 * a thumbnail.
+	 */
+	static class Entry {
+		final BufferedImage image;
+
+		Entry(BufferedImage image) {
+			this.image = image;
+		}
+
+		long getByteCount() {
+			if (image == null)
+				return 0;
+			return 4L * image.getWidth() * image.getHeight();
+		}
+	}
+
+	/**
+	 * One caller that is waiting for a Request.
+	 */
+	static class Client {
+		final ThumbnailListener listener;
+		final Cancellable cancellable;
+
+		Client(ThumbnailListener listener, Cancellable cancellable) {
+			this.listener = listener;
+			this.cancellable = cancellable;
+		}
+
+		boolean isCancelled() {
+			return cancellable != null && cancellable.isCancelled();
+		}
+	}
+
+	/**
+	 * A pending request for a thumbnail. If every client of a request has
+	 * been cancelled by the time it is processed then it is skipped.
+	 */
+	class Request implements Runnable, Comparable<Request> {
+		final Key key;
+		final IOLocation location;
+		final Dimension size;
+		final List<Client> clients = new ArrayList<>();
+		int priority;
+		long sequence;
+
+		Request(Key key, IOLocation location, Dimension size) {
+			this.key = key;
+			this.location = location;
+			this.size = size;
+		}
+
+		@Override
+		public int compareTo(Request other) {
+			if (priority != other.priority)
+				return priority > other.priority ? -1 : 1;
+			return Long.compare(other.sequence, sequence);
+		}
+
+		@Override
+		public void run() {
+			List<Client> clientsCopy = new ArrayList<>();
+			synchronized (pendingRequests) {
+				pendingRequests.remove(key);
+				for (Client client : clients) {
+					if (!client.isCancelled())
+						clientsCopy.add(client);
+				}
+			}
+			if (clientsCopy.isEmpty())
+				return;
+			Cancellable myCancellable = cancellable;
+			BufferedImage image = null;
+			Throwable error = null;
+			try {
+				image = load(location, size, myCancellable);
+			} catch (Throwable t) {
+				error = t;
+			}
+			if (myCancellable.isCancelled())
+				return;
+			for (Client client : clientsCopy) {
+				if (client.listener == null || client.isCancelled())
+					continue;
+				try {
+					if (error == null) {
+						client.listener.thumbnailLoaded(location, size, image);
+					} else {
+						client.listener.thumbnailFailed(location, size, error);
+					}
+				} catch (RuntimeException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	protected final File directory;
+	protected final long maxMemoryBytes;
+	protected final long maxDiskBytes;
+
+	private final LinkedHashMap<Key, Entry> memoryCache = new LinkedHashMap<>(
+			16, .75f, true);
+	private long memoryBytes = 0;
+
+	/**
+	 * An estimate of the number of bytes in the directory. This is measured
+	 * each time the directory is trimmed, and incremented as files are
+	 * written.
+	 */
+	private final AtomicLong diskBytes = new AtomicLong();
+	private final AtomicBoolean trimScheduled = new AtomicBoolean();
+
+	private final Map<Key, Request> pendingRequests = new HashMap<>();
+	private final AtomicLong sequenceCtr = new AtomicLong();
+	private final ThreadPoolExecutor executor;
+	private volatile Cancellable cancellable = new BasicCancellable();
+
+	/**
+	 * Create a new ThumbnailCache.
+	 * 
+	 * @param directory
+	 *            the directory to store thumbnails in, or null if thumbnails
+	 *            should only be cached in memory.
+	 * @param maxMemoryBytes
+	 *            the maximum number of bytes of thumbnails to keep in memory.
+	 *            (Each pixel is counted as 4 bytes.)
+	 * @param maxDiskBytes
+	 *            the maximum number of bytes of files to keep in the directory.
+	 *            When this is exceeded the least recently used files are
+	 *            deleted (on a background thread, when no thumbnails are
+	 *            waiting to be loaded).
+	 * @param threadCount
+	 *            the number of background threads used to load thumbnails.
+	 */
+	public ThumbnailCache(File directory, long maxMemoryBytes,
+			long maxDiskBytes, int threadCount) {
+		if (threadCount < 1)
+			throw new IllegalArgumentException("threadCount (" + threadCount
+					+ ") must be at least 1");
+		this.directory = directory;
+		this.maxMemoryBytes = maxMemoryBytes;
+		this.maxDiskBytes = maxDiskBytes;
+
+		executor = new ThreadPoolExecutor(threadCount, threadCount, 10,
+				TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+					int ctr = 0;
+
+					@Override
+					public synchronized Thread newThread(Runnable r) {
+						Thread thread = new Thread(r, "Thumbnail Fetcher "
+								+ (ctr++));
+						thread.setDaemon(true);
+						thread.setPriority(Thread.MIN_PRIORITY);
+						return thread;
+					}
+				});
+		executor.allowCoreThreadTimeOut(true);
+
+		scheduleTrim();
+	}
+
+	/**
+	 * Return a thumbnail if it is already in memory, or null otherwise. This
+	 * never reads or creates a thumbnail, so it is safe to call while
+	 * painting.
+	 * <p>
+	 * This does consult the location's modification date and length, so a
+	 * location that changed after its thumbnail was cached does not return the
+	 * old thumbnail. (A <code>CachedLocation</code> only notices these changes
+	 * after it is flushed.)
+	 */
+	public BufferedImage get(IOLocation location, Dimension size) {
+		Key key = getKey(location, size);
+		synchronized (memoryCache) {
+			Entry entry = memoryCache.get(key);
+			return entry == null ? null : entry.image;
+		}
+	}
+
+	/**
+	 * Return true if this cache knows the location does not have a thumbnail.
+	 * This never reads or creates a thumbnail.
+	 */
+	public boolean isUnavailable(IOLocation location, Dimension size) {
+		Key key = getKey(location, size);
+		synchronized (memoryCache) {
+			Entry entry = memoryCache.get(key);
+			return entry != null && entry.image == null;
+		}
+	}
+
+	/**
+	 * Remove a location's thumbnail from memory. This does not delete its
+	 * file, so if the location hasn't changed the next request reads the
+	 * thumbnail from disk.
+	 */
+	public void remove(IOLocation location, Dimension size) {
+		Key key = getKey(location, size);
+		synchronized (memoryCache) {
+			Entry entry = memoryCache.remove(key);
+			if (entry != null)
+				memoryBytes -= entry.getByteCount();
+		}
+	}
+
+	/**
+	 * Request a thumbnail on a background thread.
+	 * <p>
+	 * If this location is already waiting to be processed then this raises
+	 * its priority (if necessary) and moves it ahead of other requests of the
+	 * same priority.
+	 * 
+	 * @param location
+	 *            the location to request a thumbnail for.
+	 * @param size
+	 *            the maximum thumbnail size.
+	 * @param priority
+	 *            the priority of this request, such as
+	 *            {@link #PRIORITY_VISIBLE} or {@link #PRIORITY_PREFETCH}.
+	 * @param listener
+	 *            an optional listener to notify when the thumbnail is
+	 *            available.
+	 */
+	public void request(IOLocation location, Dimension size, int priority,
+			ThumbnailListener listener) {
+		request(location, size, priority, listener, null);
+	}
+
+	/**
+	 * Request a thumbnail on a background thread.
+	 * <p>
+	 * If this location is already waiting to be processed then this raises
+	 * its priority (if necessary) and moves it ahead of other requests of the
+	 * same priority.
+	 * 
+	 * @param location
+	 *            the location to request a thumbnail for.
+	 * @param size
+	 *            the maximum thumbnail size.
+	 * @param priority
+	 *            the priority of this request, such as
+	 *            {@link #PRIORITY_VISIBLE} or {@link #PRIORITY_PREFETCH}.
+	 * @param listener
+	 *            an optional listener to notify when the thumbnail is
+	 *            available.
+	 * @param cancellable
+	 *            an optional Cancellable. If this is cancelled then the
+	 *            listener is not notified, and if nobody else requested this
+	 *            thumbnail then it is not loaded.
+	 */
+	public void request(IOLocation location, Dimension size, int priority,
+			ThumbnailListener listener, Cancellable cancellable) {
+		Key key = getKey(location, size);
+		synchronized (pendingRequests) {
+			Request request = pendingRequests.get(key);
+			if (request != null && executor.getQueue().remove(request)) {
+				request.priority = Math.max(request.priority, priority);
+			} else {
+				request = new Request(key, location, new Dimension(size));
+				request.priority = priority;
+				pendingRequests.put(key, request);
+			}
+			request.sequence = sequenceCtr.incrementAndGet();
+			request.clients.add(new Client(listener, cancellable));
+			executor.execute(request);
+		}
+	}
+
+	/**
+	 * Request thumbnails for several locations at a low priority, so they are
+	 * ready (in memory) when they are needed.
+	 * <p>
+	 * Locations that are already in memory or already waiting to be processed
+	 * are skipped, so it is cheap to call this repeatedly as a list grows.
+	 */
+	public void prefetch(Collection<IOLocation> locations, Dimension size) {
+		prefetch(locations, size, null);
+	}
+
+	/**
+	 * Request thumbnails for several locations at a low priority, so they are
+	 * ready (in memory) when they are needed.
+	 * <p>
+	 * Locations that are already in memory are skipped. Locations that are
+	 * already waiting to be processed keep their place in the queue, so it is
+	 * cheap to call this repeatedly as a list grows.
+	 * 
+	 * @param cancellable
+	 *            an optional Cancellable. If this is cancelled then these
+	 *            thumbnails are not loaded, unless somebody else also requested
+	 *            them.
+	 */
+	public void prefetch(Collection<IOLocation> locations, Dimension size,
+			Cancellable cancellable) {
+		for (IOLocation location : locations) {
+			Key key = getKey(location, size);
+			synchronized (memoryCache) {
+				if (memoryCache.containsKey(key))
+					continue;
+			}
+			synchronized (pendingRequests) {
+				Request request = pendingRequests.get(key);
+				if (request != null) {
+					request.clients.add(new Client(null, cancellable));
+					continue;
+				}
+			}
+			request(location, size, PRIORITY_PREFETCH, null, cancellable);
+		}
+	}
+
+	/**
+	 * Return a thumbnail, loading or creating it on the current thread if it
+	 * is not already in memory.
+	 * <p>
+	 * This first consults the memory cache, then the directory, and then
+	 * calls {@link #createThumbnail(IOLocation, Dimension, Cancellable)}.
+	 * 
+	 * @return the thumbnail, or null if this location does not have a
+	 *         thumbnail.
+	 */
+	public BufferedImage load(IOLocation location, Dimension size,
+			Cancellable cancellable) throws IOException {
+		Key key = createKey(location, size);
+		synchronized (memoryCache) {
+			Entry entry = memoryCache.get(key);
+			if (entry != null)
+				return entry.image;
+		}
+
+		File file = getFile(key);
+		if (file != null && file.exists()) {
+			long length = file.length();
+			BufferedImage image = null;
+			if (length > 0) {
+				try {
+					image = ImageIO.read(file);
+				} catch (IOException e) {
+					// the file may have just been trimmed; create it again
+				}
+			}
+			if (image != null || (length == 0 && file.exists())) {
+				file.setLastModified(System.currentTimeMillis());
+				put(key, new Entry(image));
+				return image;
+			}
+		}
+
+		BufferedImage image = createThumbnail(location, size, cancellable);
+		if (cancellable != null && cancellable.isCancelled())
+			return image;
+		put(key, new Entry(image));
+		if (file != null
+				&& (image != null || isPermanentlyUnavailable(location)))
+			write(file, image);
+		return image;
+	}
+
+	/**
+	 * Create a thumbnail. The default implementation calls
+	 * {@link IOLocation#getThumbnail(Dimension, Cancellable)}.
+	 */
+	protected BufferedImage createThumbnail(IOLocation location,
+			Dimension size, Cancellable cancellable) {
+		if (cancellable == null)
+			cancellable = new BasicCancellable();
+		return location.getThumbnail(size, cancellable);
+	}
+
+	/**
+	 * Return true if a location that {@link #createThumbnail(IOLocation,
+	 * Dimension, Cancellable)} didn't create a thumbnail for will never have
+	 * one (as long as it doesn't change). This is stored on disk, so the
+	 * location is never asked again.
+	 * <p>
+	 * Otherwise the missing thumbnail is only remembered in memory, so it is
+	 * tried again in a later session. The default implementation returns
+	 * false for directories (whose thumbnails depend on their contents) and
+	 * for image files (which may have failed to load for a transient reason).
+	 */
+	protected boolean isPermanentlyUnavailable(IOLocation location) {
+		if (location.isDirectory())
+			return false;
+		String extension = location.getExtension();
+		return extension == null
+				|| !IMAGE_EXTENSIONS.contains(extension.toLowerCase());
+	}
+
+	/**
+	 * Cancel all pending requests and empty the memory cache. This does not
+	 * delete any files.
+	 */
+	public void clear() {
+		synchronized (pendingRequests) {
+			cancellable.cancel();
+			cancellable = new BasicCancellable();
+			for (Request request : pendingRequests.values()) {
+				executor.getQueue().remove(request);
+			}
+			pendingRequests.clear();
+		}
+		synchronized (memoryCache) {
+			memoryCache.clear();
+			memoryBytes = 0;
+		}
+	}
+
+	/**
+	 * Return the number of bytes of thumbnails currently held in memory.
+	 */
+	public long getMemoryByteCount() {
+		synchronized (memoryCache) {
+			return memoryBytes;
+		}
+	}
+
+	private void put(Key key, Entry entry) {
+		synchronized (memoryCache) {
+			Entry oldEntry = memoryCache.put(key, entry);
+			if (oldEntry != null)
+				memoryBytes -= oldEntry.getByteCount();
+			memoryBytes += entry.getByteCount();
+
+			Iterator<Entry> iter = memoryCache.values().iterator();
+			while (memoryBytes > maxMemoryBytes && iter.hasNext()) {
+				Entry e = iter.next();
+				if (e == entry)
+					continue;
+				memoryBytes -= e.getByteCount();
+				iter.remove();
+			}
+			if (memoryBytes > maxMemoryBytes) {
+				memoryCache.remove(key);
+				memoryBytes -= entry.getByteCount();
+			}
+		}
+	}
+
+	/**
+	 * Write a thumbnail to disk. A zero-length file means this location has
+	 * no thumbnail.
+	 */
+	private void write(File file, BufferedImage image) {
+		try {
+			File dir = file.getParentFile();
+			if (!dir.exists() && !dir.mkdirs() && !dir.exists())
+				throw new IOException("mkdirs failed for "
+						+ dir.getAbsolutePath());
+			try (AdjacentFileOutputStream out = AdjacentFileOutputStream
+					.create(file)) {
+				try {
+					if (image != null)
+						ImageIO.write(image, "png", out);
+				} catch (IOException | RuntimeException e) {
+					out.cancel();
+					throw e;
+				}
+			}
+			if (diskBytes.addAndGet(file.length()) > maxDiskBytes)
+				scheduleTrim();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Trim the directory on a background thread, unless that is already
+	 * scheduled. This runs after every pending thumbnail request.
+	 */
+	private void scheduleTrim() {
+		if (directory == null || !trimScheduled.compareAndSet(false, true))
+			return;
+		executor.execute(new Request(null, null, null) {
+			{
+				priority = Integer.MIN_VALUE;
+			}
+
+			@Override
+			public void run() {
+				try {
+					diskBytes.set(trimDirectory());
+				} finally {
+					trimScheduled.set(false);
+				}
+			}
+		});
+	}
+
+	/**
+	 * If the directory uses more than <code>maxDiskBytes</code> then delete
+	 * the least recently used files until it uses 90% of that. (Trimming a
+	 * little extra means we don't have to list the directory again after the
+	 * next few writes.)
+	 * 
+	 * @return the number of bytes the directory uses.
+	 */
+	private long trimDirectory() {
+		File[] subdirs = directory.listFiles();
+		if (subdirs == null)
+			return 0;
+		List<File> files = new ArrayList<>();
+		long total = 0;
+		for (File subdir : subdirs) {
+			File[] children = subdir.listFiles();
+			if (children == null)
+				continue;
+			for (File child : children) {
+				if (child.getName().endsWith(".png")) {
+					files.add(child);
+					total += child.length();
+				}
+			}
+		}
+		if (total <= maxDiskBytes)
+			return total;
+
+		File[] sorted = files.toArray(new File[files.size()]);
+		final Map<File, Long> modifiedMap = new HashMap<>();
+		for (File file : sorted) {
+			modifiedMap.put(file, file.lastModified());
+		}
+		Arrays.sort(sorted, new Comparator<File>() {
+			@Override
+			public int compare(File f1, File f2) {
+				return Long.compare(modifiedMap.get(f1), modifiedMap.get(f2));
+			}
+		});
+		long target = maxDiskBytes - maxDiskBytes / 10;
+		for (int a = 0; a < sorted.length && total > target; a++) {
+			long length = sorted[a].length();
+			if (sorted[a].delete())
+				total -= length;
+		}
+		return total;
+	}
+
+	/**
+	 * Return the file a thumbnail is stored in, or null if this cache does
+	 * not use a directory.
+	 */
+	private File getFile(Key key) {
+		if (directory == null)
+			return null;
+		String hash = hash(key.toString());
+		return new File(new File(directory, hash.substring(0, 2)), hash
+				+ ".png");
+	}
+
+	private static Key createKey(IOLocation location, Dimension size)
+			throws IOException {
+		Objects.requireNonNull(location);
+		return new Key(location.getPath(), location.getModificationDate(),
+				location.isDirectory() ? 0 : location.length(), size);
+	}
+
+	/**
+	 * Return the Key for a location, or a Key that doesn't match any cached
+	 * thumbnail if the location's attributes can't be read.
+	 */
+	private static Key getKey(IOLocation location, Dimension size) {
+		try {
+			return createKey(location, size);
+		} catch (IOException e) {
+			return new Key(location.getPath(), -1, -1, size);
+		}
+	}
+
+	private static String hash(String str) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			byte[] bytes = digest.digest(str.getBytes(UTF8));
+			StringBuilder sb = new StringBuilder();
+			for (byte b : bytes) {
+				sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+				sb.append(Character.forDigit(b & 0xf, 16));
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
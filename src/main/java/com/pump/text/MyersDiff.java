@@ -0,0 +1,385 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.text;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.pump.text.TextDiff.DiffSegment;
+import com.pump.text.TextDiff.SharedSegment;
+import com.pump.text.TextDiff.SplitSegment;
+
+/**
+ * This diffs two sequences using Eugene Myers' O(ND) algorithm with the
+ * linear-space divide-and-conquer refinement (as described in "An O(ND)
+ * Difference Algorithm and Its Variations", 1986).
+ * <p>
+ * This is used by {@link TextDiff.Algorithm#LINEAR}. Strings are diffed in
+ * three passes: first the common prefix and suffix are removed, then the
+ * remaining lines are diffed, and finally the characters inside each pair of
+ * changed lines are diffed.
+ */
+class MyersDiff {
+
+	/**
+	 * Changed hunks where the combined length of both sides exceeds this
+	 * value are not diffed character-by-character: the whole hunk is
+	 * reported as one split.
+	 */
+	static final int MAX_CHARACTER_HUNK = 1 << 14;
+
+	/**
+	 * Return a diff of two Strings.
+	 */
+	static DiffSegment diff(String strA, String strB) {
+		int prefix = 0;
+		int max = Math.min(strA.length(), strB.length());
+		while (prefix < max && strA.charAt(prefix) == strB.charAt(prefix)) {
+			prefix++;
+		}
+		int suffix = 0;
+		max -= prefix;
+		while (suffix < max
+				&& strA.charAt(strA.length() - 1 - suffix) == strB.charAt(strB
+						.length() - 1 - suffix)) {
+			suffix++;
+		}
+
+		SegmentBuilder builder = new SegmentBuilder();
+		builder.addShared(strA.substring(0, prefix));
+		diffLines(builder, strA.substring(prefix, strA.length() - suffix),
+				strB.substring(prefix, strB.length() - suffix));
+		builder.addShared(strA.substring(strA.length() - suffix));
+		return builder.getHead();
+	}
+
+	private static void diffLines(SegmentBuilder builder, String strA,
+			String strB) {
+		if (strA.length() == 0 || strB.length() == 0) {
+			builder.addSplit(strA, strB);
+			return;
+		}
+
+		List<String> linesA = splitLines(strA);
+		List<String> linesB = splitLines(strB);
+		Map<String, Integer> lineIDs = new HashMap<>();
+		int[] a = getLineIDs(linesA, lineIDs);
+		int[] b = getLineIDs(linesB, lineIDs);
+
+		MyersDiff diff = new MyersDiff(a, b);
+		int i = 0;
+		int j = 0;
+		StringBuilder hunkA = new StringBuilder();
+		StringBuilder hunkB = new StringBuilder();
+		while (i < a.length || j < b.length) {
+			if (i < a.length && j < b.length && !diff.changedA[i]
+					&& !diff.changedB[j]) {
+				builder.addShared(linesA.get(i));
+				i++;
+				j++;
+			} else {
+				hunkA.setLength(0);
+				hunkB.setLength(0);
+				while (i < a.length && diff.changedA[i]) {
+					hunkA.append(linesA.get(i++));
+				}
+				while (j < b.length && diff.changedB[j]) {
+					hunkB.append(linesB.get(j++));
+				}
+				diffCharacters(builder, hunkA.toString(), hunkB.toString());
+			}
+		}
+	}
+
+	private static void diffCharacters(SegmentBuilder builder, String strA,
+			String strB) {
+		if (strA.length() == 0 || strB.length() == 0
+				|| strA.length() + strB.length() > MAX_CHARACTER_HUNK) {
+			builder.addSplit(strA, strB);
+			return;
+		}
+
+		MyersDiff diff = new MyersDiff(toArray(strA), toArray(strB));
+		int i = 0;
+		int j = 0;
+		while (i < strA.length() || j < strB.length()) {
+			if (i < strA.length() && j < strB.length() && !diff.changedA[i]
+					&& !diff.changedB[j]) {
+				int start = i;
+				while (i < strA.length() && j < strB.length()
+						&& !diff.changedA[i] && !diff.changedB[j]) {
+					i++;
+					j++;
+				}
+				builder.addShared(strA.substring(start, i));
+			} else {
+				int startA = i;
+				int startB = j;
+				while (i < strA.length() && diff.changedA[i]) {
+					i++;
+				}
+				while (j < strB.length() && diff.changedB[j]) {
+					j++;
+				}
+				builder.addSplit(strA.substring(startA, i),
+						strB.substring(startB, j));
+			}
+		}
+	}
+
+	/**
+	 * Split a String into lines. Each line includes its line terminator.
+	 */
+	private static List<String> splitLines(String str) {
+		List<String> lines = new ArrayList<>();
+		int start = 0;
+		for (int a = 0; a < str.length(); a++) {
+			if (str.charAt(a) == '\n') {
+				lines.add(str.substring(start, a + 1));
+				start = a + 1;
+			}
+		}
+		if (start < str.length())
+			lines.add(str.substring(start));
+		return lines;
+	}
+
+	private static int[] getLineIDs(List<String> lines,
+			Map<String, Integer> lineIDs) {
+		int[] returnValue = new int[lines.size()];
+		for (int a = 0; a < returnValue.length; a++) {
+			Integer id = lineIDs.get(lines.get(a));
+			if (id == null) {
+				id = lineIDs.size();
+				lineIDs.put(lines.get(a), id);
+			}
+			returnValue[a] = id;
+		}
+		return returnValue;
+	}
+
+	private static int[] toArray(String str) {
+		int[] returnValue = new int[str.length()];
+		for (int a = 0; a < returnValue.length; a++) {
+			returnValue[a] = str.charAt(a);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * This assembles a linked list of DiffSegments, merging adjacent shared
+	 * text and adjacent splits.
+	 */
+	static class SegmentBuilder {
+		DiffSegment head, tail;
+		StringBuilder shared = new StringBuilder();
+		StringBuilder splitA = new StringBuilder();
+		StringBuilder splitB = new StringBuilder();
+
+		void addShared(String text) {
+			if (text.length() == 0)
+				return;
+			flushSplit();
+			shared.append(text);
+		}
+
+		void addSplit(String textA, String textB) {
+			if (textA.length() == 0 && textB.length() == 0)
+				return;
+			flushShared();
+			splitA.append(textA);
+			splitB.append(textB);
+		}
+
+		private void flushShared() {
+			if (shared.length() > 0) {
+				add(new SharedSegment(shared.toString()));
+				shared.setLength(0);
+			}
+		}
+
+		private void flushSplit() {
+			if (splitA.length() > 0 || splitB.length() > 0) {
+				add(new SplitSegment(splitA.toString(), splitB.toString()));
+				splitA.setLength(0);
+				splitB.setLength(0);
+			}
+		}
+
+		private void add(DiffSegment segment) {
+			if (head == null) {
+				head = segment;
+			} else {
+				tail.next = segment;
+				segment.prev = tail;
+			}
+			tail = segment;
+		}
+
+		DiffSegment getHead() {
+			flushShared();
+			flushSplit();
+			if (head == null)
+				return new SharedSegment("");
+			return head;
+		}
+	}
+
+	final int[] a, b;
+	final boolean[] changedA, changedB;
+
+	/**
+	 * The furthest reaching forward and backward paths, indexed by diagonal
+	 * (x - y) plus {@link #offset}.
+	 */
+	private final int[] forward, backward;
+	private final int offset;
+
+	/**
+	 * Diff two sequences. When this constructor returns,
+	 * {@link #changedA} and {@link #changedB} identify the elements that were
+	 * removed from the first sequence and added to the second.
+	 */
+	MyersDiff(int[] a, int[] b) {
+		this.a = a;
+		this.b = b;
+		changedA = new boolean[a.length];
+		changedB = new boolean[b.length];
+		forward = new int[a.length + b.length + 3];
+		backward = new int[a.length + b.length + 3];
+		offset = b.length + 1;
+		compare(0, a.length, 0, b.length);
+	}
+
+	/**
+	 * Mark the changed elements in a[xStart, xEnd) and b[yStart, yEnd).
+	 */
+	private void compare(int xStart, int xEnd, int yStart, int yEnd) {
+		while (true) {
+			while (xStart < xEnd && yStart < yEnd && a[xStart] == b[yStart]) {
+				xStart++;
+				yStart++;
+			}
+			while (xEnd > xStart && yEnd > yStart
+					&& a[xEnd - 1] == b[yEnd - 1]) {
+				xEnd--;
+				yEnd--;
+			}
+
+			if (xStart == xEnd) {
+				for (int y = yStart; y < yEnd; y++) {
+					changedB[y] = true;
+				}
+				return;
+			} else if (yStart == yEnd) {
+				for (int x = xStart; x < xEnd; x++) {
+					changedA[x] = true;
+				}
+				return;
+			}
+
+			long middle = findMiddle(xStart, xEnd, yStart, yEnd);
+			int xMiddle = (int) (middle >>> 32);
+			int yMiddle = (int) middle;
+
+			// recurse into the smaller half and loop over the larger half:
+			if ((xMiddle - xStart) + (yMiddle - yStart) < (xEnd - xMiddle)
+					+ (yEnd - yMiddle)) {
+				compare(xStart, xMiddle, yStart, yMiddle);
+				xStart = xMiddle;
+				yStart = yMiddle;
+			} else {
+				compare(xMiddle, xEnd, yMiddle, yEnd);
+				xEnd = xMiddle;
+				yEnd = yMiddle;
+			}
+		}
+	}
+
+	/**
+	 * Find a point on an optimal path through a[xStart, xEnd) and b[yStart,
+	 * yEnd) that splits the edits roughly in half. The first and last
+	 * elements of these ranges must not match.
+	 * 
+	 * @return the x coordinate in the high 32 bits and the y coordinate in
+	 *         the low 32 bits.
+	 */
+	private long findMiddle(int xStart, int xEnd, int yStart, int yEnd) {
+		int minDiagonal = xStart - yEnd;
+		int maxDiagonal = xEnd - yStart;
+		int forwardMid = xStart - yStart;
+		int backwardMid = xEnd - yEnd;
+		int forwardMin = forwardMid, forwardMax = forwardMid;
+		int backwardMin = backwardMid, backwardMax = backwardMid;
+		boolean odd = ((forwardMid - backwardMid) & 1) != 0;
+
+		forward[offset + forwardMid] = xStart;
+		backward[offset + backwardMid] = xEnd;
+
+		while (true) {
+			// extend the forward paths by one edit:
+			if (forwardMin > minDiagonal) {
+				forward[offset + --forwardMin - 1] = -1;
+			} else {
+				forwardMin++;
+			}
+			if (forwardMax < maxDiagonal) {
+				forward[offset + ++forwardMax + 1] = -1;
+			} else {
+				forwardMax--;
+			}
+			for (int d = forwardMax; d >= forwardMin; d -= 2) {
+				int low = forward[offset + d - 1];
+				int high = forward[offset + d + 1];
+				int x = low >= high ? low + 1 : high;
+				int y = x - d;
+				while (x < xEnd && y < yEnd && a[x] == b[y]) {
+					x++;
+					y++;
+				}
+				forward[offset + d] = x;
+				if (odd && backwardMin <= d && d <= backwardMax
+						&& backward[offset + d] <= x) {
+					return (((long) x) << 32) | (y & 0xffffffffL);
+				}
+			}
+
+			// extend the backward paths by one edit:
+			if (backwardMin > minDiagonal) {
+				backward[offset + --backwardMin - 1] = Integer.MAX_VALUE;
+			} else {
+				backwardMin++;
+			}
+			if (backwardMax < maxDiagonal) {
+				backward[offset + ++backwardMax + 1] = Integer.MAX_VALUE;
+			} else {
+				backwardMax--;
+			}
+			for (int d = backwardMax; d >= backwardMin; d -= 2) {
+				int low = backward[offset + d - 1];
+				int high = backward[offset + d + 1];
+				int x = low < high ? low : high - 1;
+				int y = x - d;
+				while (x > xStart && y > yStart && a[x - 1] == b[y - 1]) {
+					x--;
+					y--;
+				}
+				backward[offset + d] = x;
+				if (!odd && forwardMin <= d && d <= forwardMax
+						&& x <= forward[offset + d]) {
+					return (((long) x) << 32) | (y & 0xffffffffL);
+				}
+			}
+		}
+	}
+}
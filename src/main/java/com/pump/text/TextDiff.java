@@ -10,9 +10,11 @@
  */
 package com.pump.text;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
 
@@ -20,8 +22,10 @@ import java.util.TreeSet;
  * This object can diff two Strings together to find the minimal amount of
  * changes between the two.
  * <p>
- * Note this is only intended for small strings, and depending on the similarity
- * and length of the Strings: this can be very expensive. Because it is
+ * Note the default {@link Algorithm#EXHAUSTIVE} algorithm is only intended for
+ * small strings, and depending on the similarity and length of the Strings:
+ * this can be very expensive. (The {@link Algorithm#LINEAR} algorithm is
+ * appropriate for large documents.) Because it is
  * expensive: this object caches all requested diffs for cheap retrieval. So
  * periodically you may want to replace your {@code TextDiff} object to avoid
  * store large sets of Strings and diffs in memory.
@@ -166,53 +170,57 @@ public class TextDiff {
 		 */
 		@Override
 		public int compareTo(DiffSegment o) {
-			int myComplexity = getComplexity();
-			int otherComplexity = o.getComplexity();
-			if (myComplexity < otherComplexity) {
-				return -1;
-			} else if (myComplexity > otherComplexity) {
-				return 1;
-			}
-			// it doesn't matter what we do here, as long as its
-			// consistent. My first draft just used:
-			// toString().compareTo(o.toString())
-			// this worked, but was several times slower than the
-			// approach below that helps cut the comparison short
-			// much sooner.
-			int type1 = this instanceof SharedSegment ? 1 : 0;
-			int type2 = o instanceof SharedSegment ? 1 : 0;
-			if (type1 == 1 && type2 == 0) {
-				return -1;
-			} else if (type1 == 0 && type2 == 1) {
-				return 1;
-			} else if (type1 == 1 && type2 == 1) {
-				SharedSegment s1 = (SharedSegment) this;
-				SharedSegment s2 = (SharedSegment) o;
-				int k = s1.text.compareTo(s2.text);
-				if (k != 0) {
-					return k;
-				}
-			} else if (type1 == 0 && type2 == 0) {
-				SplitSegment s1 = (SplitSegment) this;
-				SplitSegment s2 = (SplitSegment) o;
-				int k = s1.textA.compareTo(s2.textA);
-				if (k != 0) {
-					return k;
+			DiffSegment t1 = this;
+			DiffSegment t2 = o;
+			while (true) {
+				int myComplexity = t1.getComplexity();
+				int otherComplexity = t2.getComplexity();
+				if (myComplexity < otherComplexity) {
+					return -1;
+				} else if (myComplexity > otherComplexity) {
+					return 1;
 				}
-				k = s1.textB.compareTo(s2.textB);
-				if (k != 0) {
-					return k;
+				// it doesn't matter what we do here, as long as its
+				// consistent. My first draft just used:
+				// toString().compareTo(o.toString())
+				// this worked, but was several times slower than the
+				// approach below that helps cut the comparison short
+				// much sooner.
+				int type1 = t1 instanceof SharedSegment ? 1 : 0;
+				int type2 = t2 instanceof SharedSegment ? 1 : 0;
+				if (type1 == 1 && type2 == 0) {
+					return -1;
+				} else if (type1 == 0 && type2 == 1) {
+					return 1;
+				} else if (type1 == 1 && type2 == 1) {
+					SharedSegment s1 = (SharedSegment) t1;
+					SharedSegment s2 = (SharedSegment) t2;
+					int k = s1.text.compareTo(s2.text);
+					if (k != 0) {
+						return k;
+					}
+				} else if (type1 == 0 && type2 == 0) {
+					SplitSegment s1 = (SplitSegment) t1;
+					SplitSegment s2 = (SplitSegment) t2;
+					int k = s1.textA.compareTo(s2.textA);
+					if (k != 0) {
+						return k;
+					}
+					k = s1.textB.compareTo(s2.textB);
+					if (k != 0) {
+						return k;
+					}
 				}
-			}
 
-			if (next == null && o.next == null) {
-				return 0;
-			} else if (next == null) {
-				return -1;
-			} else if (o.next == null) {
-				return 1;
-			} else {
-				return next.compareTo(o.next);
+				if (t1.next == null && t2.next == null) {
+					return 0;
+				} else if (t1.next == null) {
+					return -1;
+				} else if (t2.next == null) {
+					return 1;
+				}
+				t1 = t1.next;
+				t2 = t2.next;
 			}
 		}
 
@@ -230,7 +238,24 @@ public class TextDiff {
 		 *            if true then branch A and B should swap as we clone this
 		 *            node.
 		 */
-		public abstract DiffSegment clone(boolean swapBranches);
+		public DiffSegment clone(boolean swapBranches) {
+			// this iterates (instead of recursing) so very long lists don't
+			// overflow the stack
+			DiffSegment head = cloneNode(swapBranches);
+			DiffSegment tail = head;
+			for (DiffSegment t = next; t != null; t = t.next) {
+				DiffSegment clone = t.cloneNode(swapBranches);
+				tail.next = clone;
+				clone.prev = tail;
+				tail = clone;
+			}
+			return head;
+		}
+
+		/**
+		 * Clone only this node.
+		 */
+		protected abstract DiffSegment cloneNode(boolean swapBranches);
 
 		/**
 		 * Return the text of this node.
@@ -248,8 +273,57 @@ public class TextDiff {
 		 * @return the text of this node. This returns the raw text with no
 		 *         quotations or square/curly brackets.
 		 */
-		public abstract String getText(Branch branch,
-				boolean appendSubsequentNodes);
+		public String getText(Branch branch, boolean appendSubsequentNodes) {
+			if (branch == null)
+				throw new NullPointerException();
+			if (!appendSubsequentNodes || next == null)
+				return getNodeText(branch);
+			StringBuilder sb = new StringBuilder();
+			for (DiffSegment t = this; t != null; t = t.next) {
+				sb.append(t.getNodeText(branch));
+			}
+			return sb.toString();
+		}
+
+		/**
+		 * Return the text of only this node for a given branch.
+		 */
+		protected abstract String getNodeText(Branch branch);
+
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			for (DiffSegment t = this; t != null; t = t.next) {
+				t.appendNodeString(sb);
+			}
+			return sb.toString();
+		}
+
+		/**
+		 * Append the String representation of only this node.
+		 */
+		protected abstract void appendNodeString(StringBuilder sb);
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof DiffSegment))
+				return false;
+			DiffSegment t1 = this;
+			DiffSegment t2 = (DiffSegment) obj;
+			while (t1 != null && t2 != null) {
+				if (!t1.nodeEquals(t2))
+					return false;
+				t1 = t1.next;
+				t2 = t2.next;
+			}
+			return t1 == null && t2 == null;
+		}
+
+		/**
+		 * Return true if this node (ignoring subsequent nodes) is equal to
+		 * another node.
+		 */
+		protected abstract boolean nodeEquals(DiffSegment other);
 
 		/**
 		 * Return the tail of this linked list.
@@ -371,7 +445,28 @@ public class TextDiff {
 			return complexity;
 		}
 
-		protected abstract int calculateComplexity();
+		protected int calculateComplexity() {
+			// calculate (and cache) the complexity of every subsequent node
+			// iteratively, so very long lists don't overflow the stack
+			List<DiffSegment> nodes = new ArrayList<>();
+			for (DiffSegment t = this; t != null && t.complexity == -1; t = t
+					.next) {
+				nodes.add(t);
+			}
+			DiffSegment last = nodes.get(nodes.size() - 1).next;
+			int c = last == null ? 0 : last.complexity;
+			for (int a = nodes.size() - 1; a >= 0; a--) {
+				c += nodes.get(a).getNodeComplexity();
+				if (a > 0)
+					nodes.get(a).complexity = c;
+			}
+			return c;
+		}
+
+		/**
+		 * Return the complexity of only this node.
+		 */
+		protected abstract int getNodeComplexity();
 
 		/**
 		 * Return true if branch x is a subset of the opposite branch.
@@ -463,62 +558,40 @@ public class TextDiff {
 		}
 
 		@Override
-		protected int calculateComplexity() {
-			int c = text.length();
-			if (next != null) {
-				c += next.getComplexity();
-			}
-			return c;
+		protected int getNodeComplexity() {
+			return text.length();
 		}
 
 		@Override
-		public boolean equals(Object obj) {
-			if (!(obj instanceof SharedSegment)) {
-				return false;
-			}
-			SharedSegment other = (SharedSegment) obj;
-			if (!text.equals(other.text)) {
-				return false;
-			} else if (next != null && other.next != null) {
-				return next.equals(other.next);
-			} else if (next != null || other.next != null) {
-				return false;
-			}
-			return true;
+		protected boolean nodeEquals(DiffSegment other) {
+			return other instanceof SharedSegment
+					&& text.equals(((SharedSegment) other).text);
 		}
 
-		private SharedSegment(String text) {
+		SharedSegment(String text) {
 			if (text == null)
 				throw new NullPointerException();
 			this.text = text;
 		}
 
 		@Override
-		public String getText(Branch branch, boolean appendSubsequentNodes) {
-			String returnValue = text;
-			if (appendSubsequentNodes && next != null) {
-				returnValue += next.getText(branch, appendSubsequentNodes);
-			}
-			return returnValue;
+		protected String getNodeText(Branch branch) {
+			return text;
 		}
 
 		@Override
-		public String toString() {
-			String returnValue = text;
-			if (next != null) {
-				returnValue += next.toString();
-			}
-			return returnValue;
+		protected void appendNodeString(StringBuilder sb) {
+			sb.append(text);
 		}
 
 		@Override
 		public SharedSegment clone(boolean swapBranches) {
-			SharedSegment clone = new SharedSegment(text);
-			if (next != null) {
-				clone.next = next.clone(swapBranches);
-				clone.next.prev = clone;
-			}
-			return clone;
+			return (SharedSegment) super.clone(swapBranches);
+		}
+
+		@Override
+		protected SharedSegment cloneNode(boolean swapBranches) {
+			return new SharedSegment(text);
 		}
 	}
 
@@ -534,7 +607,7 @@ public class TextDiff {
 		/** The text that should be applied to branch B. */
 		public final String textB;
 
-		private SplitSegment(String textA, String textB) {
+		SplitSegment(String textA, String textB) {
 			if (textA == null)
 				throw new NullPointerException();
 			if (textB == null)
@@ -548,12 +621,8 @@ public class TextDiff {
 		}
 
 		@Override
-		protected int calculateComplexity() {
-			int c = textA.length() + textB.length() + 1;
-			if (next != null) {
-				c += next.getComplexity();
-			}
-			return c;
+		protected int getNodeComplexity() {
+			return textA.length() + textB.length() + 1;
 		}
 
 		@Override
@@ -562,72 +631,44 @@ public class TextDiff {
 		}
 
 		@Override
-		public boolean equals(Object obj) {
-			if (!(obj instanceof SplitSegment)) {
-				return false;
-			}
-			SplitSegment other = (SplitSegment) obj;
-			if (!textA.equals(other.textA)) {
+		protected boolean nodeEquals(DiffSegment other) {
+			if (!(other instanceof SplitSegment))
 				return false;
-			} else if (!textB.equals(other.textB)) {
-				return false;
-			} else if (next != null && other.next != null) {
-				return next.equals(other.next);
-			} else if (next != null || other.next != null) {
-				return false;
-			}
-			return true;
+			SplitSegment s = (SplitSegment) other;
+			return textA.equals(s.textA) && textB.equals(s.textB);
 		}
 
 		@Override
 		public SplitSegment clone(boolean swapBranches) {
-			SplitSegment clone;
-			if (swapBranches) {
-				clone = new SplitSegment(textB, textA);
-			} else {
-				clone = new SplitSegment(textA, textB);
-			}
-			if (next != null) {
-				clone.next = next.clone(swapBranches);
-				clone.next.prev = clone;
-			}
-			return clone;
+			return (SplitSegment) super.clone(swapBranches);
 		}
 
 		@Override
-		public String getText(Branch branch, boolean appendSubsequentNodes) {
-			if (branch == null)
-				throw new NullPointerException();
+		protected SplitSegment cloneNode(boolean swapBranches) {
+			if (swapBranches)
+				return new SplitSegment(textB, textA);
+			return new SplitSegment(textA, textB);
+		}
 
-			String returnValue;
-			if (branch == Branch.A) {
-				returnValue = textA;
-			} else {
-				returnValue = textB;
-			}
-			if (appendSubsequentNodes && next != null) {
-				returnValue += next.getText(branch, appendSubsequentNodes);
-			}
-			return returnValue;
+		@Override
+		protected String getNodeText(Branch branch) {
+			if (branch == Branch.A)
+				return textA;
+			return textB;
 		}
 
 		@Override
-		public String toString() {
-			String returnValue;
+		protected void appendNodeString(StringBuilder sb) {
 			if (textA.length() == 0 && textB.length() == 0) {
 				// weird, but let's not make a stink here
-				returnValue = "";
 			} else if (textA.length() == 0) {
-				returnValue = "{" + textB + "}";
+				sb.append('{').append(textB).append('}');
 			} else if (textB.length() == 0) {
-				returnValue = "[" + textA + "]";
+				sb.append('[').append(textA).append(']');
 			} else {
-				returnValue = "[" + textA + "]{" + textB + "}";
-			}
-			if (next != null) {
-				returnValue += next.toString();
+				sb.append('[').append(textA).append("]{").append(textB)
+						.append('}');
 			}
-			return returnValue;
 		}
 	}
 
@@ -664,9 +705,52 @@ public class TextDiff {
 		}
 	}
 
+	/**
+	 * The algorithms a TextDiff can use to calculate diffs.
+	 */
+	public static enum Algorithm {
+		/**
+		 * Explore every possible diff and keep the solutions with the lowest
+		 * complexity. This can identify several equally simple solutions, but
+		 * it is only practical for short Strings.
+		 */
+		EXHAUSTIVE,
+		/**
+		 * Use Myers' O(ND) diff algorithm in linear space. This first diffs
+		 * lines, and then diffs the characters within changed lines. This
+		 * always returns exactly one solution, and it is suitable for large
+		 * documents.
+		 */
+		LINEAR
+	};
+
 	protected Map<Key, Collection<DiffSegment>> cachedResults = new HashMap<>();
+	protected final Algorithm algorithm;
 
+	/**
+	 * Create a TextDiff that uses the {@link Algorithm#EXHAUSTIVE} algorithm.
+	 */
 	public TextDiff() {
+		this(Algorithm.EXHAUSTIVE);
+	}
+
+	/**
+	 * Create a TextDiff.
+	 * 
+	 * @param algorithm
+	 *            the algorithm used to calculate diffs.
+	 */
+	public TextDiff(Algorithm algorithm) {
+		if (algorithm == null)
+			throw new NullPointerException();
+		this.algorithm = algorithm;
+	}
+
+	/**
+	 * Return the algorithm this object uses to calculate diffs.
+	 */
+	public Algorithm getAlgorithm() {
+		return algorithm;
 	}
 
 	/**
@@ -702,6 +786,7 @@ public class TextDiff {
 	 *            complex solutions. If false (which is recommended) then this
 	 *            method only includes the simplest solutions. If all solutions
 	 *            are included: this query can be several times slower.
+	 *            This is ignored by the {@link Algorithm#LINEAR} algorithm.
 	 * @return the graphs explaining the diff between strA and strB.
 	 */
 	public DiffSegment[] getSolutions(String strA, String strB,
@@ -718,9 +803,7 @@ public class TextDiff {
 		Key key = new Key(tA, tB, includeAllSolutions);
 		Collection<DiffSegment> solutions = cachedResults.get(key);
 		if (solutions == null) {
-			solutions = includeAllSolutions ? new TreeSet<DiffSegment>()
-					: new HashSet<DiffSegment>();
-			calculateSolutions(solutions, null, key, 0, 0, new Complexity());
+			solutions = calculateSolutions(key);
 			cachedResults.put(key, solutions);
 		}
 
@@ -765,8 +848,7 @@ public class TextDiff {
 		Key key = new Key(tA, tB, false);
 		Collection<DiffSegment> solutions = cachedResults.get(key);
 		if (solutions == null) {
-			solutions = new HashSet<>();
-			calculateSolutions(solutions, null, key, 0, 0, new Complexity());
+			solutions = calculateSolutions(key);
 			cachedResults.put(key, solutions);
 		}
 
@@ -778,6 +860,20 @@ public class TextDiff {
 		return returnValue;
 	}
 
+	/**
+	 * Calculate the solutions for a query that is not cached.
+	 */
+	private Collection<DiffSegment> calculateSolutions(Key key) {
+		Collection<DiffSegment> solutions = key.includeAllSolutions ? new TreeSet<DiffSegment>()
+				: new HashSet<DiffSegment>();
+		if (algorithm == Algorithm.LINEAR) {
+			solutions.add(MyersDiff.diff(key.strA, key.strB));
+		} else {
+			calculateSolutions(solutions, null, key, 0, 0, new Complexity());
+		}
+		return solutions;
+	}
+
 	/**
 	 * This is a trivial wrapper for an int value representing the minimum
 	 * complexity of a query.
@@ -0,0 +1,456 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.text;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.pump.text.WildcardPattern.FixedCharacter;
+import com.pump.text.WildcardPattern.Placeholder;
+import com.pump.text.WildcardPattern.QuestionMarkWildcard;
+import com.pump.text.WildcardPattern.SquareBracketsWildcard;
+import com.pump.text.WildcardPattern.StarWildcard;
+
+/**
+ * This compiles one or more {@link WildcardPattern WildcardPatterns} into a
+ * single bit-parallel automaton.
+ * <p>
+ * {@link WildcardPattern#matches(CharSequence)} backtracks when a pattern
+ * contains several star wildcards, and matching a String against many
+ * patterns requires consulting each pattern separately. This class instead
+ * reads each character of the input exactly once, and it reports every
+ * pattern that matched.
+ * <p>
+ * Every placeholder of every pattern is assigned one bit, and the state of
+ * the automaton is the set of placeholders that may match the next character
+ * (a "shift-and" automaton). Each character updates all the patterns at once
+ * using a few bitwise operations per 64 placeholders. The bits each character
+ * is accepted by are calculated when this object is constructed (for chars
+ * below 256) or the first time a character is encountered (for other chars),
+ * so case folding is not repeated while matching.
+ * <p>
+ * This class is thread-safe.
+ */
+public class WildcardMatcher {
+
+	/**
+	 * The maximum number of case variations of a constant prefix that
+	 * {@link #getMatches(NavigableSet)} looks up.
+	 */
+	private static final int MAX_PREFIX_VARIATIONS = 64;
+
+	/**
+	 * The masks for chars below this value are calculated in advance.
+	 */
+	private static final int TABLE_SIZE = 256;
+
+	/**
+	 * This maps every char to all the chars that are equal to it when case is
+	 * ignored.
+	 */
+	private static class CaseFolding {
+		static final Map<Character, char[]> variations = new HashMap<>();
+		static {
+			Map<Character, StringBuilder> map = new HashMap<>();
+			for (int a = 0; a <= Character.MAX_VALUE; a++) {
+				char lowerCase = Character.toLowerCase((char) a);
+				StringBuilder sb = map.get(lowerCase);
+				if (sb == null) {
+					sb = new StringBuilder();
+					map.put(lowerCase, sb);
+				}
+				sb.append((char) a);
+			}
+			for (StringBuilder sb : map.values()) {
+				if (sb.length() > 1) {
+					char[] chars = sb.toString().toCharArray();
+					for (char ch : chars) {
+						variations.put(ch, chars);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return all the chars that match a given char when case is ignored
+	 * (including the argument itself).
+	 */
+	static char[] getCaseVariations(char ch) {
+		char[] returnValue = CaseFolding.variations.get(ch);
+		if (returnValue == null)
+			return new char[] { ch };
+		return returnValue;
+	}
+
+	protected final WildcardPattern[] patterns;
+
+	/**
+	 * The placeholders of every pattern, concatenated together. Each pattern
+	 * is followed by a null element that represents a complete match.
+	 */
+	private final Placeholder[] placeholders;
+	private final boolean[] caseSensitive;
+
+	/**
+	 * For each null element in {@link #placeholders}: the index of the
+	 * pattern that is matched.
+	 */
+	private final int[] patternIndices;
+
+	/**
+	 * The bits of the first placeholder of every pattern (plus the bits that
+	 * follow a leading star).
+	 */
+	private final long[] startMask;
+
+	/**
+	 * The bits of every star wildcard.
+	 */
+	private final long[] starMask;
+
+	/**
+	 * The bits of every complete match.
+	 */
+	private final long[] matchMask;
+
+	/**
+	 * For each char below {@link #TABLE_SIZE}: the bits of the (non-star)
+	 * placeholders that accept that char. Chars that are accepted by the same
+	 * placeholders share the same array.
+	 */
+	private final long[][] table = new long[TABLE_SIZE][];
+
+	/**
+	 * The masks for chars that are not in {@link #table}.
+	 */
+	private final Map<Character, long[]> otherMasks = new ConcurrentHashMap<>();
+
+	/**
+	 * Create a WildcardMatcher.
+	 * 
+	 * @param patterns
+	 *            the patterns to match against.
+	 */
+	public WildcardMatcher(WildcardPattern... patterns) {
+		this(Arrays.asList(patterns));
+	}
+
+	/**
+	 * Create a WildcardMatcher.
+	 * 
+	 * @param patterns
+	 *            the patterns to match against.
+	 */
+	public WildcardMatcher(Collection<WildcardPattern> patterns) {
+		this.patterns = patterns.toArray(new WildcardPattern[patterns.size()]);
+
+		int size = 0;
+		for (WildcardPattern pattern : this.patterns) {
+			size += pattern.placeholders.length + 1;
+		}
+		placeholders = new Placeholder[size];
+		caseSensitive = new boolean[size];
+		patternIndices = new int[size];
+		int wordCount = (size + 63) / 64;
+		startMask = new long[wordCount];
+		starMask = new long[wordCount];
+		matchMask = new long[wordCount];
+
+		int i = 0;
+		for (int a = 0; a < this.patterns.length; a++) {
+			WildcardPattern pattern = this.patterns[a];
+			set(startMask, i);
+			boolean cs = pattern.getFormat().caseSensitive;
+			for (Placeholder p : pattern.placeholders) {
+				placeholders[i] = p;
+				caseSensitive[i] = cs;
+				patternIndices[i] = -1;
+				if (p instanceof StarWildcard)
+					set(starMask, i);
+				i++;
+			}
+			patternIndices[i] = a;
+			set(matchMask, i);
+			i++;
+		}
+		addStarSuccessors(startMask);
+
+		Map<LongArray, long[]> uniqueMasks = new HashMap<>();
+		for (int ch = 0; ch < TABLE_SIZE; ch++) {
+			long[] mask = createMask((char) ch);
+			LongArray key = new LongArray(mask);
+			long[] existing = uniqueMasks.get(key);
+			if (existing == null) {
+				uniqueMasks.put(key, mask);
+			} else {
+				mask = existing;
+			}
+			table[ch] = mask;
+		}
+	}
+
+	/**
+	 * This wraps a long array so it can be used as a key in a map.
+	 */
+	private static class LongArray {
+		final long[] array;
+		final int hashCode;
+
+		LongArray(long[] array) {
+			this.array = array;
+			hashCode = Arrays.hashCode(array);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof LongArray
+					&& Arrays.equals(array, ((LongArray) obj).array);
+		}
+	}
+
+	private static void set(long[] bits, int i) {
+		bits[i >> 6] |= 1L << i;
+	}
+
+	/**
+	 * A star wildcard may match zero characters, so whenever a star's bit is
+	 * set the bit of the following placeholder is also set. (Consecutive stars
+	 * are merged when a WildcardPattern is parsed, so this never needs to be
+	 * repeated.)
+	 */
+	private void addStarSuccessors(long[] bits) {
+		long carry = 0;
+		for (int w = 0; w < bits.length; w++) {
+			long stars = bits[w] & starMask[w];
+			bits[w] |= (stars << 1) | carry;
+			carry = stars >>> 63;
+		}
+	}
+
+	/**
+	 * Return the bits of the non-star placeholders that accept a char.
+	 */
+	private long[] createMask(char ch) {
+		long[] mask = new long[starMask.length];
+		for (int i = 0; i < placeholders.length; i++) {
+			Placeholder p = placeholders[i];
+			boolean accept;
+			if (p instanceof FixedCharacter) {
+				accept = ((FixedCharacter) p).matches(ch, caseSensitive[i]);
+			} else if (p instanceof SquareBracketsWildcard) {
+				accept = ((SquareBracketsWildcard) p).contains(ch,
+						caseSensitive[i]);
+			} else {
+				accept = p instanceof QuestionMarkWildcard;
+			}
+			if (accept)
+				set(mask, i);
+		}
+		return mask;
+	}
+
+	private long[] getMask(char ch) {
+		if (ch < TABLE_SIZE)
+			return table[ch];
+		long[] mask = otherMasks.get(ch);
+		if (mask == null) {
+			mask = createMask(ch);
+			otherMasks.put(ch, mask);
+		}
+		return mask;
+	}
+
+	/**
+	 * Return the number of patterns this matcher evaluates.
+	 */
+	public int getPatternCount() {
+		return patterns.length;
+	}
+
+	/**
+	 * Return one of the patterns this matcher evaluates.
+	 */
+	public WildcardPattern getPattern(int index) {
+		return patterns[index];
+	}
+
+	/**
+	 * Return true if the argument complies with any of this matcher's
+	 * patterns.
+	 */
+	public boolean matches(CharSequence string) {
+		long[] state = getFinalState(string);
+		for (int w = 0; w < state.length; w++) {
+			if ((state[w] & matchMask[w]) != 0)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Return the indices of all the patterns that the argument complies with,
+	 * in ascending order.
+	 */
+	public int[] getMatchingIndices(CharSequence string) {
+		long[] state = getFinalState(string);
+		int count = 0;
+		for (int w = 0; w < state.length; w++) {
+			state[w] &= matchMask[w];
+			count += Long.bitCount(state[w]);
+		}
+		int[] returnValue = new int[count];
+		int k = 0;
+		for (int w = 0; w < state.length; w++) {
+			long bits = state[w];
+			while (bits != 0) {
+				int i = w * 64 + Long.numberOfTrailingZeros(bits);
+				returnValue[k++] = patternIndices[i];
+				bits &= bits - 1;
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Return all the patterns that the argument complies with.
+	 */
+	public List<WildcardPattern> getMatchingPatterns(CharSequence string) {
+		int[] matches = getMatchingIndices(string);
+		if (matches.length == 0)
+			return Collections.emptyList();
+		List<WildcardPattern> returnValue = new ArrayList<>(matches.length);
+		for (int i : matches) {
+			returnValue.add(patterns[i]);
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Return the bits of the placeholders that are active after the argument
+	 * is consumed.
+	 */
+	private long[] getFinalState(CharSequence string) {
+		Objects.requireNonNull(string);
+		long[] state = startMask.clone();
+		long[] next = new long[state.length];
+		for (int a = 0; a < string.length(); a++) {
+			long[] mask = getMask(string.charAt(a));
+			long moveCarry = 0;
+			long starCarry = 0;
+			long alive = 0;
+			for (int w = 0; w < state.length; w++) {
+				// non-star placeholders that accept this char advance by one
+				// bit, and stars stay where they are:
+				long moved = state[w] & mask[w];
+				long n = (moved << 1) | moveCarry | (state[w] & starMask[w]);
+				moveCarry = moved >>> 63;
+
+				long stars = n & starMask[w];
+				n |= (stars << 1) | starCarry;
+				starCarry = stars >>> 63;
+
+				next[w] = n;
+				alive |= n;
+			}
+			long[] t = state;
+			state = next;
+			next = t;
+			if (alive == 0)
+				break;
+		}
+		return state;
+	}
+
+	/**
+	 * Return all the elements of the argument that comply with any of this
+	 * matcher's patterns.
+	 * <p>
+	 * If every pattern begins with constant text then this only consults the
+	 * elements of the set that begin with that text (or a case variation of
+	 * it, if the pattern is not case sensitive), instead of scanning the
+	 * entire set.
+	 */
+	public SortedSet<String> getMatches(NavigableSet<String> set) {
+		SortedSet<String> returnValue = new TreeSet<>();
+		NavigableSet<String> prefixes = new TreeSet<>();
+		for (WildcardPattern pattern : patterns) {
+			List<String> list = getConstantPrefixes(pattern);
+			if (list.contains("")) {
+				for (String s : set) {
+					if (matches(s))
+						returnValue.add(s);
+				}
+				return returnValue;
+			}
+			prefixes.addAll(list);
+		}
+
+		String lastPrefix = null;
+		for (String prefix : prefixes) {
+			// the elements for "ab" also include the elements for "abc"
+			if (lastPrefix != null && prefix.startsWith(lastPrefix))
+				continue;
+			lastPrefix = prefix;
+			for (String s : set.tailSet(prefix, true)) {
+				if (!s.startsWith(prefix))
+					break;
+				if (matches(s))
+					returnValue.add(s);
+			}
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Return the constant text every match of a pattern must begin with. If
+	 * the pattern is not case sensitive this returns every case variation of
+	 * that text (which may require truncating the text).
+	 */
+	static List<String> getConstantPrefixes(WildcardPattern pattern) {
+		boolean caseSensitive = pattern.getFormat().caseSensitive;
+		List<String> returnValue = new ArrayList<>();
+		returnValue.add("");
+		for (Placeholder p : pattern.placeholders) {
+			if (!(p instanceof FixedCharacter))
+				break;
+			char ch = ((FixedCharacter) p).ch;
+			char[] variations = caseSensitive ? new char[] { ch }
+					: getCaseVariations(ch);
+			if (returnValue.size() * variations.length > MAX_PREFIX_VARIATIONS)
+				break;
+			List<String> newList = new ArrayList<>(returnValue.size()
+					* variations.length);
+			for (String prefix : returnValue) {
+				for (char variation : variations) {
+					newList.add(prefix + variation);
+				}
+			}
+			returnValue = newList;
+		}
+		return returnValue;
+	}
+}
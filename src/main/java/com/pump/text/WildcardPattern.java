@@ -931,37 +931,27 @@ public class WildcardPattern implements Serializable {
 	 * Return all the elements of the argument that comply with this pattern.
 	 * <p>
 	 * This should be functionally equivalent to iterating over every element of
-	 * the set and checking its compliance, but depending on the composition of
-	 * this pattern: this method may be faster than if you iterate over all
-	 * elements directly.
+	 * the set and checking its compliance, but if this pattern begins with
+	 * constant text: this method only consults the elements that begin with
+	 * that text.
 	 * 
 	 * @param set
-	 * @param string
-	 * @return
+	 *            the set of Strings to search.
+	 * @return the elements of the set that comply with this pattern.
 	 */
 	public SortedSet<String> getMatches(TreeSet<String> set) {
-		SortedSet<String> returnValue = new TreeSet<>();
-		Placeholder[] phs = getPlaceholders();
-
-		StringBuilder constantPrefixBuilder = new StringBuilder();
-		for (int a = 0; a < phs.length; a++) {
-			if (phs[a] instanceof FixedCharacter) {
-				FixedCharacter fc = (FixedCharacter) phs[a];
-				constantPrefixBuilder.append(fc.ch);
-			} else {
-				break;
-			}
-		}
-		String constantPrefix = constantPrefixBuilder.toString();
-
-		for (String s : set.tailSet(constantPrefix, true)) {
-			if (matches(s))
-				returnValue.add(s);
-			if (!s.startsWith(constantPrefix))
-				break;
-		}
+		return compile().getMatches(set);
+	}
 
-		return returnValue;
+	/**
+	 * Compile this pattern into a {@link WildcardMatcher}. The matcher reads
+	 * each character of its input exactly once, so it never backtracks.
+	 * <p>
+	 * To match against several patterns at once use
+	 * {@link WildcardMatcher#WildcardMatcher(WildcardPattern...)}.
+	 */
+	public WildcardMatcher compile() {
+		return new WildcardMatcher(this);
 	}
 
 	private void writeObject(java.io.ObjectOutputStream out) throws IOException {
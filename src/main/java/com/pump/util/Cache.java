@@ -135,17 +135,22 @@ public class Cache<K, V> {
 			this.maxTime = maxTime;
 
 			if (maxTimePurgeInterval > 0 && maxTime > 0) {
-				synchronized (CachePool.class) {
-					if (timer == null) {
-						timer = new Timer();
-					}
-				}
 				TimerTask task = new PurgeTimerTask(this);
-				timer.scheduleAtFixedRate(task, maxTimePurgeInterval,
+				getTimer().scheduleAtFixedRate(task, maxTimePurgeInterval,
 						maxTimePurgeInterval);
 			}
 		}
 
+		/**
+		 * Return the shared timer used to periodically purge old data.
+		 */
+		static synchronized Timer getTimer() {
+			if (timer == null) {
+				timer = new Timer();
+			}
+			return timer;
+		}
+
 		/**
 		 * Clear this pool. This clears data in all the Caches that use this
 		 * pool.
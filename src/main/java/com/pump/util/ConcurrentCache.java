@@ -0,0 +1,521 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.util;
+
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.TimerTask;
+
+/**
+ * This is a {@link Cache} alternative intended for heavy multithreaded use.
+ * <p>
+ * A <code>Cache</code> funnels every call through its {@link Cache.CachePool}
+ * monitor. This class instead splits its data into several segments. Each
+ * segment is an independent least-recently-used map with its own lock, so
+ * threads that consult different keys rarely block each other.
+ * <p>
+ * This supports the same two limits as a <code>CachePool</code>: a maximum
+ * number of elements and an optional maximum amount of time (in milliseconds)
+ * an element can go untouched before it expires. The size limit is divided
+ * across the segments, so the element that is purged when a segment is full
+ * is the least-recently-used element <em>of that segment</em>, which is not
+ * necessarily the least-recently-used element of the whole cache.
+ * <p>
+ * Expired elements are purged lazily: each call examines at most a few of the
+ * oldest elements in the segment it touches, and any expired element that is
+ * requested is discarded on the spot. Methods that describe the whole cache
+ * (like {@link #size()} or {@link #getKeys()}) purge every segment first.
+ * <p>
+ * This cache also keeps a running count of hits, misses, evictions and
+ * expirations that can help tune its limits.
+ */
+public class ConcurrentCache<K, V> {
+
+	/**
+	 * The default number of segments.
+	 */
+	public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+	/**
+	 * The maximum number of expired elements a single get/put/remove call
+	 * will purge.
+	 */
+	private static final int EXPIRATION_SAMPLE_SIZE = 4;
+
+	/**
+	 * This task purges old data from the cache periodically, or it cancels
+	 * itself the ConcurrentCache that declared it is gc'ed.
+	 */
+	static class PurgeTimerTask extends TimerTask {
+		WeakReference<ConcurrentCache<?, ?>> cacheRef;
+
+		public PurgeTimerTask(ConcurrentCache<?, ?> cache) {
+			cacheRef = new WeakReference<ConcurrentCache<?, ?>>(cache);
+		}
+
+		@Override
+		public void run() {
+			ConcurrentCache<?, ?> cache = cacheRef.get();
+			if (cache == null) {
+				cancel();
+			} else {
+				cache.purge();
+			}
+		}
+	}
+
+	/**
+	 * A value and the last time it was touched.
+	 */
+	static class CacheEntry<V> {
+		V value;
+		long timestamp;
+
+		CacheEntry(V value, long timestamp) {
+			this.value = value;
+			this.timestamp = timestamp;
+		}
+
+		@Override
+		public String toString() {
+			return timestamp + ", " + value;
+		}
+	}
+
+	/**
+	 * One independently locked portion of a ConcurrentCache.
+	 * <p>
+	 * All fields are guarded by this object's monitor.
+	 */
+	static class Segment<K, V> {
+
+		/**
+		 * The entries in this segment, ordered from least-recently-accessed
+		 * to most-recently-accessed.
+		 */
+		final LinkedHashMap<K, CacheEntry<V>> map;
+		final int maxSize;
+		long hits, misses, evictions, expirations;
+
+		Segment(int maxSize) {
+			this.maxSize = maxSize;
+			map = new LinkedHashMap<>(Math.min(1000, maxSize), .75f, true);
+		}
+
+		/**
+		 * Purge up to <code>limit</code> expired entries from the head of
+		 * this segment.
+		 * 
+		 * @return the number of entries purged.
+		 */
+		int expire(long now, long maxTime, int limit) {
+			if (maxTime < 0)
+				return 0;
+			int ctr = 0;
+			Iterator<CacheEntry<V>> iter = map.values().iterator();
+			while (ctr < limit && iter.hasNext()) {
+				CacheEntry<V> e = iter.next();
+				if (now - e.timestamp > maxTime) {
+					iter.remove();
+					ctr++;
+				} else {
+					break;
+				}
+			}
+			expirations += ctr;
+			return ctr;
+		}
+	}
+
+	final Segment<K, V>[] segments;
+	final int maxSize;
+	final long maxTime;
+
+	/**
+	 * Create a new ConcurrentCache that does not impose a time limit.
+	 * 
+	 * @param maxSize
+	 *            the maximum number of elements this cache will accept. When
+	 *            this limit is reached: the oldest elements are automatically
+	 *            purged.
+	 */
+	public ConcurrentCache(int maxSize) {
+		this(maxSize, -1, -1);
+	}
+
+	/**
+	 * Create a new ConcurrentCache using the default concurrency level.
+	 * 
+	 * @param maxSize
+	 *            the maximum number of elements this cache will accept. When
+	 *            this limit is reached: the oldest elements are automatically
+	 *            purged.
+	 * @param maxTime
+	 *            the maximum number of milliseconds an element can stay in this
+	 *            cache without being accessed. If you don't want elements to
+	 *            ever expire: you can set this to -1.
+	 * @param maxTimePurgeInterval
+	 *            the number of milliseconds between regular purges of this
+	 *            cache. If this is negative then no timer is set up.
+	 */
+	public ConcurrentCache(int maxSize, long maxTime,
+			long maxTimePurgeInterval) {
+		this(maxSize, maxTime, maxTimePurgeInterval,
+				DEFAULT_CONCURRENCY_LEVEL);
+	}
+
+	/**
+	 * Create a new ConcurrentCache.
+	 * 
+	 * @param maxSize
+	 *            the maximum number of elements this cache will accept. When
+	 *            this limit is reached: the oldest elements are automatically
+	 *            purged.
+	 *            <p>
+	 *            If you don't want a maximum number of elements: you can use
+	 *            Integer.MAX_VALUE.
+	 * @param maxTime
+	 *            the maximum number of milliseconds an element can stay in this
+	 *            cache without being accessed. If you don't want elements to
+	 *            ever expire: you can set this to -1.
+	 * @param maxTimePurgeInterval
+	 *            the number of milliseconds between regular purges of this
+	 *            cache. If this is negative then no timer is set up.
+	 * @param concurrencyLevel
+	 *            the estimated number of threads that will use this cache at
+	 *            the same time. This is rounded down to a power of two (and
+	 *            never exceeds <code>maxSize</code>) to determine the number of
+	 *            segments.
+	 */
+	public ConcurrentCache(int maxSize, long maxTime,
+			long maxTimePurgeInterval, int concurrencyLevel) {
+		if (maxSize <= 0)
+			throw new IllegalArgumentException("maxSize (" + maxSize
+					+ ") must be greater than zero");
+		if (concurrencyLevel <= 0)
+			throw new IllegalArgumentException("concurrencyLevel ("
+					+ concurrencyLevel + ") must be greater than zero");
+
+		this.maxSize = maxSize;
+		this.maxTime = maxTime;
+
+		int segmentCount = Integer.highestOneBit(Math.min(concurrencyLevel,
+				maxSize));
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		Segment<K, V>[] newSegments = new Segment[segmentCount];
+		segments = newSegments;
+		int remainder = maxSize % segmentCount;
+		for (int a = 0; a < segmentCount; a++) {
+			int segmentSize = maxSize / segmentCount + (a < remainder ? 1 : 0);
+			segments[a] = new Segment<>(segmentSize);
+		}
+
+		if (maxTimePurgeInterval > 0 && maxTime > 0) {
+			TimerTask task = new PurgeTimerTask(this);
+			Cache.CachePool.getTimer().scheduleAtFixedRate(task,
+					maxTimePurgeInterval, maxTimePurgeInterval);
+		}
+	}
+
+	/**
+	 * Return the segment responsible for a key.
+	 */
+	Segment<K, V> getSegment(Object key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return segments[h & (segments.length - 1)];
+	}
+
+	/**
+	 * Return the value associated with a key.
+	 * <p>
+	 * Calling this method moves the key/value pair to the top of its segment's
+	 * most-recently-accessed list.
+	 * 
+	 * @param key
+	 *            the key to retrieve.
+	 * @return the value associated with a key.
+	 */
+	public V get(K key) {
+		Objects.requireNonNull(key);
+		Segment<K, V> segment = getSegment(key);
+		long now = System.currentTimeMillis();
+		synchronized (segment) {
+			segment.expire(now, maxTime, EXPIRATION_SAMPLE_SIZE);
+			CacheEntry<V> entry = segment.map.get(key);
+			if (entry == null) {
+				segment.misses++;
+				return null;
+			}
+			if (maxTime >= 0 && now - entry.timestamp > maxTime) {
+				segment.map.remove(key);
+				segment.expirations++;
+				segment.misses++;
+				return null;
+			}
+			entry.timestamp = now;
+			segment.hits++;
+			return entry.value;
+		}
+	}
+
+	/**
+	 * Store a key/value pair.
+	 * <p>
+	 * This key/value pair is moved to the top of its segment's
+	 * most-recently-accessed list.
+	 * 
+	 * @param key
+	 *            the key used to store a value.
+	 * @param newValue
+	 *            the value to store.
+	 * @return the value this key was previously mapped to, or null if this key
+	 *         was undefined.
+	 */
+	public V put(K key, V newValue) {
+		Objects.requireNonNull(key);
+		Segment<K, V> segment = getSegment(key);
+		long now = System.currentTimeMillis();
+		synchronized (segment) {
+			segment.expire(now, maxTime, EXPIRATION_SAMPLE_SIZE);
+			CacheEntry<V> oldEntry = segment.map.put(key, new CacheEntry<>(
+					newValue, now));
+			if (oldEntry != null) {
+				if (maxTime >= 0 && now - oldEntry.timestamp > maxTime) {
+					segment.expirations++;
+					return null;
+				}
+				return oldEntry.value;
+			}
+
+			if (segment.map.size() > segment.maxSize) {
+				Iterator<CacheEntry<V>> iter = segment.map.values().iterator();
+				iter.next();
+				iter.remove();
+				segment.evictions++;
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Remove a key from this cache.
+	 * 
+	 * @param key
+	 *            the key to remove
+	 * @return the value this key was previously mapped to, or null if this key
+	 *         was undefined.
+	 */
+	public V remove(K key) {
+		Objects.requireNonNull(key);
+		Segment<K, V> segment = getSegment(key);
+		long now = System.currentTimeMillis();
+		synchronized (segment) {
+			segment.expire(now, maxTime, EXPIRATION_SAMPLE_SIZE);
+			CacheEntry<V> oldEntry = segment.map.remove(key);
+			if (oldEntry == null)
+				return null;
+			if (maxTime >= 0 && now - oldEntry.timestamp > maxTime) {
+				segment.expirations++;
+				return null;
+			}
+			return oldEntry.value;
+		}
+	}
+
+	/**
+	 * Return true if this cache contains a given Key.
+	 * <p>
+	 * Note a cache may drop elements at seemingly random times, so just because
+	 * this returns true does not guarantee that a call to retrieve that key
+	 * will return non-null.
+	 */
+	public boolean contains(K key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * Remove all the elements in this cache.
+	 */
+	public void clear() {
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				segment.map.clear();
+			}
+		}
+	}
+
+	/**
+	 * Purge all expired records from this cache.
+	 * 
+	 * @return the number of records purged.
+	 */
+	public int purge() {
+		if (maxTime < 0)
+			return 0;
+		int ctr = 0;
+		long now = System.currentTimeMillis();
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				ctr += segment.expire(now, maxTime, Integer.MAX_VALUE);
+			}
+		}
+		return ctr;
+	}
+
+	/**
+	 * Return the number of key/value pairs in this cache.
+	 */
+	public int size() {
+		purge();
+		int sum = 0;
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				sum += segment.map.size();
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Return all the keys in this cache.
+	 * <p>
+	 * Note a cache may drop elements at seemingly random times, so just because
+	 * an element is in this collection does not guarantee that a call to
+	 * retrieve that key will return non-null.
+	 */
+	public Collection<K> getKeys() {
+		purge();
+		Collection<K> keys = new HashSet<>();
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				keys.addAll(segment.map.keySet());
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * Create a Map representing all the data in this cache.
+	 */
+	public Map<K, V> toMap() {
+		purge();
+		Map<K, V> map = new HashMap<>();
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				for (Entry<K, CacheEntry<V>> entry : segment.map.entrySet()) {
+					map.put(entry.getKey(), entry.getValue().value);
+				}
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Return the maximum number of elements this cache will store.
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Return the maximum number of milliseconds an element can go untouched in
+	 * this cache, or -1 if elements never expire.
+	 */
+	public long getMaxTime() {
+		return maxTime;
+	}
+
+	/**
+	 * Return the number of calls to {@link #get(Object)} that returned a
+	 * cached value.
+	 */
+	public long getHitCount() {
+		long sum = 0;
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				sum += segment.hits;
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Return the number of calls to {@link #get(Object)} that did not find a
+	 * cached value.
+	 */
+	public long getMissCount() {
+		long sum = 0;
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				sum += segment.misses;
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Return the number of elements that were purged because this cache
+	 * reached its maximum size.
+	 */
+	public long getEvictionCount() {
+		long sum = 0;
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				sum += segment.evictions;
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Return the number of elements that were purged because they exceeded
+	 * the maximum time limit.
+	 */
+	public long getExpirationCount() {
+		long sum = 0;
+		for (Segment<K, V> segment : segments) {
+			synchronized (segment) {
+				sum += segment.expirations;
+			}
+		}
+		return sum;
+	}
+
+	@Override
+	public int hashCode() {
+		return toMap().hashCode();
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof ConcurrentCache) {
+			ConcurrentCache other = (ConcurrentCache) obj;
+			return toMap().equals(other.toMap());
+		} else if (obj instanceof Map) {
+			return toMap().equals((Map) obj);
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return toMap().toString();
+	}
+}
@@ -21,6 +21,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +30,7 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Executor;
 
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
@@ -52,6 +54,8 @@ public class ObservableProperties implements Serializable {
 
 	private Set<Edit> activeEdits = new HashSet<>();
 	private LinkedList<QueueElement> eventQueue = new LinkedList<>();
+	private long suppressedEventCount = 0;
+	private transient Executor listenerExecutor;
 
 	/**
 	 * Begin recording an edit that suspends all listeners until
@@ -63,6 +67,12 @@ public class ObservableProperties implements Serializable {
 	 * after the first step and the MAXIMUM value was an older value (such as
 	 * 3), then it might throw an exception because it assumes the VALUE is
 	 * always less than the MAXIMUM.
+	 * <p>
+	 * This is also useful when you modify many properties at once. Changes
+	 * made during an edit are collapsed so each key fires at most one
+	 * PropertyChangeEvent (from its original value to its final value), and
+	 * keys whose final value equals their original value do not fire any
+	 * event.
 	 * 
 	 * @return a unique identifier to pass to <code>endEdit()</code> when your
 	 *         changes are complete.
@@ -95,6 +105,49 @@ public class ObservableProperties implements Serializable {
 		}
 	}
 
+	/**
+	 * Return the number of PropertyChangeEvents that were never fired because
+	 * they were collapsed into other events during an edit.
+	 * <p>
+	 * Each event counts once, regardless of how many listeners it would have
+	 * reached.
+	 * 
+	 * @see #beginEdit()
+	 */
+	public long getSuppressedEventCount() {
+		synchronized (eventQueue) {
+			return suppressedEventCount;
+		}
+	}
+
+	/**
+	 * Assign the Executor used to notify listeners.
+	 * <p>
+	 * If this is null (the default) then listeners are notified immediately
+	 * in the thread that modified this object (or the thread that ended the
+	 * last edit). Otherwise each group of PropertyChangeEvents is passed to
+	 * this Executor as one Runnable. For example: an Executor that calls
+	 * <code>SwingUtilities.invokeLater(..)</code> will notify listeners on the
+	 * event dispatch thread.
+	 */
+	public void setListenerExecutor(Executor executor) {
+		synchronized (eventQueue) {
+			listenerExecutor = executor;
+		}
+	}
+
+	/**
+	 * Return the Executor used to notify listeners, or null if listeners are
+	 * notified immediately.
+	 * 
+	 * @see #setListenerExecutor(Executor)
+	 */
+	public Executor getListenerExecutor() {
+		synchronized (eventQueue) {
+			return listenerExecutor;
+		}
+	}
+
 	/**
 	 * This reprents a future PropertyChangeEvent.
 	 */
@@ -116,28 +169,73 @@ public class ObservableProperties implements Serializable {
 	/** Flushes all QueueElements from the eventQueue. */
 	protected void clearEventQueue() {
 		synchronized (eventQueue) {
+			if (eventQueue.size() > 1)
+				consolidateEventQueue();
+
+			if (listenerExecutor != null) {
+				final QueueElement[] elements = eventQueue
+						.toArray(new QueueElement[eventQueue.size()]);
+				eventQueue.clear();
+				listenerExecutor.execute(new Runnable() {
+					public void run() {
+						for (QueueElement q : elements) {
+							fireQueueElement(q);
+						}
+					}
+				});
+				return;
+			}
+
 			while (eventQueue.size() > 0) {
-				QueueElement q = eventQueue.removeFirst();
+				fireQueueElement(eventQueue.removeFirst());
+			}
+		}
+	}
 
-				Listener[] listenerArray;
-				synchronized (q.group.listeners) {
-					listenerArray = q.group.listeners
-							.toArray(new Listener[q.group.listeners.size()]);
-				}
+	/**
+	 * Replace all the QueueElements that refer to the same key with one
+	 * QueueElement that describes their net change, and remove elements whose
+	 * net change is nothing.
+	 */
+	private void consolidateEventQueue() {
+		Map<List<Object>, QueueElement> consolidated = new LinkedHashMap<>();
+		int size = eventQueue.size();
+		for (QueueElement q : eventQueue) {
+			List<Object> id = Arrays.<Object> asList(q.group, q.key);
+			QueueElement existing = consolidated.get(id);
+			if (existing == null) {
+				consolidated.put(id, new QueueElement(q.group, q.key,
+						q.oldValue, q.newValue));
+			} else {
+				existing.newValue = q.newValue;
+			}
+		}
+		eventQueue.clear();
+		for (QueueElement q : consolidated.values()) {
+			if (!Objects.equals(q.oldValue, q.newValue))
+				eventQueue.add(q);
+		}
+		suppressedEventCount += size - eventQueue.size();
+	}
 
-				// TODO: consolidate QueueElements so we only include the latest
-				// change
-				for (Listener l : listenerArray) {
-					boolean keysMatch = l.key == null || l.key.equals(q.key);
-					if (keysMatch) {
-						try {
-							l.pcl.propertyChange(new PropertyChangeEvent(
-									ObservableProperties.this, q.key.keyName,
-									q.oldValue, q.newValue));
-						} catch (Exception e) {
-							e.printStackTrace();
-						}
-					}
+	private void fireQueueElement(QueueElement q) {
+		Listener[] listenerArray;
+		synchronized (q.group.listeners) {
+			listenerArray = q.group.listeners
+					.toArray(new Listener[q.group.listeners.size()]);
+		}
+
+		PropertyChangeEvent event = null;
+		for (Listener l : listenerArray) {
+			boolean keysMatch = l.key == null || l.key.equals(q.key);
+			if (keysMatch) {
+				if (event == null)
+					event = new PropertyChangeEvent(ObservableProperties.this,
+							q.key.keyName, q.oldValue, q.newValue);
+				try {
+					l.pcl.propertyChange(event);
+				} catch (Exception e) {
+					e.printStackTrace();
 				}
 			}
 		}
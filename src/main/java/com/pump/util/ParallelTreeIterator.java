@@ -0,0 +1,498 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.util;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Stack;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This iterates over a tree like a {@link TreeIterator}, except branches are
+ * listed in parallel on a <code>ForkJoinPool</code>.
+ * <p>
+ * Each branch is listed by a separate task, and each task forks new tasks for
+ * the sub-branches it finds. So the work fans out across the pool's
+ * work-stealing queues as the tree is discovered.
+ * <p>
+ * This iterator has two modes:
+ * <ul>
+ * <li><b>Ordered</b>: this returns nodes in the same depth-first order as a
+ * <code>TreeIterator</code>. Branches are listed ahead of time in the
+ * background, but only up to <code>capacity</code> listings are kept waiting
+ * at once.</li>
+ * <li><b>Unordered</b>: this returns nodes as soon as any task finds them. At
+ * most <code>capacity</code> branches are listed (or wait to be returned) at
+ * once; other branches are set aside until this iterator catches up.</li>
+ * </ul>
+ * <p>
+ * Because the tasks call {@link #listChildren(Object)},
+ * {@link #isBranch(Object)} and {@link #isReturnValue(Object)} from several
+ * threads at once, subclasses must make those methods thread-safe. No task
+ * starts until <code>hasNext()</code> or <code>next()</code> is first called.
+ * <p>
+ * Call {@link #close()} to stop iterating early. This cancels all remaining
+ * tasks.
+ */
+public abstract class ParallelTreeIterator<T> implements
+		CloseableMeasurableIterator<T> {
+
+	/**
+	 * Return the default capacity.
+	 */
+	public static int getDefaultCapacity() {
+		return Math.max(64, 16 * Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * A child and what we learned about it when its parent was listed.
+	 */
+	class Node {
+		final T value;
+		final boolean isBranch;
+		final boolean isReturnValue;
+
+		/**
+		 * The listing of this branch, if it was started before the iterator
+		 * reached this node.
+		 */
+		ListTask listing;
+
+		Node(T value, boolean isBranch, boolean isReturnValue) {
+			this.value = value;
+			this.isBranch = isBranch;
+			this.isReturnValue = isReturnValue;
+		}
+	}
+
+	/**
+	 * The children of a branch the ordered iterator is walking through.
+	 */
+	class Frame {
+		final List<Node> children;
+		int index = 0;
+
+		Frame(List<Node> children) {
+			this.children = children;
+		}
+	}
+
+	/**
+	 * In ordered mode: this lists a branch and starts listing its
+	 * sub-branches.
+	 */
+	class ListTask extends RecursiveTask<List<Node>> {
+		private static final long serialVersionUID = 1L;
+
+		final T parent;
+
+		ListTask(T parent) {
+			this.parent = parent;
+		}
+
+		@Override
+		protected List<Node> compute() {
+			List<Node> returnValue = new ArrayList<>();
+			if (cancelled)
+				return returnValue;
+			T[] children = listChildren(parent);
+			if (children == null)
+				return returnValue;
+			for (T child : children) {
+				if (child == null)
+					continue;
+				Node node = new Node(child, isBranch(child),
+						isReturnValue(child));
+				if (node.isBranch && !cancelled
+						&& listingPermits.tryAcquire()) {
+					node.listing = new ListTask(child);
+					schedule(node.listing);
+				}
+				returnValue.add(node);
+			}
+			return returnValue;
+		}
+	}
+
+	/**
+	 * In unordered mode: this lists a branch, queues its children and starts
+	 * visiting its sub-branches.
+	 * <p>
+	 * Each VisitTask holds one of the <code>listingPermits</code>. The
+	 * iterator releases that permit when it takes this task's children from
+	 * the queue.
+	 */
+	class VisitTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final T parent;
+
+		VisitTask(T parent) {
+			this.parent = parent;
+		}
+
+		@Override
+		protected void compute() {
+			try {
+				if (cancelled)
+					return;
+				List<T> batch = new ArrayList<>();
+				T[] children = listChildren(parent);
+				if (children != null) {
+					for (T child : children) {
+						if (child == null)
+							continue;
+						if (isBranch(child)) {
+							pendingVisits.incrementAndGet();
+							if (listingPermits.tryAcquire()) {
+								schedule(new VisitTask(child));
+							} else {
+								deferredBranches.push(child);
+							}
+						}
+						if (isReturnValue(child))
+							batch.add(child);
+					}
+				}
+				queue.add(batch);
+			} catch (RuntimeException | Error e) {
+				queue.add(new Failure(e));
+			} finally {
+				if (pendingVisits.decrementAndGet() == 0)
+					queue.add(END);
+			}
+		}
+	}
+
+	/**
+	 * An exception thrown by a task, which <code>next()</code> rethrows.
+	 */
+	static class Failure {
+		final Throwable throwable;
+
+		Failure(Throwable throwable) {
+			this.throwable = throwable;
+		}
+	}
+
+	private static final Object END = new Object();
+
+	protected final T root;
+	protected final boolean includeRoot;
+	protected final ForkJoinPool pool;
+	protected final boolean ordered;
+	protected final int capacity;
+
+	private volatile boolean cancelled = false;
+	private boolean started = false;
+	private boolean finished = false;
+	private T nextElement;
+
+	// used in ordered mode:
+	private Semaphore listingPermits;
+	private Stack<Frame> stack = new Stack<>();
+
+	// used in unordered mode:
+	private BlockingQueue<Object> queue;
+	private Deque<T> deferredBranches;
+	private AtomicInteger pendingVisits = new AtomicInteger();
+	private Iterator<T> batchIterator;
+
+	/**
+	 * Create an ordered ParallelTreeIterator that uses a shared pool.
+	 * 
+	 * @param root
+	 *            the root to begin searching in.
+	 * @param includeRoot
+	 *            whether the root should be one of the values returned by this
+	 *            iterator.
+	 */
+	public ParallelTreeIterator(T root, boolean includeRoot) {
+		this(root, includeRoot, null, true, getDefaultCapacity());
+	}
+
+	/**
+	 * Create a ParallelTreeIterator.
+	 * 
+	 * @param root
+	 *            the root to begin searching in.
+	 * @param includeRoot
+	 *            whether the root should be one of the values returned by this
+	 *            iterator.
+	 * @param pool
+	 *            the pool to list branches on. If this is null then a shared
+	 *            pool is used.
+	 * @param ordered
+	 *            if true then nodes are returned in the same order a
+	 *            <code>TreeIterator</code> would return them. If false then
+	 *            nodes are returned in whatever order they are found.
+	 * @param capacity
+	 *            the maximum number of branches that can be listed ahead of the
+	 *            iterator. This must be at least 1.
+	 */
+	public ParallelTreeIterator(T root, boolean includeRoot, ForkJoinPool pool,
+			boolean ordered, int capacity) {
+		if (root == null)
+			throw new NullPointerException();
+		if (capacity < 1)
+			throw new IllegalArgumentException("capacity (" + capacity
+					+ ") must be at least 1");
+		this.root = root;
+		this.includeRoot = includeRoot;
+		this.pool = pool == null ? SharedForkJoinPool.get() : pool;
+		this.ordered = ordered;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * List the children of a branch. This method does not need to filter the
+	 * children; see {@link #isReturnValue(Object)}.
+	 * <p>
+	 * This may return null, or include null elements in the return array.
+	 */
+	protected abstract T[] listChildren(T parent);
+
+	/**
+	 * Return true if this iterator should list the children of a node.
+	 */
+	protected abstract boolean isBranch(T node);
+
+	/**
+	 * Return true if this node can be returned by this iterator. The default
+	 * implementation returns true.
+	 */
+	protected boolean isReturnValue(T node) {
+		return true;
+	}
+
+	/**
+	 * Returns the root this iterator is searching.
+	 */
+	public T getRoot() {
+		return root;
+	}
+
+	/**
+	 * Return whether this iterator returns nodes in depth-first order.
+	 */
+	public boolean isOrdered() {
+		return ordered;
+	}
+
+	@Override
+	public boolean hasNext() {
+		queueNext();
+		return nextElement != null;
+	}
+
+	@Override
+	public T next() {
+		queueNext();
+		if (nextElement == null)
+			throw new NoSuchElementException();
+		T returnValue = nextElement;
+		nextElement = null;
+		return returnValue;
+	}
+
+	/**
+	 * Throws an UnsupportedOperationException.
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Stop iterating and cancel all remaining tasks.
+	 */
+	@Override
+	public void close() {
+		cancelled = true;
+		finished = true;
+		nextElement = null;
+		if (queue != null)
+			queue.clear();
+		if (deferredBranches != null)
+			deferredBranches.clear();
+		while (!stack.isEmpty()) {
+			for (Node node : stack.pop().children) {
+				if (node.listing != null)
+					node.listing.cancel(false);
+			}
+		}
+	}
+
+	/**
+	 * Return true if {@link #close()} was called.
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Return -1, because the size of the tree is unknown.
+	 */
+	@Override
+	public float getProgress() {
+		return -1;
+	}
+
+	private void queueNext() {
+		if (nextElement != null || finished)
+			return;
+
+		if (!started) {
+			started = true;
+			if (includeRoot && isReturnValue(root))
+				nextElement = root;
+			if (isBranch(root)) {
+				if (ordered) {
+					listingPermits = new Semaphore(capacity);
+					stack.push(new Frame(getListing(new Node(root, true,
+							false))));
+				} else {
+					listingPermits = new Semaphore(capacity - 1);
+					queue = new LinkedBlockingQueue<>();
+					deferredBranches = new ConcurrentLinkedDeque<>();
+					pendingVisits.set(1);
+					pool.execute(new VisitTask(root));
+				}
+			} else {
+				finished = true;
+			}
+			if (nextElement != null)
+				return;
+		}
+
+		if (ordered) {
+			nextElement = nextOrderedElement();
+		} else {
+			nextElement = nextUnorderedElement();
+		}
+		if (nextElement == null)
+			finished = true;
+	}
+
+	private T nextOrderedElement() {
+		while (!stack.isEmpty()) {
+			Frame frame = stack.peek();
+			if (frame.index == frame.children.size()) {
+				stack.pop();
+				continue;
+			}
+			Node node = frame.children.get(frame.index++);
+			if (node.isBranch) {
+				List<Node> children = getListing(node);
+				if (!children.isEmpty())
+					stack.push(new Frame(children));
+			}
+			if (node.isReturnValue)
+				return node.value;
+		}
+		return null;
+	}
+
+	private List<Node> getListing(Node node) {
+		ListTask listing = node.listing;
+		node.listing = null;
+		if (listing == null) {
+			// this runs on the current thread
+			return new ListTask(node.value).invoke();
+		}
+		listingPermits.release();
+		try {
+			return listing.get();
+		} catch (InterruptedException e) {
+			close();
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw rethrow(e.getCause());
+		}
+	}
+
+	private T nextUnorderedElement() {
+		try {
+			while (true) {
+				if (batchIterator != null && batchIterator.hasNext())
+					return batchIterator.next();
+
+				Object element = queue.take();
+				if (element == END)
+					return null;
+				listingPermits.release();
+				if (element instanceof Failure) {
+					close();
+					throw rethrow(((Failure) element).throwable);
+				}
+				@SuppressWarnings("unchecked")
+				List<T> batch = (List<T>) element;
+				batchIterator = batch.iterator();
+				scheduleDeferredBranches();
+			}
+		} catch (InterruptedException e) {
+			close();
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Start visiting branches that were set aside because too many branches
+	 * were already in progress.
+	 */
+	private void scheduleDeferredBranches() {
+		while (!deferredBranches.isEmpty() && listingPermits.tryAcquire()) {
+			T branch = deferredBranches.poll();
+			if (branch == null) {
+				listingPermits.release();
+				return;
+			}
+			pool.execute(new VisitTask(branch));
+		}
+	}
+
+	private static RuntimeException rethrow(Throwable t) {
+		if (t instanceof RuntimeException)
+			throw (RuntimeException) t;
+		if (t instanceof Error)
+			throw (Error) t;
+		throw new RuntimeException(t);
+	}
+
+	/**
+	 * Run a task in our pool, using the current worker's queue if possible.
+	 */
+	private void schedule(ForkJoinTask<?> task) {
+		Thread thread = Thread.currentThread();
+		if (thread instanceof ForkJoinWorkerThread
+				&& ((ForkJoinWorkerThread) thread).getPool() == pool) {
+			task.fork();
+		} else {
+			pool.execute(task);
+		}
+	}
+
+}
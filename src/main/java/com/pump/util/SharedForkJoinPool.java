@@ -0,0 +1,48 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ *
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ *
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.util;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The <code>ForkJoinPool</code> classes in this project use when the caller
+ * doesn't provide an executor of its own.
+ * <p>
+ * (This serves the same purpose as <code>ForkJoinPool.commonPool()</code>,
+ * which is not available in Java 7.)
+ */
+public class SharedForkJoinPool {
+
+	private static ForkJoinPool pool;
+
+	/**
+	 * Return the shared pool. This is created the first time it is requested,
+	 * and its threads are daemon threads.
+	 */
+	public static synchronized ForkJoinPool get() {
+		if (pool == null)
+			pool = new ForkJoinPool();
+		return pool;
+	}
+
+	/**
+	 * Return the default number of tasks a producer should submit to an
+	 * executor before it waits for the oldest task to finish. This is enough
+	 * to keep every processor busy without buffering an unbounded number of
+	 * results.
+	 */
+	public static int getDefaultMaxTasksInFlight() {
+		return Math.max(2, 2 * Runtime.getRuntime().availableProcessors());
+	}
+
+	private SharedForkJoinPool() {
+	}
+}
@@ -26,9 +26,11 @@ import java.util.ListIterator;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
@@ -59,6 +61,13 @@ import javax.swing.event.ListDataListener;
  * You can also call {@link #createUIMirror(ListFilter)} or
  * {@link #createUIView()} to create <code>java.awt.event.ListModel</code> based
  * on this list.
+ * <p>
+ * Lists that are read much more often than they are written (especially by
+ * several threads at once) can be constructed with
+ * {@link ConcurrencyMode#SNAPSHOT}. In that mode every modification publishes
+ * an immutable copy of this list, and all read operations consult the most
+ * recent copy without acquiring any lock. Modifications (and listener
+ * notifications) still take place inside a write lock.
  * 
  * @param <T>
  */
@@ -68,6 +77,32 @@ public class ObservableList<T> implements List<T>, Serializable {
 	// TODO: add a vetoable listener that can alter modifications before they
 	// are made.
 
+	/**
+	 * This determines how an ObservableList coordinates reading and writing
+	 * across several threads.
+	 */
+	public static enum ConcurrencyMode {
+		/**
+		 * Every read and write operation takes place inside a read or write
+		 * lock. This is the default mode.
+		 */
+		LOCKING,
+		/**
+		 * Write operations take place inside a write lock, and each write
+		 * publishes an immutable array of this list's elements. Read operations
+		 * never acquire a lock; they consult the most recent array instead.
+		 * <p>
+		 * This makes every write operation cost O(n), so it is best suited for
+		 * lists that are read frequently (for example by the event dispatch
+		 * thread and several worker threads) and modified less often.
+		 * <p>
+		 * Iterators and sublists in this mode are unmodifiable views of the
+		 * list at the moment they were created; they never throw a
+		 * <code>ConcurrentModificationException</code>.
+		 */
+		SNAPSHOT
+	}
+
 	private static abstract class AbstractComboBoxModel<T> implements
 			ComboBoxModel<T> {
 		Object selectedItem;
@@ -187,6 +222,13 @@ public class ObservableList<T> implements List<T>, Serializable {
 		ListFilter<T> filter;
 		ObservableList<T> masterList;
 
+		/**
+		 * True if the <code>eventQueueRunnable</code> has been passed to
+		 * <code>SwingUtilities.invokeLater(..)</code> and has not run yet.
+		 * This is guarded by the <code>eventQueue</code>.
+		 */
+		boolean eventQueueRunnablePending = false;
+
 		Runnable eventQueueRunnable = new Runnable() {
 			public void run() {
 				ListEvent<T>[] events;
@@ -194,8 +236,9 @@ public class ObservableList<T> implements List<T>, Serializable {
 					events = (ListEvent<T>[]) eventQueue
 							.toArray(new ListEvent[eventQueue.size()]);
 					eventQueue.clear();
+					eventQueueRunnablePending = false;
 				}
-				for (ListEvent<T> event : events) {
+				for (ListEvent<T> event : coalesce(events)) {
 					event.execute(mirrorList);
 					fireListDataListeners(event.createListDataEvent());
 				}
@@ -209,21 +252,26 @@ public class ObservableList<T> implements List<T>, Serializable {
 
 			resetListEvent = new ListEvent<T>(UIMirror.this) {
 				@Override
+				@SuppressWarnings("unchecked")
 				public void execute(List<T> list) {
-					UIMirror.this.masterList.acquireReadLock();
+					ObservableList<T> m = UIMirror.this.masterList;
+					// in SNAPSHOT mode one array is read without any lock
+					Object[] elements = m.getSnapshot();
+					if (elements == null)
+						m.acquireReadLock();
 					try {
+						if (elements == null)
+							elements = m.data.toArray();
 						mirrorList.clear();
-						if (UIMirror.this.filter == null
-								|| !UIMirror.this.filter.isActive()) {
-							mirrorList.addAll(UIMirror.this.masterList);
-						} else {
-							for (T element : UIMirror.this.masterList) {
-								if (UIMirror.this.filter.accept(element))
-									mirrorList.add(element);
-							}
+						for (Object element : elements) {
+							if (UIMirror.this.filter == null
+									|| !UIMirror.this.filter.isActive()
+									|| UIMirror.this.filter.accept((T) element))
+								mirrorList.add((T) element);
 						}
 					} finally {
-						UIMirror.this.masterList.readLock.unlock();
+						if (m.snapshot == null)
+							m.readLock.unlock();
 					}
 				}
 
@@ -263,11 +311,7 @@ public class ObservableList<T> implements List<T>, Serializable {
 						synchronized (eventQueue) {
 							eventQueue.add(event);
 						}
-						if (SwingUtilities.isEventDispatchThread()) {
-							eventQueueRunnable.run();
-						} else {
-							SwingUtilities.invokeLater(eventQueueRunnable);
-						}
+						flushEventQueue();
 					}
 
 				}, false);
@@ -280,11 +324,7 @@ public class ObservableList<T> implements List<T>, Serializable {
 								eventQueue.clear();
 								eventQueue.add(resetListEvent);
 							}
-							if (SwingUtilities.isEventDispatchThread()) {
-								eventQueueRunnable.run();
-							} else {
-								SwingUtilities.invokeLater(eventQueueRunnable);
-							}
+							flushEventQueue();
 						}
 
 					});
@@ -296,6 +336,102 @@ public class ObservableList<T> implements List<T>, Serializable {
 			}
 		}
 
+		/**
+		 * Process the event queue now if this is the event dispatch thread, or
+		 * schedule it to be processed later. Events that arrive while the queue
+		 * is already scheduled are processed (and coalesced) together.
+		 */
+		private void flushEventQueue() {
+			if (SwingUtilities.isEventDispatchThread()) {
+				eventQueueRunnable.run();
+				return;
+			}
+			synchronized (eventQueue) {
+				if (eventQueueRunnablePending)
+					return;
+				eventQueueRunnablePending = true;
+			}
+			SwingUtilities.invokeLater(eventQueueRunnable);
+		}
+
+		/**
+		 * Combine consecutive events where possible, so a burst of small
+		 * modifications only fires a few <code>ListDataEvents</code>.
+		 * <p>
+		 * Consecutive <code>AddElementsEvents</code> are combined when the
+		 * second event inserts elements inside (or immediately after) the
+		 * range of the first, and consecutive
+		 * <code>RemoveElementsEvents</code> are always combined.
+		 */
+		static <T> List<ListEvent<T>> coalesce(ListEvent<T>[] events) {
+			List<ListEvent<T>> returnValue = new ArrayList<>(events.length);
+			int i = 0;
+			while (i < events.length) {
+				ListEvent<T> event = events[i++];
+				if (event instanceof AddElementsEvent) {
+					AddElementsEvent<T> add = (AddElementsEvent<T>) event;
+					List<T> newElements = null;
+					while (i < events.length
+							&& events[i] instanceof AddElementsEvent
+							&& events[i].getSource() == add.getSource()) {
+						AddElementsEvent<T> next = (AddElementsEvent<T>) events[i];
+						int size = newElements == null ? add.getNewElements()
+								.size() : newElements.size();
+						int offset = next.getIndex() - add.getIndex();
+						if (offset < 0 || offset > size)
+							break;
+						if (newElements == null)
+							newElements = new ArrayList<>(add.getNewElements());
+						newElements.addAll(offset, next.getNewElements());
+						i++;
+					}
+					if (newElements != null)
+						event = new AddElementsEvent<>(add.getSource(),
+								add.getIndex(), newElements);
+				} else if (event instanceof RemoveElementsEvent) {
+					RemoveElementsEvent<T> remove = (RemoveElementsEvent<T>) event;
+					TreeMap<Integer, T> removedElements = null;
+					while (i < events.length
+							&& events[i] instanceof RemoveElementsEvent
+							&& events[i].getSource() == remove.getSource()) {
+						if (removedElements == null)
+							removedElements = new TreeMap<>(
+									remove.getRemovedElements());
+						RemoveElementsEvent<T> next = (RemoveElementsEvent<T>) events[i++];
+						addRemovedElements(removedElements,
+								next.getRemovedElements());
+					}
+					if (removedElements != null)
+						event = new RemoveElementsEvent<>(remove.getSource(),
+								removedElements);
+				}
+				returnValue.add(event);
+			}
+			return returnValue;
+		}
+
+		/**
+		 * Add elements removed by a later event to a map of elements that were
+		 * already removed, converting their indices to indices in the
+		 * original list.
+		 */
+		private static <T> void addRemovedElements(
+				TreeMap<Integer, T> removedElements,
+				SortedMap<Integer, T> laterRemovedElements) {
+			// the original index of an element is its later index plus the
+			// number of elements removed before it
+			Integer[] earlierIndices = removedElements.keySet().toArray(
+					new Integer[removedElements.size()]);
+			int shift = 0;
+			for (Entry<Integer, T> entry : laterRemovedElements.entrySet()) {
+				while (shift < earlierIndices.length
+						&& earlierIndices[shift] <= entry.getKey() + shift) {
+					shift++;
+				}
+				removedElements.put(entry.getKey() + shift, entry.getValue());
+			}
+		}
+
 		@Override
 		public int getSize() {
 			return mirrorList.size();
@@ -354,53 +490,82 @@ public class ObservableList<T> implements List<T>, Serializable {
 
 	}
 
+	/**
+	 * This stores all the listeners of a list.
+	 * <p>
+	 * Listeners are added and removed much less often than they are notified,
+	 * so the arrays stored here are only rebuilt when a listener is added or
+	 * removed. These arrays are never modified after they are created, so each
+	 * Operation can keep a reference to them instead of copying them.
+	 * <p>
+	 * All methods must be called inside the list's read or write lock.
+	 */
 	private static class ListenerManager<T> implements Cloneable {
-		LinkedHashMap<Object, Boolean> listeners = new LinkedHashMap<>();
+		private LinkedHashMap<Object, Boolean> listeners = new LinkedHashMap<>();
 
-		boolean containsArrayListener() {
-			for (Object listener : listeners.keySet()) {
+		Object[] allListeners = new Object[0];
+		boolean[] allowModification = new boolean[0];
+		ChangeListener[] changeListeners = new ChangeListener[0];
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		ListListener<T>[] listListeners = new ListListener[0];
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		ArrayListener<T>[] arrayListeners = new ArrayListener[0];
+
+		void put(Object listener, boolean allowModification) {
+			listeners.put(listener, allowModification);
+			rebuild();
+		}
+
+		void remove(Object listener) {
+			if (listeners.remove(listener) != null)
+				rebuild();
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private void rebuild() {
+			List<ChangeListener> c = new ArrayList<>();
+			List<ListListener<T>> l = new ArrayList<>();
+			List<ArrayListener<T>> a = new ArrayList<>();
+			Object[] newListeners = new Object[listeners.size()];
+			boolean[] newAllowModification = new boolean[listeners.size()];
+			int i = 0;
+			for (Entry<Object, Boolean> entry : listeners.entrySet()) {
+				Object listener = entry.getKey();
+				newListeners[i] = listener;
+				newAllowModification[i] = entry.getValue();
+				i++;
+				if (listener instanceof ChangeListener)
+					c.add((ChangeListener) listener);
+				if (listener instanceof ListListener)
+					l.add((ListListener<T>) listener);
 				if (listener instanceof ArrayListener)
-					return true;
+					a.add((ArrayListener<T>) listener);
 			}
-			return false;
+			allListeners = newListeners;
+			allowModification = newAllowModification;
+			changeListeners = c.toArray(new ChangeListener[c.size()]);
+			listListeners = l.toArray(new ListListener[l.size()]);
+			arrayListeners = a.toArray(new ArrayListener[a.size()]);
+		}
+
+		boolean containsArrayListener() {
+			return arrayListeners.length > 0;
 		}
 
 		boolean containsListListener() {
-			for (Object listener : listeners.keySet()) {
-				if (listener instanceof ListListener)
-					return true;
-			}
-			return false;
+			return listListeners.length > 0;
 		}
 
 		ChangeListener[] getChangeListeners() {
-			List<ChangeListener> l = new ArrayList<>();
-
-			for (Object listener : listeners.keySet()) {
-				if (listener instanceof ChangeListener)
-					l.add((ChangeListener) listener);
-			}
-			return l.toArray(new ChangeListener[l.size()]);
+			return changeListeners.clone();
 		}
 
 		ListListener<T>[] getListListeners() {
-			List<ListListener<T>> l = new ArrayList<>();
-
-			for (Object listener : listeners.keySet()) {
-				if (listener instanceof ListListener)
-					l.add((ListListener<T>) listener);
-			}
-			return l.toArray(new ListListener[l.size()]);
+			return listListeners.clone();
 		}
 
 		ArrayListener<T>[] getArrayListeners() {
-			List<ArrayListener> l = new ArrayList<>();
-
-			for (Object listener : listeners.keySet()) {
-				if (listener instanceof ArrayListener)
-					l.add((ArrayListener) listener);
-			}
-			return l.toArray(new ArrayListener[l.size()]);
+			return arrayListeners.clone();
 		}
 	}
 
@@ -421,6 +586,12 @@ public class ObservableList<T> implements List<T>, Serializable {
 	ReadLock readLock = lock.readLock();
 	WriteLock writeLock = lock.writeLock();
 	List<T> data;
+
+	/**
+	 * In {@link ConcurrencyMode#SNAPSHOT} mode this holds an immutable copy of
+	 * <code>data</code>. This is null in {@link ConcurrencyMode#LOCKING} mode.
+	 */
+	final AtomicReference<Object[]> snapshot;
 	int timeoutSeconds = 10;
 	protected transient AtomicInteger modCount;
 	private UncaughtExceptionHandler uncaughtExceptionHandler;
@@ -434,19 +605,44 @@ public class ObservableList<T> implements List<T>, Serializable {
 		this(new ArrayList<T>());
 	}
 
+	/**
+	 * Create a new empty ObservableList.
+	 * 
+	 * @param mode
+	 *            how this list coordinates reading and writing across threads.
+	 */
+	public ObservableList(ConcurrencyMode mode) {
+		this(new ArrayList<T>(), mode);
+	}
+
 	/**
 	 * Create a new ObservableList that stores its data using the argument
 	 * provided.
 	 */
 	public ObservableList(List<T> data) {
+		this(data, ConcurrencyMode.LOCKING);
+	}
+
+	/**
+	 * Create a new ObservableList that stores its data using the argument
+	 * provided.
+	 * 
+	 * @param data
+	 *            the list this ObservableList stores its data in.
+	 * @param mode
+	 *            how this list coordinates reading and writing across threads.
+	 */
+	public ObservableList(List<T> data, ConcurrencyMode mode) {
 		this(data, new ListenerManager<T>(), new AtomicInteger(0),
-				new DefaultUncaughtExceptionHandler(), true);
+				new DefaultUncaughtExceptionHandler(), true,
+				mode == ConcurrencyMode.SNAPSHOT ? new AtomicReference<Object[]>(
+						data.toArray()) : null);
 	}
 
 	private ObservableList(List<T> data, ListenerManager<T> listenerManager,
 			AtomicInteger modCount,
 			UncaughtExceptionHandler uncaughtExceptionHandler,
-			boolean allowAnyModification) {
+			boolean allowAnyModification, AtomicReference<Object[]> snapshot) {
 		Objects.requireNonNull(data);
 		Objects.requireNonNull(listenerManager);
 		Objects.requireNonNull(modCount);
@@ -454,9 +650,45 @@ public class ObservableList<T> implements List<T>, Serializable {
 		this.listenerManager = listenerManager;
 		this.modCount = modCount;
 		this.allowAnyModification = allowAnyModification;
+		this.snapshot = snapshot;
 		setListenerUncaughtExceptionHandler(uncaughtExceptionHandler);
 	}
 
+	/**
+	 * Return how this list coordinates reading and writing across threads.
+	 */
+	public ConcurrencyMode getConcurrencyMode() {
+		return snapshot == null ? ConcurrencyMode.LOCKING
+				: ConcurrencyMode.SNAPSHOT;
+	}
+
+	/**
+	 * Return the current immutable array of elements in
+	 * {@link ConcurrencyMode#SNAPSHOT} mode, or null in
+	 * {@link ConcurrencyMode#LOCKING} mode.
+	 */
+	private Object[] getSnapshot() {
+		return snapshot == null ? null : snapshot.get();
+	}
+
+	/**
+	 * Return an unmodifiable List backed by a snapshot array.
+	 */
+	@SuppressWarnings("unchecked")
+	private List<T> asList(Object[] array) {
+		return Collections.unmodifiableList((List<T>) Arrays.asList(array));
+	}
+
+	/**
+	 * This should be called inside the write lock every time
+	 * <code>data</code> changes.
+	 */
+	private void dataChanged() {
+		modCount.incrementAndGet();
+		if (snapshot != null)
+			snapshot.set(data.toArray());
+	}
+
 	/**
 	 * Add a ListListener.
 	 * 
@@ -471,7 +703,7 @@ public class ObservableList<T> implements List<T>, Serializable {
 		Objects.requireNonNull(listListener);
 		acquireWriteLock(false);
 		try {
-			listenerManager.listeners.put(listListener, allowModification);
+			listenerManager.put(listListener, allowModification);
 		} finally {
 			writeLock.unlock();
 		}
@@ -486,7 +718,7 @@ public class ObservableList<T> implements List<T>, Serializable {
 	public void removeListListener(ListListener<T> l) {
 		acquireWriteLock(false);
 		try {
-			listenerManager.listeners.remove(l);
+			listenerManager.remove(l);
 		} finally {
 			writeLock.unlock();
 		}
@@ -505,7 +737,7 @@ public class ObservableList<T> implements List<T>, Serializable {
 		Objects.requireNonNull(l);
 		acquireWriteLock(false);
 		try {
-			listenerManager.listeners.put(l, allowModification);
+			listenerManager.put(l, allowModification);
 		} finally {
 			writeLock.unlock();
 		}
@@ -523,7 +755,7 @@ public class ObservableList<T> implements List<T>, Serializable {
 	public void removeArrayListener(ArrayListener<T> l) {
 		acquireWriteLock(false);
 		try {
-			listenerManager.listeners.remove(l);
+			listenerManager.remove(l);
 		} finally {
 			writeLock.unlock();
 		}
@@ -542,7 +774,7 @@ public class ObservableList<T> implements List<T>, Serializable {
 		Objects.requireNonNull(l);
 		acquireWriteLock(false);
 		try {
-			listenerManager.listeners.put(l, allowModification);
+			listenerManager.put(l, allowModification);
 		} finally {
 			writeLock.unlock();
 		}
@@ -560,7 +792,7 @@ public class ObservableList<T> implements List<T>, Serializable {
 	public void removeChangeListener(ChangeListener l) {
 		acquireWriteLock(false);
 		try {
-			listenerManager.listeners.remove(l);
+			listenerManager.remove(l);
 		} finally {
 			writeLock.unlock();
 		}
@@ -604,6 +836,9 @@ public class ObservableList<T> implements List<T>, Serializable {
 
 	@Override
 	public int size() {
+		Object[] array = getSnapshot();
+		if (array != null)
+			return array.length;
 		acquireReadLock();
 		try {
 			return data.size();
@@ -717,6 +952,9 @@ public class ObservableList<T> implements List<T>, Serializable {
 
 	@Override
 	public boolean contains(Object element) {
+		Object[] array = getSnapshot();
+		if (array != null)
+			return asList(array).contains(element);
 		acquireReadLock();
 		try {
 			return data.contains(element);
@@ -727,6 +965,12 @@ public class ObservableList<T> implements List<T>, Serializable {
 
 	@Override
 	public T get(int index) {
+		Object[] array = getSnapshot();
+		if (array != null) {
+			@SuppressWarnings("unchecked")
+			T element = (T) array[index];
+			return element;
+		}
 		acquireReadLock();
 		try {
 			return data.get(index);
@@ -737,6 +981,9 @@ public class ObservableList<T> implements List<T>, Serializable {
 
 	@Override
 	public int indexOf(Object element) {
+		Object[] array = getSnapshot();
+		if (array != null)
+			return asList(array).indexOf(element);
 		acquireReadLock();
 		try {
 			return data.indexOf(element);
@@ -747,6 +994,9 @@ public class ObservableList<T> implements List<T>, Serializable {
 
 	@Override
 	public int lastIndexOf(Object element) {
+		Object[] array = getSnapshot();
+		if (array != null)
+			return asList(array).lastIndexOf(element);
 		acquireReadLock();
 		try {
 			return data.lastIndexOf(element);
@@ -757,6 +1007,9 @@ public class ObservableList<T> implements List<T>, Serializable {
 
 	@Override
 	public boolean containsAll(Collection<?> c) {
+		Object[] array = getSnapshot();
+		if (array != null)
+			return asList(array).containsAll(c);
 		acquireReadLock();
 		try {
 			return data.containsAll(c);
@@ -767,6 +1020,9 @@ public class ObservableList<T> implements List<T>, Serializable {
 
 	@Override
 	public Object[] toArray() {
+		Object[] array = getSnapshot();
+		if (array != null)
+			return array.clone();
 		acquireReadLock();
 		try {
 			return data.toArray();
@@ -787,6 +1043,12 @@ public class ObservableList<T> implements List<T>, Serializable {
 	 * @return an array representation of all elements in this list.
 	 */
 	public <S> S[] toArray(Class<S> arrayClass) {
+		Object[] elements = getSnapshot();
+		if (elements != null) {
+			S[] array = (S[]) Array.newInstance(arrayClass, elements.length);
+			System.arraycopy(elements, 0, array, 0, elements.length);
+			return array;
+		}
 		acquireReadLock();
 		try {
 			S[] array = (S[]) Array.newInstance(arrayClass, size());
@@ -799,6 +1061,9 @@ public class ObservableList<T> implements List<T>, Serializable {
 
 	@Override
 	public <S> S[] toArray(S[] a) {
+		Object[] array = getSnapshot();
+		if (array != null)
+			return asList(array).toArray(a);
 		acquireReadLock();
 		try {
 			return data.toArray(a);
@@ -984,6 +1249,9 @@ public class ObservableList<T> implements List<T>, Serializable {
 
 	@Override
 	public ListIterator<T> listIterator(int index) {
+		Object[] array = getSnapshot();
+		if (array != null)
+			return asList(array).listIterator(index);
 		acquireReadLock();
 		try {
 			return new MyIterator(index);
@@ -992,21 +1260,37 @@ public class ObservableList<T> implements List<T>, Serializable {
 		}
 	}
 
+	/**
+	 * Return a view of part of this list.
+	 * <p>
+	 * In {@link ConcurrencyMode#LOCKING} mode this is an ObservableList that
+	 * writes through to this list. In {@link ConcurrencyMode#SNAPSHOT} mode
+	 * this is an unmodifiable view of the list as it is now: it does not
+	 * reflect later changes, and any attempt to modify it (such as
+	 * <code>subList(a, b).clear()</code>) throws an
+	 * <code>UnsupportedOperationException</code>.
+	 */
 	@Override
 	public List<T> subList(int fromIndex, int toIndex) {
+		Object[] array = getSnapshot();
+		if (array != null)
+			return asList(array).subList(fromIndex, toIndex);
 		return new ObservableList<T>(data.subList(fromIndex, toIndex),
 				listenerManager, modCount,
-				getListenerUncaughtExceptionHandler(), allowAnyModification);
+				getListenerUncaughtExceptionHandler(), allowAnyModification,
+				null);
 	}
 
 	abstract class Operation {
 
-		LinkedHashMap<Object, Boolean> listeners;
+		Object[] listeners;
+		boolean[] allowModification;
 		Object[] oldArray;
 		boolean nullOp;
 
 		Operation() {
-			listeners = new LinkedHashMap<>(listenerManager.listeners);
+			listeners = listenerManager.allListeners;
+			allowModification = listenerManager.allowModification;
 			if (listenerManager.containsArrayListener())
 				oldArray = toArray();
 		}
@@ -1020,10 +1304,10 @@ public class ObservableList<T> implements List<T>, Serializable {
 			Object[] newArray = oldArray == null ? null : toArray();
 			ChangeEvent changeEvent = null;
 
-			for (Entry<Object, Boolean> listenerEntry : listeners.entrySet()) {
-				Object listener = listenerEntry.getKey();
+			for (int a = 0; a < listeners.length; a++) {
+				Object listener = listeners[a];
 				Boolean oldModificationAllowed = allowRecursiveListenerModification;
-				allowRecursiveListenerModification = listenerEntry.getValue();
+				allowRecursiveListenerModification = allowModification[a];
 				try {
 					if (listener instanceof ArrayListener) {
 						((ArrayListener) listener).listChanged(
@@ -1068,7 +1352,7 @@ public class ObservableList<T> implements List<T>, Serializable {
 				return oldElement;
 			}
 			oldElement = data.set(index, newElement);
-			modCount.incrementAndGet();
+			dataChanged();
 			return oldElement;
 		}
 
@@ -1101,7 +1385,7 @@ public class ObservableList<T> implements List<T>, Serializable {
 				return false;
 			}
 			data.addAll(index, newElements);
-			modCount.incrementAndGet();
+			dataChanged();
 			return true;
 		}
 
@@ -1124,6 +1408,7 @@ public class ObservableList<T> implements List<T>, Serializable {
 		@Override
 		T execute() {
 			oldElement = data.remove(index);
+			dataChanged();
 			return oldElement;
 		}
 
@@ -1160,7 +1445,7 @@ public class ObservableList<T> implements List<T>, Serializable {
 		Boolean execute() {
 			boolean returnValue = data.removeAll(Arrays.asList(elements));
 			if (returnValue) {
-				modCount.incrementAndGet();
+				dataChanged();
 			} else {
 				setNullOp();
 			}
@@ -1204,7 +1489,7 @@ public class ObservableList<T> implements List<T>, Serializable {
 
 			data.clear();
 			data.addAll(newElements);
-			modCount.incrementAndGet();
+			dataChanged();
 			return true;
 		}
 
@@ -1354,7 +1639,7 @@ public class ObservableList<T> implements List<T>, Serializable {
 	 */
 	public ObservableList<T> getUnmodifiableView() {
 		return new ObservableList<>(data, listenerManager, modCount,
-				uncaughtExceptionHandler, false);
+				uncaughtExceptionHandler, false, snapshot);
 	}
 
 	/**
@@ -1462,6 +1747,9 @@ public class ObservableList<T> implements List<T>, Serializable {
 
 	@Override
 	public int hashCode() {
+		Object[] array = getSnapshot();
+		if (array != null)
+			return asList(array).hashCode();
 		acquireReadLock();
 		try {
 			return data.hashCode();
@@ -1474,6 +1762,9 @@ public class ObservableList<T> implements List<T>, Serializable {
 	public boolean equals(Object obj) {
 		if (!(obj instanceof List))
 			return false;
+		Object[] array = getSnapshot();
+		if (array != null)
+			return asList(array).equals(obj);
 		acquireReadLock();
 		try {
 			return data.equals((List) obj);
@@ -1484,6 +1775,12 @@ public class ObservableList<T> implements List<T>, Serializable {
 
 	@Override
 	public ObservableList<T> clone() {
+		Object[] array = getSnapshot();
+		if (array != null) {
+			ObservableList<T> x = new ObservableList<>(getConcurrencyMode());
+			x.addAll(asList(array));
+			return x;
+		}
 		acquireReadLock();
 		try {
 			ObservableList<T> x = new ObservableList<>();
@@ -1513,28 +1810,36 @@ public class ObservableList<T> implements List<T>, Serializable {
 	 * @return a String representation of this list.
 	 */
 	public String toString(int maxStringLength, int elementMax) {
+		Object[] array = getSnapshot();
+		if (array != null)
+			return toString(asList(array), maxStringLength, elementMax);
 		acquireReadLock();
 		try {
-			StringBuilder sb = new StringBuilder(size() * 3);
-			sb.append("[");
-			Iterator<T> iter = data.iterator();
-			int index = 0;
-			while (iter.hasNext()) {
-				T element = iter.next();
-				if (index > 0) {
-					sb.append(", ");
-				}
-				sb.append(String.valueOf(element));
-				index++;
-				if (index > elementMax || sb.length() > maxStringLength) {
-					sb.append("…");
-					break;
-				}
-			}
-			sb.append("]");
-			return sb.toString();
+			return toString(data, maxStringLength, elementMax);
 		} finally {
 			readLock.unlock();
 		}
 	}
+
+	private static String toString(List<?> list, int maxStringLength,
+			int elementMax) {
+		StringBuilder sb = new StringBuilder(list.size() * 3);
+		sb.append("[");
+		Iterator<?> iter = list.iterator();
+		int index = 0;
+		while (iter.hasNext()) {
+			Object element = iter.next();
+			if (index > 0) {
+				sb.append(", ");
+			}
+			sb.append(String.valueOf(element));
+			index++;
+			if (index > elementMax || sb.length() > maxStringLength) {
+				sb.append("…");
+				break;
+			}
+		}
+		sb.append("]");
+		return sb.toString();
+	}
 }
\ No newline at end of file
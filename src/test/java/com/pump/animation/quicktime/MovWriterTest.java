@@ -0,0 +1,116 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.animation.quicktime;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+public class MovWriterTest extends TestCase {
+
+	/**
+	 * Confirm a MovWriter that encodes frames on an ExecutorService writes
+	 * exactly the same file as a MovWriter that encodes frames on the calling
+	 * thread, for several limits on the number of frames in flight.
+	 */
+	@Test
+	public void testSameOutputAsSequentialWriter() throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			for (boolean png : new boolean[] { false, true }) {
+				byte[] expected = writeMovie(png, null, 1);
+				for (int maxFrames : new int[] { 1, 2, 5, 100 }) {
+					byte[] actual = writeMovie(png, executor, maxFrames);
+					assertTrue("png = " + png + ", maxFramesInFlight = "
+							+ maxFrames, Arrays.equals(expected, actual));
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private byte[] writeMovie(boolean png, ExecutorService executor,
+			int maxFramesInFlight) throws IOException {
+		File file = File.createTempFile("MovWriterTest", ".mov");
+		try {
+			MovWriter writer = png ? new PNGMovWriter(file, executor,
+					maxFramesInFlight) : new JPEGMovWriter(file, .8f,
+					executor, maxFramesInFlight);
+			writer.addAudioTrack(createAudio(), 0);
+			for (int frame = 0; frame < 30; frame++) {
+				BufferedImage bi = new BufferedImage(60, 40,
+						BufferedImage.TYPE_INT_RGB);
+				Graphics2D g = bi.createGraphics();
+				g.setColor(Color.white);
+				g.fillRect(0, 0, 60, 40);
+				g.setColor(new Color(frame * 8, 100, 255 - frame * 8));
+				g.fillOval(frame, 5, 20, 20);
+				g.drawString(Integer.toString(frame), 5, 35);
+				g.dispose();
+				writer.addFrame(.1f, bi, null);
+				assertTrue(writer.pendingFrames.size() <= maxFramesInFlight);
+			}
+			writer.close(true);
+			byte[] data = Files.readAllBytes(file.toPath());
+			clearCreationTimes(data);
+			return data;
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Zero the creation and modification times of the movie, track and media
+	 * headers, so two movies written at different times can be compared.
+	 */
+	private void clearCreationTimes(byte[] data) {
+		for (String type : new String[] { "mvhd", "tkhd", "mdhd" }) {
+			byte[] tag = type.getBytes();
+			for (int a = 0; a + 16 <= data.length; a++) {
+				if (data[a] == tag[0] && data[a + 1] == tag[1]
+						&& data[a + 2] == tag[2] && data[a + 3] == tag[3]) {
+					// skip the version and flags
+					Arrays.fill(data, a + 8, a + 16, (byte) 0);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Create 4 seconds of 16-bit mono audio.
+	 */
+	private AudioInputStream createAudio() {
+		AudioFormat format = new AudioFormat(8000, 16, 1, true, false);
+		byte[] data = new byte[4 * 8000 * 2];
+		for (int a = 0; a < data.length / 2; a++) {
+			short v = (short) (10000 * Math.sin(a / 10.0));
+			data[2 * a] = (byte) (v & 0xff);
+			data[2 * a + 1] = (byte) ((v >> 8) & 0xff);
+		}
+		return new AudioInputStream(new ByteArrayInputStream(data), format,
+				data.length / 2);
+	}
+}
@@ -0,0 +1,114 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.audio;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This compares how many samples per second (in millions) can be decoded,
+ * scaled and re-encoded using
+ * {@link PCMUtils#decodeSample(byte[], int, int, boolean, boolean)} and
+ * {@link PCMUtils#encodeSample(int, byte[], int, int, boolean, boolean)}
+ * against
+ * {@link PCMUtils#decodeSamples(byte[], int, int[], int, int, int, boolean, boolean)}
+ * and
+ * {@link PCMUtils#encodeSamples(int[], int, byte[], int, int, int, boolean, boolean)}
+ * .
+ * <p>
+ * This is not a unit test; run the <code>main</code> method directly.
+ */
+public class PCMBenchmark {
+
+	static final int TRIALS = 5;
+	static final int BLOCK_SIZE = 8192;
+	static final int BLOCK_COUNT = 4000;
+
+	public static void main(String[] args) {
+		byte[] data = new byte[BLOCK_SIZE];
+		new Random(0).nextBytes(data);
+
+		System.out
+				.println("Bits\tSigned\tBig Endian\tPer Sample\tBlock\t(million samples/s)");
+		for (int sampleSize = 1; sampleSize <= 2; sampleSize++) {
+			for (boolean isSigned : new boolean[] { false, true }) {
+				for (boolean isBigEndian : new boolean[] { false, true }) {
+					if (sampleSize == 1 && isBigEndian)
+						continue;
+					System.out.println((8 * sampleSize) + "\t" + isSigned
+							+ "\t" + isBigEndian + "\t\t"
+							+ measurePerSample(data, sampleSize, isSigned,
+									isBigEndian) + "\t\t"
+							+ measureBlock(data, sampleSize, isSigned,
+									isBigEndian));
+				}
+			}
+		}
+	}
+
+	static double measurePerSample(byte[] data, int sampleSize,
+			boolean isSigned, boolean isBigEndian) {
+		double[] results = new double[TRIALS];
+		int sampleCount = data.length / sampleSize;
+		for (int a = 0; a < TRIALS; a++) {
+			long time = System.nanoTime();
+			for (int b = 0; b < BLOCK_COUNT; b++) {
+				for (int c = 0; c < sampleCount; c++) {
+					int offset = c * sampleSize;
+					int value = PCMUtils.decodeSample(data, offset,
+							sampleSize, isSigned, isBigEndian);
+					PCMUtils.encodeSample(scale(value, sampleSize, isSigned),
+							data, offset, sampleSize, isSigned, isBigEndian);
+				}
+			}
+			results[a] = (System.nanoTime() - time) / 1000000.0;
+		}
+		return getRate(results, sampleCount);
+	}
+
+	static double measureBlock(byte[] data, int sampleSize, boolean isSigned,
+			boolean isBigEndian) {
+		double[] results = new double[TRIALS];
+		int sampleCount = data.length / sampleSize;
+		int[] samples = new int[sampleCount];
+		for (int a = 0; a < TRIALS; a++) {
+			long time = System.nanoTime();
+			for (int b = 0; b < BLOCK_COUNT; b++) {
+				PCMUtils.decodeSamples(data, 0, samples, 0, sampleCount,
+						sampleSize, isSigned, isBigEndian);
+				for (int c = 0; c < sampleCount; c++) {
+					samples[c] = scale(samples[c], sampleSize, isSigned);
+				}
+				PCMUtils.encodeSamples(samples, 0, data, 0, sampleCount,
+						sampleSize, isSigned, isBigEndian);
+			}
+			results[a] = (System.nanoTime() - time) / 1000000.0;
+		}
+		return getRate(results, sampleCount);
+	}
+
+	/**
+	 * Invert a sample, so repeated passes never leave the valid range.
+	 */
+	private static int scale(int value, int sampleSize, boolean isSigned) {
+		int max = sampleSize == 1 ? 0xff : 0xffff;
+		if (isSigned)
+			return -1 - value;
+		return max - value;
+	}
+
+	private static double getRate(double[] results, int sampleCount) {
+		Arrays.sort(results);
+		double ms = results[results.length / 2];
+		double samples = (double) sampleCount * BLOCK_COUNT;
+		return Math.round(samples / ms / 100) / 10.0;
+	}
+}
@@ -0,0 +1,138 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.audio;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+public class PCMUtilsTest extends TestCase {
+
+	/**
+	 * Confirm decodeSamples and encodeSamples match decodeSample and
+	 * encodeSample for every supported format.
+	 */
+	@Test
+	public void testBlockMethods() {
+		Random random = new Random(0);
+		byte[] data = new byte[1001];
+		random.nextBytes(data);
+		for (int sampleSize = 1; sampleSize <= 2; sampleSize++) {
+			for (boolean isSigned : new boolean[] { false, true }) {
+				for (boolean isBigEndian : new boolean[] { false, true }) {
+					String id = "sampleSize = " + sampleSize + ", signed = "
+							+ isSigned + ", big endian = " + isBigEndian;
+					int sampleCount = (data.length - 1) / sampleSize;
+					int[] samples = new int[sampleCount + 3];
+					PCMUtils.decodeSamples(data, 1, samples, 3, sampleCount,
+							sampleSize, isSigned, isBigEndian);
+					for (int a = 0; a < sampleCount; a++) {
+						assertEquals(id, PCMUtils.decodeSample(data, 1 + a
+								* sampleSize, sampleSize, isSigned,
+								isBigEndian), samples[a + 3]);
+					}
+
+					byte[] expected = new byte[data.length];
+					byte[] actual = new byte[data.length];
+					for (int a = 0; a < sampleCount; a++) {
+						PCMUtils.encodeSample(samples[a + 3], expected, 1 + a
+								* sampleSize, sampleSize, isSigned,
+								isBigEndian);
+					}
+					PCMUtils.encodeSamples(samples, 3, actual, 1,
+							sampleCount, sampleSize, isSigned, isBigEndian);
+					assertTrue(id, Arrays.equals(expected, actual));
+					assertTrue(id, Arrays.equals(Arrays.copyOfRange(data, 1,
+							data.length - (data.length - 1) % sampleSize),
+							Arrays.copyOfRange(actual, 1, actual.length
+									- (data.length - 1) % sampleSize)));
+				}
+			}
+		}
+
+		try {
+			PCMUtils.encodeSamples(new int[] { 0, 128 }, 0, new byte[2], 0,
+					2, 1, true, false);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// pass
+		}
+	}
+
+	/**
+	 * Confirm the VolumeAdjustedPCMAudioInputStream scales and clamps each
+	 * sample like the per-sample methods do.
+	 */
+	@Test
+	public void testVolumeAdjustedStream() throws IOException {
+		Random random = new Random(0);
+		byte[] data = new byte[4000];
+		random.nextBytes(data);
+		for (int sampleSize = 1; sampleSize <= 2; sampleSize++) {
+			for (boolean isSigned : new boolean[] { false, true }) {
+				for (boolean isBigEndian : new boolean[] { false, true }) {
+					AudioFormat format = new AudioFormat(1000,
+							8 * sampleSize, 2, isSigned, isBigEndian);
+					int frameSize = format.getFrameSize();
+					AudioInputStream in = new AudioInputStream(
+							new ByteArrayInputStream(data), format,
+							data.length / frameSize);
+					VolumeAdjustedPCMAudioInputStream volumeIn = new VolumeAdjustedPCMAudioInputStream(
+							in) {
+						@Override
+						protected float getVolume(float time) {
+							return time < .5f ? 1 : 1.5f - 2 * time;
+						}
+					};
+					byte[] actual = new byte[data.length];
+					int length = 0;
+					while (length < actual.length) {
+						int k = volumeIn.read(actual, length,
+								Math.min(333, actual.length - length));
+						if (k == -1)
+							break;
+						length += k;
+					}
+					assertEquals(data.length, length);
+
+					byte[] expected = data.clone();
+					for (int frame = 0; frame < data.length / frameSize; frame++) {
+						float time = frame / 1000f;
+						float volume = time < .5f ? 1 : 1.5f - 2 * time;
+						if (volume < .999f || volume > 1.001f) {
+							for (int a = 0; a < frameSize; a += sampleSize) {
+								int offset = frame * frameSize + a;
+								int value = PCMUtils.decodeSample(expected,
+										offset, sampleSize, isSigned,
+										isBigEndian);
+								value = (int) (value * volume);
+								value = Math.max(volumeIn.minSampleValue,
+										Math.min(volumeIn.maxSampleValue,
+												value));
+								PCMUtils.encodeSample(value, expected, offset,
+										sampleSize, isSigned, isBigEndian);
+							}
+						}
+					}
+					assertTrue(Arrays.equals(expected, actual));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,171 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.data;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.pump.data.AbstractAttributeDataImpl.Edit;
+
+public class AttributeDataImplTest extends TestCase {
+
+	static final Key<Integer> KEY_A = new Key<>(Integer.class, "a");
+	static final Key<Integer> KEY_B = new Key<>(Integer.class, "b");
+
+	/**
+	 * This records every PropertyChangeEvent and the thread it was received
+	 * on.
+	 */
+	static class EventRecorder implements PropertyChangeListener {
+		final List<PropertyChangeEvent> events = new ArrayList<>();
+		final List<Thread> threads = new ArrayList<>();
+
+		@Override
+		public synchronized void propertyChange(PropertyChangeEvent evt) {
+			events.add(evt);
+			threads.add(Thread.currentThread());
+		}
+
+		synchronized List<String> getPropertyNames() {
+			List<String> names = new ArrayList<>();
+			for (PropertyChangeEvent event : events) {
+				names.add(event.getPropertyName());
+			}
+			return names;
+		}
+
+		synchronized List<Object> getNewValues() {
+			List<Object> values = new ArrayList<>();
+			for (PropertyChangeEvent event : events) {
+				values.add(event.getNewValue());
+			}
+			return values;
+		}
+	}
+
+	/**
+	 * Set two attributes nine times each during an edit. Only one event
+	 * should fire when the edit ends, because KEY_A is restored to its
+	 * original value.
+	 */
+	@Test
+	public void testEditSuppressesEvents() {
+		AttributeDataImpl data = new AttributeDataImpl();
+		data.setAttribute(KEY_A, 1);
+		EventRecorder recorder = new EventRecorder();
+		data.addAttributePropertyChangeListener(recorder);
+
+		Edit edit = data.beginEdit();
+		for (int a = 2; a <= 10; a++) {
+			data.setAttribute(KEY_A, a);
+			data.setAttribute(KEY_B, a);
+		}
+		data.setAttribute(KEY_A, 1);
+		assertTrue(recorder.events.isEmpty());
+		data.endEdit(edit);
+
+		assertEquals(1, recorder.events.size());
+		PropertyChangeEvent event = recorder.events.get(0);
+		assertEquals("b", event.getPropertyName());
+		assertNull(event.getOldValue());
+		assertEquals(10, event.getNewValue());
+		assertEquals(18, data.getSuppressedEventCount());
+	}
+
+	/**
+	 * Confirm <code>putAllAttributes</code> notifies listeners after every
+	 * attribute has been assigned.
+	 */
+	@Test
+	public void testPutAllAttributes() {
+		final AttributeDataImpl data = new AttributeDataImpl();
+		data.setAttribute(KEY_A, 1);
+		final List<Map<String, Object>> observedMaps = new ArrayList<>();
+		EventRecorder recorder = new EventRecorder() {
+			@Override
+			public synchronized void propertyChange(PropertyChangeEvent evt) {
+				super.propertyChange(evt);
+				observedMaps.add(data.getAttributeMap());
+			}
+		};
+		data.addAttributePropertyChangeListener(recorder);
+
+		Map<String, Object> incoming = new LinkedHashMap<>();
+		incoming.put("b", 2);
+		incoming.put("c", 3);
+		data.putAllAttributes(incoming, true);
+
+		assertEquals(Arrays.asList("b", "c", "a"), recorder.getPropertyNames());
+		assertEquals(Arrays.<Object> asList(2, 3, null),
+				recorder.getNewValues());
+		Map<String, Object> expectedMap = new HashMap<>(incoming);
+		for (Map<String, Object> observedMap : observedMaps) {
+			assertEquals(expectedMap, observedMap);
+		}
+	}
+
+	/**
+	 * Confirm listeners are notified on the listener Executor, and all the
+	 * events of an edit are passed to it as one Runnable.
+	 */
+	@Test
+	public void testListenerExecutor() throws Exception {
+		final ExecutorService service = Executors.newSingleThreadExecutor();
+		final AtomicInteger runnableCount = new AtomicInteger();
+		try {
+			AttributeDataImpl data = new AttributeDataImpl();
+			data.setListenerExecutor(new Executor() {
+				@Override
+				public void execute(Runnable command) {
+					runnableCount.incrementAndGet();
+					service.execute(command);
+				}
+			});
+			EventRecorder recorder = new EventRecorder();
+			data.addAttributePropertyChangeListener(recorder);
+
+			Edit edit = data.beginEdit();
+			data.setAttribute(KEY_A, 1);
+			data.setAttribute(KEY_B, 2);
+			data.setAttribute(KEY_A, 3);
+			data.endEdit(edit);
+			data.setAttribute(KEY_B, 4);
+
+			service.shutdown();
+			assertTrue(service.awaitTermination(10, TimeUnit.SECONDS));
+			assertEquals(2, runnableCount.get());
+			assertEquals(Arrays.asList("a", "b", "b"),
+					recorder.getPropertyNames());
+			assertEquals(Arrays.<Object> asList(3, 2, 4),
+					recorder.getNewValues());
+			for (Thread thread : recorder.threads) {
+				assertNotSame(Thread.currentThread(), thread);
+			}
+		} finally {
+			service.shutdownNow();
+		}
+	}
+}
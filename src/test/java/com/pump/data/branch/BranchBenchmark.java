@@ -0,0 +1,109 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.data.branch;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * This measures the throughput (in thousands of operations per second) of a
+ * {@link MemoryBranch} and a {@link ConcurrentBranch} when several threads
+ * read and write random beans at once.
+ * <p>
+ * Each thread calls <code>getField(..)</code> 90% of the time and
+ * <code>setField(..)</code> 10% of the time. This is not a unit test; run the
+ * <code>main</code> method directly.
+ */
+public class BranchBenchmark {
+
+	static final int TRIALS = 5;
+	static final int BEAN_COUNT = 10000;
+	static final int OPERATIONS_PER_THREAD = 200000;
+
+	interface BranchFactory {
+		Branch<String> create();
+	}
+
+	public static void main(String[] args) throws Exception {
+		BranchFactory memoryFactory = new BranchFactory() {
+			public Branch<String> create() {
+				return new MemoryBranch<String>("benchmark");
+			}
+		};
+		BranchFactory concurrentFactory = new BranchFactory() {
+			public Branch<String> create() {
+				return new ConcurrentBranch<String>("benchmark");
+			}
+		};
+		int maxThreads = Math.max(4, Runtime.getRuntime()
+				.availableProcessors());
+		System.out.println("Threads\tMemoryBranch\tConcurrentBranch\t(K ops/s)");
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			System.out.println(threads + "\t"
+					+ measure(memoryFactory, threads) + "\t"
+					+ measure(concurrentFactory, threads));
+		}
+	}
+
+	/**
+	 * Return the median number of operations per second.
+	 */
+	static double measure(BranchFactory factory, int threadCount)
+			throws Exception {
+		double[] results = new double[TRIALS];
+		for (int a = 0; a < TRIALS; a++) {
+			final Branch<String> branch = factory.create();
+			for (int b = 0; b < BEAN_COUNT; b++) {
+				branch.createBean("bean-" + b);
+				branch.setField("bean-" + b, "value", Integer.valueOf(b));
+			}
+
+			final CountDownLatch start = new CountDownLatch(1);
+			Thread[] threads = new Thread[threadCount];
+			for (int t = 0; t < threadCount; t++) {
+				final Random random = new Random(t);
+				threads[t] = new Thread() {
+					@Override
+					public void run() {
+						try {
+							start.await();
+							for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+								String beanId = "bean-"
+										+ random.nextInt(BEAN_COUNT);
+								if (random.nextInt(10) == 0) {
+									branch.setField(beanId, "value",
+											Integer.valueOf(i));
+								} else {
+									branch.getField(beanId, "value");
+								}
+							}
+						} catch (Exception e) {
+							throw new RuntimeException(e);
+						}
+					}
+				};
+				threads[t].start();
+			}
+
+			long time = System.nanoTime();
+			start.countDown();
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			time = System.nanoTime() - time;
+			double operations = threadCount * (double) OPERATIONS_PER_THREAD;
+			results[a] = operations / 1000.0 / (time / 1000000000.0);
+		}
+		Arrays.sort(results);
+		return Math.round(results[results.length / 2]);
+	}
+}
@@ -0,0 +1,145 @@
+package com.pump.data.branch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class ConcurrentBranchTest extends BranchTest<ConcurrentBranch<String>> {
+
+	@Override
+	public ConcurrentBranch<String> createRoot() {
+		return new ConcurrentBranch<String>("test-root");
+	}
+
+	/**
+	 * Confirm that several threads can write at once, and a revision is a
+	 * stable snapshot while they do.
+	 */
+	public void testConcurrentWrites() throws Exception {
+		final ConcurrentBranch<String> root = createRoot();
+		final int beanCount = 20;
+		final int writesPerBean = 200;
+		for (int a = 0; a < beanCount; a++) {
+			root.createBean("bean-" + a);
+			root.setField("bean-" + a, "count", Integer.valueOf(0));
+		}
+		final Revision snapshot = root.getRevision();
+
+		final AtomicReference<Throwable> error = new AtomicReference<>();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			final int threadIndex = t;
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 1; i <= writesPerBean; i++) {
+							for (int a = threadIndex; a < beanCount; a += 4) {
+								root.setField("bean-" + a, "count",
+										Integer.valueOf(i));
+								assertEquals(Integer.valueOf(0), root.getField(
+										"bean-" + a, "count", snapshot));
+							}
+						}
+					} catch (Throwable e) {
+						error.set(e);
+					}
+				}
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (error.get() != null)
+			throw new Exception(error.get());
+
+		for (int a = 0; a < beanCount; a++) {
+			assertEquals(Integer.valueOf(writesPerBean),
+					root.getField("bean-" + a, "count"));
+			assertEquals(Integer.valueOf(0),
+					root.getField("bean-" + a, "count", snapshot));
+		}
+		assertEquals(snapshot.getNumber().longValue() + beanCount
+				* writesPerBean, root.getRevision().getNumber().longValue());
+	}
+
+	/**
+	 * Confirm that saving a branch twice only copies the second round of
+	 * changes, and that changes made after a child branch was created are not
+	 * visible to that child.
+	 */
+	public void testSaveTwice() throws Exception {
+		ConcurrentBranch<String> root = createRoot();
+		root.createBean("a");
+		root.createBean("b");
+		Branch<String> child = root.createBranch("child");
+		root.setField("b", "color", "red");
+		assertNull(child.getField("b", "color"));
+
+		child.setField("a", "color", "blue");
+		child.save();
+		assertEquals("blue", root.getField("a", "color"));
+
+		root.setField("a", "color", "green");
+		child.setField("b", "size", Integer.valueOf(3));
+		child.save();
+		assertEquals("green", root.getField("a", "color"));
+		assertEquals(Integer.valueOf(3), root.getField("b", "size"));
+		assertEquals("red", root.getField("b", "color"));
+	}
+
+	/**
+	 * Confirm that old versions are discarded once they are saved and no
+	 * reachable revision needs them.
+	 */
+	public void testPruneVersions() throws Exception {
+		ConcurrentBranch<String> root = createRoot();
+		root.createBean("a");
+		for (int a = 0; a < 100; a++) {
+			root.setField("a", "count", Integer.valueOf(a));
+		}
+		assertTrue(getVersionCount(root, "a", "count") <= 2);
+
+		// a revision that wasn't returned by getRevision() may be unreadable:
+		try {
+			root.getField("a", "count", new Revision(root, Long.valueOf(5)));
+			fail();
+		} catch (IllegalRevisionBranchException e) {
+			// pass
+		}
+
+		Revision snapshot = root.getRevision();
+		ConcurrentBranch<String> child = (ConcurrentBranch<String>) root
+				.createBranch("child");
+		for (int a = 100; a < 200; a++) {
+			root.setField("a", "count", Integer.valueOf(a));
+			child.setField("a", "size", Integer.valueOf(a));
+		}
+		assertEquals(Integer.valueOf(99),
+				root.getField("a", "count", snapshot));
+		assertTrue(getVersionCount(root, "a", "count") > 100);
+		assertEquals(100, getVersionCount(child, "a", "size"));
+
+		child.save();
+		assertEquals(1, getVersionCount(child, "a", "size"));
+		assertEquals(Integer.valueOf(199), root.getField("a", "size"));
+		assertEquals(Integer.valueOf(199), child.getField("a", "size"));
+		assertEquals(Integer.valueOf(99),
+				root.getField("a", "count", snapshot));
+	}
+
+	private static int getVersionCount(ConcurrentBranch<String> branch,
+			String beanId, String fieldName) {
+		int count = 0;
+		ConcurrentBranch.Version version = branch.dataByBeanId.get(beanId).fields
+				.get(fieldName);
+		while (version != null && version != ConcurrentBranch.PRUNED) {
+			count++;
+			version = version.previous;
+		}
+		return count;
+	}
+}
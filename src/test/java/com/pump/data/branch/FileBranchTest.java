@@ -0,0 +1,181 @@
+package com.pump.data.branch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.pump.data.BeanState;
+
+public class FileBranchTest extends BranchTest<FileBranch<String>> {
+
+	List<FileBranch<String>> branches = new ArrayList<>();
+	List<File> files = new ArrayList<>();
+
+	@Override
+	public FileBranch<String> createRoot() {
+		try {
+			File file = File.createTempFile("FileBranchTest", ".log");
+			files.add(file);
+			files.add(new File(file.getParentFile(), file.getName() + ".index"));
+			return open(file);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private FileBranch<String> open(File file) throws IOException {
+		FileBranch<String> branch = new FileBranch<String>(file, "test-root");
+		branches.add(branch);
+		return branch;
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		for (FileBranch<String> branch : branches) {
+			try {
+				branch.close();
+			} catch (IOException e) {
+				// this may already be closed
+			}
+		}
+		for (File file : files) {
+			file.delete();
+		}
+		super.tearDown();
+	}
+
+	/**
+	 * Confirm that beans are restored when a closed file is reopened, both
+	 * with and without the index file.
+	 */
+	public void testReopen() throws Exception {
+		FileBranch<String> root = createRoot();
+		root.createBean("a");
+		root.setField("a", "name", "Alpha");
+		Revision r1 = root.getRevision();
+		root.setField("a", "name", "Beta");
+		root.createBean("b");
+		root.setField("b", "size", Integer.valueOf(3));
+		root.deleteBean("b");
+		root.save();
+		root.close();
+
+		File file = files.get(0);
+		File indexFile = files.get(1);
+		assertTrue(indexFile.exists());
+		for (int a = 0; a < 2; a++) {
+			FileBranch<String> copy = open(file);
+			assertEquals(a == 0 ? "Beta" : "Gamma",
+					copy.getField("a", "name"));
+			assertEquals("Alpha", copy.getField("a", "name", new Revision(copy,
+					r1.getNumber().longValue())));
+			assertEquals(BeanState.DELETED, copy.getState("b", null));
+			copy.setField("a", "name", "Gamma");
+			copy.setField("a", "reopened", Integer.valueOf(a));
+			copy.close();
+			indexFile.delete();
+		}
+		FileBranch<String> copy = open(file);
+		assertEquals("Gamma", copy.getField("a", "name"));
+		assertEquals(Integer.valueOf(1), copy.getField("a", "reopened"));
+	}
+
+	/**
+	 * Confirm that records that were not followed by a commit record are
+	 * discarded when the file is reopened.
+	 */
+	public void testIncompleteTail() throws Exception {
+		FileBranch<String> root = createRoot();
+		root.createBean("a");
+		root.setField("a", "name", "Alpha");
+		root.save();
+		File file = files.get(0);
+		long committedLength = file.length();
+
+		Object lock = root.acquireWriteLock();
+		root.setField("a", "name", "Beta");
+		root.setField("a", "size", Integer.valueOf(4));
+		long uncommittedLength = file.length();
+		assertTrue(uncommittedLength > committedLength);
+
+		// simulate a crash: copy the file as it exists right now
+		File crashFile = File.createTempFile("FileBranchTest", ".log");
+		files.add(crashFile);
+		byte[] data = new byte[(int) uncommittedLength - 7];
+		try (RandomAccessFile in = new RandomAccessFile(file, "r");
+				RandomAccessFile out = new RandomAccessFile(crashFile, "rw")) {
+			in.readFully(data);
+			out.write(data);
+		}
+		root.releaseLock(lock);
+
+		FileBranch<String> copy = open(crashFile);
+		assertEquals("Alpha", copy.getField("a", "name"));
+		assertNull(copy.getField("a", "size"));
+		assertEquals(committedLength, crashFile.length());
+	}
+
+	/**
+	 * Confirm that a complete record that can't be read is not treated as the
+	 * end of the log, so the committed records after it are not discarded.
+	 */
+	public void testUnreadableRecord() throws Exception {
+		FileBranch<String> root = createRoot();
+		root.createBean("a");
+		root.setField("a", "name", "Alpha");
+		root.setField("a", "name", "Beta");
+		root.close();
+		File file = files.get(0);
+		files.get(1).delete();
+		long length = file.length();
+
+		// corrupt the serialized bean id of the first record (which follows
+		// the 21-byte record header and the 4-byte length of the bean id):
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.seek(25);
+			raf.write(new byte[] { 0, 0 });
+		}
+
+		FileBranch<String> copy = open(file);
+		try {
+			copy.getField("a", "name");
+			fail();
+		} catch (RuntimeException e) {
+			// pass
+		}
+		assertEquals(length, file.length());
+	}
+
+	/**
+	 * Confirm that compacting discards old revisions but preserves the
+	 * revisions after the oldest retained revision.
+	 */
+	public void testCompact() throws Exception {
+		FileBranch<String> root = createRoot();
+		root.createBean("a");
+		for (int a = 0; a < 100; a++) {
+			root.setField("a", "count", Integer.valueOf(a));
+		}
+		Revision r = root.getRevision();
+		for (int a = 100; a < 110; a++) {
+			root.setField("a", "count", Integer.valueOf(a));
+		}
+		long oldLength = files.get(0).length();
+		root.compact(r);
+		assertTrue(files.get(0).length() < oldLength);
+
+		assertEquals(Integer.valueOf(109), root.getField("a", "count"));
+		assertEquals(Integer.valueOf(99), root.getField("a", "count", r));
+		assertEquals(Integer.valueOf(105), root.getField("a", "count",
+				new Revision(root, r.getNumber().longValue() + 6)));
+
+		root.setField("a", "count", Integer.valueOf(200));
+		root.close();
+		FileBranch<String> copy = open(files.get(0));
+		assertEquals(Integer.valueOf(200), copy.getField("a", "count"));
+		assertEquals(Integer.valueOf(99), copy.getField("a", "count",
+				new Revision(copy, r.getNumber().longValue())));
+	}
+}
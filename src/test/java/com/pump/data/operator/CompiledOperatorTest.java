@@ -0,0 +1,179 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.data.operator;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.pump.data.operator.OperatorTest.StudentBean;
+import com.pump.text.WildcardPattern;
+
+public class CompiledOperatorTest extends TestCase {
+
+	static List<StudentBean> students = Arrays.asList(OperatorTest.harryPotter,
+			OperatorTest.ronWeasley, OperatorTest.hermioneGranger,
+			OperatorTest.lavenderBrown, OperatorTest.pavartiPatil,
+			OperatorTest.padmaPatil, OperatorTest.ginnyWeasley,
+			OperatorTest.choChang, OperatorTest.lunaLovegood,
+			OperatorTest.nullStudent);
+
+	/**
+	 * This context resolves attributes in advance.
+	 */
+	static CompiledOperator.AccessorContext accessorContext = new CompiledOperator.AccessorContext() {
+
+		@Override
+		public Object getValue(Object dataSource, String attributeName) {
+			return OperatorTest.context.getValue(dataSource, attributeName);
+		}
+
+		@Override
+		public CompiledOperator.Accessor getAccessor(String attributeName) {
+			if (attributeName.equals("lastName")) {
+				return new CompiledOperator.Accessor() {
+					@Override
+					public Object getValue(Object dataSource) {
+						return ((StudentBean) dataSource).lastName;
+					}
+				};
+			}
+			final String name = attributeName;
+			return new CompiledOperator.Accessor() {
+				@Override
+				public Object getValue(Object dataSource) {
+					return OperatorTest.context.getValue(dataSource, name);
+				}
+			};
+		}
+	};
+
+	/**
+	 * Confirm that compiled operators always agree with the interpreted
+	 * operators.
+	 */
+	public void testEvaluate() throws Exception {
+		WildcardPattern.Format caseInsensitive = new WildcardPattern.Format();
+		caseInsensitive.caseSensitive = false;
+		WildcardPattern.Format caseSensitive = new WildcardPattern.Format();
+		caseSensitive.caseSensitive = true;
+
+		Operator[] operators = new Operator[] {
+				Operator.TRUE,
+				Operator.FALSE,
+				new EqualTo("lastName", "Weasley"),
+				new EqualTo("lastName", null),
+				new Not(new EqualTo("house", OperatorTest.HOUSE_RAVENCLAW)),
+				In.create("firstName", Arrays.asList("Ron", "Luna", null)),
+				new Like("lastName", new WildcardPattern("P*")),
+				new Like("lastName", new WildcardPattern("p*", caseSensitive)),
+				new Like("lastName", new WildcardPattern("*ley")),
+				new Like("lastName", new WildcardPattern("*AT*")),
+				new Like("lastName", new WildcardPattern("*at*", caseSensitive)),
+				new Like("lastName", new WildcardPattern("Patil",
+						caseInsensitive)),
+				new Like("lastName", new WildcardPattern("*")),
+				new Like("lastName", new WildcardPattern("?a*l")),
+				new Or(new EqualTo("firstName", "Harry"), new EqualTo(
+						"firstName", "Cho"), new EqualTo("lastName", "Patil"),
+						In.create("firstName", Arrays.asList("Ginny", "Luna"))),
+				new And(new EqualTo("house", OperatorTest.HOUSE_GRYFFINDOR),
+						new Not(new Or(new EqualTo("lastName", "Weasley"),
+								Operator.FALSE)), new Like("firstName",
+								new WildcardPattern("*a*"))),
+				new And(new Not(new EqualTo("birthYear", -1)), new GreaterThan(
+						"birthYear", 1979), new LesserThan("birthYear", 1981)),
+				new Or(new And(new EqualTo("lastName", "Patil"), Operator.TRUE),
+						new Not(new Not(new EqualTo("firstName", "Cho")))) };
+
+		OperatorContext[] contexts = new OperatorContext[] {
+				OperatorTest.context, accessorContext };
+		for (Operator operator : operators) {
+			for (OperatorContext context : contexts) {
+				CompiledOperator compiled = operator.compile(context);
+				for (StudentBean student : students) {
+					assertEquals(operator.toString() + " " + student.firstName,
+							operator.evaluate(context, student),
+							compiled.evaluate(student));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Confirm that comparisons (which throw exceptions for null values) are
+	 * evaluated after the other operands, so they never throw an exception
+	 * that the original Operator would not have thrown.
+	 */
+	public void testComparisonsEvaluatedLast() throws Exception {
+		Operator op = new And(new Not(new EqualTo("lastName", null)),
+				new GreaterThan("lastName", "M"));
+		CompiledOperator compiled = op.compile(OperatorTest.context);
+		assertFalse(compiled.evaluate(OperatorTest.nullStudent));
+		assertTrue(compiled.evaluate(OperatorTest.ronWeasley));
+
+		op = new Or(new GreaterThan("lastName", "M"), new EqualTo("lastName",
+				null));
+		compiled = op.compile(OperatorTest.context);
+		assertTrue(compiled.evaluate(OperatorTest.nullStudent));
+		try {
+			op.evaluate(OperatorTest.context, OperatorTest.nullStudent);
+			fail();
+		} catch (NullPointerException e) {
+			// the interpreted operator evaluates the comparison first
+		}
+	}
+
+	/**
+	 * A value whose equals() method ignores case, but whose hashCode() method
+	 * is inherited from Object.
+	 */
+	static class Name {
+		final String name;
+
+		Name(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Name
+					&& ((Name) obj).name.equalsIgnoreCase(name);
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(this);
+		}
+	}
+
+	/**
+	 * Confirm that EqualTos whose values are not Strings, boxed primitives or
+	 * enums are not merged into a HashSet, because a HashSet would not
+	 * compare them the way the original Operator does.
+	 */
+	public void testUnhashableValues() throws Exception {
+		OperatorContext context = new OperatorContext() {
+			@Override
+			public Object getValue(Object dataSource, String attributeName) {
+				return new Name(((StudentBean) dataSource).lastName);
+			}
+		};
+		Operator op = new Or(new EqualTo("lastName", new Name("WEASLEY")),
+				new EqualTo("lastName", new Name("PATIL")));
+		CompiledOperator compiled = op.compile(context);
+		assertTrue(op.evaluate(context, OperatorTest.ronWeasley));
+		assertTrue(compiled.evaluate(OperatorTest.ronWeasley));
+		assertTrue(compiled.evaluate(OperatorTest.padmaPatil));
+		assertFalse(compiled.evaluate(OperatorTest.harryPotter));
+	}
+}
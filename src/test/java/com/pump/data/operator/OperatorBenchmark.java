@@ -0,0 +1,113 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.data.operator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.pump.text.WildcardPattern;
+
+/**
+ * This compares the throughput (in millions of beans per second) of
+ * {@link Operator#evaluate(OperatorContext, Object)} against
+ * {@link CompiledOperator#evaluate(Object)}.
+ * <p>
+ * This is not a unit test; run the <code>main</code> method directly.
+ */
+public class OperatorBenchmark {
+
+	static final int TRIALS = 5;
+	static final int BEAN_COUNT = 1000000;
+
+	static class PersonBean {
+		String firstName, lastName, state;
+		int age;
+	}
+
+	static OperatorContext context = new OperatorContext() {
+		@Override
+		public Object getValue(Object dataSource, String attributeName) {
+			PersonBean p = (PersonBean) dataSource;
+			switch (attributeName) {
+			case "firstName":
+				return p.firstName;
+			case "lastName":
+				return p.lastName;
+			case "state":
+				return p.state;
+			case "age":
+				return p.age;
+			}
+			throw new IllegalArgumentException(attributeName);
+		}
+	};
+
+	public static void main(String[] args) throws Exception {
+		String[] names = new String[] { "Adams", "Baker", "Clark", "Davis",
+				"Evans", "Foster", "Garcia", "Harris", "Jones", "Smith",
+				"Stone", "Sanders" };
+		String[] states = new String[] { "AL", "AK", "AZ", "CA", "CO", "FL",
+				"GA", "NY", "OH", "TX", "WA", "WI" };
+		Random random = new Random(0);
+		List<PersonBean> beans = new ArrayList<>(BEAN_COUNT);
+		for (int a = 0; a < BEAN_COUNT; a++) {
+			PersonBean p = new PersonBean();
+			p.firstName = names[random.nextInt(names.length)];
+			p.lastName = names[random.nextInt(names.length)];
+			p.state = states[random.nextInt(states.length)];
+			p.age = random.nextInt(90);
+			beans.add(p);
+		}
+
+		Operator[] operators = new Operator[] {
+				new And(new GreaterThan("age", 20), new Or(new EqualTo(
+						"state", "CA"), new EqualTo("state", "NY"),
+						new EqualTo("state", "TX"), new EqualTo("state", "WA")),
+						new Like("lastName", new WildcardPattern("S*"))),
+				new Or(new Like("firstName", new WildcardPattern("*an*")),
+						new And(In.create("state",
+								Arrays.asList("AL", "AK", "AZ")), new Not(
+								new EqualTo("lastName", "Smith")))) };
+
+		System.out.println("Operator\tInterpreted\tCompiled\t(M beans/s)");
+		for (Operator operator : operators) {
+			System.out.println(operator + "\t"
+					+ measure(operator, null, beans) + "\t"
+					+ measure(operator, operator.compile(context), beans));
+		}
+	}
+
+	/**
+	 * Return the median number of beans evaluated per second.
+	 */
+	static double measure(Operator operator, CompiledOperator compiled,
+			List<PersonBean> beans) throws Exception {
+		double[] results = new double[TRIALS];
+		int matches = 0;
+		for (int a = 0; a < TRIALS; a++) {
+			long time = System.nanoTime();
+			for (PersonBean bean : beans) {
+				boolean b = compiled == null ? operator.evaluate(context, bean)
+						: compiled.evaluate(bean);
+				if (b)
+					matches++;
+			}
+			time = System.nanoTime() - time;
+			results[a] = beans.size() / 1000000.0 / (time / 1000000000.0);
+		}
+		if (matches == 0)
+			System.out.println("no matches");
+		Arrays.sort(results);
+		return Math.round(results[results.length / 2] * 10) / 10.0;
+	}
+}
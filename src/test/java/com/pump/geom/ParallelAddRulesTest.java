@@ -0,0 +1,95 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom;
+
+import java.awt.Shape;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+import com.pump.geom.area.AreaXBody;
+
+public class ParallelAddRulesTest extends TestCase {
+
+	/**
+	 * Confirm that adding many shapes in parallel produces the same shape as
+	 * adding them sequentially, including when other operations are mixed in.
+	 */
+	public void testSameAsSequential() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int type = 0; type < 3; type++) {
+				Random random = new Random(type);
+				AreaX expected = new AreaX();
+				expected.setRules(new AreaXRules());
+				AreaX actual = new AreaX();
+				actual.setRules(new ParallelAddRules(pool));
+				for (int a = 0; a < 300; a++) {
+					Shape shape = createShape(random, type);
+					if (a == 200) {
+						Shape hole = new Ellipse2D.Double(100, 100, 200, 200);
+						expected.subtract(hole);
+						actual.subtract(hole);
+					}
+					expected.add(shape);
+					actual.add(shape);
+				}
+				assertSameShape(expected.getBody(), actual.getBody());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Confirm that shapes inside other shapes are removed before adding.
+	 */
+	public void testRemoveInnerBodies() {
+		AreaXBody[] bodies = new AreaXBody[] {
+				createBody(new Rectangle2D.Double(10, 10, 5, 5)),
+				createBody(new Ellipse2D.Double(0, 0, 100, 100)),
+				createBody(new Rectangle2D.Double(40, 40, 5, 5)),
+				createBody(new Rectangle2D.Double(95, 95, 10, 10)),
+				createBody(new Rectangle2D.Double(200, 200, 10, 10)),
+				createBody(new Rectangle2D.Double(201, 201, 1, 1)) };
+		assertEquals(4, ParallelAddRules.removeInnerBodies(bodies).size());
+	}
+
+	private static AreaXBody createBody(Shape shape) {
+		return AreaXBody.create(shape.getPathIterator(null), true);
+	}
+
+	private static Shape createShape(Random random, int type) {
+		float x = 400 * random.nextFloat();
+		float y = 400 * random.nextFloat();
+		if (type == 0) {
+			return BasicTestElement.createDiamond(x, y);
+		} else if (type == 1) {
+			return BasicTestElement.createQuad(x, y);
+		}
+		return new Ellipse2D.Double(x, y, 5 + 40 * random.nextFloat(),
+				5 + 40 * random.nextFloat());
+	}
+
+	private static void assertSameShape(AreaXBody expected, AreaXBody actual) {
+		assertEquals(expected.getBounds2D(null), actual.getBounds2D(null));
+		Rectangle2D r = expected.getBounds2D(null);
+		for (double y = r.getMinY(); y < r.getMaxY(); y += 1.731) {
+			for (double x = r.getMinX(); x < r.getMaxX(); x += 1.731) {
+				assertEquals(x + ", " + y, expected.contains(x, y),
+						actual.contains(x, y));
+			}
+		}
+	}
+}
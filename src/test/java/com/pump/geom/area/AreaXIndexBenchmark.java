@@ -0,0 +1,87 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom.area;
+
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.Random;
+
+import com.pump.geom.AreaX;
+
+/**
+ * This measures how long (in milliseconds) it takes to run point and
+ * rectangle queries against a complex <code>AreaXBody</code> with and without
+ * an {@link AreaXIndex}.
+ * <p>
+ * This is not a unit test; run the <code>main</code> method directly.
+ */
+public class AreaXIndexBenchmark {
+
+	static final int TRIALS = 5;
+	static final int POINT_QUERIES = 200000;
+	static final int SHAPE_QUERIES = 2000;
+
+	public static void main(String[] args) {
+		Random random = new Random(0);
+		AreaX area = new AreaX();
+		for (int a = 0; a < 1000; a++) {
+			area.add(new Ellipse2D.Double(1000 * random.nextDouble(),
+					1000 * random.nextDouble(), 30, 20));
+		}
+		System.out.println("Curves: " + area.getBody().size());
+		System.out.println("Index\tcontains(x, y) (ms)\tgetRelationship (ms)");
+
+		int minCurves = AreaXBody.MIN_INDEXED_CURVES;
+		AreaXBody.MIN_INDEXED_CURVES = Integer.MAX_VALUE;
+		System.out.println("No\t" + measureContains(new AreaX(area)) + "\t"
+				+ measureRelationship(new AreaX(area)));
+		AreaXBody.MIN_INDEXED_CURVES = minCurves;
+		System.out.println("Yes\t" + measureContains(new AreaX(area)) + "\t"
+				+ measureRelationship(new AreaX(area)));
+	}
+
+	static double measureContains(AreaX area) {
+		double[] results = new double[TRIALS];
+		for (int a = 0; a < TRIALS; a++) {
+			Random random = new Random(a);
+			long time = System.nanoTime();
+			for (int b = 0; b < POINT_QUERIES; b++) {
+				area.contains(1000 * random.nextDouble(),
+						1000 * random.nextDouble());
+			}
+			time = System.nanoTime() - time;
+			results[a] = time / 1000000.0;
+		}
+		return median(results);
+	}
+
+	static double measureRelationship(AreaX area) {
+		double[] results = new double[TRIALS];
+		for (int a = 0; a < TRIALS; a++) {
+			Random random = new Random(a);
+			long time = System.nanoTime();
+			for (int b = 0; b < SHAPE_QUERIES; b++) {
+				area.getRelationship(null,
+						new Rectangle2D.Double(1000 * random.nextDouble(),
+								1000 * random.nextDouble(), 5, 5), null);
+			}
+			time = System.nanoTime() - time;
+			results[a] = time / 1000000.0;
+		}
+		return median(results);
+	}
+
+	static double median(double[] results) {
+		Arrays.sort(results);
+		return Math.round(results[results.length / 2] * 10) / 10.0;
+	}
+}
@@ -0,0 +1,140 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.geom.area;
+
+import java.awt.Shape;
+import java.awt.geom.CubicCurve2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.QuadCurve2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import com.pump.geom.AreaX;
+
+public class AreaXIndexTest extends TestCase {
+
+	/**
+	 * Confirm that queries return the same results with and without an
+	 * index.
+	 */
+	public void testSameResults() {
+		int minCurves = AreaXBody.MIN_INDEXED_CURVES;
+		int threshold = AreaXBody.INDEX_QUERY_THRESHOLD;
+		try {
+			Random random = new Random(0);
+			AreaX area = new AreaX();
+			for (int a = 0; a < 100; a++) {
+				double x = 500 * random.nextDouble();
+				double y = 500 * random.nextDouble();
+				if (a % 3 == 0) {
+					area.add(new Rectangle2D.Double(x, y, 40, 25));
+				} else {
+					area.add(new Ellipse2D.Double(x, y, 50, 30));
+				}
+			}
+			AreaXBody body = area.getBody();
+			assertTrue(body.size() > 100);
+
+			Shape[] shapes = new Shape[300];
+			double[][] rects = new double[300][];
+			double[][] points = new double[3000][];
+			for (int a = 0; a < shapes.length; a++) {
+				double x = 560 * random.nextDouble() - 30;
+				double y = 560 * random.nextDouble() - 30;
+				if (a % 3 == 0) {
+					shapes[a] = new Line2D.Double(x, y, x + 20, y - 15);
+				} else if (a % 3 == 1) {
+					shapes[a] = new QuadCurve2D.Double(x, y, x + 10, y + 30,
+							x + 20, y);
+				} else {
+					shapes[a] = new CubicCurve2D.Double(x, y, x + 10, y + 30,
+							x + 20, y - 30, x + 30, y);
+				}
+				rects[a] = new double[] { x, y, x + 10 * random.nextDouble(),
+						y + 10 * random.nextDouble() };
+			}
+			for (int a = 0; a < points.length; a++) {
+				points[a] = new double[] { 560 * random.nextDouble() - 30,
+						560 * random.nextDouble() - 30 };
+			}
+
+			AreaXBody.MIN_INDEXED_CURVES = Integer.MAX_VALUE;
+			int[] expectedRelationships = new int[shapes.length];
+			CrossingsX[] expectedCrossings = new CrossingsX[rects.length];
+			boolean[] expectedContains = new boolean[points.length];
+			for (int a = 0; a < shapes.length; a++) {
+				expectedRelationships[a] = body.getRelationship(shapes[a],
+						null);
+				expectedCrossings[a] = CrossingsX.findCrossings(body,
+						rects[a][0], rects[a][1], rects[a][2], rects[a][3]);
+			}
+			for (int a = 0; a < points.length; a++) {
+				expectedContains[a] = body.contains(points[a][0],
+						points[a][1]);
+			}
+			assertNull(body.getIndex());
+
+			AreaXBody.MIN_INDEXED_CURVES = 0;
+			AreaXBody.INDEX_QUERY_THRESHOLD = 0;
+			assertNotNull(body.getIndex());
+			for (int a = 0; a < shapes.length; a++) {
+				assertEquals(expectedRelationships[a],
+						body.getRelationship(shapes[a], null));
+				assertCrossingsEqual(expectedCrossings[a],
+						CrossingsX.findCrossings(body, rects[a][0],
+								rects[a][1], rects[a][2], rects[a][3]));
+			}
+			for (int a = 0; a < points.length; a++) {
+				assertEquals(expectedContains[a],
+						body.contains(points[a][0], points[a][1]));
+			}
+		} finally {
+			AreaXBody.MIN_INDEXED_CURVES = minCurves;
+			AreaXBody.INDEX_QUERY_THRESHOLD = threshold;
+		}
+	}
+
+	/**
+	 * Confirm that an index is only built after several queries.
+	 */
+	public void testLazyIndex() {
+		AreaXBody body = new AreaX(new Ellipse2D.Double(0, 0, 100, 100))
+				.getBody();
+		int minCurves = AreaXBody.MIN_INDEXED_CURVES;
+		try {
+			AreaXBody.MIN_INDEXED_CURVES = 0;
+			for (int a = 1; a < AreaXBody.INDEX_QUERY_THRESHOLD; a++) {
+				assertTrue(body.contains(50, 50));
+				assertNull(body.index);
+			}
+			assertTrue(body.contains(50, 50));
+			assertNotNull(body.index);
+		} finally {
+			AreaXBody.MIN_INDEXED_CURVES = minCurves;
+		}
+	}
+
+	private static void assertCrossingsEqual(CrossingsX expected,
+			CrossingsX actual) {
+		if (expected == null) {
+			assertNull(actual);
+			return;
+		}
+		assertNotNull(actual);
+		assertEquals(expected.limit, actual.limit);
+		for (int a = 0; a < expected.limit; a++) {
+			assertEquals(expected.yranges[a], actual.yranges[a]);
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.bmp;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This compares the throughput (in megapixels per second) of reading, writing
+ * and creating thumbnails of BMP files through streams against the
+ * <code>File</code> methods in {@link BmpDecoder} (which map the file into
+ * memory) and {@link BmpEncoder} (which writes through a
+ * <code>FileChannel</code>).
+ * <p>
+ * This is not a unit test; run the <code>main</code> method directly.
+ */
+public class BmpBenchmark {
+
+	static final int TRIALS = 5;
+
+	public static void main(String[] args) throws Exception {
+		int[] types = new int[] { BufferedImage.TYPE_3BYTE_BGR,
+				BufferedImage.TYPE_INT_ARGB };
+		System.out.println("Image\tTask\tStream\tFile\t(MP/s)");
+		for (final int type : types) {
+			final BufferedImage bi = createImage(4000, 3000, type);
+			final File file = File.createTempFile("BmpBenchmark", ".bmp");
+			final File file2 = File.createTempFile("BmpBenchmark", ".bmp");
+			try {
+				BmpEncoder.write(bi, file);
+				final BufferedImage dst = new BufferedImage(bi.getWidth(),
+						bi.getHeight(), type);
+				final Dimension thumbnailSize = new Dimension(200, 200);
+				String name = type == BufferedImage.TYPE_3BYTE_BGR ? "24-bit"
+						: "32-bit";
+
+				print(name, "Write", bi, new Task() {
+					public void run() throws Exception {
+						BmpEncoder.write(bi, new BufferedOutputStream(
+								new FileOutputStream(file2)));
+					}
+				}, new Task() {
+					public void run() throws Exception {
+						BmpEncoder.write(bi, file2);
+					}
+				});
+
+				print(name, "Read", bi, new Task() {
+					public void run() throws Exception {
+						try (InputStream in = new BufferedInputStream(
+								new FileInputStream(file))) {
+							BmpDecoder.readImage(in);
+						}
+					}
+				}, new Task() {
+					public void run() throws Exception {
+						BmpDecoder.readImage(file, dst);
+					}
+				});
+
+				print(name, "Thumbnail", bi, new Task() {
+					public void run() throws Exception {
+						try (InputStream in = new BufferedInputStream(
+								new FileInputStream(file))) {
+							BmpDecoder.createThumbnail(in, thumbnailSize);
+						}
+					}
+				}, new Task() {
+					public void run() throws Exception {
+						BmpDecoder.createThumbnail(file, thumbnailSize);
+					}
+				});
+			} finally {
+				file.delete();
+				file2.delete();
+			}
+		}
+	}
+
+	interface Task {
+		void run() throws Exception;
+	}
+
+	static void print(String imageName, String taskName, BufferedImage bi,
+			Task streamTask, Task fileTask) throws Exception {
+		double megapixels = bi.getWidth() * (double) bi.getHeight() / 1000000.0;
+		System.out.println(imageName + "\t" + taskName + "\t"
+				+ measure(streamTask, megapixels) + "\t"
+				+ measure(fileTask, megapixels));
+	}
+
+	/**
+	 * Return the median number of megapixels processed per second.
+	 */
+	static double measure(Task task, double megapixels) throws Exception {
+		double[] results = new double[TRIALS];
+		for (int a = 0; a < TRIALS; a++) {
+			long time = System.nanoTime();
+			task.run();
+			time = System.nanoTime() - time;
+			results[a] = megapixels / (time / 1000000000.0);
+		}
+		Arrays.sort(results);
+		return Math.round(results[results.length / 2] * 10) / 10.0;
+	}
+
+	static BufferedImage createImage(int width, int height, int type) {
+		BufferedImage bi = new BufferedImage(width, height, type);
+		Random random = new Random(0);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				bi.setRGB(x, y, random.nextInt());
+			}
+		}
+		return bi;
+	}
+}
@@ -0,0 +1,159 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.bmp;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+public class MappedBmpTest extends TestCase {
+
+	static final int[] TYPES = new int[] { BufferedImage.TYPE_INT_ARGB,
+			BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR,
+			BufferedImage.TYPE_4BYTE_ABGR };
+
+	/**
+	 * Confirm that writing a BMP to a file produces the same bytes as writing
+	 * it to an OutputStream, even if the file already contains more data.
+	 */
+	@Test
+	public void testEncoder() throws Exception {
+		byte[] oldData = new byte[20000];
+		Arrays.fill(oldData, (byte) -1);
+		for (int type : TYPES) {
+			BufferedImage bi = createImage(type);
+			File file = File.createTempFile("MappedBmpTest", ".bmp");
+			try {
+				Files.write(file.toPath(), oldData);
+				writeUsingSmallBuffers(bi, file);
+				byte[] expected = writeToByteArray(bi);
+				byte[] actual = Files.readAllBytes(file.toPath());
+				assertTrue("type = " + type, Arrays.equals(expected, actual));
+			} finally {
+				file.delete();
+			}
+		}
+	}
+
+	/**
+	 * Confirm that reading a BMP file produces the same image as reading it
+	 * from an InputStream.
+	 */
+	@Test
+	public void testDecoder() throws Exception {
+		for (int type : TYPES) {
+			BufferedImage bi = createImage(type);
+			byte[] bytes = writeToByteArray(bi);
+			File file = File.createTempFile("MappedBmpTest", ".bmp");
+			int oldMax = MappedRows.MAX_WINDOW_SIZE;
+			try {
+				Files.write(file.toPath(), bytes);
+				BufferedImage expected = BmpDecoder
+						.readImage(new ByteArrayInputStream(bytes));
+
+				// force several windows, with a partial window at the end:
+				MappedRows.MAX_WINDOW_SIZE = bi.getWidth() * 4 * 5;
+				BufferedImage actual = BmpDecoder.readImage(file);
+				assertEquals(expected.getType(), actual.getType());
+				assertImageEquals(expected, actual);
+
+				if (expected.getType() == BufferedImage.TYPE_4BYTE_ABGR) {
+					BufferedImage dst = new BufferedImage(bi.getWidth(),
+							bi.getHeight(), BufferedImage.TYPE_INT_ARGB);
+					assertTrue(dst == BmpDecoder.readImage(file, dst));
+					assertImageEquals(expected, dst);
+				}
+			} finally {
+				MappedRows.MAX_WINDOW_SIZE = oldMax;
+				file.delete();
+			}
+		}
+	}
+
+	/**
+	 * Confirm that creating a thumbnail from a BMP file produces the same image
+	 * as creating it from an InputStream.
+	 */
+	@Test
+	public void testThumbnail() throws Exception {
+		for (int type : TYPES) {
+			BufferedImage bi = createImage(type);
+			byte[] bytes = writeToByteArray(bi);
+			File file = File.createTempFile("MappedBmpTest", ".bmp");
+			try {
+				Files.write(file.toPath(), bytes);
+				Dimension maxSize = new Dimension(20, 20);
+				BufferedImage expected = BmpDecoder.createThumbnail(
+						new ByteArrayInputStream(bytes), maxSize);
+				BufferedImage actual = BmpDecoder.createThumbnail(file,
+						maxSize);
+				assertEquals(expected.getType(), actual.getType());
+				assertImageEquals(expected, actual);
+			} finally {
+				file.delete();
+			}
+		}
+	}
+
+	private static void writeUsingSmallBuffers(BufferedImage bi, File file)
+			throws Exception {
+		int oldSize = BmpEncoder.WRITE_BUFFER_SIZE;
+		try {
+			// several full buffers, with a partial buffer at the end:
+			BmpEncoder.WRITE_BUFFER_SIZE = bi.getWidth() * 4 * 5;
+			BmpEncoder.write(bi, file);
+		} finally {
+			BmpEncoder.WRITE_BUFFER_SIZE = oldSize;
+		}
+	}
+
+	private static byte[] writeToByteArray(BufferedImage bi) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BmpEncoder.write(bi, out);
+		return out.toByteArray();
+	}
+
+	private static void assertImageEquals(BufferedImage expected,
+			BufferedImage actual) {
+		assertEquals(expected.getWidth(), actual.getWidth());
+		assertEquals(expected.getHeight(), actual.getHeight());
+		for (int y = 0; y < expected.getHeight(); y++) {
+			for (int x = 0; x < expected.getWidth(); x++) {
+				assertEquals("(" + x + ", " + y + ")", expected.getRGB(x, y),
+						actual.getRGB(x, y));
+			}
+		}
+	}
+
+	/**
+	 * Create an image with an odd width (so rows are padded) and random
+	 * pixels.
+	 */
+	private static BufferedImage createImage(int type) {
+		BufferedImage bi = new BufferedImage(37, 43, type);
+		Random random = new Random(type);
+		for (int y = 0; y < bi.getHeight(); y++) {
+			for (int x = 0; x < bi.getWidth(); x++) {
+				bi.setRGB(x, y, random.nextInt());
+			}
+		}
+		return bi;
+	}
+}
@@ -0,0 +1,168 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.gif;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+public class IndexedGifReaderTest extends TestCase {
+
+	static final int WIDTH = 40, HEIGHT = 30;
+
+	/**
+	 * Confirm the IndexedGifReader returns the same frames as the GifReader,
+	 * whether frames are read in order or at random, and whether keyframes
+	 * are cached or not.
+	 */
+	@Test
+	public void testSameFramesAsGifReader() throws IOException {
+		File file = File.createTempFile("IndexedGifReaderTest", ".gif");
+		try {
+			writeGif(file);
+			long keyframeBytes = 4L * WIDTH * HEIGHT;
+			assertSameFrames(file, new long[] { 0, keyframeBytes,
+					IndexedGifReader.DEFAULT_MAX_CACHE_BYTES }, new int[] { 1,
+					4 });
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Run the same comparison on sample GIFs from this project that use
+	 * every disposal method. These are larger, so this only tests a few
+	 * configurations.
+	 */
+	@Test
+	public void testSampleGifs() throws IOException {
+		for (String path : new String[] { "resources/star.gif",
+				"resources/punch-text-effect.gif", "resources/brownfox.gif" }) {
+			File file = new File(path);
+			if (file.exists())
+				assertSameFrames(file, new long[] { 0,
+						IndexedGifReader.DEFAULT_MAX_CACHE_BYTES },
+						new int[] { 4 });
+		}
+	}
+
+	private void assertSameFrames(File file, long[] maxCacheBytesValues,
+			int[] maxFramesValues) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			List<BufferedImage> expected = new ArrayList<>();
+			List<Double> expectedDurations = new ArrayList<>();
+			GifReader gifReader = new GifReader(file);
+			BufferedImage bi = gifReader.getNextFrame(true);
+			while (bi != null) {
+				expected.add(bi);
+				expectedDurations.add(gifReader.getFrameDuration());
+				bi = gifReader.getNextFrame(true);
+			}
+
+			for (long maxCacheBytes : maxCacheBytesValues) {
+				for (int maxFrames : maxFramesValues) {
+					String id = file.getName() + ", maxCacheBytes = "
+							+ maxCacheBytes + ", maxFramesInFlight = "
+							+ maxFrames;
+					try (IndexedGifReader reader = new IndexedGifReader(file,
+							executor, maxFrames, maxCacheBytes)) {
+						assertEquals(id, expected.size(),
+								reader.getFrameCount());
+						assertEquals(id, gifReader.getDuration(),
+								reader.getDuration());
+						assertEquals(id, gifReader.getLoopCount(),
+								reader.getLoopCount());
+
+						for (int a = 0; a < expected.size(); a++) {
+							BufferedImage frame = reader
+									.getNextFrame(a % 2 == 0);
+							assertSamePixels(id + " frame " + a,
+									expected.get(a), frame);
+							assertEquals(id, expectedDurations.get(a),
+									reader.getFrameDuration());
+						}
+						assertNull(reader.getNextFrame(false));
+
+						List<Integer> order = new ArrayList<>();
+						for (int a = 0; a < expected.size(); a++) {
+							order.add(a);
+						}
+						Collections.shuffle(order, new Random(0));
+						for (int a : order) {
+							assertSamePixels(id + " frame " + a,
+									expected.get(a), reader.getFrame(a));
+						}
+					}
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Write a GIF where some frames only briefly cover the previous frame,
+	 * so the encoder uses several disposal methods.
+	 */
+	private void writeGif(File file) throws IOException {
+		try (OutputStream out = new FileOutputStream(file)) {
+			GifWriter writer = new GifWriter(out,
+					new Dimension(WIDTH, HEIGHT), 0);
+			for (int frame = 0; frame < 40; frame++) {
+				BufferedImage bi = new BufferedImage(WIDTH, HEIGHT,
+						BufferedImage.TYPE_INT_ARGB);
+				Graphics2D g = bi.createGraphics();
+				g.setColor(Color.white);
+				g.fillRect(0, 0, WIDTH, HEIGHT);
+				g.setColor(Color.blue);
+				g.fillOval(frame / 2, 5, 15, 15);
+				if (frame % 3 == 1) {
+					g.setColor(Color.red);
+					g.fillRect(28, 18, 8, 8);
+				}
+				g.dispose();
+				writer.write(bi, 100 + 10 * (frame % 4), null);
+			}
+			writer.close(false);
+		}
+	}
+
+	private void assertSamePixels(String id, BufferedImage expected,
+			BufferedImage actual) {
+		assertEquals(id, expected.getWidth(), actual.getWidth());
+		assertEquals(id, expected.getHeight(), actual.getHeight());
+		int w = expected.getWidth();
+		int h = expected.getHeight();
+		int[] expectedRGB = expected.getRGB(0, 0, w, h, null, 0, w);
+		int[] actualRGB = actual.getRGB(0, 0, w, h, null, 0, w);
+		for (int a = 0; a < expectedRGB.length; a++) {
+			if (expectedRGB[a] != actualRGB[a])
+				assertEquals(id + " (" + (a % w) + ", " + (a / w) + ")",
+						expectedRGB[a], actualRGB[a]);
+		}
+	}
+}
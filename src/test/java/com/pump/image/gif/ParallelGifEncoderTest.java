@@ -0,0 +1,86 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.gif;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+public class ParallelGifEncoderTest extends TestCase {
+
+	/**
+	 * Confirm the ParallelGifEncoder writes exactly the same bytes as the
+	 * BasicGifEncoder, for several limits on the number of frames in flight.
+	 */
+	@Test
+	public void testSameOutputAsBasicEncoder() throws IOException {
+		byte[] expected = writeGif(new BasicGifEncoder());
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			for (int maxFrames : new int[] { 1, 2, 5, 100 }) {
+				byte[] actual = writeGif(new ParallelGifEncoder(executor,
+						maxFrames));
+				assertTrue("maxFramesInFlight = " + maxFrames,
+						Arrays.equals(expected, actual));
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertTrue(Arrays.equals(expected, writeGif(new ParallelGifEncoder())));
+	}
+
+	private byte[] writeGif(GifEncoder encoder) throws IOException {
+		IndexColorModel icm = createColorModel();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		GifWriter writer = new GifWriter(out, new Dimension(60, 40), icm, 0,
+				0, encoder);
+		for (int frame = 0; frame < 12; frame++) {
+			BufferedImage bi = new BufferedImage(60, 40,
+					BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g = bi.createGraphics();
+			g.setColor(Color.white);
+			g.fillRect(0, 0, 60, 40);
+			g.setColor(new Color(frame * 20, 100, 255 - frame * 20));
+			g.fillOval(frame * 3, 5, 20, 20);
+			g.drawString(Integer.toString(frame), 5, 35);
+			g.dispose();
+			writer.write(bi, 100, null);
+			// an identical frame is merged into the previous frame
+			if (frame == 6)
+				writer.write(bi, 100, null);
+		}
+		writer.close(false);
+		return out.toByteArray();
+	}
+
+	private IndexColorModel createColorModel() {
+		byte[] r = new byte[256];
+		byte[] g = new byte[256];
+		byte[] b = new byte[256];
+		for (int a = 0; a < 256; a++) {
+			r[a] = (byte) ((a >> 5) * 255 / 7);
+			g[a] = (byte) (((a >> 2) & 7) * 255 / 7);
+			b[a] = (byte) ((a & 3) * 255 / 3);
+		}
+		return new IndexColorModel(8, 256, r, g, b);
+	}
+}
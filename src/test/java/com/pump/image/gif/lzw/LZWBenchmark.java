@@ -0,0 +1,123 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.gif.lzw;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This compares the throughput (in MB/s) and output size of the
+ * {@link LZWOutputStream}, the {@link LZWOutputStream2} and the
+ * {@link LZWEncoder}.
+ * <p>
+ * Each encoder compresses a 1000x1000 "photographic" frame (smooth gradients
+ * with dithering noise) and a "flat" frame (a few large blocks of solid
+ * color), one row at a time as the GIF encoders do. This is not a unit test;
+ * run the <code>main</code> method directly.
+ */
+public class LZWBenchmark {
+
+	interface Model {
+		byte[] encode(byte[] frame, int width) throws IOException;
+	}
+
+	static final int WIDTH = 1000;
+	static final int HEIGHT = 1000;
+	static final int TRIALS = 15;
+
+	@SuppressWarnings("deprecation")
+	public static void main(String[] args) throws IOException {
+		Random random = new Random(0);
+		byte[][] frames = new byte[][] { createPhotographicFrame(random),
+				createFlatFrame() };
+		String[] frameNames = new String[] { "photographic", "flat" };
+
+		String[] modelNames = new String[] { "LZWOutputStream",
+				"LZWOutputStream2", "LZWEncoder" };
+		Model[] models = new Model[] { new Model() {
+			@Override
+			public byte[] encode(byte[] frame, int width) throws IOException {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				LZWOutputStream out = new LZWOutputStream(bytes, 8, false);
+				for (int a = 0; a < frame.length; a += width) {
+					out.write(frame, a, width);
+				}
+				out.close();
+				return bytes.toByteArray();
+			}
+		}, new Model() {
+			@Override
+			public byte[] encode(byte[] frame, int width) throws IOException {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				LZWOutputStream2 out = new LZWOutputStream2(bytes, 8, false);
+				for (int a = 0; a < frame.length; a += width) {
+					out.write(frame, a, width);
+				}
+				out.close();
+				return bytes.toByteArray();
+			}
+		}, new Model() {
+			@Override
+			public byte[] encode(byte[] frame, int width) throws IOException {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				LZWEncoder encoder = LZWEncoder.getThreadEncoder();
+				encoder.start(bytes, 8, false);
+				for (int a = 0; a < frame.length; a += width) {
+					encoder.write(frame, a, width);
+				}
+				encoder.finish();
+				return bytes.toByteArray();
+			}
+		} };
+
+		System.out.println("Frame\tEncoder\tMB/s\tOutput (bytes)");
+		for (int a = 0; a < frames.length; a++) {
+			for (int b = 0; b < models.length; b++) {
+				long[] times = new long[TRIALS];
+				int size = 0;
+				for (int trial = 0; trial < TRIALS; trial++) {
+					long time = System.nanoTime();
+					size = models[b].encode(frames[a], WIDTH).length;
+					times[trial] = System.nanoTime() - time;
+				}
+				Arrays.sort(times);
+				long median = Math.max(1, times[times.length / 2]);
+				double mbPerSecond = frames[a].length / (1024.0 * 1024.0)
+						/ (median / 1e9);
+				System.out.println(frameNames[a] + "\t" + modelNames[b] + "\t"
+						+ String.format("%.1f", mbPerSecond) + "\t" + size);
+			}
+		}
+	}
+
+	static byte[] createPhotographicFrame(Random random) {
+		byte[] frame = new byte[WIDTH * HEIGHT];
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				int v = (x + y) * 200 / (WIDTH + HEIGHT) + random.nextInt(8);
+				frame[y * WIDTH + x] = (byte) v;
+			}
+		}
+		return frame;
+	}
+
+	static byte[] createFlatFrame() {
+		byte[] frame = new byte[WIDTH * HEIGHT];
+		for (int y = 0; y < HEIGHT; y++) {
+			for (int x = 0; x < WIDTH; x++) {
+				frame[y * WIDTH + x] = (byte) ((x / 250) * 4 + (y / 250));
+			}
+		}
+		return frame;
+	}
+}
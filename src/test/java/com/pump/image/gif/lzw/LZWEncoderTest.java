@@ -0,0 +1,110 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.gif.lzw;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+public class LZWEncoderTest extends TestCase {
+
+	/**
+	 * Confirm the LZWEncoder produces exactly the same bytes as the
+	 * LZWOutputStream, and that one encoder can be reused for several frames.
+	 */
+	@Test
+	public void testSameOutputAsLZWOutputStream() throws IOException {
+		Random random = new Random(0);
+		LZWEncoder encoder = new LZWEncoder();
+		for (int colorDepth = 1; colorDepth <= 8; colorDepth++) {
+			for (byte[] data : createSamples(random, colorDepth)) {
+				byte[] expected = encodeWithStream(data, colorDepth);
+				byte[] actual = encode(encoder, data, colorDepth, 1000);
+				assertTrue("colorDepth = " + colorDepth + ", length = "
+						+ data.length, Arrays.equals(expected, actual));
+			}
+		}
+	}
+
+	/**
+	 * Confirm LZWInputStream can decode what the LZWEncoder writes.
+	 */
+	@Test
+	public void testRoundTrip() throws IOException {
+		Random random = new Random(1);
+		LZWEncoder encoder = LZWEncoder.getThreadEncoder();
+		for (int colorDepth : new int[] { 2, 4, 8 }) {
+			for (byte[] data : createSamples(random, colorDepth)) {
+				byte[] encoded = encode(encoder, data, colorDepth, 37);
+				// skip the initial code size
+				InputStream in = new LZWInputStream(new ByteArrayInputStream(
+						encoded, 1, encoded.length - 1), encoded[0]);
+				ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+				byte[] b = new byte[1024];
+				int k;
+				while ((k = in.read(b)) != -1) {
+					decoded.write(b, 0, k);
+				}
+				assertTrue("colorDepth = " + colorDepth + ", length = "
+						+ data.length,
+						Arrays.equals(data, decoded.toByteArray()));
+			}
+		}
+	}
+
+	/**
+	 * Return random noise, a single flat color, and repeating gradients. The
+	 * larger samples fill the dictionary several times.
+	 */
+	private byte[][] createSamples(Random random, int colorDepth) {
+		int colors = 1 << colorDepth;
+		byte[] noise = new byte[100000];
+		byte[] flat = new byte[100000];
+		byte[] gradient = new byte[100000];
+		byte[] tiny = new byte[] { (byte) (colors - 1) };
+		Arrays.fill(flat, (byte) (colors / 2));
+		for (int a = 0; a < noise.length; a++) {
+			noise[a] = (byte) random.nextInt(colors);
+			gradient[a] = (byte) ((a / 7 + random.nextInt(2)) % colors);
+		}
+		return new byte[][] { noise, flat, gradient, tiny };
+	}
+
+	private byte[] encodeWithStream(byte[] data, int colorDepth)
+			throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		LZWOutputStream out = new LZWOutputStream(bytes, colorDepth, true);
+		out.write(data);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Encode data in several calls to <code>write(..)</code>.
+	 */
+	private byte[] encode(LZWEncoder encoder, byte[] data, int colorDepth,
+			int chunkSize) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		encoder.start(bytes, colorDepth, true);
+		for (int a = 0; a < data.length; a += chunkSize) {
+			encoder.write(data, a, Math.min(chunkSize, data.length - a));
+		}
+		encoder.finish();
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,219 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.pixel;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Random;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+public class ImageReaderIteratorTest extends TestCase {
+
+	/**
+	 * Confirm that reading a PNG in several strips produces the same pixels as
+	 * ImageIO.read(..).
+	 */
+	@Test
+	public void testPNG() throws Exception {
+		BufferedImage bi = createImage(BufferedImage.TYPE_INT_ARGB);
+		File file = File.createTempFile("ImageReaderIteratorTest", ".png");
+		try {
+			ImageIO.write(bi, "png", file);
+			BufferedImage expected = ImageIO.read(file);
+			assertEquals(BufferedImage.TYPE_4BYTE_ABGR, expected.getType());
+
+			testIterator(file, expected, BufferedImage.TYPE_INT_ARGB);
+			testIterator(file, expected, BufferedImage.TYPE_4BYTE_ABGR);
+			testIterator(file, expected, BufferedImage.TYPE_INT_ARGB_PRE);
+			testIterator(file, expected, BufferedImage.TYPE_4BYTE_ABGR_PRE);
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Confirm that reading a JPEG in several strips produces the same pixels
+	 * as ImageIO.read(..).
+	 */
+	@Test
+	public void testJPEG() throws Exception {
+		BufferedImage bi = createImage(BufferedImage.TYPE_INT_RGB);
+		File file = File.createTempFile("ImageReaderIteratorTest", ".jpg");
+		try {
+			ImageIO.write(bi, "jpg", file);
+			BufferedImage expected = ImageIO.read(file);
+
+			testIterator(file, expected, BufferedImage.TYPE_INT_RGB);
+			testIterator(file, expected, BufferedImage.TYPE_INT_BGR);
+			testIterator(file, expected, BufferedImage.TYPE_3BYTE_BGR);
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Confirm that reading an interlaced PNG or a progressive JPEG in several
+	 * strips produces the same pixels as ImageIO.read(..).
+	 */
+	@Test
+	public void testProgressive() throws Exception {
+		for (String format : new String[] { "png", "jpeg" }) {
+			BufferedImage bi = createImage(BufferedImage.TYPE_INT_RGB);
+			File file = File.createTempFile("ImageReaderIteratorTest", "."
+					+ format);
+			try {
+				ImageWriter writer = ImageIO.getImageWritersByFormatName(
+						format).next();
+				ImageWriteParam param = writer.getDefaultWriteParam();
+				param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+				try (ImageOutputStream out = ImageIO
+						.createImageOutputStream(file)) {
+					writer.setOutput(out);
+					writer.write(null, new IIOImage(bi, null, null), param);
+				} finally {
+					writer.dispose();
+				}
+				BufferedImage expected = ImageIO.read(file);
+
+				testIterator(file, expected, BufferedImage.TYPE_INT_RGB);
+			} finally {
+				file.delete();
+			}
+		}
+	}
+
+	/**
+	 * Confirm that the iterator returns null for formats it does not support.
+	 */
+	@Test
+	public void testUnsupportedFormat() throws Exception {
+		BufferedImage bi = createImage(BufferedImage.TYPE_INT_RGB);
+		File file = File.createTempFile("ImageReaderIteratorTest", ".bmp");
+		try {
+			ImageIO.write(bi, "bmp", file);
+			assertNull(ImageReaderIterator.get(file,
+					BufferedImage.TYPE_INT_RGB));
+		} finally {
+			file.delete();
+		}
+	}
+
+	private void testIterator(File file, BufferedImage expected, int type)
+			throws Exception {
+		int oldMax = ImageReaderIterator.MAX_STRIP_PIXELS;
+		ImageReaderIterator iter;
+		try {
+			// force several strips, with a partial strip at the end:
+			ImageReaderIterator.MAX_STRIP_PIXELS = expected.getWidth() * 7;
+			iter = ImageReaderIterator.get(file, type);
+		} finally {
+			ImageReaderIterator.MAX_STRIP_PIXELS = oldMax;
+		}
+		assertEquals(9, iter.getStripCount());
+		assertEquals(expected.getWidth(), iter.getWidth());
+		assertEquals(expected.getHeight(), iter.getHeight());
+
+		int w = iter.getWidth();
+		int[] intRow = new int[iter.getMinimumArrayLength()];
+		byte[] byteRow = new byte[iter.getMinimumArrayLength()];
+		for (int y = 0; y < expected.getHeight(); y++) {
+			if (y % 10 == 3) {
+				iter.skip();
+				continue;
+			}
+			if (iter instanceof IntPixelIterator) {
+				((IntPixelIterator) iter).next(intRow);
+			} else {
+				((BytePixelIterator) iter).next(byteRow);
+			}
+			for (int x = 0; x < w; x++) {
+				int argb = getARGB(type, intRow, byteRow, x);
+				assertTrue("type " + BufferedImageIterator.getTypeName(type)
+						+ " (" + x + ", " + y + ")",
+						isSimilar(expected.getRGB(x, y), argb, type));
+			}
+		}
+		assertTrue(iter.isDone());
+	}
+
+	/**
+	 * Convert one pixel from an iterator's row to ARGB. Byte rows use the
+	 * same memory layout as the corresponding BufferedImage type.
+	 */
+	private int getARGB(int type, int[] intRow, byte[] byteRow, int x) {
+		switch (type) {
+		case BufferedImage.TYPE_INT_ARGB:
+		case BufferedImage.TYPE_INT_ARGB_PRE:
+			return intRow[x];
+		case BufferedImage.TYPE_INT_RGB:
+			return 0xff000000 | intRow[x];
+		case BufferedImage.TYPE_INT_BGR:
+			int bgr = intRow[x];
+			return 0xff000000 | ((bgr & 0xff) << 16) | (bgr & 0xff00)
+					| ((bgr >> 16) & 0xff);
+		case BufferedImage.TYPE_3BYTE_BGR:
+			return 0xff000000 | ((byteRow[3 * x + 2] & 0xff) << 16)
+					| ((byteRow[3 * x + 1] & 0xff) << 8)
+					| (byteRow[3 * x] & 0xff);
+		case BufferedImage.TYPE_4BYTE_ABGR:
+		case BufferedImage.TYPE_4BYTE_ABGR_PRE:
+			return ((byteRow[4 * x] & 0xff) << 24)
+					| ((byteRow[4 * x + 3] & 0xff) << 16)
+					| ((byteRow[4 * x + 2] & 0xff) << 8)
+					| (byteRow[4 * x + 1] & 0xff);
+		}
+		throw new IllegalArgumentException("unsupported type " + type);
+	}
+
+	/**
+	 * Premultiplied types lose precision (and store premultiplied components),
+	 * so unpremultiply and tolerate a small difference.
+	 */
+	private boolean isSimilar(int argb1, int argb2, int type) {
+		boolean premultiplied = type == BufferedImage.TYPE_INT_ARGB_PRE
+				|| type == BufferedImage.TYPE_4BYTE_ABGR_PRE;
+		if (!premultiplied)
+			return argb1 == argb2;
+		int alpha = (argb1 >>> 24);
+		if (alpha != (argb2 >>> 24))
+			return false;
+		if (alpha == 0)
+			return true;
+		int tolerance = 255 / alpha + 1;
+		for (int shift = 0; shift < 24; shift += 8) {
+			int c1 = (argb1 >> shift) & 0xff;
+			int c2 = ((argb2 >> shift) & 0xff) * 255 / alpha;
+			if (Math.abs(c1 - c2) > tolerance)
+				return false;
+		}
+		return true;
+	}
+
+	private static BufferedImage createImage(int type) {
+		BufferedImage bi = new BufferedImage(45, 61, type);
+		Random random = new Random(0);
+		for (int y = 0; y < bi.getHeight(); y++) {
+			for (int x = 0; x < bi.getWidth(); x++) {
+				bi.setRGB(x, y, random.nextInt());
+			}
+		}
+		return bi;
+	}
+}
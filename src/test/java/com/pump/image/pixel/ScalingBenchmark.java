@@ -0,0 +1,93 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.pixel;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This measures the throughput (in source megapixels per second) of
+ * {@link Scaling#scale(BufferedImage, BufferedImage, Dimension, ForkJoinPool)}
+ * by image size and thread count.
+ * <p>
+ * Each source image is scaled to 25% of its size. This is not a unit test;
+ * run the <code>main</code> method directly. You may need to increase the
+ * heap size (for example: "-Xmx4g") for the largest images.
+ */
+public class ScalingBenchmark {
+
+	static final int TRIALS = 5;
+
+	public static void main(String[] args) {
+		Dimension[] sizes = new Dimension[] { new Dimension(1000, 1000),
+				new Dimension(4000, 3000), new Dimension(10000, 10000) };
+		int maxThreads = Runtime.getRuntime().availableProcessors();
+		StringBuilder header = new StringBuilder("Source Size\tSerial");
+		for (int threads = 1; threads <= maxThreads; threads *= 2) {
+			header.append("\t" + threads + " Thread(s)");
+		}
+		System.out.println(header + "\t(MP/s)");
+
+		for (Dimension size : sizes) {
+			BufferedImage source = createImage(size.width, size.height);
+			Dimension destSize = new Dimension(size.width / 4, size.height / 4);
+			StringBuilder sb = new StringBuilder(size.width + "x"
+					+ size.height);
+			sb.append("\t" + measure(source, destSize, null));
+			for (int threads = 1; threads <= maxThreads; threads *= 2) {
+				ForkJoinPool pool = new ForkJoinPool(threads);
+				try {
+					sb.append("\t" + measure(source, destSize, pool));
+				} finally {
+					pool.shutdown();
+				}
+			}
+			System.out.println(sb);
+		}
+	}
+
+	/**
+	 * Return the median number of source megapixels scaled per second.
+	 */
+	static double measure(BufferedImage source, Dimension destSize,
+			ForkJoinPool pool) {
+		BufferedImage dest = new BufferedImage(destSize.width,
+				destSize.height, BufferedImage.TYPE_INT_ARGB);
+		double[] results = new double[TRIALS];
+		for (int a = 0; a < TRIALS; a++) {
+			long time = System.nanoTime();
+			Scaling.scale(source, dest, destSize, pool);
+			time = System.nanoTime() - time;
+			double megapixels = source.getWidth() * (double) source.getHeight()
+					/ 1000000.0;
+			results[a] = megapixels / (time / 1000000000.0);
+		}
+		Arrays.sort(results);
+		return Math.round(results[results.length / 2] * 10) / 10.0;
+	}
+
+	static BufferedImage createImage(int width, int height) {
+		BufferedImage bi = new BufferedImage(width, height,
+				BufferedImage.TYPE_INT_ARGB);
+		Random random = new Random(0);
+		int[] row = new int[width];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				row[x] = random.nextInt();
+			}
+			bi.getRaster().setDataElements(0, y, width, 1, row);
+		}
+		return bi;
+	}
+}
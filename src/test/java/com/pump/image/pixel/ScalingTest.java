@@ -0,0 +1,86 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.pixel;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+public class ScalingTest extends TestCase {
+
+	static final int[] IMAGE_TYPES = new int[] { BufferedImage.TYPE_INT_ARGB,
+			BufferedImage.TYPE_INT_ARGB_PRE, BufferedImage.TYPE_INT_BGR,
+			BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR,
+			BufferedImage.TYPE_4BYTE_ABGR, BufferedImage.TYPE_4BYTE_ABGR_PRE,
+			BufferedImage.TYPE_BYTE_GRAY };
+
+	/**
+	 * Destination sizes for a 400x300 source. The last three are taller than
+	 * the source, so their rows are upsampled.
+	 */
+	static final Dimension[] DEST_SIZES = new Dimension[] {
+			new Dimension(201, 167), new Dimension(50, 31),
+			new Dimension(13, 7), new Dimension(400, 300),
+			new Dimension(399, 1), new Dimension(1, 299),
+			new Dimension(401, 301), new Dimension(150, 700),
+			new Dimension(800, 600) };
+
+	/**
+	 * Confirm that scaling bands of an image in parallel produces exactly the
+	 * same pixels as scaling the image on one thread.
+	 */
+	@Test
+	public void testParallelMatchesSerial() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (int type : IMAGE_TYPES) {
+				BufferedImage source = createImage(400, 300, type);
+				for (Dimension destSize : DEST_SIZES) {
+					BufferedImage serial = Scaling.scale(source, null,
+							destSize, null);
+					BufferedImage parallel = Scaling.scale(source, null,
+							destSize, pool);
+					assertTrue(
+							"type " + BufferedImageIterator.getTypeName(type)
+									+ ", size " + destSize.width + "x"
+									+ destSize.height,
+							Arrays.equals(getRGB(serial), getRGB(parallel)));
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static BufferedImage createImage(int width, int height, int type) {
+		BufferedImage bi = new BufferedImage(width, height, type);
+		Random random = new Random(type);
+		int[] row = new int[width];
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				row[x] = random.nextInt();
+			}
+			bi.setRGB(0, y, width, 1, row, 0, width);
+		}
+		return bi;
+	}
+
+	private static int[] getRGB(BufferedImage bi) {
+		return bi.getRGB(0, 0, bi.getWidth(), bi.getHeight(), null, 0,
+				bi.getWidth());
+	}
+}
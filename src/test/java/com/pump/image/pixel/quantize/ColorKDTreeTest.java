@@ -0,0 +1,107 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.pixel.quantize;
+
+import java.awt.image.IndexColorModel;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.pump.image.pixel.quantize.ColorLUT.ColorNode;
+
+public class ColorKDTreeTest extends TestCase {
+
+	/**
+	 * Compare the tree against a brute-force search for several palette sizes.
+	 */
+	@Test
+	public void testNearestMatchesBruteForce() {
+		Random random = new Random(0);
+		for (int paletteSize : new int[] { 1, 2, 16, 64, 256 }) {
+			IndexColorModel icm = createPalette(random, paletteSize);
+			ColorLUT lut = new ColorLUT(icm);
+			for (int a = 0; a < 20000; a++) {
+				int r = random.nextInt(256);
+				int g = random.nextInt(256);
+				int b = random.nextInt(256);
+				ColorNode node = lut.getNearestNode(r, g, b);
+				assertEquals("palette size " + paletteSize,
+						getBruteForceError(icm, r, g, b), getError(node, r, g,
+								b));
+				assertEquals(node.index, lut.getIndexMatch(r, g, b));
+				assertEquals(icm.getRed(node.index), node.red);
+				assertEquals(icm.getGreen(node.index), node.green);
+				assertEquals(icm.getBlue(node.index), node.blue);
+			}
+		}
+	}
+
+	/**
+	 * Confirm exact palette colors map to themselves, and the transparent
+	 * index is never returned.
+	 */
+	@Test
+	public void testExactMatches() {
+		IndexColorModel icm = createPalette(new Random(1), 64);
+		byte[] r = new byte[64];
+		byte[] g = new byte[64];
+		byte[] b = new byte[64];
+		icm.getReds(r);
+		icm.getGreens(g);
+		icm.getBlues(b);
+		icm = new IndexColorModel(8, 64, r, g, b, 0);
+		ColorLUT lut = new ColorLUT(icm);
+		for (int a = 1; a < 64; a++) {
+			ColorNode node = lut.getNearestNode(icm.getRed(a),
+					icm.getGreen(a), icm.getBlue(a));
+			assertEquals(0, getError(node, icm.getRed(a), icm.getGreen(a),
+					icm.getBlue(a)));
+			assertTrue(node.index != 0);
+		}
+	}
+
+	@Test
+	public void testEmptyTree() {
+		ColorKDTree tree = new ColorKDTree(new ColorNode[0]);
+		assertEquals(-1, tree.getNearest(1, 2, 3));
+	}
+
+	static IndexColorModel createPalette(Random random, int size) {
+		byte[] r = new byte[size];
+		byte[] g = new byte[size];
+		byte[] b = new byte[size];
+		random.nextBytes(r);
+		random.nextBytes(g);
+		random.nextBytes(b);
+		return new IndexColorModel(8, size, r, g, b);
+	}
+
+	private static int getError(ColorNode node, int r, int g, int b) {
+		int dr = r - node.red;
+		int dg = g - node.green;
+		int db = b - node.blue;
+		return dr * dr + dg * dg + db * db;
+	}
+
+	private static int getBruteForceError(IndexColorModel icm, int r, int g,
+			int b) {
+		int best = Integer.MAX_VALUE;
+		for (int a = 0; a < icm.getMapSize(); a++) {
+			int dr = r - icm.getRed(a);
+			int dg = g - icm.getGreen(a);
+			int db = b - icm.getBlue(a);
+			best = Math.min(best, dr * dr + dg * dg + db * db);
+		}
+		return best;
+	}
+}
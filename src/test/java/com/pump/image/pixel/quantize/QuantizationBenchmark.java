@@ -0,0 +1,148 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.pixel.quantize;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This measures how many pixels per second a {@link ColorLUT} can quantize
+ * using 16-, 64- and 256-color palettes.
+ * <p>
+ * Each palette is measured three ways: a brute-force linear search (as a
+ * baseline), direct calls to {@link ColorLUT#getIndexMatch(int, int, int)},
+ * and a complete {@link ImageQuantization#MOST_DIFFUSION} pass over an image.
+ * This is not a unit test; run the <code>main</code> method directly.
+ */
+public class QuantizationBenchmark {
+
+	static final int IMAGE_SIZE = 1000;
+	static final int TRIALS = 5;
+
+	public static void main(String[] args) {
+		Random random = new Random(0);
+		BufferedImage image = createImage(random);
+		int[] rgb = image.getRGB(0, 0, IMAGE_SIZE, IMAGE_SIZE, null, 0,
+				IMAGE_SIZE);
+		System.out
+				.println("Colors\tBrute force (px/s)\tColorLUT (px/s)\tError diffusion (px/s)");
+		for (int paletteSize : new int[] { 16, 64, 256 }) {
+			IndexColorModel icm = createPalette(random, paletteSize);
+			ColorLUT lut = new ColorLUT(icm);
+
+			long[] bruteForce = new long[TRIALS];
+			long[] lookup = new long[TRIALS];
+			long[] diffusion = new long[TRIALS];
+			for (int a = 0; a < TRIALS; a++) {
+				bruteForce[a] = measureBruteForce(icm, rgb);
+				lookup[a] = measureLookup(lut, rgb);
+				diffusion[a] = measureDiffusion(lut, image);
+			}
+			System.out.println(paletteSize + "\t" + median(bruteForce) + "\t"
+					+ median(lookup) + "\t" + median(diffusion));
+		}
+	}
+
+	static long median(long[] values) {
+		Arrays.sort(values);
+		return values[values.length / 2];
+	}
+
+	static long measureBruteForce(IndexColorModel icm, int[] rgb) {
+		int size = icm.getMapSize();
+		int[] reds = new int[size];
+		int[] greens = new int[size];
+		int[] blues = new int[size];
+		for (int a = 0; a < size; a++) {
+			reds[a] = icm.getRed(a);
+			greens[a] = icm.getGreen(a);
+			blues[a] = icm.getBlue(a);
+		}
+		long time = System.nanoTime();
+		long checksum = 0;
+		for (int a = 0; a < rgb.length; a++) {
+			int r = (rgb[a] >> 16) & 0xff;
+			int g = (rgb[a] >> 8) & 0xff;
+			int b = rgb[a] & 0xff;
+			int bestIndex = -1;
+			int bestError = Integer.MAX_VALUE;
+			for (int k = 0; k < size; k++) {
+				int dr = r - reds[k];
+				int dg = g - greens[k];
+				int db = b - blues[k];
+				int error = dr * dr + dg * dg + db * db;
+				if (error < bestError) {
+					bestError = error;
+					bestIndex = k;
+				}
+			}
+			checksum += bestIndex;
+		}
+		time = System.nanoTime() - time;
+		return getPixelsPerSecond(rgb.length, time, checksum);
+	}
+
+	static long measureLookup(ColorLUT lut, int[] rgb) {
+		long time = System.nanoTime();
+		long checksum = 0;
+		for (int a = 0; a < rgb.length; a++) {
+			int r = (rgb[a] >> 16) & 0xff;
+			int g = (rgb[a] >> 8) & 0xff;
+			int b = rgb[a] & 0xff;
+			checksum += lut.getIndexMatch(r, g, b);
+		}
+		time = System.nanoTime() - time;
+		return getPixelsPerSecond(rgb.length, time, checksum);
+	}
+
+	static long measureDiffusion(ColorLUT lut, BufferedImage image) {
+		long time = System.nanoTime();
+		BufferedImage result = ImageQuantization.MOST_DIFFUSION.createImage(
+				image, lut);
+		time = System.nanoTime() - time;
+		return getPixelsPerSecond(image.getWidth() * image.getHeight(), time,
+				result.getRGB(0, 0));
+	}
+
+	static long getPixelsPerSecond(long pixels, long nanos, long checksum) {
+		// reference the checksum so the JIT can't discard the work
+		if (checksum == Long.MIN_VALUE)
+			System.out.print("");
+		return pixels * 1000000000L / Math.max(1, nanos);
+	}
+
+	static IndexColorModel createPalette(Random random, int size) {
+		byte[] r = new byte[size];
+		byte[] g = new byte[size];
+		byte[] b = new byte[size];
+		random.nextBytes(r);
+		random.nextBytes(g);
+		random.nextBytes(b);
+		return new IndexColorModel(8, size, r, g, b);
+	}
+
+	static BufferedImage createImage(Random random) {
+		BufferedImage bi = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE,
+				BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < IMAGE_SIZE; y++) {
+			for (int x = 0; x < IMAGE_SIZE; x++) {
+				// smooth gradients with noise, similar to a photograph
+				int r = (x * 255 / IMAGE_SIZE + random.nextInt(16)) & 0xff;
+				int g = (y * 255 / IMAGE_SIZE + random.nextInt(16)) & 0xff;
+				int b = ((x + y) * 255 / (2 * IMAGE_SIZE) + random.nextInt(16)) & 0xff;
+				bi.setRGB(x, y, (r << 16) + (g << 8) + b);
+			}
+		}
+		return bi;
+	}
+}
@@ -0,0 +1,168 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.image.transition;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.pump.animation.AnimationReader;
+
+public class TransitionRendererTest extends TestCase {
+
+	static final int SIZE = 60;
+
+	/**
+	 * Confirm every frame the renderer reads matches painting the transition
+	 * directly, for a Transition2D and a Transition3D.
+	 */
+	@Test
+	public void testSameFramesAsPaint() throws IOException {
+		BufferedImage frameA = AbstractTransition.createImage(SIZE, "A",
+				true, true);
+		BufferedImage frameB = AbstractTransition.createImage(SIZE, "B",
+				false, true);
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			for (Transition transition : new Transition[] {
+					new WipeTransition2D(Transition.RIGHT),
+					new CubeTransition3D(Transition.LEFT, false) }) {
+				TransitionRenderer renderer = new TransitionRenderer(
+						transition, frameA, frameB, null, executor, 3,
+						TransitionRenderer.DEFAULT_MAX_CACHE_BYTES);
+				int frameCount = 12;
+				AnimationReader reader = renderer.createAnimationReader(
+						frameCount, .1f);
+				for (int a = 0; a < frameCount; a++) {
+					BufferedImage actual = reader.getNextFrame(a % 2 == 0);
+					BufferedImage expected = new BufferedImage(SIZE, SIZE,
+							BufferedImage.TYPE_INT_RGB);
+					Graphics2D g = expected.createGraphics();
+					transition.paint(g, frameA, frameB,
+							TransitionRenderer.getProgress(a, frameCount));
+					g.dispose();
+					assertSamePixels(transition + " frame " + a, expected,
+							actual);
+				}
+				assertNull(reader.getNextFrame(false));
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Confirm the frame cache discards old frames to stay within its limit,
+	 * and returns cached frames when it can.
+	 */
+	@Test
+	public void testCacheLimit() {
+		BufferedImage frameA = AbstractTransition.createImage(SIZE, "A",
+				true, true);
+		BufferedImage frameB = AbstractTransition.createImage(SIZE, "B",
+				false, true);
+		long frameBytes = 4 * SIZE * SIZE;
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			TransitionRenderer renderer = new TransitionRenderer(
+					new WipeTransition2D(), frameA, frameB, null, executor, 2,
+					3 * frameBytes);
+			renderer.prerender(10);
+			for (int a = 0; a < 10; a++) {
+				renderer.getFrame(TransitionRenderer.getProgress(a, 10));
+				assertTrue(renderer.getCachedByteCount() <= 3 * frameBytes);
+			}
+			BufferedImage last = renderer.getFrame(1);
+			assertSame(last, renderer.getFrame(1));
+			assertSame(renderer.getInstructions(.5f),
+					renderer.getInstructions(.5f));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Confirm that if getFrame() is interrupted while it waits for the
+	 * executor it restores the interrupt flag and throws an exception,
+	 * instead of rendering the frame again.
+	 */
+	@Test
+	public void testInterruptedGetFrame() throws Exception {
+		BufferedImage frameA = AbstractTransition.createImage(SIZE, "A",
+				true, true);
+		BufferedImage frameB = AbstractTransition.createImage(SIZE, "B",
+				false, true);
+		final CountDownLatch startedLatch = new CountDownLatch(1);
+		final CountDownLatch releaseLatch = new CountDownLatch(1);
+		final AtomicInteger paintCount = new AtomicInteger();
+		Transition transition = new Transition() {
+			@Override
+			public void paint(Graphics2D g, BufferedImage frameA,
+					BufferedImage frameB, float progress) {
+				paintCount.incrementAndGet();
+				startedLatch.countDown();
+				try {
+					releaseLatch.await();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		ExecutorService executor = Executors.newFixedThreadPool(1);
+		try {
+			TransitionRenderer renderer = new TransitionRenderer(transition,
+					frameA, frameB, null, executor, 1,
+					TransitionRenderer.DEFAULT_MAX_CACHE_BYTES);
+			renderer.prerender(1);
+			assertTrue(startedLatch.await(10, TimeUnit.SECONDS));
+
+			Thread.currentThread().interrupt();
+			try {
+				renderer.getFrame(1);
+				fail();
+			} catch (RuntimeException e) {
+				assertTrue(e.getCause() instanceof InterruptedException);
+			}
+			assertTrue(Thread.interrupted());
+			assertEquals(1, paintCount.get());
+		} finally {
+			releaseLatch.countDown();
+			executor.shutdown();
+		}
+	}
+
+	private void assertSamePixels(String id, BufferedImage expected,
+			BufferedImage actual) {
+		assertEquals(id, expected.getWidth(), actual.getWidth());
+		assertEquals(id, expected.getHeight(), actual.getHeight());
+		int[] expectedRow = new int[expected.getWidth()];
+		int[] actualRow = new int[actual.getWidth()];
+		for (int y = 0; y < expected.getHeight(); y++) {
+			expected.getRGB(0, y, expectedRow.length, 1, expectedRow, 0,
+					expectedRow.length);
+			actual.getRGB(0, y, actualRow.length, 1, actualRow, 0,
+					actualRow.length);
+			for (int x = 0; x < expectedRow.length; x++) {
+				assertEquals(id + " (" + x + ", " + y + ")", expectedRow[x],
+						actualRow[x]);
+			}
+		}
+	}
+}
@@ -0,0 +1,132 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.io;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.pump.io.CsvParser.Row;
+import com.pump.io.CsvParser.RowHandler;
+import com.pump.util.Receiver;
+
+/**
+ * This measures how long (in milliseconds) it takes to parse a 50 MB CSV file
+ * using each of CsvParser's modes.
+ * <p>
+ * This is not a unit test; run the <code>main</code> method directly.
+ */
+public class CsvParserBenchmark {
+
+	static final int TRIALS = 5;
+	static final long FILE_SIZE = 50 * 1024 * 1024;
+
+	public static void main(String[] args) throws Exception {
+		File file = File.createTempFile("CsvParserBenchmark", ".csv");
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime
+				.getRuntime().availableProcessors());
+		try {
+			writeFile(file);
+			System.out.println("Receiver:\t" + measure(file, 0, executor));
+			System.out.println("RowHandler:\t" + measure(file, 1, executor));
+			System.out.println("RowHandler, 2 columns:\t"
+					+ measure(file, 2, executor));
+			System.out.println("RowHandler, parallel:\t"
+					+ measure(file, 3, executor));
+		} finally {
+			executor.shutdown();
+			file.delete();
+		}
+	}
+
+	static void writeFile(File file) throws IOException {
+		Random random = new Random(0);
+		try (Writer w = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(file), StandardCharsets.UTF_8))) {
+			long size = 0;
+			while (size < FILE_SIZE) {
+				StringBuilder sb = new StringBuilder();
+				sb.append(random.nextInt(1000000)).append(',');
+				sb.append("name").append(random.nextInt(1000)).append(',');
+				sb.append("\"Street ").append(random.nextInt(100))
+						.append(", \"\"Apt\"\" ").append(random.nextInt(50))
+						.append("\",");
+				sb.append(random.nextDouble()).append(',');
+				sb.append("description of the item with some words ")
+						.append(random.nextInt()).append(',');
+				sb.append(random.nextBoolean()).append('\n');
+				w.write(sb.toString());
+				size += sb.length();
+			}
+		}
+	}
+
+	/**
+	 * Return the median number of milliseconds to parse a file.
+	 */
+	static double measure(File file, int mode, ExecutorService executor)
+			throws Exception {
+		double[] results = new double[TRIALS];
+		for (int a = 0; a < TRIALS; a++) {
+			final AtomicLong count = new AtomicLong();
+			RowHandler handler = new RowHandler() {
+				@Override
+				public void handleRow(Row row) {
+					long sum = 0;
+					for (int a = 0; a < row.getCellCount(); a++) {
+						sum += row.getLength(a);
+					}
+					count.addAndGet(sum);
+				}
+			};
+			long time = System.nanoTime();
+			CsvParser parser = new CsvParser();
+			if (mode == 0) {
+				try (InputStream in = new FileInputStream(file)) {
+					parser.parse(in, StandardCharsets.UTF_8,
+							new Receiver<List<String>>() {
+								@SuppressWarnings("unchecked")
+								@Override
+								public void add(List<String>... rows) {
+									count.addAndGet(rows.length);
+								}
+							});
+				}
+			} else if (mode == 3) {
+				parser.parseRows(file, StandardCharsets.UTF_8, executor,
+						handler);
+			} else {
+				if (mode == 2)
+					parser.setColumns(1, 2);
+				try (InputStream in = new FileInputStream(file)) {
+					parser.parseRows(in, StandardCharsets.UTF_8, handler);
+				}
+			}
+			results[a] = (System.nanoTime() - time) / 1000000.0;
+			if (count.get() == 0)
+				System.out.println("no rows");
+		}
+		Arrays.sort(results);
+		return Math.round(results[results.length / 2] * 10) / 10.0;
+	}
+}
@@ -0,0 +1,218 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+
+import com.pump.io.CsvParser.Row;
+import com.pump.io.CsvParser.RowHandler;
+import com.pump.util.Receiver;
+
+public class CsvParserTest extends TestCase {
+
+	public void testSimpleRows() throws IOException {
+		assertEquals(
+				Arrays.asList(Arrays.asList("a", "b", "c"),
+						Arrays.asList("1", "2", "3")),
+				parse(new CsvParser(), "a,b,c\r\n\r\n1,2,3\n"));
+		assertEquals(
+				Arrays.asList(Arrays.asList("a", ""), Arrays.asList("", "b"),
+						Arrays.asList("c", "")),
+				parse(new CsvParser(), "a,\n,b\nc,"));
+		assertEquals(Collections.emptyList(), parse(new CsvParser(), "\n\n"));
+	}
+
+	public void testQualifiedCells() throws IOException {
+		assertEquals(
+				Arrays.asList(Arrays.asList("say \"hi\"", "two\nlines", "x"),
+						Arrays.asList("a", "b"), Arrays.asList("end")),
+				parse(new CsvParser(),
+						"\"say \"\"hi\"\"\",\"two\nlines\",x\n\"a\" ,b\n\"end\""));
+		assertEquals(
+				Arrays.asList(Arrays.asList("a;b", "c")),
+				parse(new CsvParser(';', '\''), "'a;b';c"));
+
+		try {
+			parse(new CsvParser(), "a,b\n\"c\"d");
+			fail();
+		} catch (CsvParser.ParseException e) {
+			assertEquals(2, e.getLineNumber());
+			assertEquals(4, e.getPosition());
+		}
+	}
+
+	/**
+	 * Confirm rows that span several reads from the Reader are parsed
+	 * correctly.
+	 */
+	public void testSmallBuffer() throws IOException {
+		String text = createText(new Random(0), 500);
+		List<List<String>> expected = parse(new CsvParser(), text);
+		CsvParser parser = new CsvParser();
+		parser.bufferSize = 3;
+		assertEquals(expected, parse(parser, text));
+	}
+
+	public void testColumns() throws IOException {
+		CsvParser parser = new CsvParser();
+		parser.setColumns(0, 2);
+		assertEquals(
+				Arrays.asList(Arrays.asList("a", "c"), Arrays.asList("1", "3")),
+				parse(parser, "a,b,c,d\n1,2,3\n"));
+
+		final List<String> cells = new ArrayList<>();
+		parser.parseRows(new StringReader("a,\"b\"\"\",\"c\"\"\""),
+				new RowHandler() {
+					@Override
+					public void handleRow(Row row) {
+						assertEquals(3, row.getCellCount());
+						assertNull(row.getString(1));
+						assertEquals(-1, row.getLength(1));
+						assertEquals(2, row.getLength(2));
+						assertEquals('"', row.charAt(2, 1));
+						assertTrue(row.contentEquals(2, "c\""));
+						cells.add(row.getString(0));
+						cells.add(row.getString(2));
+					}
+				});
+		assertEquals(Arrays.asList("a", "c\""), cells);
+	}
+
+	/**
+	 * Confirm parsing a file on several threads produces the same rows as
+	 * parsing it on one thread.
+	 */
+	public void testParallel() throws Exception {
+		String text = createText(new Random(1), 2000);
+		File file = File.createTempFile("CsvParserTest", ".csv");
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			try (OutputStream out = new FileOutputStream(file)) {
+				out.write(text.getBytes(StandardCharsets.UTF_8));
+			}
+			final Map<Integer, List<String>> expected = new TreeMap<>();
+			final Map<Integer, List<String>> actual = new TreeMap<>();
+			new CsvParser().parseRows(new StringReader(text),
+					createHandler(expected));
+
+			CsvParser parser = new CsvParser();
+			parser.parallelChunkSize = 100;
+			parser.parseRows(file, StandardCharsets.UTF_8, executor,
+					createHandler(actual));
+			assertEquals(expected, actual);
+		} finally {
+			executor.shutdown();
+			file.delete();
+		}
+	}
+
+	/**
+	 * Confirm chunks are ended early so they are never larger than
+	 * {@link CsvParser#MAX_CHUNK_SIZE}, and a row that is larger than that
+	 * causes an exception.
+	 */
+	public void testMaxChunkSize() throws Exception {
+		String text = createText(new Random(2), 2000);
+		File file = File.createTempFile("CsvParserTest", ".csv");
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			try (OutputStream out = new FileOutputStream(file)) {
+				out.write(text.getBytes(StandardCharsets.UTF_8));
+			}
+			final Map<Integer, List<String>> expected = new TreeMap<>();
+			final Map<Integer, List<String>> actual = new TreeMap<>();
+			new CsvParser().parseRows(new StringReader(text),
+					createHandler(expected));
+
+			// no row in this text is longer than 100 bytes
+			CsvParser parser = new CsvParser();
+			parser.parallelChunkSize = 1000;
+			parser.maxChunkSize = 100;
+			parser.parseRows(file, StandardCharsets.UTF_8, executor,
+					createHandler(actual));
+			assertEquals(expected, actual);
+
+			parser.maxChunkSize = 10;
+			try {
+				parser.parseRows(file, StandardCharsets.UTF_8, executor,
+						createHandler(new TreeMap<Integer, List<String>>()));
+				fail();
+			} catch (IOException e) {
+				// pass
+			}
+		} finally {
+			executor.shutdown();
+			file.delete();
+		}
+	}
+
+	private static RowHandler createHandler(
+			final Map<Integer, List<String>> rows) {
+		return new RowHandler() {
+			@Override
+			public void handleRow(Row row) {
+				List<String> list = new ArrayList<>();
+				for (int a = 0; a < row.getCellCount(); a++) {
+					list.add(row.getString(a));
+				}
+				synchronized (rows) {
+					assertNull(rows.put(row.getRowNumber(), list));
+				}
+			}
+		};
+	}
+
+	private static String createText(Random random, int rowCount) {
+		String[] cells = new String[] { "", "plain", "\"quoted, cell\"",
+				"\"two\nlines\"", "\"\"\"escaped\"\"\"", "été",
+				"\"\r\n\"" };
+		StringBuilder sb = new StringBuilder();
+		for (int a = 0; a < rowCount; a++) {
+			int cellCount = 1 + random.nextInt(5);
+			for (int b = 0; b < cellCount; b++) {
+				if (b > 0)
+					sb.append(',');
+				sb.append(cells[random.nextInt(cells.length)]);
+			}
+			sb.append(random.nextInt(10) == 0 ? "\r\n\n" : "\n");
+		}
+		return sb.toString();
+	}
+
+	private static List<List<String>> parse(CsvParser parser, String text)
+			throws IOException {
+		final List<List<String>> rows = new ArrayList<>();
+		parser.parse(new StringReader(text), new Receiver<List<String>>() {
+			@SuppressWarnings("unchecked")
+			@Override
+			public void add(List<String>... elements) {
+				rows.addAll(Arrays.asList(elements));
+			}
+		});
+		return rows;
+	}
+}
@@ -0,0 +1,112 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This measures how long (in milliseconds) it takes to walk a deep tree and a
+ * wide tree using the FileTreeIterator and the ParallelFileTreeIterator.
+ * <p>
+ * The deep tree has 8 levels of directories, each with 3 subdirectories and 4
+ * files. The wide tree has 200 directories that each contain 250 files.
+ * <p>
+ * This is not a unit test; run the <code>main</code> method directly.
+ */
+public class ParallelFileTreeIteratorBenchmark {
+
+	static final int TRIALS = 5;
+
+	public static void main(String[] args) throws Exception {
+		ForkJoinPool pool = new ForkJoinPool();
+		File deep = Files.createTempDirectory("deep").toFile()
+				.getCanonicalFile();
+		File wide = Files.createTempDirectory("wide").toFile()
+				.getCanonicalFile();
+		try {
+			createDeepTree(deep, 8);
+			createWideTree(wide);
+			System.out.println("Tree\tIterator\tMedian (ms)");
+			for (File root : new File[] { deep, wide }) {
+				String name = root == deep ? "Deep" : "Wide";
+				System.out.println(name + "\tFileTreeIterator\t"
+						+ measure(root, pool, 0));
+				System.out.println(name
+						+ "\tParallelFileTreeIterator, ordered\t"
+						+ measure(root, pool, 1));
+				System.out.println(name
+						+ "\tParallelFileTreeIterator, unordered\t"
+						+ measure(root, pool, 2));
+			}
+		} finally {
+			pool.shutdown();
+			IOUtils.delete(deep);
+			IOUtils.delete(wide);
+		}
+	}
+
+	static void createDeepTree(File dir, int depth) throws IOException {
+		for (int a = 0; a < 4; a++) {
+			new File(dir, "file" + a + ".txt").createNewFile();
+		}
+		if (depth > 0) {
+			for (int a = 0; a < 3; a++) {
+				File child = new File(dir, "dir" + a);
+				child.mkdir();
+				createDeepTree(child, depth - 1);
+			}
+		}
+	}
+
+	static void createWideTree(File dir) throws IOException {
+		for (int a = 0; a < 200; a++) {
+			File child = new File(dir, "dir" + a);
+			child.mkdir();
+			for (int b = 0; b < 250; b++) {
+				new File(child, "file" + b + ".txt").createNewFile();
+			}
+		}
+	}
+
+	/**
+	 * Return the median number of milliseconds to walk a tree.
+	 */
+	static double measure(File root, ForkJoinPool pool, int mode)
+			throws Exception {
+		double[] results = new double[TRIALS];
+		for (int a = 0; a < TRIALS; a++) {
+			long time = System.nanoTime();
+			Iterator<File> iter;
+			if (mode == 0) {
+				iter = new FileTreeIterator(root);
+			} else {
+				iter = new ParallelFileTreeIterator(root, null, pool,
+						mode == 1,
+						ParallelFileTreeIterator.getDefaultCapacity());
+			}
+			int count = 0;
+			while (iter.hasNext()) {
+				iter.next();
+				count++;
+			}
+			results[a] = (System.nanoTime() - time) / 1000000.0;
+			if (count == 0)
+				System.out.println("no files");
+		}
+		Arrays.sort(results);
+		return Math.round(results[results.length / 2] * 10) / 10.0;
+	}
+}
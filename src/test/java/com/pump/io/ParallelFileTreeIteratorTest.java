@@ -0,0 +1,164 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.io;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.pump.io.location.IOLocation;
+import com.pump.io.location.IOLocationTreeIterator;
+import com.pump.io.location.LocationFactory;
+import com.pump.io.location.ParallelIOLocationTreeIterator;
+
+public class ParallelFileTreeIteratorTest extends TestCase {
+
+	/**
+	 * Confirm the ParallelFileTreeIterator returns the same files as the
+	 * FileTreeIterator, in the same order when it is ordered.
+	 */
+	@Test
+	public void testSameFilesAsFileTreeIterator() throws IOException {
+		File root = createTree();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (FileFilter filter : new FileFilter[] { null,
+					new SuffixFilenameFilter("txt") }) {
+				List<File> expected = new ArrayList<>();
+				FileTreeIterator iter = new FileTreeIterator(root, filter);
+				while (iter.hasNext()) {
+					expected.add(iter.next());
+				}
+				assertTrue(expected.size() > 100);
+
+				for (int capacity : new int[] { 1, 3, 1000 }) {
+					List<File> ordered = list(new ParallelFileTreeIterator(
+							root, filter, pool, true, capacity));
+					assertEquals(expected, ordered);
+
+					List<File> unordered = list(new ParallelFileTreeIterator(
+							root, filter, pool, false, capacity));
+					Collections.sort(unordered);
+					List<File> sortedExpected = new ArrayList<>(expected);
+					Collections.sort(sortedExpected);
+					assertEquals(sortedExpected, unordered);
+				}
+			}
+
+			// (the IOLocationTreeIterator would follow the link forever)
+			IOLocation rootLocation = LocationFactory.get()
+					.createFileLocation(new File(root, "dir0"));
+			List<IOLocation> expected = new ArrayList<>();
+			IOLocationTreeIterator iter = new IOLocationTreeIterator(
+					rootLocation, false, null);
+			while (iter.hasNext()) {
+				expected.add(iter.next());
+			}
+			List<IOLocation> actual = list(new ParallelIOLocationTreeIterator(
+					rootLocation, false, null, pool, true, 2));
+			assertEquals(toPaths(expected), toPaths(actual));
+		} finally {
+			pool.shutdown();
+			deleteTree(root);
+		}
+	}
+
+	/**
+	 * Confirm closing an iterator early stops it without an exception, even
+	 * when its tasks are blocked waiting for room in its queue.
+	 */
+	@Test
+	public void testClose() throws Exception {
+		File root = createTree();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			for (boolean ordered : new boolean[] { true, false }) {
+				ParallelFileTreeIterator iter = new ParallelFileTreeIterator(
+						root, null, pool, ordered, 1);
+				for (int a = 0; a < 5; a++) {
+					assertNotNull(iter.next());
+				}
+				iter.close();
+				assertFalse(iter.hasNext());
+			}
+			assertTrue(pool.awaitQuiescence(10, TimeUnit.SECONDS));
+		} finally {
+			pool.shutdown();
+			deleteTree(root);
+		}
+	}
+
+	private static <T> List<T> list(Iterator<T> iter) {
+		List<T> returnValue = new ArrayList<>();
+		while (iter.hasNext()) {
+			returnValue.add(iter.next());
+		}
+		return returnValue;
+	}
+
+	private static List<String> toPaths(List<IOLocation> locations) {
+		List<String> returnValue = new ArrayList<>();
+		for (IOLocation location : locations) {
+			returnValue.add(location.getPath());
+		}
+		return returnValue;
+	}
+
+	/**
+	 * Create a directory that is both deep and wide, and that includes a
+	 * symbolic link back to its root.
+	 */
+	private static File createTree() throws IOException {
+		File root = Files.createTempDirectory("ParallelFileTreeIteratorTest")
+				.toFile().getCanonicalFile();
+		createTree(root, 4);
+		try {
+			Files.createSymbolicLink(new File(root, "link").toPath(),
+					root.toPath());
+		} catch (UnsupportedOperationException e) {
+			// this platform doesn't support links
+		}
+		for (int a = 0; a < 50; a++) {
+			new File(root, "wide" + a + ".txt").createNewFile();
+		}
+		return root;
+	}
+
+	private static void deleteTree(File root) {
+		new File(root, "link").delete();
+		IOUtils.delete(root);
+	}
+
+	private static void createTree(File dir, int depth) throws IOException {
+		for (int a = 0; a < 3; a++) {
+			new File(dir, "file" + a + (a == 0 ? ".txt" : ".dat"))
+					.createNewFile();
+		}
+		if (depth > 0) {
+			for (int a = 0; a < 3; a++) {
+				File child = new File(dir, "dir" + a);
+				child.mkdir();
+				createTree(child, depth - 1);
+			}
+		}
+	}
+}
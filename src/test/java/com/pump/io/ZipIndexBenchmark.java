@@ -0,0 +1,130 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * This measures how long (in milliseconds) it takes to list the entries of a
+ * zip archive with 5000 entries (100 MB uncompressed) and to read its last
+ * entry, using a ZipInputStream and using a ZipIndex.
+ * <p>
+ * This is not a unit test; run the <code>main</code> method directly.
+ */
+public class ZipIndexBenchmark {
+
+	static final int TRIALS = 5;
+	static final int ENTRY_COUNT = 5000;
+	static final int ENTRY_SIZE = 20000;
+
+	public static void main(String[] args) throws Exception {
+		File file = File.createTempFile("ZipIndexBenchmark", ".zip");
+		try {
+			String lastName = writeFile(file);
+			System.out.println("List entries, ZipInputStream:\t"
+					+ measure(file, null, false));
+			System.out.println("List entries, ZipIndex:\t"
+					+ measure(file, null, true));
+			System.out.println("Read last entry, ZipInputStream:\t"
+					+ measure(file, lastName, false));
+			System.out.println("Read last entry, ZipIndex:\t"
+					+ measure(file, lastName, true));
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Write a zip archive of compressible entries and return the name of the
+	 * last entry.
+	 */
+	static String writeFile(File file) throws IOException {
+		Random random = new Random(0);
+		String name = null;
+		try (ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(
+				file))) {
+			byte[] data = new byte[ENTRY_SIZE];
+			for (int a = 0; a < ENTRY_COUNT; a++) {
+				for (int b = 0; b < data.length; b++) {
+					data[b] = (byte) ('a' + random.nextInt(4));
+				}
+				name = "dir" + (a / 100) + "/entry" + a + ".txt";
+				zipOut.putNextEntry(new ZipEntry(name));
+				zipOut.write(data);
+				zipOut.closeEntry();
+			}
+		}
+		return name;
+	}
+
+	/**
+	 * Return the median number of milliseconds to either list all entries (if
+	 * <code>entryName</code> is null) or to read one entry.
+	 */
+	static double measure(File file, String entryName, boolean useIndex)
+			throws Exception {
+		double[] results = new double[TRIALS];
+		byte[] buffer = new byte[4096];
+		for (int a = 0; a < TRIALS; a++) {
+			long time = System.nanoTime();
+			long count = 0;
+			if (useIndex) {
+				// don't use the cache: we want to measure reading the index
+				ZipIndex index = new ZipIndex(file);
+				if (entryName == null) {
+					count = index.getEntries().size();
+				} else {
+					try (InputStream in = index.createInputStream(entryName)) {
+						count = read(in, buffer);
+					}
+				}
+			} else {
+				try (ZipInputStream zipIn = new ZipInputStream(
+						new FileInputStream(file))) {
+					ZipEntry entry = zipIn.getNextEntry();
+					while (entry != null) {
+						if (entryName == null) {
+							count++;
+						} else if (entry.getName().equals(entryName)) {
+							count = read(zipIn, buffer);
+							break;
+						}
+						entry = zipIn.getNextEntry();
+					}
+				}
+			}
+			results[a] = (System.nanoTime() - time) / 1000000.0;
+			if (count == 0)
+				System.out.println("nothing read");
+		}
+		Arrays.sort(results);
+		return Math.round(results[results.length / 2] * 10) / 10.0;
+	}
+
+	private static long read(InputStream in, byte[] buffer) throws IOException {
+		long total = 0;
+		int k = in.read(buffer);
+		while (k != -1) {
+			total += k;
+			k = in.read(buffer);
+		}
+		return total;
+	}
+}
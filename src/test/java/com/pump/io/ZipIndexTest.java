@@ -0,0 +1,261 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.pump.io.location.IOLocation;
+import com.pump.io.location.LocationFactory;
+import com.pump.io.location.ZipArchiveLocation;
+
+public class ZipIndexTest extends TestCase {
+
+	/**
+	 * This ZipIterator returns the name and data of each entry.
+	 */
+	static class DataIterator extends ZipIterator<String> {
+
+		public DataIterator(File file, ExecutorService executor)
+				throws Exception {
+			super(file, executor, 4);
+		}
+
+		public DataIterator(URL url) throws Exception {
+			super(url);
+		}
+
+		@Override
+		protected String parseZipEntry(InputStream inputStream,
+				ZipEntry zipEntry) throws Exception {
+			return zipEntry.getName() + ":"
+					+ Arrays.toString(readAll(inputStream));
+		}
+	}
+
+	static final ZipIndex.EntryParser<byte[]> READ_ALL = new ZipIndex.EntryParser<byte[]>() {
+		@Override
+		public byte[] parse(InputStream inputStream, ZipEntry zipEntry)
+				throws Exception {
+			return readAll(inputStream);
+		}
+	};
+
+	/**
+	 * Confirm the entries and data a ZipIndex reads match what a ZipFile
+	 * reads.
+	 */
+	@Test
+	public void testSameEntriesAsZipFile() throws Exception {
+		File file = createZip();
+		try (ZipFile zipFile = new ZipFile(file)) {
+			ZipIndex index = new ZipIndex(file);
+			Enumeration<? extends ZipEntry> e = zipFile.entries();
+			int ctr = 0;
+			while (e.hasMoreElements()) {
+				ZipEntry expected = e.nextElement();
+				ZipEntry actual = index.getEntries().get(ctr++);
+				String name = expected.getName();
+				assertEquals(name, actual.getName());
+				assertSame(actual, index.getEntry(name));
+				assertEquals(name, expected.getMethod(), actual.getMethod());
+				assertEquals(name, expected.getSize(), actual.getSize());
+				assertEquals(name, expected.getCompressedSize(),
+						actual.getCompressedSize());
+				assertEquals(name, expected.getCrc(), actual.getCrc());
+				assertEquals(name, expected.getTime(), actual.getTime());
+				assertEquals(name, expected.getComment(), actual.getComment());
+				assertEquals(name, expected.isDirectory(),
+						actual.isDirectory());
+
+				try (InputStream in = zipFile.getInputStream(expected)) {
+					byte[] expectedData = readAll(in);
+					try (InputStream in2 = index.createInputStream(name)) {
+						assertTrue(name,
+								Arrays.equals(expectedData, readAll(in2)));
+					}
+				}
+			}
+			assertEquals(ctr, index.getEntries().size());
+			assertNull(index.getEntry("missing.txt"));
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Confirm parallel extraction, the ZipIterator and the ZipArchiveLocation
+	 * all agree with reading the archive sequentially.
+	 */
+	@Test
+	public void testParallelExtraction() throws Exception {
+		File file = createZip();
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			ZipIndex index = ZipIndex.get(file);
+			assertSame(index, ZipIndex.get(file));
+
+			List<byte[]> sequential = index.parseEntries(index.getEntries(),
+					null, READ_ALL);
+			List<byte[]> parallel = index.parseEntries(index.getEntries(),
+					executor, READ_ALL);
+			assertEquals(sequential.size(), parallel.size());
+			for (int a = 0; a < sequential.size(); a++) {
+				assertTrue(Arrays.equals(sequential.get(a), parallel.get(a)));
+			}
+
+			List<String> streamed = new ArrayList<>();
+			try (DataIterator iter = new DataIterator(file.toURI().toURL())) {
+				while (iter.hasNext()) {
+					streamed.add(iter.next());
+				}
+			}
+			for (ExecutorService e : new ExecutorService[] { null, executor }) {
+				List<String> indexed = new ArrayList<>();
+				try (DataIterator iter = new DataIterator(file, e)) {
+					assertNotNull(iter.zipIndex);
+					while (iter.hasNext()) {
+						indexed.add(iter.next());
+					}
+				}
+				assertEquals(streamed, indexed);
+			}
+
+			IOLocation root = new ZipArchiveLocation(LocationFactory.get()
+					.createFileLocation(file));
+			TreeSet<String> names = new TreeSet<>();
+			for (IOLocation child : root.listChildren(null, null)) {
+				names.add(child.getName());
+			}
+			assertEquals(new TreeSet<>(Arrays.asList("images", "readme.txt",
+					"stored.bin", "text")), names);
+		} finally {
+			executor.shutdown();
+			file.delete();
+		}
+	}
+
+	/**
+	 * Confirm we read the ZIP64 records used by archives with more than 65535
+	 * entries.
+	 */
+	@Test
+	public void testZip64() throws Exception {
+		File file = File.createTempFile("ZipIndexTest", ".zip");
+		try {
+			int entryCount = 70000;
+			try (ZipOutputStream zipOut = new ZipOutputStream(
+					new FileOutputStream(file))) {
+				for (int a = 0; a < entryCount; a++) {
+					zipOut.putNextEntry(new ZipEntry("entry" + a + ".txt"));
+					zipOut.write(Integer.toString(a).getBytes("UTF-8"));
+					zipOut.closeEntry();
+				}
+			}
+			ZipIndex index = new ZipIndex(file);
+			assertEquals(entryCount, index.getEntries().size());
+			String name = "entry" + (entryCount - 1) + ".txt";
+			assertEquals(name, index.getEntries().get(entryCount - 1)
+					.getName());
+			try (InputStream in = index.createInputStream(name)) {
+				assertEquals(Integer.toString(entryCount - 1), new String(
+						readAll(in), "UTF-8"));
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Create a zip archive with directories, stored and deflated entries, and
+	 * comments.
+	 */
+	private static File createZip() throws IOException {
+		File file = File.createTempFile("ZipIndexTest", ".zip");
+		Random random = new Random(0);
+		try (ZipOutputStream zipOut = new ZipOutputStream(new FileOutputStream(
+				file))) {
+			zipOut.setComment("archive comment");
+
+			zipOut.putNextEntry(new ZipEntry("text/"));
+			zipOut.closeEntry();
+
+			for (int a = 0; a < 20; a++) {
+				ZipEntry entry = new ZipEntry("text/file" + a + ".txt");
+				entry.setTime(1500000000000L + a * 86400000L);
+				if (a % 3 == 0)
+					entry.setComment("comment " + a);
+				zipOut.putNextEntry(entry);
+				for (int b = 0; b < a * 100; b++) {
+					zipOut.write(("line " + b + "\n").getBytes("UTF-8"));
+				}
+				zipOut.closeEntry();
+			}
+
+			for (int a = 0; a < 5; a++) {
+				zipOut.putNextEntry(new ZipEntry("images/random" + a + ".dat"));
+				byte[] data = new byte[10000 * a];
+				random.nextBytes(data);
+				zipOut.write(data);
+				zipOut.closeEntry();
+			}
+
+			byte[] stored = new byte[5000];
+			random.nextBytes(stored);
+			CRC32 crc = new CRC32();
+			crc.update(stored);
+			ZipEntry storedEntry = new ZipEntry("stored.bin");
+			storedEntry.setMethod(ZipEntry.STORED);
+			storedEntry.setSize(stored.length);
+			storedEntry.setCompressedSize(stored.length);
+			storedEntry.setCrc(crc.getValue());
+			zipOut.putNextEntry(storedEntry);
+			zipOut.write(stored);
+			zipOut.closeEntry();
+
+			zipOut.putNextEntry(new ZipEntry("readme.txt"));
+			zipOut.write("read me".getBytes("UTF-8"));
+			zipOut.closeEntry();
+		}
+		return file;
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int k = in.read(buffer);
+		while (k != -1) {
+			out.write(buffer, 0, k);
+			k = in.read(buffer);
+		}
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,110 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.io.parser;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Random;
+
+import com.pump.io.parser.java.JavaParser;
+import com.pump.util.Receiver;
+
+/**
+ * This measures how long (in milliseconds) it takes to update the tokens of a
+ * 20,000-line Java file after a single-character edit, by re-parsing the
+ * entire file and by using an {@link IncrementalParser}.
+ * <p>
+ * This is not a unit test; run the <code>main</code> method directly.
+ */
+public class IncrementalParserBenchmark {
+
+	static final int TRIALS = 5;
+	static final int EDITS = 1000;
+
+	public static void main(String[] args) throws Exception {
+		String text = createDocument(20000);
+		System.out.println("Full parse (ms)\tIncremental edit (ms)");
+		System.out.println(measureFullParse(text) + "\t"
+				+ measureIncrementalEdits(text));
+	}
+
+	/**
+	 * Return the median number of milliseconds to parse the whole document.
+	 */
+	static double measureFullParse(String text) throws Exception {
+		JavaParser parser = new JavaParser();
+		Receiver<Token> receiver = new Receiver<Token>() {
+			@Override
+			public void add(Token... elements) {
+			}
+		};
+		double[] results = new double[TRIALS];
+		for (int a = 0; a < TRIALS; a++) {
+			long time = System.nanoTime();
+			parser.parse(new StringReader(text), receiver);
+			time = System.nanoTime() - time;
+			results[a] = time / 1000000.0;
+		}
+		return median(results);
+	}
+
+	/**
+	 * Return the median number of milliseconds to apply {@link #EDITS}
+	 * single-character edits, divided by the number of edits.
+	 */
+	static double measureIncrementalEdits(String text) {
+		double[] results = new double[TRIALS];
+		for (int a = 0; a < TRIALS; a++) {
+			IncrementalParser p = new IncrementalParser(new JavaParser(), text);
+			Random random = new Random(a);
+			long time = System.nanoTime();
+			for (int b = 0; b < EDITS; b++) {
+				int offset = random.nextInt(p.getText().length());
+				if (b % 2 == 0) {
+					p.edit(offset, 0, "x");
+				} else {
+					p.edit(offset, 1, "");
+				}
+			}
+			time = System.nanoTime() - time;
+			results[a] = time / 1000000.0 / EDITS;
+		}
+		return median(results);
+	}
+
+	static double median(double[] results) {
+		Arrays.sort(results);
+		return Math.round(results[results.length / 2] * 1000) / 1000.0;
+	}
+
+	static String createDocument(int lineCount) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("public class Example {\n");
+		for (int a = 1; a < lineCount - 1; a++) {
+			switch (a % 4) {
+			case 0:
+				sb.append("\t/** Return value " + a + ". */\n");
+				break;
+			case 1:
+				sb.append("\tpublic int method" + a + "(int x) {\n");
+				break;
+			case 2:
+				sb.append("\t\treturn x + \"text\".length() + " + a
+						+ "; // comment\n");
+				break;
+			default:
+				sb.append("\t}\n");
+			}
+		}
+		sb.append("}\n");
+		return sb.toString();
+	}
+}
@@ -0,0 +1,153 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.io.parser;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import com.pump.io.parser.Parser.UnparsedToken;
+import com.pump.io.parser.java.JavaParser;
+import com.pump.io.parser.xml.XMLParser;
+import com.pump.util.Receiver;
+
+public class IncrementalParserTest extends TestCase {
+
+	static final String[] JAVA_FRAGMENTS = new String[] { "int", " ", "\n",
+			"\t", "x", "=", "1.5f", ";", "{", "}", "(", ")", "\"str\"", "\"",
+			"'c'", "'", "/*", "*/", "//", "0x1F", "return", ".", "+", "\\" };
+
+	static final String[] XML_FRAGMENTS = new String[] { "<", ">", "</",
+			"/>", "a", "b", " ", "\n", "=", "\"v\"", "\"", "<!--", "-->",
+			"text", "&amp;" };
+
+	/**
+	 * Make random edits to a Java document and confirm the tokens always
+	 * match a complete parse of the document.
+	 */
+	public void testJavaEdits() throws Exception {
+		StringBuilder sb = new StringBuilder();
+		for (int a = 0; a < 50; a++) {
+			sb.append("\tpublic int method" + a + "(int x) { /* comment "
+					+ a + " */ return x + \"str\".length() + 0x" + a
+					+ "; } // line " + a + "\n");
+		}
+		testEdits(new JavaParser(), sb.toString(), JAVA_FRAGMENTS);
+	}
+
+	/**
+	 * Make random edits to an XML document and confirm the tokens always
+	 * match a complete parse of the document.
+	 */
+	public void testXMLEdits() throws Exception {
+		StringBuilder sb = new StringBuilder("<?xml version=\"1.0\"?>\n<root>\n");
+		for (int a = 0; a < 30; a++) {
+			sb.append("\t<item id=\"" + a + "\" name='n" + a
+					+ "'>text &amp; more</item> <!-- comment " + a + " -->\n");
+		}
+		sb.append("</root>");
+		testEdits(new XMLParser(), sb.toString(), XML_FRAGMENTS);
+	}
+
+	private void testEdits(Parser parser, String text, String[] fragments)
+			throws Exception {
+		Random random = new Random(0);
+		IncrementalParser p = new IncrementalParser(parser, text);
+		assertTokens(parser, p);
+		for (int a = 0; a < 150; a++) {
+			int offset = random.nextInt(text.length() + 1);
+			int removed = 0;
+			String inserted = "";
+			int k = random.nextInt(3);
+			if (k == 0 || k == 2) {
+				removed = Math.min(random.nextInt(3),
+						text.length() - offset);
+			}
+			if (k == 1 || k == 2) {
+				inserted = fragments[random.nextInt(fragments.length)];
+			}
+			text = text.substring(0, offset) + inserted
+					+ text.substring(offset + removed);
+			Token[] oldTokens = p.getTokens();
+			int[] oldPositions = getPositions(oldTokens);
+			p.edit(offset, removed, inserted);
+			assertEquals(text, p.getText());
+			assertTokens(parser, p);
+
+			// edits replace tokens instead of moving them:
+			assertTrue(Arrays.equals(oldPositions,
+					getPositions(oldTokens)));
+		}
+
+		p.setText(text.substring(text.length() / 2) + "\n"
+				+ text.substring(0, text.length() / 2));
+		assertTokens(parser, p);
+	}
+
+	private void assertTokens(Parser parser, IncrementalParser p)
+			throws Exception {
+		final String text = p.getText();
+		final List<Token> expected = new ArrayList<>();
+		try {
+			parser.parse(new StringReader(text), new Receiver<Token>() {
+				@Override
+				public void add(Token... elements) {
+					for (Token t : elements) {
+						expected.add(t);
+					}
+				}
+			});
+		} catch (ParserException e) {
+			int pos = expected.isEmpty() ? 0 : expected.get(
+					expected.size() - 1).getDocumentEndIndex();
+			expected.add(new UnparsedToken(pos, text, e));
+		}
+		Token[] actual = p.getTokens();
+		assertEquals(expected.size(), actual.length);
+		for (int a = 0; a < actual.length; a++) {
+			Token e = expected.get(a);
+			if (!isSame(e, actual[a]))
+				fail("token " + a + " " + e + " != " + actual[a]);
+		}
+	}
+
+	private boolean isSame(Token t1, Token t2) {
+		if (t1.getClass() != t2.getClass()
+				|| !t1.getText().equals(t2.getText())
+				|| t1.getDocumentStartIndex() != t2.getDocumentStartIndex()
+				|| t1.getLineNumber() != t2.getLineNumber()
+				|| t1.getStartIndex() != t2.getStartIndex())
+			return false;
+		if (t1 instanceof MatchingToken) {
+			Token m1 = ((MatchingToken<?>) t1).getMatch();
+			Token m2 = ((MatchingToken<?>) t2).getMatch();
+			int i1 = m1 == null ? -1 : m1.getDocumentStartIndex();
+			int i2 = m2 == null ? -1 : m2.getDocumentStartIndex();
+			if (i1 != i2)
+				return false;
+		}
+		return true;
+	}
+
+	private int[] getPositions(Token[] tokens) {
+		int[] positions = new int[3 * tokens.length];
+		for (int a = 0; a < tokens.length; a++) {
+			positions[3 * a] = tokens[a].getDocumentStartIndex();
+			positions[3 * a + 1] = tokens[a].getLineNumber();
+			positions[3 * a + 2] = tokens[a].getStartIndex();
+		}
+		return positions;
+	}
+}
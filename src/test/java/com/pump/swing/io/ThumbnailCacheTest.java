@@ -0,0 +1,372 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.swing.io;
+
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.pump.io.IOUtils;
+import com.pump.io.location.IOLocation;
+import com.pump.io.location.LocationFactory;
+import com.pump.swing.BasicCancellable;
+import com.pump.swing.Cancellable;
+
+public class ThumbnailCacheTest extends TestCase {
+
+	/**
+	 * A ThumbnailCache that creates a small image for every location, and
+	 * counts how many images it created. Locations whose name starts with
+	 * "fail" throw an exception instead.
+	 */
+	static class CountingThumbnailCache extends ThumbnailCache {
+		final AtomicInteger createCount = new AtomicInteger();
+
+		CountingThumbnailCache(File directory, long maxMemoryBytes,
+				int threadCount) {
+			this(directory, maxMemoryBytes, Long.MAX_VALUE, threadCount);
+		}
+
+		CountingThumbnailCache(File directory, long maxMemoryBytes,
+				long maxDiskBytes, int threadCount) {
+			super(directory, maxMemoryBytes, maxDiskBytes, threadCount);
+		}
+
+		@Override
+		protected BufferedImage createThumbnail(IOLocation location,
+				Dimension size, Cancellable cancellable) {
+			createCount.incrementAndGet();
+			if (location.getName().startsWith("fail"))
+				throw new IllegalStateException(location.getName());
+			if (location.getName().startsWith("none"))
+				return null;
+			return new BufferedImage(size.width, size.height,
+					BufferedImage.TYPE_INT_ARGB);
+		}
+	}
+
+	static final Dimension SIZE = new Dimension(10, 10);
+
+	/**
+	 * Confirm thumbnails are read from memory, then from disk (by a second
+	 * cache), and are created again when the file changes.
+	 */
+	@Test
+	public void testMemoryAndDiskTiers() throws Exception {
+		File dir = Files.createTempDirectory("ThumbnailCacheTest").toFile();
+		try {
+			File cacheDir = new File(dir, "cache");
+			File file = createFile(dir, "a.txt", 10);
+			File noneFile = createFile(dir, "none.txt", 10);
+
+			CountingThumbnailCache cache1 = new CountingThumbnailCache(
+					cacheDir, 1000000, 1);
+			assertNull(cache1.get(getLocation(file), SIZE));
+			BufferedImage image = cache1.load(getLocation(file), SIZE, null);
+			assertEquals(10, image.getWidth());
+			assertEquals(1, cache1.createCount.get());
+			assertSame(image, cache1.get(getLocation(file), SIZE));
+			assertSame(image, cache1.load(getLocation(file), SIZE, null));
+			assertNull(cache1.load(getLocation(noneFile), SIZE, null));
+			assertTrue(cache1.isUnavailable(getLocation(noneFile), SIZE));
+			assertEquals(2, cache1.createCount.get());
+
+			CountingThumbnailCache cache2 = new CountingThumbnailCache(
+					cacheDir, 1000000, 1);
+			image = cache2.load(getLocation(file), SIZE, null);
+			assertEquals(10, image.getWidth());
+			assertNull(cache2.load(getLocation(noneFile), SIZE, null));
+			assertEquals(0, cache2.createCount.get());
+
+			// a different size is a different thumbnail:
+			image = cache2.load(getLocation(file), new Dimension(20, 20),
+					null);
+			assertEquals(20, image.getWidth());
+			assertEquals(1, cache2.createCount.get());
+
+			createFile(dir, "a.txt", 20);
+			file.setLastModified(file.lastModified() - 10000);
+			assertNull(cache2.get(getLocation(file), SIZE));
+			cache2.load(getLocation(file), SIZE, null);
+			assertEquals(2, cache2.createCount.get());
+
+			// an image that doesn't produce a thumbnail may be a transient
+			// failure, so that is only remembered in memory:
+			File brokenImage = createFile(dir, "none.png", 10);
+			assertNull(cache2.load(getLocation(brokenImage), SIZE, null));
+			assertTrue(cache2.isUnavailable(getLocation(brokenImage), SIZE));
+			assertEquals(3, cache2.createCount.get());
+			CountingThumbnailCache cache3 = new CountingThumbnailCache(
+					cacheDir, 1000000, 1);
+			assertNull(cache3.load(getLocation(brokenImage), SIZE, null));
+			assertNull(cache3.load(getLocation(noneFile), SIZE, null));
+			assertEquals(1, cache3.createCount.get());
+		} finally {
+			IOUtils.delete(dir);
+		}
+	}
+
+	/**
+	 * Confirm the memory tier never holds more bytes than it is allowed to.
+	 */
+	@Test
+	public void testMemoryLimit() throws Exception {
+		File dir = Files.createTempDirectory("ThumbnailCacheTest").toFile();
+		try {
+			// each thumbnail is 400 bytes, so only 2 fit
+			CountingThumbnailCache cache = new CountingThumbnailCache(null,
+					1000, 1);
+			List<IOLocation> locs = new ArrayList<>();
+			for (int a = 0; a < 5; a++) {
+				locs.add(getLocation(createFile(dir, "file" + a, a)));
+				cache.load(locs.get(a), SIZE, null);
+				assertTrue(cache.getMemoryByteCount() <= 1000);
+			}
+			assertEquals(800, cache.getMemoryByteCount());
+			assertNull(cache.get(locs.get(0), SIZE));
+			assertNotNull(cache.get(locs.get(3), SIZE));
+			assertNotNull(cache.get(locs.get(4), SIZE));
+
+			// without a directory, evicted thumbnails are created again
+			cache.load(locs.get(0), SIZE, null);
+			assertEquals(6, cache.createCount.get());
+		} finally {
+			IOUtils.delete(dir);
+		}
+	}
+
+	/**
+	 * Confirm visible requests are processed before prefetch requests, and
+	 * the most recent requests of the same priority are processed first.
+	 */
+	@Test
+	public void testPriority() throws Exception {
+		File dir = Files.createTempDirectory("ThumbnailCacheTest").toFile();
+		try {
+			final CountDownLatch blockedLatch = new CountDownLatch(1);
+			final CountDownLatch releaseLatch = new CountDownLatch(1);
+			ThumbnailCache cache = new CountingThumbnailCache(null, 1000000, 1) {
+				@Override
+				protected BufferedImage createThumbnail(IOLocation location,
+						Dimension size, Cancellable cancellable) {
+					if (location.getName().equals("block")) {
+						blockedLatch.countDown();
+						try {
+							releaseLatch.await();
+						} catch (InterruptedException e) {
+							throw new RuntimeException(e);
+						}
+					}
+					return super.createThumbnail(location, size, cancellable);
+				}
+			};
+
+			final List<String> loaded = Collections
+					.synchronizedList(new ArrayList<String>());
+			final CountDownLatch doneLatch = new CountDownLatch(5);
+			ThumbnailCache.ThumbnailListener listener = new ThumbnailCache.ThumbnailListener() {
+				@Override
+				public void thumbnailLoaded(IOLocation location,
+						Dimension size, BufferedImage thumbnail) {
+					loaded.add(location.getName());
+					doneLatch.countDown();
+				}
+
+				@Override
+				public void thumbnailFailed(IOLocation location,
+						Dimension size, Throwable throwable) {
+					fail(throwable.toString());
+				}
+			};
+
+			cache.request(getLocation(createFile(dir, "block", 1)), SIZE,
+					ThumbnailCache.PRIORITY_VISIBLE, listener);
+			assertTrue(blockedLatch.await(10, TimeUnit.SECONDS));
+
+			List<IOLocation> prefetch = new ArrayList<>();
+			for (int a = 0; a < 3; a++) {
+				prefetch.add(getLocation(createFile(dir, "p" + a, 1)));
+			}
+			for (IOLocation loc : prefetch) {
+				cache.request(loc, SIZE, ThumbnailCache.PRIORITY_PREFETCH,
+						listener);
+			}
+			cache.request(getLocation(createFile(dir, "visible", 1)), SIZE,
+					ThumbnailCache.PRIORITY_VISIBLE, listener);
+			releaseLatch.countDown();
+
+			assertTrue(doneLatch.await(10, TimeUnit.SECONDS));
+			assertEquals(
+					Arrays.asList("block", "visible", "p2", "p1", "p0"),
+					loaded);
+		} finally {
+			IOUtils.delete(dir);
+		}
+	}
+
+	/**
+	 * Confirm the directory is trimmed while the cache is used, not just when
+	 * it is created.
+	 */
+	@Test
+	public void testDiskLimit() throws Exception {
+		File dir = Files.createTempDirectory("ThumbnailCacheTest").toFile();
+		try {
+			File cacheDir = new File(dir, "cache");
+			long maxDiskBytes = 2000;
+			CountingThumbnailCache cache = new CountingThumbnailCache(
+					cacheDir, 0, maxDiskBytes, 1);
+			for (int a = 0; a < 40; a++) {
+				IOLocation loc = getLocation(createFile(dir, "file" + a, a));
+				cache.request(loc, SIZE, ThumbnailCache.PRIORITY_VISIBLE, null);
+			}
+			for (int a = 0; a < 200 && cache.createCount.get() < 40; a++) {
+				Thread.sleep(50);
+			}
+			assertEquals(40, cache.createCount.get());
+
+			long size = getDirectorySize(cacheDir);
+			for (int a = 0; a < 200 && size > maxDiskBytes; a++) {
+				Thread.sleep(50);
+				size = getDirectorySize(cacheDir);
+			}
+			assertTrue("size = " + size, size > 0 && size <= maxDiskBytes);
+		} finally {
+			IOUtils.delete(dir);
+		}
+	}
+
+	/**
+	 * Confirm a request whose Cancellable is cancelled before it is processed
+	 * is skipped, and its listener is not notified.
+	 */
+	@Test
+	public void testCancelledRequest() throws Exception {
+		File dir = Files.createTempDirectory("ThumbnailCacheTest").toFile();
+		try {
+			CountingThumbnailCache cache = new CountingThumbnailCache(null,
+					1000000, 1);
+			final AtomicInteger notifyCount = new AtomicInteger();
+			final CountDownLatch latch = new CountDownLatch(1);
+			ThumbnailCache.ThumbnailListener listener = new ThumbnailCache.ThumbnailListener() {
+				@Override
+				public void thumbnailLoaded(IOLocation location,
+						Dimension size, BufferedImage thumbnail) {
+					if (location.getName().equals("b"))
+						latch.countDown();
+					else
+						notifyCount.incrementAndGet();
+				}
+
+				@Override
+				public void thumbnailFailed(IOLocation location,
+						Dimension size, Throwable throwable) {
+					notifyCount.incrementAndGet();
+				}
+			};
+			BasicCancellable cancellable = new BasicCancellable();
+			cancellable.cancel();
+			cache.request(getLocation(createFile(dir, "a", 1)), SIZE,
+					ThumbnailCache.PRIORITY_VISIBLE, listener, cancellable);
+			cache.request(getLocation(createFile(dir, "b", 1)), SIZE,
+					ThumbnailCache.PRIORITY_PREFETCH, listener);
+
+			assertTrue(latch.await(10, TimeUnit.SECONDS));
+			assertEquals(0, notifyCount.get());
+			assertEquals(1, cache.createCount.get());
+		} finally {
+			IOUtils.delete(dir);
+		}
+	}
+
+	/**
+	 * Confirm an exception while creating a thumbnail is passed to the
+	 * listener, and is not cached.
+	 */
+	@Test
+	public void testFailedRequest() throws Exception {
+		File dir = Files.createTempDirectory("ThumbnailCacheTest").toFile();
+		try {
+			CountingThumbnailCache cache = new CountingThumbnailCache(null,
+					1000000, 1);
+			final AtomicInteger loadedCount = new AtomicInteger();
+			final List<Throwable> errors = Collections
+					.synchronizedList(new ArrayList<Throwable>());
+			final CountDownLatch latch = new CountDownLatch(1);
+			ThumbnailCache.ThumbnailListener listener = new ThumbnailCache.ThumbnailListener() {
+				@Override
+				public void thumbnailLoaded(IOLocation location,
+						Dimension size, BufferedImage thumbnail) {
+					loadedCount.incrementAndGet();
+					latch.countDown();
+				}
+
+				@Override
+				public void thumbnailFailed(IOLocation location,
+						Dimension size, Throwable throwable) {
+					errors.add(throwable);
+					latch.countDown();
+				}
+			};
+			IOLocation location = getLocation(createFile(dir, "fail", 1));
+			cache.request(location, SIZE, ThumbnailCache.PRIORITY_VISIBLE,
+					listener);
+
+			assertTrue(latch.await(10, TimeUnit.SECONDS));
+			assertEquals(0, loadedCount.get());
+			assertEquals(1, errors.size());
+			assertTrue(errors.get(0) instanceof IllegalStateException);
+			assertNull(cache.get(location, SIZE));
+			assertFalse(cache.isUnavailable(location, SIZE));
+		} finally {
+			IOUtils.delete(dir);
+		}
+	}
+
+	private static long getDirectorySize(File dir) {
+		long sum = 0;
+		File[] children = dir.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				sum += child.isDirectory() ? getDirectorySize(child) : child
+						.length();
+			}
+		}
+		return sum;
+	}
+
+	private static IOLocation getLocation(File file) {
+		return LocationFactory.get().createFileLocation(file);
+	}
+
+	private static File createFile(File dir, String name, int length)
+			throws IOException {
+		File file = new File(dir, name);
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write(new byte[length]);
+		}
+		return file;
+	}
+}
@@ -0,0 +1,94 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.text;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.pump.text.TextDiff.Algorithm;
+
+/**
+ * This measures how long (in milliseconds) the {@link Algorithm#LINEAR}
+ * algorithm takes to diff documents from 1 KB to 10 MB where about 1% of the
+ * lines have been edited, inserted or removed.
+ * <p>
+ * (The {@link Algorithm#EXHAUSTIVE} algorithm is not included, because it
+ * does not finish in a reasonable amount of time even for 1 KB.)
+ * <p>
+ * This is not a unit test; run the <code>main</code> method directly.
+ */
+public class TextDiffBenchmark {
+
+	static final int TRIALS = 5;
+
+	public static void main(String[] args) {
+		System.out.println("Size\tLINEAR (ms)");
+		for (int size = 1024; size <= 10 * 1024 * 1024; size *= 10) {
+			Random random = new Random(size);
+			String strA = createDocument(random, size);
+			String strB = edit(random, strA);
+			System.out.println(size + "\t" + measure(strA, strB));
+		}
+	}
+
+	/**
+	 * Return the median number of milliseconds to diff two Strings.
+	 */
+	static double measure(String strA, String strB) {
+		double[] results = new double[TRIALS];
+		for (int a = 0; a < TRIALS; a++) {
+			long time = System.nanoTime();
+			new TextDiff(Algorithm.LINEAR).getSolution(strA, strB);
+			time = System.nanoTime() - time;
+			results[a] = time / 1000000.0;
+		}
+		Arrays.sort(results);
+		return Math.round(results[results.length / 2] * 10) / 10.0;
+	}
+
+	static String createDocument(Random random, int size) {
+		String[] words = new String[] { "int", "value", "return", "if",
+				"for", "=", "+", "(", ")", "{", "}", "index", "width",
+				"height", "this", "null" };
+		StringBuilder sb = new StringBuilder(size + 100);
+		while (sb.length() < size) {
+			int wordCount = 1 + random.nextInt(8);
+			sb.append('\t');
+			for (int a = 0; a < wordCount; a++) {
+				sb.append(words[random.nextInt(words.length)]);
+				sb.append(' ');
+			}
+			sb.append(random.nextInt(1000));
+			sb.append(";\n");
+		}
+		return sb.toString();
+	}
+
+	static String edit(Random random, String document) {
+		String[] lines = document.split("\n", -1);
+		StringBuilder sb = new StringBuilder(document.length());
+		for (String line : lines) {
+			int k = random.nextInt(300);
+			if (k == 0) {
+				// remove this line
+				continue;
+			} else if (k == 1) {
+				sb.append("\tinserted line;\n");
+			} else if (k == 2 && line.length() > 2) {
+				int i = random.nextInt(line.length() - 1);
+				line = line.substring(0, i) + "edit" + line.substring(i + 1);
+			}
+			sb.append(line);
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,117 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.text;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import com.pump.text.TextDiff.Algorithm;
+import com.pump.text.TextDiff.Branch;
+import com.pump.text.TextDiff.DiffSegment;
+import com.pump.text.TextDiff.SplitSegment;
+
+public class TextDiffTest extends TestCase {
+
+	public void testLinearExamples() {
+		TextDiff diff = new TextDiff(Algorithm.LINEAR);
+		assertEquals("[anti]gravity{ field}",
+				diff.getSolution("antigravity", "gravity field").toString());
+		assertEquals("{gravity field}", diff.getSolution("", "gravity field")
+				.toString());
+		assertEquals("", diff.getSolution("", "").toString());
+		assertEquals("same", diff.getSolution("same", "same").toString());
+		assertEquals(1, diff.getSolutions("kitten", "sitting", true).length);
+	}
+
+	/**
+	 * Confirm the linear algorithm always reproduces both Strings, and within
+	 * a line it makes the fewest possible edits.
+	 */
+	public void testLinearRandom() {
+		Random random = new Random(0);
+		TextDiff diff = new TextDiff(Algorithm.LINEAR);
+		for (int a = 0; a < 1000; a++) {
+			boolean multiline = a % 2 == 1;
+			String strA = createString(random, random.nextInt(40), multiline);
+			String strB = createString(random, random.nextInt(40), multiline);
+			DiffSegment solution = diff.getSolution(strA, strB);
+			assertEquals(strA, solution.getText(Branch.A, true));
+			assertEquals(strB, solution.getText(Branch.B, true));
+			if (!multiline) {
+				assertEquals(strA + " " + strB, getLCSLength(strA, strB),
+						solution.getSharedCharCount());
+			}
+		}
+	}
+
+	/**
+	 * Confirm that large documents are diffed line-by-line, and changed lines
+	 * are diffed character-by-character.
+	 */
+	public void testLinearDocument() {
+		StringBuilder sbA = new StringBuilder();
+		StringBuilder sbB = new StringBuilder();
+		for (int a = 0; a < 20000; a++) {
+			sbA.append("line " + a + " of the document\n");
+			if (a == 500) {
+				sbB.append("inserted line\n");
+			}
+			if (a != 1000) {
+				sbB.append("line " + (a == 15000 ? "fifteen thousand" : a)
+						+ " of the document\n");
+			}
+		}
+		String strA = sbA.toString();
+		String strB = sbB.toString();
+		DiffSegment solution = new TextDiff(Algorithm.LINEAR).getSolution(strA,
+				strB);
+		assertEquals(strA, solution.getText(Branch.A, true));
+		assertEquals(strB, solution.getText(Branch.B, true));
+
+		int splitCharCount = 0;
+		for (DiffSegment t = solution; t != null; t = t.next()) {
+			if (t instanceof SplitSegment) {
+				SplitSegment s = (SplitSegment) t;
+				splitCharCount += s.textA.length() + s.textB.length();
+			}
+		}
+		assertTrue(splitCharCount < 100);
+	}
+
+	private static String createString(Random random, int length,
+			boolean multiline) {
+		StringBuilder sb = new StringBuilder();
+		for (int a = 0; a < length; a++) {
+			if (multiline && random.nextInt(8) == 0) {
+				sb.append('\n');
+			} else {
+				sb.append((char) ('a' + random.nextInt(4)));
+			}
+		}
+		return sb.toString();
+	}
+
+	private static int getLCSLength(String strA, String strB) {
+		int[][] lengths = new int[strA.length() + 1][strB.length() + 1];
+		for (int i = strA.length() - 1; i >= 0; i--) {
+			for (int j = strB.length() - 1; j >= 0; j--) {
+				if (strA.charAt(i) == strB.charAt(j)) {
+					lengths[i][j] = lengths[i + 1][j + 1] + 1;
+				} else {
+					lengths[i][j] = Math.max(lengths[i + 1][j],
+							lengths[i][j + 1]);
+				}
+			}
+		}
+		return lengths[0][0];
+	}
+}
@@ -0,0 +1,135 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.text;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+public class WildcardMatcherTest extends TestCase {
+
+	/**
+	 * Confirm a compiled pattern always agrees with the original pattern.
+	 */
+	public void testAgreesWithPattern() {
+		Random random = new Random(0);
+		for (int a = 0; a < 500; a++) {
+			WildcardPattern pattern = createPattern(random, a % 2 == 0);
+			WildcardMatcher matcher = pattern.compile();
+			for (int b = 0; b < 50; b++) {
+				String str = createString(random, random.nextInt(8));
+				assertEquals(pattern + " " + str, pattern.matches(str),
+						matcher.matches(str));
+			}
+		}
+	}
+
+	/**
+	 * Confirm a matcher compiled from many patterns (so its placeholders span
+	 * several words of bits) agrees with each pattern.
+	 */
+	public void testAgreesWithManyPatterns() {
+		Random random = new Random(1);
+		List<WildcardPattern> patterns = new ArrayList<>();
+		for (int a = 0; a < 200; a++) {
+			patterns.add(createPattern(random, a % 2 == 0));
+		}
+		WildcardMatcher matcher = new WildcardMatcher(patterns);
+		for (int a = 0; a < 2000; a++) {
+			String str = createString(random, random.nextInt(8));
+			List<WildcardPattern> expected = new ArrayList<>();
+			for (WildcardPattern pattern : patterns) {
+				if (pattern.matches(str))
+					expected.add(pattern);
+			}
+			assertEquals(str, expected, matcher.getMatchingPatterns(str));
+		}
+	}
+
+	/**
+	 * Confirm a matcher reports every pattern that matched.
+	 */
+	public void testMultiplePatterns() {
+		WildcardPattern jpg = new WildcardPattern("*.jpg");
+		WildcardPattern image = new WildcardPattern("image*");
+		WildcardPattern anything = new WildcardPattern("*");
+		WildcardPattern threeLetters = new WildcardPattern("???");
+		WildcardMatcher matcher = new WildcardMatcher(jpg, image, anything,
+				threeLetters);
+
+		assertEquals(Arrays.asList(jpg, image, anything),
+				matcher.getMatchingPatterns("Image1.JPG"));
+		assertEquals(Arrays.asList(anything, threeLetters),
+				matcher.getMatchingPatterns("abc"));
+		assertTrue(Arrays.equals(new int[] { 0, 2 },
+				matcher.getMatchingIndices("photo.jpg")));
+		assertTrue(matcher.matches(""));
+
+		matcher = new WildcardMatcher(jpg, threeLetters);
+		assertFalse(matcher.matches(""));
+		assertFalse(matcher.matches("photo.png"));
+		assertEquals(0, new WildcardMatcher().getMatchingPatterns("a").size());
+	}
+
+	/**
+	 * Confirm getMatches(..) finds elements that only match the constant
+	 * prefix of a pattern when case is ignored.
+	 */
+	public void testGetMatchesIgnoresCase() {
+		TreeSet<String> set = new TreeSet<>(Arrays.asList("BUTTER",
+				"Butterfly", "butter", "button", "clutter", "Kettle",
+				"kettle"));
+		assertEquals(new TreeSet<>(Arrays.asList("BUTTER", "Butterfly",
+				"butter")), new WildcardPattern("butter*").getMatches(set));
+		assertEquals(new TreeSet<>(Arrays.asList("Kettle", "kettle")),
+				new WildcardPattern("kettle").getMatches(set));
+
+		WildcardPattern.Format caseSensitive = new WildcardPattern.Format();
+		caseSensitive.caseSensitive = true;
+		assertEquals(new TreeSet<>(Arrays.asList("butter")),
+				new WildcardPattern("butter", caseSensitive).getMatches(set));
+
+		List<WildcardPattern> patterns = new ArrayList<>();
+		patterns.add(new WildcardPattern("but*"));
+		patterns.add(new WildcardPattern("butter"));
+		patterns.add(new WildcardPattern("cl?tter"));
+		assertEquals(new TreeSet<>(Arrays.asList("BUTTER", "Butterfly",
+				"butter", "button", "clutter")),
+				new WildcardMatcher(patterns).getMatches(set));
+	}
+
+	private static WildcardPattern createPattern(Random random,
+			boolean caseSensitive) {
+		String[] elements = new String[] { "a", "b", "B", "*", "?", "[ab]",
+				"[B-C]" };
+		StringBuilder sb = new StringBuilder();
+		int length = random.nextInt(7);
+		for (int b = 0; b < length; b++) {
+			sb.append(elements[random.nextInt(elements.length)]);
+		}
+		WildcardPattern.Format format = new WildcardPattern.Format();
+		format.caseSensitive = caseSensitive;
+		return new WildcardPattern(sb, format);
+	}
+
+	private static String createString(Random random, int length) {
+		String chars = "abABc";
+		StringBuilder sb = new StringBuilder();
+		for (int a = 0; a < length; a++) {
+			sb.append(chars.charAt(random.nextInt(chars.length())));
+		}
+		return sb.toString();
+	}
+}
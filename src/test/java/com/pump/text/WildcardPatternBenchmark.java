@@ -0,0 +1,119 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.text;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This compares how long (in milliseconds) it takes to identify every pattern
+ * that matches a list of file names using
+ * {@link WildcardPattern#matches(CharSequence)} against a single
+ * {@link WildcardMatcher} compiled from all the patterns.
+ * <p>
+ * This is not a unit test; run the <code>main</code> method directly.
+ */
+public class WildcardPatternBenchmark {
+
+	static final int TRIALS = 5;
+	static final int NAME_COUNT = 20000;
+
+	public static void main(String[] args) {
+		String[] words = new String[] { "image", "report", "final", "draft",
+				"backup", "copy", "data", "notes", "summary", "photo" };
+		String[] extensions = new String[] { "jpg", "png", "txt", "doc",
+				"xml", "java", "class", "zip" };
+		Random random = new Random(0);
+		List<String> names = new ArrayList<>(NAME_COUNT);
+		for (int a = 0; a < NAME_COUNT; a++) {
+			StringBuilder sb = new StringBuilder();
+			int wordCount = 1 + random.nextInt(4);
+			for (int b = 0; b < wordCount; b++) {
+				if (b > 0)
+					sb.append(random.nextBoolean() ? '_' : '-');
+				sb.append(words[random.nextInt(words.length)]);
+			}
+			sb.append(random.nextInt(100));
+			sb.append('.');
+			sb.append(extensions[random.nextInt(extensions.length)]);
+			names.add(sb.toString());
+		}
+
+		System.out.println("Patterns\tInterpreted\tCompiled\t(ms)");
+		for (int patternCount = 1; patternCount <= 1000; patternCount *= 10) {
+			List<WildcardPattern> patterns = new ArrayList<>(patternCount);
+			for (int a = 0; a < patternCount; a++) {
+				String w1 = words[random.nextInt(words.length)];
+				String w2 = words[random.nextInt(words.length)];
+				String ext = extensions[random.nextInt(extensions.length)];
+				switch (a % 4) {
+				case 0:
+					patterns.add(new WildcardPattern("*" + w1 + "*" + w2
+							+ "*." + ext));
+					break;
+				case 1:
+					patterns.add(new WildcardPattern(w1 + "*[0-9]." + ext));
+					break;
+				case 2:
+					patterns.add(new WildcardPattern("*" + w1 + "?" + w2 + "*"));
+					break;
+				default:
+					patterns.add(new WildcardPattern("*" + random.nextInt(100)
+							+ ".???"));
+				}
+			}
+			System.out.println(patternCount + "\t"
+					+ measureInterpreted(patterns, names) + "\t"
+					+ measureCompiled(patterns, names));
+		}
+	}
+
+	static double measureInterpreted(List<WildcardPattern> patterns,
+			List<String> names) {
+		double[] results = new double[TRIALS];
+		int matches = 0;
+		for (int a = 0; a < TRIALS; a++) {
+			long time = System.nanoTime();
+			for (String name : names) {
+				for (WildcardPattern pattern : patterns) {
+					if (pattern.matches(name))
+						matches++;
+				}
+			}
+			results[a] = (System.nanoTime() - time) / 1000000.0;
+		}
+		return getMedian(results, matches);
+	}
+
+	static double measureCompiled(List<WildcardPattern> patterns,
+			List<String> names) {
+		double[] results = new double[TRIALS];
+		int matches = 0;
+		for (int a = 0; a < TRIALS; a++) {
+			long time = System.nanoTime();
+			WildcardMatcher matcher = new WildcardMatcher(patterns);
+			for (String name : names) {
+				matches += matcher.getMatchingIndices(name).length;
+			}
+			results[a] = (System.nanoTime() - time) / 1000000.0;
+		}
+		return getMedian(results, matches);
+	}
+
+	private static double getMedian(double[] results, int matches) {
+		if (matches == 0)
+			System.out.println("no matches");
+		Arrays.sort(results);
+		return Math.round(results[results.length / 2] * 10) / 10.0;
+	}
+}
@@ -0,0 +1,138 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.util;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This compares the throughput of a {@link Cache} and a
+ * {@link ConcurrentCache} at 1, 4 and 16 threads.
+ * <p>
+ * Each thread performs a mix of 90% gets and 10% puts against a key space
+ * that is larger than the cache, so the caches regularly evict elements. This
+ * is not a unit test; run the <code>main</code> method directly.
+ */
+public class CacheBenchmark {
+
+	/**
+	 * This abstracts the two cache implementations we're comparing.
+	 */
+	interface Model {
+		Integer get(Integer key);
+
+		void put(Integer key, Integer value);
+	}
+
+	static final int MAX_SIZE = 1000;
+	static final int KEY_SPACE = 2000;
+	static final int OPERATIONS_PER_THREAD = 1000000;
+	static final int TRIALS = 5;
+
+	public static void main(String[] args) throws Exception {
+		int[] threadCounts = new int[] { 1, 4, 16 };
+		System.out.println("Threads\tCache (ops/ms)\tConcurrentCache (ops/ms)");
+		for (int threadCount : threadCounts) {
+			long a = measure(threadCount, false);
+			long b = measure(threadCount, true);
+			System.out.println(threadCount + "\t" + a + "\t" + b);
+		}
+	}
+
+	/**
+	 * Return the median throughput (in operations per millisecond) of several
+	 * trials.
+	 */
+	static long measure(int threadCount, boolean concurrent) throws Exception {
+		long[] results = new long[TRIALS];
+		for (int a = 0; a < TRIALS; a++) {
+			results[a] = runTrial(threadCount, createModel(concurrent));
+		}
+		Arrays.sort(results);
+		return results[results.length / 2];
+	}
+
+	static Model createModel(boolean concurrent) {
+		if (concurrent) {
+			final ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<>(
+					MAX_SIZE, 60000, -1);
+			return new Model() {
+				@Override
+				public Integer get(Integer key) {
+					return cache.get(key);
+				}
+
+				@Override
+				public void put(Integer key, Integer value) {
+					cache.put(key, value);
+				}
+			};
+		}
+		final Cache<Integer, Integer> cache = new Cache<>(MAX_SIZE, 60000, -1);
+		return new Model() {
+			@Override
+			public Integer get(Integer key) {
+				return cache.get(key);
+			}
+
+			@Override
+			public void put(Integer key, Integer value) {
+				cache.put(key, value);
+			}
+		};
+	}
+
+	static long runTrial(int threadCount, final Model model)
+			throws InterruptedException {
+		final CountDownLatch startLatch = new CountDownLatch(1);
+		final CountDownLatch endLatch = new CountDownLatch(threadCount);
+		final AtomicLong checksum = new AtomicLong();
+		for (int a = 0; a < threadCount; a++) {
+			final long seed = a;
+			Thread thread = new Thread("CacheBenchmark-" + a) {
+				@Override
+				public void run() {
+					Random random = new Random(seed);
+					long sum = 0;
+					try {
+						startLatch.await();
+						for (int b = 0; b < OPERATIONS_PER_THREAD; b++) {
+							// skew the keys so some are "hot"
+							double d = random.nextDouble();
+							Integer key = (int) (d * d * KEY_SPACE);
+							if (b % 10 == 0) {
+								model.put(key, key);
+							} else {
+								Integer value = model.get(key);
+								if (value != null)
+									sum += value;
+							}
+						}
+					} catch (InterruptedException e) {
+						throw new RuntimeException(e);
+					} finally {
+						checksum.addAndGet(sum);
+						endLatch.countDown();
+					}
+				}
+			};
+			thread.start();
+		}
+		long time = System.currentTimeMillis();
+		startLatch.countDown();
+		endLatch.await();
+		time = System.currentTimeMillis() - time;
+		return ((long) threadCount) * OPERATIONS_PER_THREAD
+				/ Math.max(1, time);
+	}
+}
@@ -0,0 +1,195 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+public class ConcurrentCacheTest extends TestCase {
+
+	/**
+	 * Test basic get/put functionality
+	 */
+	@Test
+	public void testStorage() {
+		ConcurrentCache<Integer, String> cache = new ConcurrentCache<>(4);
+
+		assertEquals(null, cache.get(1));
+
+		assertEquals(null, cache.put(1, "A"));
+		assertEquals(null, cache.put(2, "B"));
+		assertEquals(null, cache.put(3, "C"));
+		assertEquals(null, cache.put(4, "D"));
+
+		assertEquals("A", cache.get(1));
+		assertEquals("B", cache.get(2));
+		assertEquals("C", cache.get(3));
+		assertEquals("D", cache.get(4));
+		assertEquals(null, cache.get(5));
+
+		assertEquals("A", cache.put(1, "X"));
+		assertEquals("B", cache.put(2, "Y"));
+
+		assertEquals("X", cache.get(1));
+		assertEquals("Y", cache.get(2));
+		assertEquals("C", cache.get(3));
+		assertEquals("D", cache.get(4));
+
+		assertEquals("X", cache.remove(1));
+		assertEquals(null, cache.get(1));
+		assertEquals(3, cache.size());
+	}
+
+	/**
+	 * Confirm that the order we accessed elements in affects which element is
+	 * purged when a single segment reaches its capacity.
+	 */
+	@Test
+	public void testMaxSize_singleSegment() {
+		ConcurrentCache<Integer, String> cache = new ConcurrentCache<>(4, -1,
+				-1, 1);
+		cache.put(1, "A");
+		cache.put(2, "B");
+		cache.put(3, "C");
+		cache.put(4, "D");
+
+		assertEquals(new HashSet<>(Arrays.asList(1, 2, 3, 4)), cache.getKeys());
+
+		assertEquals("B", cache.get(2));
+		assertEquals("D", cache.get(4));
+		assertEquals("A", cache.get(1));
+		assertEquals("C", cache.get(3));
+
+		cache.put(5, "E");
+		assertEquals(4, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+
+		// "B" was the least recently touched element
+		assertEquals(null, cache.get(2));
+	}
+
+	/**
+	 * Confirm the total size never exceeds the limit when the limit is divided
+	 * across several segments.
+	 */
+	@Test
+	public void testMaxSize_multipleSegments() {
+		ConcurrentCache<Integer, String> cache = new ConcurrentCache<>(10, -1,
+				-1, 4);
+		assertEquals(4, cache.segments.length);
+		for (int a = 0; a < 1000; a++) {
+			cache.put(a, Integer.toString(a));
+			assertTrue(cache.size() <= 10);
+		}
+		assertEquals(10, cache.size());
+		assertEquals(990, cache.getEvictionCount());
+	}
+
+	/**
+	 * Confirm elements expire after they've gone untouched for the maximum
+	 * time.
+	 */
+	@Test
+	public synchronized void testMaxTime() throws Exception {
+		ConcurrentCache<Integer, String> cache = new ConcurrentCache<>(1000,
+				300, -1);
+		cache.put(1, "A");
+		cache.put(2, "B");
+
+		wait(200); // t = 200
+
+		cache.put(3, "C");
+		assertEquals("A", cache.get(1));
+		assertEquals(3, cache.size());
+
+		wait(200); // t = 400
+
+		// "B" expired, but "A" was touched at t = 200
+		assertEquals(2, cache.size());
+		assertEquals(null, cache.get(2));
+
+		wait(400); // t = 800
+
+		assertEquals(null, cache.get(1));
+		assertEquals(0, cache.size());
+		assertEquals(3, cache.getExpirationCount());
+	}
+
+	/**
+	 * Test the hit and miss counters.
+	 */
+	@Test
+	public void testCounters() {
+		ConcurrentCache<Integer, String> cache = new ConcurrentCache<>(4);
+		cache.put(1, "A");
+		cache.get(1);
+		cache.get(1);
+		cache.get(2);
+		assertEquals(2, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(0, cache.getEvictionCount());
+		assertEquals(0, cache.getExpirationCount());
+	}
+
+	/**
+	 * Hammer one cache from several threads and confirm the size limit holds
+	 * and every lookup is accounted for.
+	 */
+	@Test
+	public void testMultithreaded() throws Exception {
+		final ConcurrentCache<Integer, Integer> cache = new ConcurrentCache<>(
+				100);
+		final AtomicReference<Throwable> error = new AtomicReference<>();
+		final int threadCount = 8;
+		final int iterations = 10000;
+		List<Thread> threads = new ArrayList<>();
+		for (int a = 0; a < threadCount; a++) {
+			final int seed = a;
+			threads.add(new Thread("testMultithreaded-" + a) {
+				@Override
+				public void run() {
+					try {
+						for (int b = 0; b < iterations; b++) {
+							Integer key = (seed * 31 + b) % 500;
+							Integer value = cache.get(key);
+							if (value == null) {
+								cache.put(key, key);
+							} else {
+								assertEquals(key, value);
+							}
+						}
+					} catch (Throwable t) {
+						error.set(t);
+					}
+				}
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (error.get() != null)
+			throw new RuntimeException(error.get());
+
+		assertTrue(cache.size() <= 100);
+		assertEquals(threadCount * iterations,
+				cache.getHitCount() + cache.getMissCount());
+	}
+}
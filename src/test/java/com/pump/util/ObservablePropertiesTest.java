@@ -0,0 +1,104 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.util;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.pump.util.ObservableProperties.Edit;
+import com.pump.util.ObservableProperties.Key;
+
+public class ObservablePropertiesTest extends TestCase {
+
+	static final Key<Integer> KEY_A = new Key<>("a", Integer.class);
+	static final Key<Integer> KEY_B = new Key<>("b", Integer.class);
+	static final Key<Integer> KEY_C = new Key<>("c", Integer.class);
+
+	static class LogListener implements PropertyChangeListener {
+		List<String> log = new ArrayList<>();
+
+		@Override
+		public void propertyChange(PropertyChangeEvent evt) {
+			log.add(evt.getPropertyName() + ":" + evt.getOldValue() + "->"
+					+ evt.getNewValue());
+		}
+	}
+
+	/**
+	 * Confirm changes made during an edit collapse to one event per key, and
+	 * keys that return to their original value do not fire.
+	 */
+	@Test
+	public void testEditCollapsesEvents() {
+		ObservableProperties p = new ObservableProperties();
+		p.set(KEY_A, 1);
+		p.set(KEY_B, 1);
+		LogListener listener = new LogListener();
+		p.addListener(listener);
+
+		Edit edit = p.beginEdit();
+		for (int a = 2; a <= 100; a++) {
+			p.set(KEY_A, a);
+		}
+		p.clear();
+		p.set(KEY_B, 1);
+		p.set(KEY_C, 5);
+		assertTrue(listener.log.isEmpty());
+		p.endEdit(edit);
+
+		assertEquals(Arrays.asList("a:1->null", "c:null->5"), listener.log);
+		// 99 sets of "a", 2 clears, 2 sets of "b/c": 103 events, 2 fired
+		assertEquals(101, p.getSuppressedEventCount());
+
+		// outside of an edit every change still fires immediately
+		p.set(KEY_A, 7);
+		p.set(KEY_A, 8);
+		assertEquals(Arrays.asList("a:1->null", "c:null->5", "a:null->7",
+				"a:7->8"), listener.log);
+		assertEquals(101, p.getSuppressedEventCount());
+	}
+
+	/**
+	 * Confirm an Executor receives one Runnable per edit.
+	 */
+	@Test
+	public void testListenerExecutor() {
+		final List<Runnable> runnables = new ArrayList<>();
+		ObservableProperties p = new ObservableProperties();
+		p.setListenerExecutor(new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				runnables.add(command);
+			}
+		});
+		LogListener listener = new LogListener();
+		p.addListener(listener);
+
+		Edit edit = p.beginEdit();
+		p.set(KEY_A, 1);
+		p.set(KEY_B, 2);
+		p.set(KEY_A, 3);
+		p.endEdit(edit);
+		assertTrue(listener.log.isEmpty());
+		assertEquals(1, runnables.size());
+
+		runnables.get(0).run();
+		assertEquals(Arrays.asList("a:null->3", "b:null->2"), listener.log);
+	}
+}
@@ -0,0 +1,137 @@
+/**
+ * This software is released as part of the Pumpernickel project.
+ * 
+ * All com.pump resources in the Pumpernickel project are distributed under the
+ * MIT License:
+ * https://raw.githubusercontent.com/mickleness/pumpernickel/master/License.txt
+ * 
+ * More information about the Pumpernickel project is available here:
+ * https://mickleness.github.io/pumpernickel/
+ */
+package com.pump.util.list;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+
+import com.pump.util.list.ObservableList.ConcurrencyMode;
+
+/**
+ * This measures how many read operations per millisecond several threads can
+ * perform on an ObservableList while another thread modifies it, in each
+ * {@link ConcurrencyMode}.
+ * <p>
+ * The list has 1,000 elements. Each reader repeatedly calls
+ * <code>size()</code> and <code>get(int)</code>, and visits every element
+ * once every 1,000 reads. (In LOCKING mode readers have to visit elements
+ * through <code>toArray()</code>, because an iterator fails if another thread
+ * modifies the list.) The writer repeatedly replaces an element, notifying one
+ * ChangeListener each time.
+ * <p>
+ * This is not a unit test; run the <code>main</code> method directly.
+ */
+public class ObservableListBenchmark {
+
+	static final int TRIALS = 5;
+	static final int READERS = 4;
+	static final long DURATION_MILLIS = 500;
+
+	public static void main(String[] args) throws Exception {
+		System.out.println("Mode\tReads/ms\tWrites/ms");
+		for (ConcurrencyMode mode : ConcurrencyMode.values()) {
+			double[] reads = new double[TRIALS];
+			double[] writes = new double[TRIALS];
+			for (int a = 0; a < TRIALS; a++) {
+				double[] results = measure(mode);
+				reads[a] = results[0];
+				writes[a] = results[1];
+			}
+			Arrays.sort(reads);
+			Arrays.sort(writes);
+			System.out.println(mode + "\t" + round(reads[TRIALS / 2]) + "\t"
+					+ round(writes[TRIALS / 2]));
+		}
+	}
+
+	static double round(double d) {
+		return Math.round(d * 10) / 10.0;
+	}
+
+	/**
+	 * Return the number of reads and writes per millisecond.
+	 */
+	static double[] measure(ConcurrencyMode mode) throws Exception {
+		final ObservableList<Integer> list = new ObservableList<>(mode);
+		List<Integer> elements = new ArrayList<>();
+		for (int a = 0; a < 1000; a++) {
+			elements.add(a);
+		}
+		list.addAll(elements);
+		list.addChangeListener(new ChangeListener() {
+			@Override
+			public void stateChanged(ChangeEvent e) {
+			}
+		}, false);
+
+		final AtomicBoolean done = new AtomicBoolean(false);
+		final AtomicLong readCount = new AtomicLong();
+		final AtomicLong writeCount = new AtomicLong();
+		List<Thread> threads = new ArrayList<>();
+		for (int a = 0; a < READERS; a++) {
+			threads.add(new Thread("reader " + a) {
+				@Override
+				public void run() {
+					long ctr = 0;
+					long sum = 0;
+					while (!done.get()) {
+						int size = list.size();
+						sum += list.get((int) (ctr % size));
+						ctr++;
+						if (ctr % 1000 == 0) {
+							if (list.getConcurrencyMode() == ConcurrencyMode.LOCKING) {
+								for (Object i : list.toArray()) {
+									sum += (Integer) i;
+								}
+							} else {
+								for (Integer i : list) {
+									sum += i;
+								}
+							}
+						}
+					}
+					readCount.addAndGet(ctr);
+					if (sum == 0)
+						System.out.println("unexpected sum");
+				}
+			});
+		}
+		threads.add(new Thread("writer") {
+			@Override
+			public void run() {
+				long ctr = 0;
+				while (!done.get()) {
+					int index = (int) (ctr % 1000);
+					list.set(index, list.get(index) + 1);
+					ctr++;
+				}
+				writeCount.addAndGet(ctr);
+			}
+		});
+
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		Thread.sleep(DURATION_MILLIS);
+		done.set(true);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		return new double[] { readCount.get() / (double) DURATION_MILLIS,
+				writeCount.get() / (double) DURATION_MILLIS };
+	}
+}
@@ -12,8 +12,10 @@ package com.pump.util.list;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
@@ -809,4 +811,150 @@ public class ObservableListTest extends TestCase {
 		list.add("z");
 
 	}
-}
\ No newline at end of file
+
+	/**
+	 * This makes sure other threads can read a SNAPSHOT list while we're
+	 * holding on to our write lock, and that they see the new contents.
+	 */
+	public void testSnapshotReadsWithSecondThread()
+			throws InterruptedException {
+		final ObservableList<String> list = new ObservableList<>(
+				ObservableList.ConcurrencyMode.SNAPSHOT);
+		list.addAll("A", "B", "C");
+		list.setTimeoutSeconds(0);
+		final List<Object> otherThreadResults = new ArrayList<>();
+		list.addChangeListener(new ChangeListener() {
+
+			@Override
+			public void stateChanged(ChangeEvent e) {
+				Thread otherThread = new Thread() {
+					public void run() {
+						try {
+							otherThreadResults.add(list.size());
+							otherThreadResults.add(list.get(3));
+							otherThreadResults.add(list.clone());
+						} catch (Exception e) {
+							otherThreadResults.add(e);
+						}
+					}
+				};
+				otherThread.start();
+				try {
+					otherThread.join();
+				} catch (Exception e2) {
+					e2.printStackTrace();
+					fail();
+				}
+			}
+
+		}, false);
+		list.add("D");
+
+		assertEquals(
+				Arrays.asList(4, "D", Arrays.asList("A", "B", "C", "D")),
+				otherThreadResults);
+	}
+
+	/**
+	 * Make sure SNAPSHOT lists fire the same events and end up with the same
+	 * contents as LOCKING lists.
+	 */
+	public void testSnapshotModeMatchesLockingMode() {
+		for (ObservableList.ConcurrencyMode mode : ObservableList.ConcurrencyMode
+				.values()) {
+			ObservableList<String> list = new ObservableList<>(mode);
+			LogListListener listener = new LogListListener();
+			list.addListListener(listener, false);
+
+			list.addAll("A", "B", "C", "D", "E");
+			listener.pullAddEvent(0, "A", "B", "C", "D", "E");
+			list.add(2, "Z");
+			listener.pullAddEvent(2, "Z");
+			assertEquals(Arrays.asList("A", "B", "Z", "C", "D", "E"), list);
+			list.remove(0);
+			listener.pullRemoveEvent(0, "A");
+			list.set(0, "Y");
+			listener.pullSetEvent(0, "B", "Y");
+			list.removeAll(Arrays.asList("C", "E"));
+			listener.pullRemoveEvent(2, "C", 4, "E");
+			assertEquals(Arrays.asList("Y", "Z", "D"), list);
+			assertEquals(1, list.indexOf("Z"));
+			assertTrue(list.contains("D"));
+			assertEquals("[Y, Z, D]", list.toString());
+			assertEquals(Arrays.asList("Y", "Z", "D").hashCode(),
+					list.hashCode());
+			assertTrue(Arrays.equals(new String[] { "Y", "Z", "D" },
+					list.toArray(String.class)));
+			list.clear();
+			listener.pullRemoveEvent(0, "Y", 1, "Z", 2, "D");
+			assertTrue(list.isEmpty());
+			assertTrue(listener.log.isEmpty());
+			assertEquals(mode, list.getConcurrencyMode());
+		}
+	}
+
+	/**
+	 * Make sure iterators of SNAPSHOT lists are unaffected by later changes.
+	 */
+	public void testSnapshotIterator() {
+		ObservableList<String> list = new ObservableList<>(
+				ObservableList.ConcurrencyMode.SNAPSHOT);
+		list.addAll("A", "B", "C");
+		Iterator<String> iter = list.iterator();
+		assertEquals("A", iter.next());
+		list.add("D");
+		list.remove("B");
+		assertEquals("B", iter.next());
+		assertEquals("C", iter.next());
+		assertFalse(iter.hasNext());
+		try {
+			iter.remove();
+			fail();
+		} catch (UnsupportedOperationException e) {
+			// pass
+		}
+		assertEquals(Arrays.asList("A", "C", "D"), list);
+		assertEquals(Arrays.asList("A", "C", "D"), list.getUnmodifiableView());
+	}
+
+	/**
+	 * Make sure coalesced events have the same effect as the events they
+	 * replace.
+	 */
+	public void testCoalesceEvents() {
+		Object src = new Object();
+		List<String> original = Arrays.asList("A", "B", "C", "D", "E");
+
+		ListEvent<String>[] events = new ListEvent[] {
+				new AddElementsEvent<>(src, 1, Arrays.asList("x")),
+				new AddElementsEvent<>(src, 2, Arrays.asList("y")),
+				new AddElementsEvent<>(src, 1, Arrays.asList("z")),
+				new AddElementsEvent<>(src, 0, Arrays.asList("w")),
+				new RemoveElementsEvent<>(src, createRemoveMap(1, 3)),
+				new RemoveElementsEvent<>(src, createRemoveMap(0, 2, 4)),
+				new RemoveElementsEvent<>(src, createRemoveMap(0)) };
+		List<ListEvent<String>> coalesced = ObservableList.UIMirror
+				.coalesce(events);
+		assertEquals(3, coalesced.size());
+		assertEquals(Arrays.asList("z", "x", "y"),
+				((AddElementsEvent<String>) coalesced.get(0)).getNewElements());
+
+		List<String> expected = new ArrayList<>(original);
+		for (ListEvent<String> event : events) {
+			event.execute(expected);
+		}
+		List<String> actual = new ArrayList<>(original);
+		for (ListEvent<String> event : coalesced) {
+			event.execute(actual);
+		}
+		assertEquals(expected, actual);
+	}
+
+	private static TreeMap<Integer, String> createRemoveMap(int... indices) {
+		TreeMap<Integer, String> map = new TreeMap<>();
+		for (int index : indices) {
+			map.put(index, "?");
+		}
+		return map;
+	}
+}